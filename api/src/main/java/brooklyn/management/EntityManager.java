@@ -32,6 +32,7 @@ import brooklyn.policy.EnricherSpec;
 import brooklyn.policy.Policy;
 import brooklyn.policy.PolicySpec;
 
+import com.google.common.annotations.Beta;
 import com.google.common.base.Predicate;
 
 /**
@@ -97,6 +98,16 @@ public interface EntityManager {
      */
     Collection<Entity> findEntitiesInApplication(Application application, Predicate<? super Entity> filter);
 
+    /**
+     * All entities under control of this management plane that match the given query.
+     * Lookups by application, type, tag and parent are indexed, so where those are known this is
+     * much cheaper than {@link #findEntities(Predicate)} on a large management plane.
+     *
+     * @since 0.7.0
+     */
+    @Beta
+    Collection<Entity> findEntities(EntityQuery query);
+
     /**
      * Returns the entity with the given identifier (may be a full instance, or a proxy to one which is remote),
      * or null.
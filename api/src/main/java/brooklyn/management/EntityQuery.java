@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.management;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+import brooklyn.entity.Application;
+import brooklyn.entity.Entity;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Objects;
+import com.google.common.base.Predicate;
+
+/**
+ * Criteria for finding entities with {@link EntityManager#findEntities(EntityQuery)}.
+ * An entity matches if it meets all the criteria given; a query with none matches all entities.
+ * <p>
+ * The application, type, tag and parent criteria can be answered from indexes kept by the entity manager,
+ * so a query is typically much cheaper than testing each entity with a {@link Predicate}.
+ * Any {@link #filter(Predicate)} is applied only to the entities meeting the other criteria.
+ */
+@Beta
+public class EntityQuery {
+
+    public static EntityQuery create() {
+        return new EntityQuery();
+    }
+
+    private String applicationId;
+    private Class<?> type;
+    private final Set<Object> tags = new LinkedHashSet<Object>();
+    private String parentId;
+    private Predicate<? super Entity> filter;
+
+    protected EntityQuery() {}
+
+    /** entities in the given application */
+    public EntityQuery inApplication(Application application) {
+        return inApplication(checkNotNull(application, "application").getId());
+    }
+
+    public EntityQuery inApplication(String applicationId) {
+        this.applicationId = checkNotNull(applicationId, "applicationId");
+        return this;
+    }
+
+    /** entities which are instances of the given type, i.e. whose type is, extends or implements it */
+    public EntityQuery ofType(Class<?> type) {
+        this.type = checkNotNull(type, "type");
+        return this;
+    }
+
+    /** entities with the given tag; may be called more than once, to require all the tags */
+    public EntityQuery withTag(Object tag) {
+        tags.add(checkNotNull(tag, "tag"));
+        return this;
+    }
+
+    /** entities which are children of the given entity */
+    public EntityQuery childOf(Entity parent) {
+        return childOf(checkNotNull(parent, "parent").getId());
+    }
+
+    public EntityQuery childOf(String parentId) {
+        this.parentId = checkNotNull(parentId, "parentId");
+        return this;
+    }
+
+    /** entities also satisfying the given predicate */
+    public EntityQuery filter(Predicate<? super Entity> filter) {
+        this.filter = checkNotNull(filter, "filter");
+        return this;
+    }
+
+    @Nullable
+    public String getApplicationId() {
+        return applicationId;
+    }
+
+    @Nullable
+    public Class<?> getType() {
+        return type;
+    }
+
+    public Set<Object> getTags() {
+        return Collections.unmodifiableSet(tags);
+    }
+
+    @Nullable
+    public String getParentId() {
+        return parentId;
+    }
+
+    @Nullable
+    public Predicate<? super Entity> getFilter() {
+        return filter;
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this).omitNullValues()
+                .add("applicationId", applicationId)
+                .add("type", type == null ? null : type.getName())
+                .add("tags", tags.isEmpty() ? null : tags)
+                .add("parentId", parentId)
+                .add("filter", filter)
+                .toString();
+    }
+}
@@ -29,6 +29,7 @@ import java.util.Set;
 import brooklyn.enricher.basic.AbstractEnricher;
 import brooklyn.enricher.basic.Aggregator;
 import brooklyn.enricher.basic.Combiner;
+import brooklyn.enricher.basic.IncrementalFunctions;
 import brooklyn.enricher.basic.Propagator;
 import brooklyn.enricher.basic.Transformer;
 import brooklyn.enricher.basic.UpdatingMap;
@@ -169,6 +170,9 @@ public class Enrichers {
     }
 
 
+    /** the aggregations an {@link AggregatorBuilder} can compute incrementally */
+    protected enum Aggregation { SUM, AVERAGE, COUNT, MIN, MAX }
+
     protected abstract static class AbstractAggregatorBuilder<S, T, B extends AbstractAggregatorBuilder<S, T, B>> extends AbstractEnricherBuilder<B> {
         protected final AttributeSensor<S> aggregating;
         protected AttributeSensor<T> publishing;
@@ -182,6 +186,7 @@ public class Enrichers {
         protected Predicate<Object> valueFilter;
         protected Object defaultValueForUnreportedSensors;
         protected Object valueToReportIfNoSensors;
+        protected Aggregation aggregation;
         
         public AbstractAggregatorBuilder(AttributeSensor<S> aggregating) {
             super(Aggregator.class);
@@ -210,28 +215,47 @@ public class Enrichers {
         }
         public B computing(Function<? super Collection<S>, ? extends T> val) {
             this.computing = checkNotNull(val);
+            this.aggregation = null;
             return self();
         }
-        @SuppressWarnings({ "unchecked", "rawtypes" })
+        /** sums the values, as the published type; computed incrementally, see {@link IncrementalFunctions#sum(Number, Number, TypeToken)} */
         public B computingSum() {
-            // relies of TypeCoercion of result from Number to T, and type erasure for us to get away with it!
-            Function<Collection<S>, Number> function = new Function<Collection<S>, Number>()  {
-                @Override public Number apply(Collection<S> input) {
-                    return sum((Collection)input, (Number)defaultValueForUnreportedSensors, (Number)valueToReportIfNoSensors, (TypeToken) publishing.getTypeToken());
-                }};
-            this.computing((Function)function);
-            return self();
+            return computingIncrementally(Aggregation.SUM);
         }
-        @SuppressWarnings({ "unchecked", "rawtypes" })
+        /** averages the values, as the published type; computed incrementally, see {@link IncrementalFunctions#average(Number, Number, TypeToken)} */
         public B computingAverage() {
-            // relies of TypeCoercion of result from Number to T, and type erasure for us to get away with it!
-            Function<Collection<S>, Number> function = new Function<Collection<S>, Number>() {
-                @Override public Number apply(Collection<S> input) {
-                    return average((Collection)input, (Number)defaultValueForUnreportedSensors, (Number)valueToReportIfNoSensors, (TypeToken) publishing.getTypeToken());
-                }};
-            this.computing((Function)function);
+            return computingIncrementally(Aggregation.AVERAGE);
+        }
+        /** counts the producers reporting a value (or all producers, if there is a {@link #defaultValueForUnreportedSensors(Object)}) */
+        public B computingCount() {
+            return computingIncrementally(Aggregation.COUNT);
+        }
+        /** the least value reported, or {@link #valueToReportIfNoSensors(Object)} */
+        public B computingMin() {
+            return computingIncrementally(Aggregation.MIN);
+        }
+        /** the greatest value reported, or {@link #valueToReportIfNoSensors(Object)} */
+        public B computingMax() {
+            return computingIncrementally(Aggregation.MAX);
+        }
+        protected B computingIncrementally(Aggregation val) {
+            // the function is created on build, as it depends on the default values and published type
+            this.aggregation = checkNotNull(val);
+            this.computing = null;
             return self();
         }
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        protected Function<? super Collection<S>, ? extends T> getComputing() {
+            if (aggregation == null) return computing;
+            switch (aggregation) {
+            case SUM: return (Function) IncrementalFunctions.sum((Number)defaultValueForUnreportedSensors, (Number)valueToReportIfNoSensors, (TypeToken) publishing.getTypeToken());
+            case AVERAGE: return (Function) IncrementalFunctions.average((Number)defaultValueForUnreportedSensors, (Number)valueToReportIfNoSensors, (TypeToken) publishing.getTypeToken());
+            case COUNT: return (Function) IncrementalFunctions.count(defaultValueForUnreportedSensors!=null);
+            case MIN: return (Function) IncrementalFunctions.min(valueToReportIfNoSensors);
+            case MAX: return (Function) IncrementalFunctions.max(valueToReportIfNoSensors);
+            default: throw new IllegalStateException("Unexpected aggregation "+aggregation);
+            }
+        }
         public B defaultValueForUnreportedSensors(S val) {
             this.defaultValueForUnreportedSensors = val;
             return self();
@@ -272,7 +296,7 @@ public class Enrichers {
                             .put(Aggregator.SOURCE_SENSOR, aggregating)
                             .putIfNotNull(Aggregator.FROM_CHILDREN, fromChildren)
                             .putIfNotNull(Aggregator.FROM_MEMBERS, fromMembers)
-                            .putIfNotNull(Aggregator.TRANSFORMATION, computing)
+                            .putIfNotNull(Aggregator.TRANSFORMATION, getComputing())
                             .putIfNotNull(Aggregator.FROM_HARDCODED_PRODUCERS, fromHardcodedProducers)
                             .putIfNotNull(Aggregator.ENTITY_FILTER, entityFilter)
                             .putIfNotNull(Aggregator.VALUE_FILTER, valueFilter)
@@ -288,6 +312,7 @@ public class Enrichers {
                     .add("publishing", publishing)
                     .add("fromEntity", fromEntity)
                     .add("computing", computing)
+                    .add("aggregation", aggregation)
                     .add("fromMembers", fromMembers)
                     .add("fromChildren", fromChildren)
                     .add("excludingBlank", excludingBlank)
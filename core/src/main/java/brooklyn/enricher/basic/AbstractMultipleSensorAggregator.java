@@ -33,6 +33,7 @@ import brooklyn.event.Sensor;
 import brooklyn.event.SensorEvent;
 import brooklyn.event.SensorEventListener;
 import brooklyn.util.collections.MutableMap;
+import brooklyn.util.guava.Maybe;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableMap;
@@ -104,7 +105,7 @@ public abstract class AbstractMultipleSensorAggregator<U> extends AbstractAggreg
                     } else {
                         initialVal = null;
                     }
-                    vs.put(producer, initialVal != null ? initialVal : defaultMemberValue);
+                    putValue(sensor.getName(), vs, producer, initialVal != null ? initialVal : defaultMemberValue);
                     // NB: see notes on possible race, in Aggregator#onProducerAdded
                 }
                 
@@ -117,8 +118,10 @@ public abstract class AbstractMultipleSensorAggregator<U> extends AbstractAggreg
         synchronized (values) {
             for (Sensor<?> sensor: getSourceSensors()) {
                 Map<Entity,Object> vs = values.get(sensor.getName());
-                if (vs!=null)
-                    vs.remove(producer);
+                if (vs!=null && vs.containsKey(producer)) {
+                    Object old = vs.remove(producer);
+                    onValueChanged(sensor.getName(), producer, Maybe.of(old), Maybe.absent());
+                }
             }
         }
         onUpdated();
@@ -132,12 +135,27 @@ public abstract class AbstractMultipleSensorAggregator<U> extends AbstractAggreg
             if (vs==null) {
                 LOG.debug(this+" received event when no entry for sensor ("+event+"); likely just added or removed, and will initialize subsequently if needed");
             } else {
-                vs.put(e, event.getValue());
+                putValue(event.getSensor().getName(), vs, e, event.getValue());
             }
         }
         onUpdated();
     }
 
+    private void putValue(String sensorName, Map<Entity,Object> vs, Entity producer, Object value) {
+        Maybe<Object> old = vs.containsKey(producer) ? Maybe.of(vs.get(producer)) : Maybe.absent();
+        vs.put(producer, value);
+        onValueChanged(sensorName, producer, old, Maybe.of(value));
+    }
+
+    /**
+     * Invoked for each change to the value recorded for a producer, while holding the lock on the values:
+     * the old value is absent if the producer was just added, and the new value absent if it was removed.
+     * Subclasses can keep their own state up to date here, rather than recomputing it from
+     * {@link #getValues(Sensor)} on every update.
+     */
+    protected void onValueChanged(String sensorName, Entity producer, Maybe<Object> oldValue, Maybe<Object> newValue) {
+    }
+
     @SuppressWarnings("unchecked")
     public <T> Map<Entity,T> getValues(Sensor<T> sensor) {
         synchronized (values) {
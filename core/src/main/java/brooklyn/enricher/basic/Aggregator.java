@@ -31,6 +31,7 @@ import brooklyn.catalog.Catalog;
 import brooklyn.config.BrooklynLogging;
 import brooklyn.config.ConfigKey;
 import brooklyn.config.BrooklynLogging.LoggingLevel;
+import brooklyn.enricher.basic.IncrementalFunction.Reducer;
 import brooklyn.entity.Entity;
 import brooklyn.entity.basic.ConfigKeys;
 import brooklyn.event.AttributeSensor;
@@ -65,6 +66,12 @@ public class Aggregator<T,U> extends AbstractAggregator<T,U> implements SensorEv
     // We use a synchronizedMap over a ConcurrentHashMap for entities that store null values.
     protected final Map<Entity, T> values = Collections.synchronizedMap(new LinkedHashMap<Entity, T>());
 
+    /**
+     * If the transformation is an {@link IncrementalFunction}, its state for the filtered values;
+     * kept up to date with each change to values, and guarded by the values lock.
+     */
+    private transient Reducer<T, ? extends U> reducer;
+
     public Aggregator() {}
 
     @SuppressWarnings("unchecked")
@@ -72,6 +79,16 @@ public class Aggregator<T,U> extends AbstractAggregator<T,U> implements SensorEv
         super.setEntityLoadingConfig();
         this.sourceSensor = (Sensor<T>) getRequiredConfig(SOURCE_SENSOR);
         this.transformation = (Function<? super Collection<T>, ? extends U>) getRequiredConfig(TRANSFORMATION);
+        synchronized (values) {
+            if (transformation instanceof IncrementalFunction) {
+                reducer = ((IncrementalFunction<T, ? extends U>) (Function<?,?>) transformation).newReducer();
+                for (T value : values.values()) {
+                    if (valueFilter.apply(value)) reducer.add(value);
+                }
+            } else {
+                reducer = null;
+            }
+        }
     }
         
     @Override
@@ -112,7 +129,7 @@ public class Aggregator<T,U> extends AbstractAggregator<T,U> implements SensorEv
                 } else {
                     initialVal = null;
                 }
-                values.put(producer, initialVal != null ? initialVal : defaultMemberValue);
+                putValue(producer, initialVal != null ? initialVal : defaultMemberValue);
                 //we might skip in onEvent in the short window while !values.containsKey(producer)
                 //but that's okay because the put which would have been done there is done here now
             } else {
@@ -125,7 +142,12 @@ public class Aggregator<T,U> extends AbstractAggregator<T,U> implements SensorEv
     
     @Override
     protected void onProducerRemoved(Entity producer) {
-        values.remove(producer);
+        synchronized (values) {
+            if (values.containsKey(producer)) {
+                T old = values.remove(producer);
+                if (reducer != null && valueFilter.apply(old)) reducer.remove(old);
+            }
+        }
         onUpdated();
     }
 
@@ -134,7 +156,7 @@ public class Aggregator<T,U> extends AbstractAggregator<T,U> implements SensorEv
         Entity e = event.getSource();
         synchronized (values) {
             if (values.containsKey(e)) {
-                values.put(e, event.getValue());
+                putValue(e, event.getValue());
             } else {
                 if (LOG.isDebugEnabled()) LOG.debug("{} received event for unknown producer ({}); presumably that producer has recently been removed", this, e);
             }
@@ -142,6 +164,16 @@ public class Aggregator<T,U> extends AbstractAggregator<T,U> implements SensorEv
         onUpdated();
     }
 
+    /** records the value for the given producer; callers must hold the values lock */
+    private void putValue(Entity producer, T value) {
+        boolean hadOld = values.containsKey(producer);
+        T old = values.put(producer, value);
+        if (reducer != null) {
+            if (hadOld && valueFilter.apply(old)) reducer.remove(old);
+            if (valueFilter.apply(value)) reducer.add(value);
+        }
+    }
+
     protected void onUpdated() {
         try {
             emit(targetSensor, compute());
@@ -154,6 +186,7 @@ public class Aggregator<T,U> extends AbstractAggregator<T,U> implements SensorEv
     @Override
     protected Object compute() {
         synchronized (values) {
+            if (reducer != null) return reducer.get();
             // TODO Could avoid copying when filter not needed
             List<T> vs = MutableList.copyOf(Iterables.filter(values.values(), valueFilter));
             return transformation.apply(vs);
@@ -0,0 +1,55 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.enricher.basic;
+
+import java.util.Collection;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Function;
+
+/**
+ * A function over a collection of values which can also be computed incrementally, as values are added
+ * to and removed from the collection, without looking at the other values.
+ * <p>
+ * When the {@link Aggregator#TRANSFORMATION} of an {@link Aggregator} is one of these, the aggregator keeps
+ * a {@link Reducer} up to date as each member's value changes, so the cost of an event does not grow with
+ * the number of members; other functions are applied to all the values on every event.
+ * See {@link IncrementalFunctions} for sum, count, mean, min and max.
+ * <p>
+ * {@link #apply(Object)} must give the same result as a new reducer to which each of the values has been added.
+ */
+@Beta
+public interface IncrementalFunction<T,U> extends Function<Collection<T>,U> {
+
+    /** a new reducer, to which no values have been added */
+    Reducer<T,U> newReducer();
+
+    /**
+     * The state of an incremental function over a changing collection of values.
+     * Not thread-safe; callers must synchronize.
+     */
+    public interface Reducer<T,U> {
+        /** includes the given value (which may be null) */
+        void add(T value);
+        /** excludes a value previously added */
+        void remove(T value);
+        /** the result of the function for the values currently included */
+        U get();
+    }
+}
@@ -0,0 +1,300 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.enricher.basic;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Collection;
+import java.util.Comparator;
+
+import javax.annotation.Nullable;
+
+import brooklyn.enricher.basic.IncrementalFunction.Reducer;
+import brooklyn.util.flags.TypeCoercions;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Ordering;
+import com.google.common.collect.TreeMultiset;
+import com.google.common.reflect.TypeToken;
+
+/**
+ * {@link IncrementalFunction}s for the common aggregations. Sum, count and mean are updated in constant
+ * time for each value added or removed, and min and max in logarithmic time.
+ * <p>
+ * Null values are treated as in {@link brooklyn.enricher.Enrichers}: for sum and mean they are replaced by the
+ * given value if there is one, and otherwise ignored, with the given result reported if no values are counted.
+ */
+@Beta
+public class IncrementalFunctions {
+
+    private IncrementalFunctions() {}
+
+    /** the sum of the values, as the given type */
+    public static <N extends Number> IncrementalFunction<Number,N> sum(@Nullable Number valueIfNull, @Nullable Number valueIfNone, TypeToken<N> type) {
+        return new Sum<N>(valueIfNull, valueIfNone, type.getRawType());
+    }
+
+    /** the mean of the values, as the given type */
+    public static <N extends Number> IncrementalFunction<Number,N> average(@Nullable Number valueIfNull, @Nullable Number valueIfNone, TypeToken<N> type) {
+        return new Average<N>(valueIfNull, valueIfNone, type.getRawType());
+    }
+
+    /** the number of values, optionally counting nulls */
+    public static IncrementalFunction<Object,Integer> count(boolean includeNulls) {
+        return new Count(includeNulls);
+    }
+
+    /** the least of the non-null values; numbers of different types are compared by value */
+    public static <T> IncrementalFunction<T,T> min(@Nullable T valueIfNone) {
+        return new Extreme<T>(false, valueIfNone);
+    }
+
+    /** the greatest of the non-null values; numbers of different types are compared by value */
+    public static <T> IncrementalFunction<T,T> max(@Nullable T valueIfNone) {
+        return new Extreme<T>(true, valueIfNone);
+    }
+
+    protected abstract static class AbstractIncrementalFunction<T,U> implements IncrementalFunction<T,U> {
+        @Override
+        public U apply(@Nullable Collection<T> input) {
+            Reducer<T,U> reducer = newReducer();
+            if (input != null) {
+                for (T value : input) {
+                    reducer.add(value);
+                }
+            }
+            return reducer.get();
+        }
+    }
+
+    /**
+     * An exact running total of numbers, so that removing a value undoes adding it
+     * (summing doubles would accumulate rounding errors as values come and go).
+     */
+    protected static class RunningTotal {
+        private BigDecimal finite = BigDecimal.ZERO;
+        private int nans;
+        private int positiveInfinities;
+        private int negativeInfinities;
+
+        public void add(Number value) {
+            update(value, 1);
+        }
+
+        public void remove(Number value) {
+            update(value, -1);
+        }
+
+        private void update(Number value, int sign) {
+            if (value instanceof Double || value instanceof Float) {
+                double d = value.doubleValue();
+                if (Double.isNaN(d)) {
+                    nans += sign;
+                    return;
+                } else if (Double.isInfinite(d)) {
+                    if (d > 0) positiveInfinities += sign;
+                    else negativeInfinities += sign;
+                    return;
+                }
+            }
+            BigDecimal exact = toBigDecimal(value);
+            finite = (sign > 0) ? finite.add(exact) : finite.subtract(exact);
+        }
+
+        public double get() {
+            if (nans > 0 || (positiveInfinities > 0 && negativeInfinities > 0)) return Double.NaN;
+            if (positiveInfinities > 0) return Double.POSITIVE_INFINITY;
+            if (negativeInfinities > 0) return Double.NEGATIVE_INFINITY;
+            return finite.doubleValue();
+        }
+
+        private static BigDecimal toBigDecimal(Number value) {
+            if (value instanceof BigDecimal) return (BigDecimal) value;
+            if (value instanceof BigInteger) return new BigDecimal((BigInteger) value);
+            if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                return BigDecimal.valueOf(value.longValue());
+            }
+            return new BigDecimal(value.doubleValue());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    protected static <N> N cast(@Nullable Number value, Class<?> type) {
+        return (N) TypeCoercions.castPrimitive(value, type);
+    }
+
+    /** state shared by {@link Sum} and {@link Average}: the total and number of the values counted */
+    protected abstract static class NumericReducer<N extends Number> implements Reducer<Number,N> {
+        private final Number valueIfNull;
+        protected final RunningTotal total = new RunningTotal();
+        protected int count;
+
+        protected NumericReducer(Number valueIfNull) {
+            this.valueIfNull = valueIfNull;
+        }
+
+        @Override
+        public void add(Number value) {
+            Number v = (value != null) ? value : valueIfNull;
+            if (v == null) return;
+            total.add(v);
+            count++;
+        }
+
+        @Override
+        public void remove(Number value) {
+            Number v = (value != null) ? value : valueIfNull;
+            if (v == null) return;
+            total.remove(v);
+            count--;
+        }
+    }
+
+    public static class Sum<N extends Number> extends AbstractIncrementalFunction<Number,N> {
+        private final Number valueIfNull;
+        private final Number valueIfNone;
+        private final Class<?> type;
+
+        public Sum(@Nullable Number valueIfNull, @Nullable Number valueIfNone, Class<?> type) {
+            this.valueIfNull = valueIfNull;
+            this.valueIfNone = valueIfNone;
+            this.type = Preconditions.checkNotNull(type, "type");
+        }
+
+        @Override
+        public Reducer<Number,N> newReducer() {
+            return new NumericReducer<N>(valueIfNull) {
+                @Override
+                public N get() {
+                    if (count == 0) return cast(valueIfNone, type);
+                    return cast(total.get(), type);
+                }
+            };
+        }
+
+        @Override
+        public String toString() {
+            return Objects.toStringHelper(this).omitNullValues().add("valueIfNull", valueIfNull).add("valueIfNone", valueIfNone).add("type", type.getSimpleName()).toString();
+        }
+    }
+
+    public static class Average<N extends Number> extends AbstractIncrementalFunction<Number,N> {
+        private final Number valueIfNull;
+        private final Number valueIfNone;
+        private final Class<?> type;
+
+        public Average(@Nullable Number valueIfNull, @Nullable Number valueIfNone, Class<?> type) {
+            this.valueIfNull = valueIfNull;
+            this.valueIfNone = valueIfNone;
+            this.type = Preconditions.checkNotNull(type, "type");
+        }
+
+        @Override
+        public Reducer<Number,N> newReducer() {
+            return new NumericReducer<N>(valueIfNull) {
+                @Override
+                public N get() {
+                    if (count == 0) return cast((valueIfNone == null) ? null : valueIfNone.doubleValue(), type);
+                    return cast(total.get() / count, type);
+                }
+            };
+        }
+
+        @Override
+        public String toString() {
+            return Objects.toStringHelper(this).omitNullValues().add("valueIfNull", valueIfNull).add("valueIfNone", valueIfNone).add("type", type.getSimpleName()).toString();
+        }
+    }
+
+    public static class Count extends AbstractIncrementalFunction<Object,Integer> {
+        private final boolean includeNulls;
+
+        public Count(boolean includeNulls) {
+            this.includeNulls = includeNulls;
+        }
+
+        @Override
+        public Reducer<Object,Integer> newReducer() {
+            return new Reducer<Object,Integer>() {
+                private int count;
+                @Override public void add(Object value) {
+                    if (value != null || includeNulls) count++;
+                }
+                @Override public void remove(Object value) {
+                    if (value != null || includeNulls) count--;
+                }
+                @Override public Integer get() {
+                    return count;
+                }
+            };
+        }
+
+        @Override
+        public String toString() {
+            return Objects.toStringHelper(this).add("includeNulls", includeNulls).toString();
+        }
+    }
+
+    /** orders numbers by value, whatever their types, and other values naturally */
+    protected static class NaturalOrNumericOrdering extends Ordering<Object> {
+        @Override
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        public int compare(Object left, Object right) {
+            if (left instanceof Number && right instanceof Number && left.getClass() != right.getClass()) {
+                return Double.compare(((Number) left).doubleValue(), ((Number) right).doubleValue());
+            }
+            return ((Comparable) left).compareTo(right);
+        }
+    }
+
+    public static class Extreme<T> extends AbstractIncrementalFunction<T,T> {
+        private final boolean max;
+        private final T valueIfNone;
+
+        public Extreme(boolean max, @Nullable T valueIfNone) {
+            this.max = max;
+            this.valueIfNone = valueIfNone;
+        }
+
+        @Override
+        public Reducer<T,T> newReducer() {
+            return new Reducer<T,T>() {
+                @SuppressWarnings("unchecked")
+                private final TreeMultiset<T> values = TreeMultiset.create((Comparator<T>) new NaturalOrNumericOrdering());
+                @Override public void add(T value) {
+                    if (value != null) values.add(value);
+                }
+                @Override public void remove(T value) {
+                    if (value != null) values.remove(value);
+                }
+                @Override public T get() {
+                    if (values.isEmpty()) return valueIfNone;
+                    return max ? values.lastEntry().getElement() : values.firstEntry().getElement();
+                }
+            };
+        }
+
+        @Override
+        public String toString() {
+            return Objects.toStringHelper(max ? "Max" : "Min").omitNullValues().add("valueIfNone", valueIfNone).toString();
+        }
+    }
+}
@@ -227,6 +227,7 @@ public abstract class AbstractEntity extends AbstractBrooklynObject implements E
      */
     // TODO Assigning temp value because not everything uses EntitySpec; see setManagementContext()
     private AttributeMap attributesInternal = new AttributeMap(this, Maps.<Collection<String>, Object>newLinkedHashMap());
+    private transient volatile CachedAllAttributes cachedAllAttributes;
 
     /**
      * For temporary data, e.g. timestamps etc for calculating real attribute values, such as when
@@ -584,6 +585,7 @@ public abstract class AbstractEntity extends AbstractBrooklynObject implements E
             throw new IllegalStateException("loop detected trying to set parent of "+this+" as "+entity+", which is already a descendent");
         
         parent.set(entity);
+        getManagementSupport().getEntityChangeListener().onParentChanged();
         entity.addChild(getProxyIfAvailable());
         config().refreshInheritedConfig();
         previouslyOwned = true;
@@ -598,6 +600,7 @@ public abstract class AbstractEntity extends AbstractBrooklynObject implements E
         if (parent.isNull()) return;
         Entity oldParent = parent.get();
         parent.clear();
+        getManagementSupport().getEntityChangeListener().onParentChanged();
         if (oldParent != null) {
             if (!Entities.isNoLongerManaged(oldParent)) 
                 oldParent.removeChild(getProxyIfAvailable());
@@ -924,6 +927,8 @@ public abstract class AbstractEntity extends AbstractBrooklynObject implements E
         
         attributesInternal.remove(attribute);
         entityType.removeSensor(attribute);
+        
+        getManagementSupport().getEntityChangeListener().onAttributeChanged(attribute);
     }
 
     /** sets the value of the given attribute sensor from the config key value herein
@@ -941,8 +946,15 @@ public abstract class AbstractEntity extends AbstractBrooklynObject implements E
 
     @Override
     public Map<AttributeSensor, Object> getAllAttributes() {
-        Map<AttributeSensor, Object> result = Maps.newLinkedHashMap();
         Map<String, Object> attribs = attributesInternal.asMap();
+        CachedAllAttributes cached = cachedAllAttributes;
+        // the attribute map returns the same view until it changes, so ours is current if built from that view
+        if (cached!=null && cached.source==attribs) {
+            return cached.result;
+        }
+        
+        Map<AttributeSensor, Object> result = Maps.newLinkedHashMap();
+        boolean synthetic = false;
         for (Map.Entry<String,Object> entry : attribs.entrySet()) {
             AttributeSensor<?> attribKey = (AttributeSensor<?>) entityType.getSensor(entry.getKey());
             if (attribKey == null) {
@@ -952,11 +964,25 @@ public abstract class AbstractEntity extends AbstractBrooklynObject implements E
                 // TODO If it's not a race, then don't log.warn every time!
                 LOG.warn("When retrieving all attributes of {}, no AttributeSensor for attribute {} (creating synthetic)", this, entry.getKey());
                 attribKey = Sensors.newSensor(Object.class, entry.getKey());
+                synthetic = true;
             }
             result.put(attribKey, entry.getValue());
         }
+        result = Collections.unmodifiableMap(result);
+        // not cached if a sensor was missing, so the real sensor is used once it has been added
+        if (!synthetic) cachedAllAttributes = new CachedAllAttributes(attribs, result);
         return result;
     }
+    
+    @SuppressWarnings("rawtypes")
+    private static class CachedAllAttributes {
+        final Map<String, Object> source;
+        final Map<AttributeSensor, Object> result;
+        CachedAllAttributes(Map<String, Object> source, Map<AttributeSensor, Object> result) {
+            this.source = source;
+            this.result = result;
+        }
+    }
 
     
     // -------- CONFIGURATION --------------
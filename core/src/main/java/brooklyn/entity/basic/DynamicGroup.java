@@ -31,6 +31,7 @@ import brooklyn.event.Sensor;
 import brooklyn.event.SensorEvent;
 import brooklyn.event.basic.Sensors;
 import brooklyn.util.flags.SetFromFlag;
+import brooklyn.util.time.Duration;
 import groovy.lang.Closure;
 
 @ImplementedBy(DynamicGroupImpl.class)
@@ -41,6 +42,19 @@ public interface DynamicGroup extends AbstractGroup {
     ConfigKey<Predicate<? super Entity>> ENTITY_FILTER = ConfigKeys.newConfigKey(new TypeToken<Predicate<? super Entity>>() { },
             "dynamicgroup.entityfilter", "Filter for entities which will automatically be in the group");
 
+    /**
+     * Period between full rescans of all entities, checking membership is consistent with the filter.
+     * <p>
+     * Members are normally kept up to date as entities become managed and unmanaged, and, where the filter is an
+     * {@link IndexableEntityPredicate} (as most of {@link EntityPredicates} are), as the sensors it depends on change.
+     * A periodic rescan is only needed to catch changes the filter cannot be told about, such as to an entity's
+     * config or tags, or to what is tested by a filter that is not indexable. Null (the default) disables it.
+     */
+    @SetFromFlag("consistencyCheckPeriod")
+    ConfigKey<Duration> CONSISTENCY_CHECK_PERIOD = ConfigKeys.newDurationConfigKey(
+            "dynamicgroup.consistencyCheckPeriod", "Period between full rescans of all entities, to check membership; "
+            + "null (default) or zero to disable");
+
     AttributeSensor<Boolean> RUNNING = Sensors.newBooleanSensor(
             "dynamicgroup.running", "Whether the entity is running, and will automatically update group membership");
 
@@ -58,7 +72,11 @@ public interface DynamicGroup extends AbstractGroup {
     @Deprecated
     void stop();
 
-    /** Rescans <em>all</em> entities to determine whether they match the filter. */
+    /**
+     * Rescans <em>all</em> entities to determine whether they match the filter.
+     * <p>
+     * This is not normally needed, as membership is kept up to date from events; see {@link #CONSISTENCY_CHECK_PERIOD}.
+     */
     @Effector(description = "Rescans all entities to determine whether they match the configured filter.")
     void rescanEntities();
 
@@ -22,6 +22,7 @@ import groovy.lang.Closure;
 
 import java.util.Collection;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -29,19 +30,25 @@ import org.slf4j.LoggerFactory;
 import brooklyn.config.BrooklynLogging;
 import brooklyn.config.BrooklynLogging.LoggingLevel;
 import brooklyn.entity.Entity;
+import brooklyn.entity.basic.IndexableEntityPredicate.Trigger;
 import brooklyn.event.Sensor;
 import brooklyn.event.SensorEvent;
 import brooklyn.event.SensorEventListener;
+import brooklyn.management.SubscriptionHandle;
 import brooklyn.management.Task;
 import brooklyn.management.internal.CollectionChangeListener;
 import brooklyn.management.internal.ManagementContextInternal;
 import brooklyn.util.GroovyJavaMethods;
+import brooklyn.util.collections.MutableMap;
 import brooklyn.util.exceptions.Exceptions;
+import brooklyn.util.task.ScheduledTask;
 import brooklyn.util.task.Tasks;
+import brooklyn.util.time.Duration;
 
 import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
 public class DynamicGroupImpl extends AbstractGroupImpl implements DynamicGroup {
@@ -52,6 +59,11 @@ public class DynamicGroupImpl extends AbstractGroupImpl implements DynamicGroup
 
     private volatile MyEntitySetChangeListener setChangeListener = null;
 
+    // subscriptions to the events which can change the filter's result, when it is indexable; guarded by memberChangeMutex
+    private transient Map<SubscriptionHandle, Trigger> triggerSubscriptions = null;
+
+    private transient volatile Task<?> consistencyCheck = null;
+
     public DynamicGroupImpl() { }
 
     @Deprecated
@@ -69,6 +81,7 @@ public class DynamicGroupImpl extends AbstractGroupImpl implements DynamicGroup
     public void setEntityFilter(Predicate<? super Entity> filter) {
         // TODO Sould this be "evenIfOwned"?
         setConfigEvenIfOwned(ENTITY_FILTER, filter);
+        if (setChangeListener != null) subscribeToFilterTriggers();
         rescanEntities();
     }
 
@@ -98,6 +111,8 @@ public class DynamicGroupImpl extends AbstractGroupImpl implements DynamicGroup
         if (setChangeListener != null) {
             ((ManagementContextInternal) getManagementContext()).removeEntitySetListener(setChangeListener);
         }
+        unsubscribeFromFilterTriggers();
+        cancelConsistencyCheck();
     }
 
     @Override
@@ -150,6 +165,79 @@ public class DynamicGroupImpl extends AbstractGroupImpl implements DynamicGroup
         }
     }
 
+    /**
+     * Subscribes to the events which can change the result of the filter, if it is an {@link IndexableEntityPredicate},
+     * so that only the entity affected by each is re-evaluated; replaces any subscriptions for a previous filter.
+     */
+    private void subscribeToFilterTriggers() {
+        synchronized (memberChangeMutex) {
+            unsubscribeFromFilterTriggers();
+            Predicate<? super Entity> filter = getConfig(ENTITY_FILTER);
+            if (!(filter instanceof IndexableEntityPredicate)) {
+                if (filter != null && log.isDebugEnabled())
+                    log.debug("{} filter {} not indexable; members will only change on entity management and rescans", this, filter);
+                return;
+            }
+            Map<SubscriptionHandle, Trigger> subscriptions = Maps.newLinkedHashMap();
+            for (Trigger trigger : ((IndexableEntityPredicate) filter).getTriggers()) {
+                subscriptions.put(subscribeToTrigger(trigger, trigger.getSensor()), trigger);
+            }
+            triggerSubscriptions = subscriptions;
+            if (log.isDebugEnabled()) log.debug("{} keeping members up to date from {}", this, subscriptions.values());
+        }
+    }
+
+    private <T> SubscriptionHandle subscribeToTrigger(final Trigger trigger, Sensor<T> sensor) {
+        return subscribe(trigger.getProducer(), sensor, new SensorEventListener<T>() {
+            @Override
+            public void onEvent(SensorEvent<T> event) {
+                Entity affected = trigger.getAffectedEntity(event);
+                // entities becoming unmanaged are removed by the entity set listener
+                if (affected != null && Entities.isManaged(affected)) onEntityChanged(affected);
+            }});
+    }
+
+    private void unsubscribeFromFilterTriggers() {
+        synchronized (memberChangeMutex) {
+            if (triggerSubscriptions == null) return;
+            for (Map.Entry<SubscriptionHandle, Trigger> entry : triggerSubscriptions.entrySet()) {
+                unsubscribe(entry.getValue().getProducer(), entry.getKey());
+            }
+            triggerSubscriptions = null;
+        }
+    }
+
+    private void scheduleConsistencyCheck() {
+        Duration period = getConfig(CONSISTENCY_CHECK_PERIOD);
+        if (period == null || period.toMilliseconds() <= 0) return;
+        Callable<Task<?>> taskFactory = new Callable<Task<?>>() {
+            @Override public Task<?> call() {
+                return Tasks.builder().name("check membership").body(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            rescanEntities();
+                        } catch (Exception e) {
+                            // don't rethrow, as that would stop subsequent checks
+                            log.warn("Error checking membership of "+DynamicGroupImpl.this+": "+e);
+                            log.debug("Trace for membership check error", e);
+                            Exceptions.propagateIfFatal(e);
+                        }
+                    }}).build();
+            }
+        };
+        consistencyCheck = getExecutionContext().submit(new ScheduledTask(
+                MutableMap.of("displayName", "scheduled[membership check]"), taskFactory).delay(period).period(period));
+    }
+
+    private void cancelConsistencyCheck() {
+        Task<?> task = consistencyCheck;
+        if (task != null) {
+            task.cancel(true);
+            consistencyCheck = null;
+        }
+    }
+
     private class MyEntitySetChangeListener implements CollectionChangeListener<Entity> {
         @Override
         public void onItemAdded(Entity item) { onEntityAdded(item); }
@@ -165,6 +253,8 @@ public class DynamicGroupImpl extends AbstractGroupImpl implements DynamicGroup
         }
         setChangeListener = new MyEntitySetChangeListener();
         ((ManagementContextInternal) getManagementContext()).addEntitySetListener(setChangeListener);
+        subscribeToFilterTriggers();
+        scheduleConsistencyCheck();
         Task<Object> rescan = Tasks.builder().name("rescan entities").body(
             new Runnable() {
                 @Override
@@ -189,6 +279,8 @@ public class DynamicGroupImpl extends AbstractGroupImpl implements DynamicGroup
         }
         ((ManagementContextInternal) getManagementContext()).removeEntitySetListener(setChangeListener);
         setChangeListener = null;
+        unsubscribeFromFilterTriggers();
+        cancelConsistencyCheck();
     }
 
     @Override
@@ -21,11 +21,17 @@ package brooklyn.entity.basic;
 import static brooklyn.util.GroovyJavaMethods.elvis;
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -45,10 +51,13 @@ import brooklyn.util.flags.TypeCoercions;
 import brooklyn.util.guava.Maybe;
 import brooklyn.util.internal.ConfigKeySelfExtracting;
 import brooklyn.util.task.DeferredSupplier;
+import brooklyn.util.time.Duration;
 
+import com.google.common.annotations.Beta;
 import com.google.common.base.Predicate;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
+import com.google.common.primitives.Primitives;
 
 public class EntityConfigMap implements ConfigMap {
 
@@ -73,6 +82,53 @@ public class EntityConfigMap implements ConfigMap {
     private final ConfigBag localConfigBag;
     private final ConfigBag inheritedConfigBag;
 
+    /**
+     * Values resolved by {@link #getConfig(ConfigKey, Object)}, so that repeated calls (e.g. from drivers during start)
+     * need not repeat the lookup and coercion. Only immutable values which did not come from a task or
+     * {@link DeferredSupplier} are cached. Entries from before the last change to any of the stores above
+     * (see {@link #version}) are ignored.
+     */
+    private final ConcurrentMap<ConfigKey<?>, ResolvedValue> resolvedValues = new ConcurrentHashMap<ConfigKey<?>, ResolvedValue>();
+    private final AtomicLong version = new AtomicLong();
+
+    private final AtomicLong resolvedValueHits = new AtomicLong();
+    private final AtomicLong resolvedValueMisses = new AtomicLong();
+    private static final StripedCounter totalResolvedValueHits = new StripedCounter();
+    private static final StripedCounter totalResolvedValueMisses = new StripedCounter();
+
+    /** a count across all entities, spread over several cells so that concurrent reads of different entities rarely contend */
+    private static class StripedCounter {
+        private static final int NUM_STRIPES = 16;
+        // cells are 8 longs apart, so that each is on its own cache line
+        private static final int SPACING = 8;
+        private final AtomicLongArray cells = new AtomicLongArray(NUM_STRIPES * SPACING);
+        
+        void increment() {
+            cells.incrementAndGet((int) (Thread.currentThread().getId() % NUM_STRIPES) * SPACING);
+        }
+        
+        long get() {
+            long result = 0;
+            for (int i = 0; i < NUM_STRIPES; i++) {
+                result += cells.get(i * SPACING);
+            }
+            return result;
+        }
+    }
+
+    private static class ResolvedValue {
+        final long version;
+        /** the key requested, as another key of the same name may have a different type or default */
+        final ConfigKey<?> key;
+        final Object value;
+        
+        ResolvedValue(long version, ConfigKey<?> key, Object value) {
+            this.version = version;
+            this.key = key;
+            this.value = value;
+        }
+    }
+
     public EntityConfigMap(AbstractEntity entity, Map<ConfigKey<?>, Object> storage) {
         this.entity = checkNotNull(entity, "entity must be specified");
         this.ownConfig = checkNotNull(storage, "storage map must be specified");
@@ -105,7 +161,20 @@ public class EntityConfigMap implements ConfigMap {
         // TODO If ask for a config value that's not in our configKeys, should we really continue with rest of method and return key.getDefaultValue?
         //      e.g. SshBasedJavaAppSetup calls setAttribute(JMX_USER), which calls getConfig(JMX_USER)
         //           but that example doesn't have a default...
-        ConfigKey<T> ownKey = entity!=null ? (ConfigKey<T>)elvis(entity.getEntityType().getConfigKey(key.getName()), key) : key;
+        // the entity's own key for a name is fixed once its type is built, so need not be looked up for a cached value
+        long currentVersion = version.get();
+        if (defaultValue == null) {
+            ResolvedValue resolved = resolvedValues.get(key);
+            if (resolved != null && resolved.version == currentVersion && resolved.key == key) {
+                resolvedValueHits.incrementAndGet();
+                totalResolvedValueHits.increment();
+                return (T) resolved.value;
+            }
+            resolvedValueMisses.incrementAndGet();
+            totalResolvedValueMisses.increment();
+        }
+        
+        ConfigKey<T> ownKey = entity!=null ? (ConfigKey<T>)elvis(entity.getMutableEntityType().getConfigKey(key.getName()), key) : key;
         
         ConfigInheritance inheritance = key.getInheritance();
         if (inheritance==null) inheritance = ownKey.getInheritance(); 
@@ -121,15 +190,18 @@ public class EntityConfigMap implements ConfigMap {
         // Don't use groovy truth: if the set value is e.g. 0, then would ignore set value and return default!
         if (ownKey instanceof ConfigKeySelfExtracting) {
             Object rawval = ownConfig.get(key);
+            Object valueToExtract = null;
             T result = null;
             boolean complete = false;
             if (((ConfigKeySelfExtracting<T>)ownKey).isSet(ownConfig)) {
                 ExecutionContext exec = entity.getExecutionContext();
+                valueToExtract = rawval;
                 result = ((ConfigKeySelfExtracting<T>)ownKey).extractValue(ownConfig, exec);
                 complete = true;
             } else if (isInherited(ownKey, inheritance) && 
                     ((ConfigKeySelfExtracting<T>)ownKey).isSet(inheritedConfig)) {
                 ExecutionContext exec = entity.getExecutionContext();
+                valueToExtract = inheritedConfig.get(ownKey);
                 result = ((ConfigKeySelfExtracting<T>)ownKey).extractValue(inheritedConfig, exec);
                 complete = true;
             } else if (localConfigBag.containsKey(ownKey)) {
@@ -146,12 +218,62 @@ public class EntityConfigMap implements ConfigMap {
                 entity.getManagementSupport().getEntityChangeListener().onConfigChanged(key);
             }
             if (complete) {
+                if (defaultValue == null && !(ownKey instanceof StructuredConfigKey) && !isDeferred(valueToExtract)) {
+                    cacheResolvedValue(currentVersion, key, result);
+                }
                 return result;
             }
         } else {
             LOG.warn("Config key {} of {} is not a ConfigKeySelfExtracting; cannot retrieve value; returning default", ownKey, this);
+            return TypeCoercions.coerce((defaultValue != null) ? defaultValue : ownKey.getDefaultValue(), key.getTypeToken());
+        }
+        T result = TypeCoercions.coerce((defaultValue != null) ? defaultValue : ownKey.getDefaultValue(), key.getTypeToken());
+        if (defaultValue == null) {
+            cacheResolvedValue(currentVersion, key, result);
         }
-        return TypeCoercions.coerce((defaultValue != null) ? defaultValue : ownKey.getDefaultValue(), key.getTypeToken());
+        return result;
+    }
+
+    private static boolean isDeferred(Object value) {
+        return (value instanceof Future) || (value instanceof DeferredSupplier);
+    }
+
+    /** caches the value if it is immutable, as it is shared by all callers (whereas mutable collections are copied for each) */
+    private void cacheResolvedValue(long versionWhenResolved, ConfigKey<?> key, Object value) {
+        if (value == null || value instanceof String || Primitives.isWrapperType(value.getClass()) || value instanceof Enum
+                || value instanceof Duration || value instanceof BigInteger || value instanceof BigDecimal) {
+            resolvedValues.put(key, new ResolvedValue(versionWhenResolved, key, value));
+        }
+    }
+
+    /** to be called after any change to the config stores, so that previously resolved values are not used */
+    private void onChanged() {
+        version.incrementAndGet();
+        resolvedValues.clear();
+    }
+
+    /** number of {@link #getConfig(ConfigKey)} calls on this entity answered from the cache of resolved values */
+    @Beta
+    public long getResolvedValueCacheHits() {
+        return resolvedValueHits.get();
+    }
+
+    /** number of {@link #getConfig(ConfigKey)} calls on this entity which had to resolve the value */
+    @Beta
+    public long getResolvedValueCacheMisses() {
+        return resolvedValueMisses.get();
+    }
+
+    /** number of {@link #getConfig(ConfigKey)} calls, across all entities in this JVM, answered from the cache of resolved values */
+    @Beta
+    public static long getTotalResolvedValueCacheHits() {
+        return totalResolvedValueHits.get();
+    }
+
+    /** number of {@link #getConfig(ConfigKey)} calls, across all entities in this JVM, which had to resolve the value */
+    @Beta
+    public static long getTotalResolvedValueCacheMisses() {
+        return totalResolvedValueMisses.get();
     }
 
     private <T> boolean isInherited(ConfigKey<T> key) {
@@ -236,6 +358,7 @@ public class EntityConfigMap implements ConfigMap {
             oldVal = ownConfig.put(key, val);
             localConfigBag.put((ConfigKey<Object>)key, v);
         }
+        onChanged();
         entity.refreshInheritedConfigOfChildren();
         return oldVal;
     }
@@ -245,6 +368,7 @@ public class EntityConfigMap implements ConfigMap {
         localConfigBag.clear();
         ownConfig.putAll(vals);
         localConfigBag.putAll(vals);
+        onChanged();
     }
     
     public void setInheritedConfig(Map<ConfigKey<?>, ?> valsO, ConfigBag configBagVals) {
@@ -294,6 +418,7 @@ public class EntityConfigMap implements ConfigMap {
                 inheritedConfigBag.putStringKey(name, value);
             }
         }
+        onChanged();
     }
     
     private Map<ConfigKey<?>, ?> filterUninheritable(Map<ConfigKey<?>, ?> vals) {
@@ -310,11 +435,13 @@ public class EntityConfigMap implements ConfigMap {
         localConfigBag.putAll(vals);
         // quick fix for problem that ownConfig can get out of synch
         ownConfig.putAll(localConfigBag.getAllConfigAsConfigKeyMap());
+        onChanged();
     }
 
     public void clearInheritedConfig() {
         inheritedConfig.clear();
         inheritedConfigBag.clear();
+        onChanged();
     }
 
     @Override
@@ -19,6 +19,8 @@
 package brooklyn.entity.basic;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.Set;
 
 import javax.annotation.Nullable;
 
@@ -26,6 +28,7 @@ import brooklyn.config.ConfigKey;
 import brooklyn.config.ConfigKey.HasConfigKey;
 import brooklyn.entity.Entity;
 import brooklyn.entity.Group;
+import brooklyn.entity.basic.IndexableEntityPredicate.Trigger;
 import brooklyn.event.AttributeSensor;
 import brooklyn.location.Location;
 import brooklyn.util.collections.CollectionFunctionals;
@@ -35,6 +38,9 @@ import brooklyn.util.text.StringPredicates;
 import com.google.common.base.Objects;
 import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Sets;
 
 @SuppressWarnings("serial")
 public class EntityPredicates {
@@ -47,7 +53,7 @@ public class EntityPredicates {
         return new IdSatisfies(condition);
     }
     
-    protected static class IdSatisfies implements SerializablePredicate<Entity> {
+    protected static class IdSatisfies implements SerializablePredicate<Entity>, IndexableEntityPredicate {
         protected final Predicate<? super String> condition;
         protected IdSatisfies(Predicate<? super String> condition) {
             this.condition = condition;
@@ -57,6 +63,10 @@ public class EntityPredicates {
             return (input != null) && condition.apply(input.getId());
         }
         @Override
+        public Collection<Trigger> getTriggers() {
+            return ImmutableList.of();
+        }
+        @Override
         public String toString() {
             return "idSatisfies("+condition+")";
         }
@@ -142,7 +152,7 @@ public class EntityPredicates {
         return new ApplicationIdSatisfies(condition);
     }
 
-    protected static class ApplicationIdSatisfies implements SerializablePredicate<Entity> {
+    protected static class ApplicationIdSatisfies implements SerializablePredicate<Entity>, IndexableEntityPredicate {
         protected final Predicate<? super String> condition;
         protected ApplicationIdSatisfies(Predicate<? super String> condition) {
             this.condition = condition;
@@ -152,6 +162,10 @@ public class EntityPredicates {
             return (input != null) && condition.apply(input.getApplicationId());
         }
         @Override
+        public Collection<Trigger> getTriggers() {
+            return ImmutableList.of();
+        }
+        @Override
         public String toString() {
             return "applicationIdSatisfies("+condition+")";
         }
@@ -178,7 +192,7 @@ public class EntityPredicates {
         return new AttributeSatisfies<T>(attribute, condition);
     }
 
-    protected static class AttributeSatisfies<T> implements SerializablePredicate<Entity> {
+    protected static class AttributeSatisfies<T> implements SerializablePredicate<Entity>, IndexableEntityPredicate {
         protected final AttributeSensor<T> attribute;
         protected final Predicate<T> condition;
         private AttributeSatisfies(AttributeSensor<T> attribute, Predicate<T> condition) {
@@ -190,6 +204,10 @@ public class EntityPredicates {
             return (input != null) && condition.apply(input.getAttribute(attribute));
         }
         @Override
+        public Collection<Trigger> getTriggers() {
+            return ImmutableList.of(Trigger.onSensor(attribute));
+        }
+        @Override
         public String toString() {
             return "attributeSatisfies("+attribute.getName()+","+condition+")";
         }
@@ -228,6 +246,7 @@ public class EntityPredicates {
         return new ConfigKeySatisfies<T>(configKey.getConfigKey(), condition);
     }
 
+    // not indexable: config can change after an entity is managed, without any event
     protected static class ConfigKeySatisfies<T> implements SerializablePredicate<Entity> {
         protected final ConfigKey<T> configKey;
         protected final Predicate<T> condition;
@@ -279,7 +298,7 @@ public class EntityPredicates {
 
     // if needed, could add parentSatisfies(...)
     
-    protected static class IsChildOf implements SerializablePredicate<Entity> {
+    protected static class IsChildOf implements SerializablePredicate<Entity>, IndexableEntityPredicate {
         protected final Entity parent;
         protected IsChildOf(Entity parent) {
             this.parent = parent;
@@ -289,6 +308,12 @@ public class EntityPredicates {
             return (input != null) && Objects.equal(input.getParent(), parent);
         }
         @Override
+        public Collection<Trigger> getTriggers() {
+            if (parent == null) return ImmutableList.of();
+            return ImmutableList.of(Trigger.onEntityNotification(parent, AbstractEntity.CHILD_ADDED),
+                    Trigger.onEntityNotification(parent, AbstractEntity.CHILD_REMOVED));
+        }
+        @Override
         public String toString() {
             return "isChildOf("+parent+")";
         }
@@ -311,7 +336,7 @@ public class EntityPredicates {
         return new IsMemberOf(group);
     }
 
-    protected static class IsMemberOf implements SerializablePredicate<Entity> {
+    protected static class IsMemberOf implements SerializablePredicate<Entity>, IndexableEntityPredicate {
         protected final Group group;
         protected IsMemberOf(Group group) {
             this.group = group;
@@ -321,6 +346,12 @@ public class EntityPredicates {
             return (group != null) && (input != null) && group.hasMember(input);
         }
         @Override
+        public Collection<Trigger> getTriggers() {
+            if (group == null) return ImmutableList.of();
+            return ImmutableList.of(Trigger.onEntityNotification(group, AbstractGroup.MEMBER_ADDED),
+                    Trigger.onEntityNotification(group, AbstractGroup.MEMBER_REMOVED));
+        }
+        @Override
         public String toString() {
             return "isMemberOf("+group+")";
         }
@@ -417,4 +448,126 @@ public class EntityPredicates {
         };
     }
 
+    // ---------------------------
+
+    /**
+     * Returns a predicate that determines if a given entity is an instance of the {@code type},
+     * typically an entity interface.
+     */
+    public static Predicate<Entity> isInstanceOf(final Class<?> type) {
+        return new IsInstanceOf(type);
+    }
+
+    protected static class IsInstanceOf implements SerializablePredicate<Entity>, IndexableEntityPredicate {
+        protected final Class<?> type;
+        protected IsInstanceOf(Class<?> type) {
+            this.type = type;
+        }
+        @Override
+        public boolean apply(@Nullable Entity input) {
+            return type.isInstance(input);
+        }
+        @Override
+        public Collection<Trigger> getTriggers() {
+            return ImmutableList.of();
+        }
+        @Override
+        public String toString() {
+            return "isInstanceOf("+type.getName()+")";
+        }
+    }
+
+    // ---------------------------
+
+    public static Predicate<Entity> hasTag(final Object tag) {
+        return new HasTag(tag);
+    }
+
+    // not indexable: tags can change after an entity is managed, without any event
+    protected static class HasTag implements SerializablePredicate<Entity> {
+        protected final Object tag;
+        protected HasTag(Object tag) {
+            this.tag = tag;
+        }
+        @Override
+        public boolean apply(@Nullable Entity input) {
+            return (input != null) && input.tags().containsTag(tag);
+        }
+        @Override
+        public String toString() {
+            return "hasTag("+tag+")";
+        }
+    }
+
+    // ---------------------------
+
+    /**
+     * As {@link Predicates#and(Predicate...)}, but if all the {@code components} are {@link IndexableEntityPredicate}s
+     * then so is the result, allowing a {@link DynamicGroup} to keep its members up to date from events.
+     */
+    public static Predicate<Entity> allOf(Predicate<? super Entity>... components) {
+        List<Predicate<? super Entity>> list = ImmutableList.copyOf(components);
+        if (Iterables.all(list, Predicates.instanceOf(IndexableEntityPredicate.class))) return new AllOf(list);
+        return Predicates.and(list);
+    }
+
+    /**
+     * As {@link Predicates#or(Predicate...)}, but if all the {@code components} are {@link IndexableEntityPredicate}s
+     * then so is the result, allowing a {@link DynamicGroup} to keep its members up to date from events.
+     */
+    public static Predicate<Entity> anyOf(Predicate<? super Entity>... components) {
+        List<Predicate<? super Entity>> list = ImmutableList.copyOf(components);
+        if (Iterables.all(list, Predicates.instanceOf(IndexableEntityPredicate.class))) return new AnyOf(list);
+        return Predicates.or(list);
+    }
+
+    protected static abstract class Combination implements SerializablePredicate<Entity>, IndexableEntityPredicate {
+        protected final List<Predicate<? super Entity>> components;
+        protected Combination(List<Predicate<? super Entity>> components) {
+            this.components = components;
+        }
+        @Override
+        public Collection<Trigger> getTriggers() {
+            Set<Trigger> result = Sets.newLinkedHashSet();
+            for (Predicate<? super Entity> component : components) {
+                result.addAll(((IndexableEntityPredicate) component).getTriggers());
+            }
+            return result;
+        }
+    }
+
+    protected static class AllOf extends Combination {
+        protected AllOf(List<Predicate<? super Entity>> components) {
+            super(components);
+        }
+        @Override
+        public boolean apply(@Nullable Entity input) {
+            for (Predicate<? super Entity> component : components) {
+                if (!component.apply(input)) return false;
+            }
+            return true;
+        }
+        @Override
+        public String toString() {
+            return "allOf("+components+")";
+        }
+    }
+
+    protected static class AnyOf extends Combination {
+        protected AnyOf(List<Predicate<? super Entity>> components) {
+            super(components);
+        }
+        @Override
+        public boolean apply(@Nullable Entity input) {
+            for (Predicate<? super Entity> component : components) {
+                if (component.apply(input)) return true;
+            }
+            return false;
+        }
+        @Override
+        public String toString() {
+            return "anyOf("+components+")";
+        }
+    }
+
 }
@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.entity.basic;
+
+import java.util.Collection;
+
+import javax.annotation.Nullable;
+
+import brooklyn.entity.Entity;
+import brooklyn.event.Sensor;
+import brooklyn.event.SensorEvent;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Predicate;
+
+/**
+ * An entity predicate which says which sensor events can change its result, and for which entity.
+ * <p>
+ * A {@link DynamicGroup} whose {@link DynamicGroup#ENTITY_FILTER} is one of these subscribes to those
+ * events and re-evaluates only the affected entity, so its membership follows changes to sensor values
+ * without rescanning all entities. Predicates with no triggers depend only on things which cannot
+ * change once an entity is managed (such as its id, type and application); those are checked as entities
+ * become managed. Predicates on things which can change without an event (such as tags and config) must
+ * not be indexable, so that groups using them continue to rescan.
+ * <p>
+ * Most of the {@link EntityPredicates} are indexable, as are their combinations through
+ * {@link EntityPredicates#allOf(Predicate...)} and {@link EntityPredicates#anyOf(Predicate...)}.
+ */
+@Beta
+public interface IndexableEntityPredicate extends Predicate<Entity> {
+
+    /** the events which may change the result of this predicate; empty if none */
+    Collection<Trigger> getTriggers();
+
+    public static class Trigger {
+
+        /** changes to the given sensor on any entity may change the result for that entity */
+        public static Trigger onSensor(Sensor<?> sensor) {
+            return new Trigger(null, sensor, false);
+        }
+
+        /** events of the given sensor from the given producer carry an entity whose result may have changed */
+        public static Trigger onEntityNotification(Entity producer, Sensor<? extends Entity> sensor) {
+            return new Trigger(Preconditions.checkNotNull(producer, "producer"), sensor, true);
+        }
+
+        private final Entity producer;
+        private final Sensor<?> sensor;
+        private final boolean valueIsAffectedEntity;
+
+        private Trigger(@Nullable Entity producer, Sensor<?> sensor, boolean valueIsAffectedEntity) {
+            this.producer = producer;
+            this.sensor = Preconditions.checkNotNull(sensor, "sensor");
+            this.valueIsAffectedEntity = valueIsAffectedEntity;
+        }
+
+        /** the entity to subscribe to, or null for all entities */
+        @Nullable
+        public Entity getProducer() {
+            return producer;
+        }
+
+        public Sensor<?> getSensor() {
+            return sensor;
+        }
+
+        /** the entity whose result may have changed on this event, or null if none */
+        @Nullable
+        public Entity getAffectedEntity(SensorEvent<?> event) {
+            if (!valueIsAffectedEntity) return event.getSource();
+            Object value = event.getValue();
+            return (value instanceof Entity) ? (Entity) value : null;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Trigger)) return false;
+            Trigger o = (Trigger) obj;
+            return Objects.equal(producer, o.producer) && Objects.equal(sensor, o.sensor) && valueIsAffectedEntity == o.valueIsAffectedEntity;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(producer, sensor, valueIsAffectedEntity);
+        }
+
+        @Override
+        public String toString() {
+            return "trigger("+(producer == null ? "*" : producer)+","+sensor.getName()+")";
+        }
+    }
+}
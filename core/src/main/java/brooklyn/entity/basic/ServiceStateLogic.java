@@ -64,6 +64,7 @@ import com.google.common.base.Functions;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Stopwatch;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.reflect.TypeToken;
 
@@ -468,66 +469,134 @@ public class ServiceStateLogic {
             }
         }
 
+        /**
+         * The children and members grouped by their service-up and service-state values, kept up to date as each
+         * value changes, so that computing the indicators does not look at every entity.
+         * Independent of the config, so that can be reconfigured. Guarded by itself.
+         */
+        private final EntitiesByValue entitiesByValue = new EntitiesByValue();
+
+        @Override
+        protected void onValueChanged(String sensorName, Entity producer, Maybe<Object> oldValue, Maybe<Object> newValue) {
+            synchronized (entitiesByValue) {
+                if (oldValue.isPresent()) entitiesByValue.remove(sensorName, oldValue.get(), producer);
+                if (newValue.isPresent()) entitiesByValue.add(sensorName, newValue.get(), producer);
+            }
+        }
+
         protected Object computeServiceNotUp() {
-            Map<Entity, Boolean> values = getValues(SERVICE_UP);
-            List<Entity> violators = MutableList.of();
-            boolean ignoreNull = getConfig(IGNORE_ENTITIES_WITH_SERVICE_UP_NULL);
-            int entries=0;
-            for (Map.Entry<Entity, Boolean> state: values.entrySet()) {
-                if (ignoreNull && state.getValue()==null)
-                    continue;
-                entries++;
-                if (!Boolean.TRUE.equals(state.getValue())) {
-                    violators.add(state.getKey());
+            synchronized (entitiesByValue) {
+                boolean ignoreNull = getConfig(IGNORE_ENTITIES_WITH_SERVICE_UP_NULL);
+                int total = entitiesByValue.count(SERVICE_UP.getName());
+                int entries = total - (ignoreNull ? entitiesByValue.get(SERVICE_UP.getName(), null).size() : 0);
+                int numViolators = entries - entitiesByValue.get(SERVICE_UP.getName(), Boolean.TRUE).size();
+
+                QuorumCheck qc = getConfig(UP_QUORUM_CHECK);
+                if (qc!=null) {
+                    if (qc.isQuorate(entries-numViolators, entries))
+                        // quorate
+                        return null;
+
+                    if (total==0) return "No entities present";
+                    if (entries==0) return "No entities publishing service up";
+                    if (numViolators==0) return "Not enough entities";
+                } else {
+                    if (numViolators==0)
+                        return null;
                 }
+
+                Entity violator = null;
+                for (Map.Entry<Object, Set<Entity>> state: entitiesByValue.get(SERVICE_UP.getName()).entrySet()) {
+                    if (Boolean.TRUE.equals(state.getKey()) || (ignoreNull && state.getKey()==null))
+                        continue;
+                    violator = state.getValue().iterator().next();
+                    break;
+                }
+                if (numViolators==1) return violator+" is not up";
+                if (numViolators==entries) return "None of the entities are up";
+                return numViolators+" entities are not up, including "+violator;
             }
+        }
 
-            QuorumCheck qc = getConfig(UP_QUORUM_CHECK);
-            if (qc!=null) {
-                if (qc.isQuorate(entries-violators.size(), entries))
-                    // quorate
-                    return null;
+        protected Object computeServiceProblems() {
+            synchronized (entitiesByValue) {
+                int numRunning = entitiesByValue.get(SERVICE_STATE_ACTUAL.getName(), Lifecycle.RUNNING).size();
+                int numNotHealthy = 0;
+                // only the first few are reported
+                List<Entity> onesNotHealthy=MutableList.of();
+                Set<Lifecycle> ignoreStates = getConfig(IGNORE_ENTITIES_WITH_THESE_SERVICE_STATES);
+                for (Map.Entry<Object, Set<Entity>> state: entitiesByValue.get(SERVICE_STATE_ACTUAL.getName()).entrySet()) {
+                    if (state.getKey()==Lifecycle.RUNNING || ignoreStates.contains(state.getKey()))
+                        continue;
+                    numNotHealthy += state.getValue().size();
+                    for (Entity entity: state.getValue()) {
+                        if (onesNotHealthy.size() > 3) break;
+                        onesNotHealthy.add(entity);
+                    }
+                }
 
-                if (values.isEmpty()) return "No entities present";
-                if (entries==0) return "No entities publishing service up";
-                if (violators.isEmpty()) return "Not enough entities";
-            } else {
-                if (violators.isEmpty())
-                    return null;
-            }
+                QuorumCheck qc = getConfig(RUNNING_QUORUM_CHECK);
+                if (qc!=null) {
+                    if (qc.isQuorate(numRunning, numNotHealthy+numRunning))
+                        // quorate
+                        return null;
+
+                    if (numNotHealthy==0)
+                        return "Not enough entities running to be quorate";
+                } else {
+                    if (numNotHealthy==0)
+                        return null;
+                }
 
-            if (violators.size()==1) return violators.get(0)+" is not up";
-            if (violators.size()==entries) return "None of the entities are up";
-            return violators.size()+" entities are not up, including "+violators.get(0);
+                return "Required entit"+Strings.ies(numNotHealthy)+" not healthy: "+
+                    (numNotHealthy>3 ? onesNotHealthy.get(0)+" and "+(numNotHealthy-1)+" others"
+                        : Strings.join(onesNotHealthy, ", "));
+            }
         }
 
-        protected Object computeServiceProblems() {
-            Map<Entity, Lifecycle> values = getValues(SERVICE_STATE_ACTUAL);
-            int numRunning=0;
-            List<Entity> onesNotHealthy=MutableList.of();
-            Set<Lifecycle> ignoreStates = getConfig(IGNORE_ENTITIES_WITH_THESE_SERVICE_STATES);
-            for (Map.Entry<Entity,Lifecycle> state: values.entrySet()) {
-                if (state.getValue()==Lifecycle.RUNNING) numRunning++;
-                else if (!ignoreStates.contains(state.getValue())) 
-                    onesNotHealthy.add(state.getKey());
+        /** entities grouped by the value of each sensor, in the order they took that value; not thread-safe */
+        protected static class EntitiesByValue {
+            private final Map<String, Map<Object, Set<Entity>>> entities = MutableMap.of();
+            private final Map<String, Integer> counts = MutableMap.of();
+
+            public void add(String sensorName, Object value, Entity entity) {
+                Map<Object, Set<Entity>> byValue = entities.get(sensorName);
+                if (byValue==null) {
+                    byValue = MutableMap.of();
+                    entities.put(sensorName, byValue);
+                }
+                Set<Entity> withValue = byValue.get(value);
+                if (withValue==null) {
+                    withValue = MutableSet.of();
+                    byValue.put(value, withValue);
+                }
+                if (withValue.add(entity))
+                    counts.put(sensorName, count(sensorName)+1);
             }
 
-            QuorumCheck qc = getConfig(RUNNING_QUORUM_CHECK);
-            if (qc!=null) {
-                if (qc.isQuorate(numRunning, onesNotHealthy.size()+numRunning))
-                    // quorate
-                    return null;
+            public void remove(String sensorName, Object value, Entity entity) {
+                Map<Object, Set<Entity>> byValue = entities.get(sensorName);
+                Set<Entity> withValue = (byValue==null) ? null : byValue.get(value);
+                if (withValue==null || !withValue.remove(entity)) return;
+                if (withValue.isEmpty()) byValue.remove(value);
+                counts.put(sensorName, count(sensorName)-1);
+            }
 
-                if (onesNotHealthy.isEmpty())
-                    return "Not enough entities running to be quorate";
-            } else {
-                if (onesNotHealthy.isEmpty())
-                    return null;
+            /** the non-empty sets of entities, by value of the given sensor */
+            public Map<Object, Set<Entity>> get(String sensorName) {
+                Map<Object, Set<Entity>> byValue = entities.get(sensorName);
+                return (byValue==null) ? ImmutableMap.<Object, Set<Entity>>of() : byValue;
             }
 
-            return "Required entit"+Strings.ies(onesNotHealthy.size())+" not healthy: "+
-                (onesNotHealthy.size()>3 ? onesNotHealthy.get(0)+" and "+(onesNotHealthy.size()-1)+" others"
-                    : Strings.join(onesNotHealthy, ", "));
+            public Set<Entity> get(String sensorName, Object value) {
+                Set<Entity> withValue = get(sensorName).get(value);
+                return (withValue==null) ? ImmutableSet.<Entity>of() : withValue;
+            }
+
+            public int count(String sensorName) {
+                Integer count = counts.get(sensorName);
+                return (count==null) ? 0 : count;
+            }
         }
 
         protected void updateMapSensor(AttributeSensor<Map<String, Object>> sensor, Object value) {
@@ -158,6 +158,33 @@ public interface DynamicCluster extends AbstractGroup, Cluster, MemberReplaceabl
     ConfigKey<Integer> NUM_AVAILABILITY_ZONES = ConfigKeys.newIntegerConfigKey(
             "dynamiccluster.numAvailabilityZones", "number of availability zones to use (will attempt to auto-discover this number)");
 
+    @Beta
+    @SetFromFlag("maxConcurrentStarts")
+    ConfigKey<Integer> MAX_CONCURRENT_STARTS = ConfigKeys.newIntegerConfigKey(
+            "dynamiccluster.provisioning.maxConcurrentStarts", "Maximum number of members to start at once, across all additions to the cluster (unlimited if not set)");
+
+    @Beta
+    @SetFromFlag("maxStartsPerSecondPerLocation")
+    ConfigKey<Double> MAX_STARTS_PER_SECOND_PER_LOCATION = ConfigKeys.newDoubleConfigKey(
+            "dynamiccluster.provisioning.maxStartsPerSecondPerLocation", "Maximum rate at which to start members in each location (unlimited if not set)");
+
+    @Beta
+    @SetFromFlag("firstWaveSize")
+    ConfigKey<Integer> FIRST_WAVE_SIZE = ConfigKeys.newIntegerConfigKey(
+            "dynamiccluster.provisioning.firstWaveSize", "When adding more than this number of members, start this many first and only start the rest if all of those succeed (all at once if not set)");
+
+    @Beta
+    AttributeSensor<Integer> PROVISIONING_PENDING = Sensors.newIntegerSensor(
+            "dynamiccluster.provisioning.pending", "Number of members waiting to be started");
+
+    @Beta
+    AttributeSensor<Integer> PROVISIONING_IN_FLIGHT = Sensors.newIntegerSensor(
+            "dynamiccluster.provisioning.inFlight", "Number of members currently starting");
+
+    @Beta
+    AttributeSensor<Integer> PROVISIONING_DONE = Sensors.newIntegerSensor(
+            "dynamiccluster.provisioning.done", "Number of members whose start has completed, successfully or not");
+
     AttributeSensor<List<Location>> SUB_LOCATIONS = new BasicAttributeSensor<List<Location>>(
             new TypeToken<List<Location>>() {},
             "dynamiccluster.subLocations", "Locations for each availability zone to use");
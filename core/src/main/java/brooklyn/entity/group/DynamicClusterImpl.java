@@ -50,6 +50,7 @@ import brooklyn.entity.effector.Effectors;
 import brooklyn.entity.proxying.EntitySpec;
 import brooklyn.entity.trait.Startable;
 import brooklyn.entity.trait.StartableMethods;
+import brooklyn.event.AttributeSensor;
 import brooklyn.location.Location;
 import brooklyn.location.MachineProvisioningLocation;
 import brooklyn.location.basic.Locations;
@@ -83,6 +84,7 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.MoreExecutors;
 
 /**
  * A cluster of entities that can dynamically increase or decrease the number of entities.
@@ -131,6 +133,10 @@ public class DynamicClusterImpl extends AbstractGroupImpl implements DynamicClus
      */
     protected final Object mutex = new Object[0];
 
+    private final Object provisioningLock = new Object[0];
+    // guarded by provisioningLock
+    private transient ProvisioningScheduler provisioningScheduler;
+
     private static final Function<Collection<Entity>, Entity> defaultRemovalStrategy = new Function<Collection<Entity>, Entity>() {
         @Override public Entity apply(Collection<Entity> contenders) {
             // choose newest entity that is stoppable, or if none are stoppable take the newest non-stoppable
@@ -157,6 +163,18 @@ public class DynamicClusterImpl extends AbstractGroupImpl implements DynamicClus
         super.init();
     }
 
+    @Override
+    public void rebind() {
+        super.rebind();
+        // no starts survive a restart, so none are pending or in flight (any left from before it are not counted down)
+        if (!Boolean.TRUE.equals(getManagementSupport().isReadOnlyRaw())) {
+            synchronized (provisioningLock) {
+                if (getCount(PROVISIONING_PENDING) != 0) setAttribute(PROVISIONING_PENDING, 0);
+                if (getCount(PROVISIONING_IN_FLIGHT) != 0) setAttribute(PROVISIONING_IN_FLIGHT, 0);
+            }
+        }
+    }
+
     @Override
     protected void initEnrichers() {
         if (getConfigRaw(UP_QUORUM_CHECK, true).isAbsent() && getConfig(INITIAL_SIZE)==0) {
@@ -643,26 +661,111 @@ public class DynamicClusterImpl extends AbstractGroupImpl implements DynamicClus
         }
     }
 
+    /**
+     * Creates and starts a member in each of the given locations. If {@link #FIRST_WAVE_SIZE} is set and more
+     * members than that are being added, that many are started first, and the rest are only created and started
+     * if all of those succeed.
+     */
     protected ReferenceWithError<Collection<Entity>> addInEachLocation(Iterable<Location> locations, Map<?,?> flags) {
+        List<Location> locs = ImmutableList.copyOf(locations);
+        Integer firstWaveSize = getConfig(FIRST_WAVE_SIZE);
+        updateProvisioningCounts(locs.size(), 0, 0);
+
+        if (firstWaveSize == null || firstWaveSize <= 0 || firstWaveSize >= locs.size()) {
+            return addWave(locs, flags);
+        }
+
+        List<Location> remaining = locs.subList(firstWaveSize, locs.size());
+        ReferenceWithError<Collection<Entity>> firstWave;
+        ReferenceWithError<Collection<Entity>> secondWave;
+        boolean startingRemaining = false;
+        try {
+            firstWave = addWave(locs.subList(0, firstWaveSize), flags);
+            if (firstWave.hasError()) {
+                int numFailed = firstWaveSize - firstWave.getWithoutError().size();
+                LOG.warn("Cluster "+this+" failed to start "+numFailed+" of the first "+firstWaveSize+" member"+Strings.s(firstWaveSize)
+                        +"; not starting the remaining "+remaining.size());
+                return ReferenceWithError.newInstanceMaskingError(firstWave.getWithoutError(),
+                        Exceptions.create(numFailed+" of the first "+firstWaveSize+" member"+Strings.s(firstWaveSize)+" of "+locs.size()+" failed to start",
+                                ImmutableList.of(firstWave.getError())));
+            }
+            startingRemaining = true;
+            secondWave = addWave(remaining, flags);
+        } finally {
+            if (!startingRemaining) updateProvisioningCounts(-remaining.size(), 0, 0);
+        }
+        Collection<Entity> result = MutableList.<Entity>builder()
+                .addAll(firstWave.getWithoutError())
+                .addAll(secondWave.getWithoutError())
+                .build();
+        List<Throwable> errors = Lists.newArrayList();
+        if (firstWave.hasError()) errors.add(firstWave.getError());
+        if (secondWave.hasError()) errors.add(secondWave.getError());
+        if (!errors.isEmpty()) {
+            return ReferenceWithError.newInstanceMaskingError(result, Exceptions.create(errors));
+        }
+        return ReferenceWithError.newInstanceWithoutError(result);
+    }
+
+    /**
+     * Creates and starts a member in each of the given locations, within the limits of
+     * {@link #MAX_CONCURRENT_STARTS} and {@link #MAX_STARTS_PER_SECOND_PER_LOCATION}.
+     * The members must already be counted in {@link #PROVISIONING_PENDING}.
+     * <p>
+     * When limited, the starts are queued with the {@link ProvisioningScheduler}, and each is submitted
+     * as the limits allow, rather than holding a thread while it waits.
+     */
+    protected ReferenceWithError<Collection<Entity>> addWave(List<Location> locations, Map<?,?> flags) {
         List<Entity> addedEntities = Lists.newArrayList();
         Map<Entity, Location> addedEntityLocations = Maps.newLinkedHashMap();
         Map<Entity, Task<?>> tasks = Maps.newLinkedHashMap();
+        ProvisioningScheduler scheduler = getProvisioningScheduler();
+        // members of this wave counted as pending, whose starts have not been handed on
+        int pending = locations.size();
+
+        try {
+            for (Location loc : locations) {
+                Entity entity = addNode(loc, flags);
+                addedEntities.add(entity);
+                addedEntityLocations.put(entity, loc);
+                if (entity instanceof Startable) {
+                    Map<String, ?> args = ImmutableMap.of("locations", ImmutableList.of(loc));
+                    Task<Void> task = Effectors.invocation(entity, Startable.START, args).asTask();
+                    tasks.put(entity, task);
+                }
+            }
 
-        for (Location loc : locations) {
-            Entity entity = addNode(loc, flags);
-            addedEntities.add(entity);
-            addedEntityLocations.put(entity, loc);
-            if (entity instanceof Startable) {
-                Map<String, ?> args = ImmutableMap.of("locations", ImmutableList.of(loc));
-                Task<Void> task = Effectors.invocation(entity, Startable.START, args).asTask();
-                tasks.put(entity, task);
+            if (scheduler.isUnlimited()) {
+                updateProvisioningCounts(-pending, tasks.size(), 0);
+                pending = 0;
+                for (Task<?> task : tasks.values()) {
+                    task.addListener(new StartCompletedListener(null), MoreExecutors.sameThreadExecutor());
+                }
+                Task<List<?>> parallel = Tasks.parallel("starting "+tasks.size()+" node"+Strings.s(tasks.size())+" (parallel)", tasks.values());
+                TaskTags.markInessential(parallel);
+                DynamicTasks.queueIfPossible(parallel).orSubmitAsync(this);
+            } else {
+                // the rest are not startable
+                updateProvisioningCounts(-(pending - tasks.size()), 0, 0);
+                pending = 0;
+                for (Map.Entry<Entity, Task<?>> entry : tasks.entrySet()) {
+                    scheduler.submit(addedEntityLocations.get(entry.getKey()), new ScheduledStart(scheduler, entry.getKey(), entry.getValue()));
+                }
             }
+        } finally {
+            if (pending > 0) updateProvisioningCounts(-pending, 0, 0);
         }
 
-        Task<List<?>> parallel = Tasks.parallel("starting "+tasks.size()+" node"+Strings.s(tasks.size())+" (parallel)", tasks.values());
-        TaskTags.markInessential(parallel);
-        DynamicTasks.queueIfPossible(parallel).orSubmitAsync(this);
-        Map<Entity, Throwable> errors = waitForTasksOnEntityStart(tasks);
+        Map<Entity, Throwable> errors;
+        try {
+            errors = waitForTasksOnEntityStart(tasks);
+        } catch (RuntimeException e) {
+            // e.g. interrupted; don't leave queued members to be started later
+            for (Task<?> task : tasks.values()) {
+                if (!task.isSubmitted()) task.cancel(false);
+            }
+            throw e;
+        }
 
         // if tracking, then report success/fail to the ZoneFailureDetector
         if (isAvailabilityZoneEnabled()) {
@@ -733,6 +836,89 @@ public class DynamicClusterImpl extends AbstractGroupImpl implements DynamicClus
         return errors;
     }
 
+    /**
+     * The scheduler shared by all additions to this cluster, with the currently configured provisioning limits
+     * (so if the limits are changed, starts already begun count against the new limits).
+     */
+    protected ProvisioningScheduler getProvisioningScheduler() {
+        Integer maxConcurrent = getConfig(MAX_CONCURRENT_STARTS);
+        Double maxPerSecond = getConfig(MAX_STARTS_PER_SECOND_PER_LOCATION);
+        ProvisioningScheduler result;
+        synchronized (provisioningLock) {
+            if (provisioningScheduler == null) {
+                provisioningScheduler = new ProvisioningScheduler(maxConcurrent, maxPerSecond);
+                return provisioningScheduler;
+            }
+            result = provisioningScheduler;
+        }
+        result.setLimits(maxConcurrent, maxPerSecond);
+        return result;
+    }
+
+    protected void updateProvisioningCounts(int deltaPending, int deltaInFlight, int deltaDone) {
+        synchronized (provisioningLock) {
+            setAttribute(PROVISIONING_PENDING, getCount(PROVISIONING_PENDING) + deltaPending);
+            setAttribute(PROVISIONING_IN_FLIGHT, getCount(PROVISIONING_IN_FLIGHT) + deltaInFlight);
+            setAttribute(PROVISIONING_DONE, getCount(PROVISIONING_DONE) + deltaDone);
+        }
+    }
+
+    private int getCount(AttributeSensor<Integer> sensor) {
+        Integer result = getAttribute(sensor);
+        return (result != null) ? result : 0;
+    }
+
+    private class StartCompletedListener implements Runnable {
+        @Nullable private final ProvisioningScheduler scheduler;
+
+        StartCompletedListener(@Nullable ProvisioningScheduler scheduler) {
+            this.scheduler = scheduler;
+        }
+
+        @Override
+        public void run() {
+            updateProvisioningCounts(0, -1, 1);
+            if (scheduler != null) scheduler.release();
+        }
+    }
+
+    /** submits a member's start, once the provisioning limits allow it */
+    private class ScheduledStart implements Runnable {
+        private final ProvisioningScheduler scheduler;
+        private final Entity entity;
+        private final Task<?> start;
+
+        ScheduledStart(ProvisioningScheduler scheduler, Entity entity, Task<?> start) {
+            this.scheduler = scheduler;
+            this.entity = entity;
+            this.start = start;
+        }
+
+        @Override
+        public void run() {
+            if (start.isCancelled()) {
+                updateProvisioningCounts(-1, 0, 0);
+                scheduler.release();
+                return;
+            }
+            updateProvisioningCounts(-1, 1, 0);
+            start.addListener(new StartCompletedListener(scheduler), MoreExecutors.sameThreadExecutor());
+            try {
+                Entities.submit(entity, start);
+            } catch (RuntimeException e) {
+                // so the cluster's wait for the start fails, rather than waiting for it to be submitted
+                start.cancel(false);
+                updateProvisioningCounts(0, -1, 1);
+                throw e;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "start of "+entity;
+        }
+    }
+
     @Override
     public boolean removeChild(Entity child) {
         boolean changed = super.removeChild(child);
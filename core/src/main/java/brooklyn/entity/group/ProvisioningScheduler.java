@@ -0,0 +1,228 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.entity.group;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import brooklyn.location.Location;
+import brooklyn.util.exceptions.Exceptions;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Objects;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Limits how quickly a {@link DynamicCluster} starts new members: at most a given number at once, across all
+ * of the cluster's additions, and at most a given rate in each location (a token bucket, allowing bursts of
+ * up to a second's worth of starts after a quiet period). This avoids overwhelming a cloud's API, or an ssh
+ * gateway, when a cluster grows by a large number.
+ * <p>
+ * Callers {@link #submit(Location, Runnable)} each start, which is queued until the limits allow it to begin,
+ * and {@link #release()} once that start has completed, successfully or not. No thread is held while a start
+ * is queued: it is begun by the thread which submits it or releases another, or (when waiting for the rate
+ * limit) by a shared timer thread, so it must not block.
+ * <p>
+ * The limits can be changed with {@link #setLimits(Integer, Double)}; starts already begun count against
+ * the new limits.
+ */
+@Beta
+public class ProvisioningScheduler {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ProvisioningScheduler.class);
+
+    private static ScheduledExecutorService timer;
+
+    private static synchronized ScheduledExecutorService getTimer() {
+        if (timer == null) {
+            timer = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                    .setNameFormat("brooklyn-provisioning-scheduler-%d")
+                    .setDaemon(true)
+                    .build());
+        }
+        return timer;
+    }
+
+    private static class PendingStart {
+        final Location location;
+        final Runnable start;
+
+        PendingStart(Location location, Runnable start) {
+            this.location = location;
+            this.start = start;
+        }
+    }
+
+    // all guarded by this
+    private Integer maxConcurrent;
+    private Double maxStartsPerSecondPerLocation;
+    private int inFlight;
+    private final Deque<PendingStart> queue = new ArrayDeque<PendingStart>();
+    private final Map<Location, LocationRateLimiter> rateLimiters = Maps.newHashMap();
+
+    /**
+     * @param maxConcurrent the maximum number of starts at once; unlimited if null or not positive
+     * @param maxStartsPerSecondPerLocation the maximum rate of starts in each location; unlimited if null or not positive
+     */
+    public ProvisioningScheduler(@Nullable Integer maxConcurrent, @Nullable Double maxStartsPerSecondPerLocation) {
+        setLimits(maxConcurrent, maxStartsPerSecondPerLocation);
+    }
+
+    /** as for the constructor; queued starts which the new limits allow are begun */
+    public void setLimits(@Nullable Integer maxConcurrent, @Nullable Double maxStartsPerSecondPerLocation) {
+        synchronized (this) {
+            this.maxConcurrent = (maxConcurrent != null && maxConcurrent > 0) ? maxConcurrent : null;
+            Double maxRate = (maxStartsPerSecondPerLocation != null && maxStartsPerSecondPerLocation > 0) ? maxStartsPerSecondPerLocation : null;
+            if (!Objects.equal(this.maxStartsPerSecondPerLocation, maxRate)) {
+                this.maxStartsPerSecondPerLocation = maxRate;
+                rateLimiters.clear();
+            }
+        }
+        dispatch();
+    }
+
+    /** whether this imposes no limits, so all starts can begin at once */
+    public synchronized boolean isUnlimited() {
+        return maxConcurrent == null && maxStartsPerSecondPerLocation == null;
+    }
+
+    /**
+     * Queues the given start, to be run when the limits allow. The start must not block (e.g. it submits a task),
+     * and the caller must call {@link #release()} when the start completes; if the start throws, it is released here.
+     */
+    public void submit(@Nullable Location location, Runnable start) {
+        synchronized (this) {
+            queue.add(new PendingStart(location, start));
+        }
+        dispatch();
+    }
+
+    /** records that a start has completed, so that another can begin */
+    public void release() {
+        synchronized (this) {
+            inFlight--;
+        }
+        dispatch();
+    }
+
+    /** the number of starts waiting for the limits to allow them to begin */
+    public synchronized int getNumQueued() {
+        return queue.size();
+    }
+
+    /** the number of starts begun but not yet released (including those waiting for the rate limit) */
+    public synchronized int getNumInFlight() {
+        return inFlight;
+    }
+
+    private void dispatch() {
+        List<Runnable> toRun = Lists.newArrayList();
+        synchronized (this) {
+            while (!queue.isEmpty() && (maxConcurrent == null || inFlight < maxConcurrent)) {
+                final PendingStart next = queue.poll();
+                inFlight++;
+                LocationRateLimiter limiter = getRateLimiter(next.location);
+                long waitNanos = (limiter != null) ? limiter.reserve(System.nanoTime()) : 0;
+                if (waitNanos > 0) {
+                    getTimer().schedule(new Runnable() {
+                        @Override public void run() {
+                            runStart(next.start);
+                        }}, waitNanos, TimeUnit.NANOSECONDS);
+                } else {
+                    toRun.add(next.start);
+                }
+            }
+        }
+        for (Runnable start : toRun) {
+            runStart(start);
+        }
+    }
+
+    private void runStart(Runnable start) {
+        try {
+            start.run();
+        } catch (Throwable t) {
+            LOG.warn("Problem beginning start "+start+" in "+this+" (continuing)", t);
+            release();
+            Exceptions.propagateIfFatal(t);
+        }
+    }
+
+    // guarded by this
+    @Nullable
+    private LocationRateLimiter getRateLimiter(@Nullable Location location) {
+        if (maxStartsPerSecondPerLocation == null) return null;
+        LocationRateLimiter result = rateLimiters.get(location);
+        if (result == null) {
+            result = new LocationRateLimiter(maxStartsPerSecondPerLocation, System.nanoTime());
+            rateLimiters.put(location, result);
+        }
+        return result;
+    }
+
+    /**
+     * A token bucket, as Guava's bursty {@code RateLimiter}, but which hands out the time a caller must wait
+     * rather than waiting itself, so the start can be scheduled rather than holding a thread.
+     */
+    private static class LocationRateLimiter {
+        private final long intervalNanos;
+        private final double maxStoredPermits;
+        private double storedPermits;
+        private long nextFreeNanos;
+
+        LocationRateLimiter(double permitsPerSecond, long nowNanos) {
+            this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+            this.maxStoredPermits = permitsPerSecond;
+            this.nextFreeNanos = nowNanos;
+        }
+
+        /** reserves the next permit, returning how long to wait (in nanos) before using it */
+        long reserve(long nowNanos) {
+            if (nowNanos - nextFreeNanos > 0) {
+                storedPermits = Math.min(maxStoredPermits, storedPermits + (double) (nowNanos - nextFreeNanos) / intervalNanos);
+                nextFreeNanos = nowNanos;
+            }
+            long waitNanos = nextFreeNanos - nowNanos;
+            double fromStored = Math.min(1, storedPermits);
+            storedPermits -= fromStored;
+            nextFreeNanos += (long) ((1 - fromStored) * intervalNanos);
+            return waitNanos;
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return Objects.toStringHelper(this).omitNullValues()
+                .add("maxConcurrent", maxConcurrent)
+                .add("maxStartsPerSecondPerLocation", maxStartsPerSecondPerLocation)
+                .toString();
+    }
+}
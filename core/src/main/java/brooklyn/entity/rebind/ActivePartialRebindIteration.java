@@ -32,6 +32,7 @@ import brooklyn.basic.BrooklynObject;
 import brooklyn.basic.BrooklynObjectInternal;
 import brooklyn.entity.Entity;
 import brooklyn.entity.basic.EntityInternal;
+import brooklyn.entity.rebind.persister.BinaryMementoSerializer;
 import brooklyn.entity.rebind.persister.BrooklynMementoPersisterToObjectStore;
 import brooklyn.entity.rebind.persister.PersistenceActivityMetrics;
 import brooklyn.entity.rebind.transformer.CompoundTransformer;
@@ -121,6 +122,8 @@ public class ActivePartialRebindIteration extends RebindIteration {
             Memento m = ((BrooklynObjectInternal)bo).getRebindSupport().getMemento();
             BrooklynMementoPersister p = rebindManager.getPersister();
             String mr = ((BrooklynMementoPersisterToObjectStore)p).getMementoSerializer().toString(m);
+            // transformers operate on XML, so convert if the store uses the binary format
+            mr = BinaryMementoSerializer.toXml(mr);
             mementoRawBuilder.put(BrooklynObjectType.of(bo), bo.getId(), mr);
         }
         // then rebuild
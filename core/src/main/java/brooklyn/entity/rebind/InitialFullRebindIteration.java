@@ -28,6 +28,7 @@ import org.slf4j.LoggerFactory;
 import brooklyn.config.BrooklynLogging;
 import brooklyn.entity.Entity;
 import brooklyn.entity.basic.EntityInternal;
+import brooklyn.entity.rebind.persister.BrooklynMementoPersisterToObjectStore;
 import brooklyn.entity.rebind.persister.PersistenceActivityMetrics;
 import brooklyn.management.ha.ManagementNodeState;
 import brooklyn.management.internal.BrooklynObjectManagementMode;
@@ -73,6 +74,10 @@ public class InitialFullRebindIteration extends RebindIteration {
     protected void loadManifestFiles() throws Exception {
         checkEnteringPhase(1);
         Preconditions.checkState(mementoRawData==null, "Memento raw data should not yet be set when calling this");
+        if (mode==ManagementNodeState.MASTER && persistenceStoreAccess instanceof BrooklynMementoPersisterToObjectStore) {
+            // don't trust mementos cached while standby, as the previous master may not have journalled its last writes
+            ((BrooklynMementoPersisterToObjectStore)persistenceStoreAccess).clearLoadedMementos();
+        }
         mementoRawData = persistenceStoreAccess.loadMementoRawData(exceptionHandler);
         
         preprocessManifestFiles();
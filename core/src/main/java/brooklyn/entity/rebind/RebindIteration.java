@@ -26,6 +26,10 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -63,6 +67,8 @@ import brooklyn.location.Location;
 import brooklyn.location.basic.AbstractLocation;
 import brooklyn.location.basic.LocationInternal;
 import brooklyn.management.classloading.BrooklynClassLoadingContext;
+import brooklyn.management.entitlement.EntitlementContext;
+import brooklyn.management.entitlement.Entitlements;
 import brooklyn.management.ha.ManagementNodeState;
 import brooklyn.management.internal.BrooklynObjectManagementMode;
 import brooklyn.management.internal.BrooklynObjectManagerInternal;
@@ -121,6 +127,15 @@ Multi-phase deserialization:
 <li> 8. manage the entities
 </ul>
 
+<p>
+ Within a phase, work which does not depend on ordering -- instantiating items, reconstructing policies, enrichers and feeds,
+ and associating adjuncts with entities at the same depth in the hierarchy -- is run in parallel on a pool of up to
+ {@link RebindManagerImpl#REBIND_THREAD_POOL_SIZE} threads. Items are always registered with the {@link RebindContextImpl}
+ by the rebinding thread, in manifest order, so the order seen by later phases is as it would be if run sequentially;
+ locations and entities are reconstructed, and everything is managed, sequentially and parent-first.
+ The duration of each phase is recorded in the rebind {@link PersistenceActivityMetrics}.
+
+
  If underlying data-store is changed between first and second manifest read (e.g. to add an
  entity), then second phase might try to reconstitute an entity that has not been put in
  the rebindContext. This should not affect normal production usage, because rebind is run
@@ -170,6 +185,10 @@ public abstract class RebindIteration {
     // set on run start
     
     protected Stopwatch timer;
+    protected Stopwatch phaseTimer;
+    protected final Map<String, Duration> phaseDurations = MutableMap.of();
+    /** pool for work which can be done in parallel; null if everything is done in the rebinding thread */
+    protected ExecutorService executor;
     /** phase is used to ensure our steps are run as we've expected, and documented (in javadoc at top).
      * it's worth the extra effort due to the complication and the subtleties. */
     protected int phase = 0;
@@ -228,18 +247,39 @@ public abstract class RebindIteration {
         return rebindContext;
     }
     
+    /** durations of the phases completed so far, keyed by phase name, in the order they were run */
+    public Map<String, Duration> getPhaseDurations() {
+        return MutableMap.copyOf(phaseDurations);
+    }
+
     protected void doRun() throws Exception {
+        phaseTimer = Stopwatch.createStarted();
         loadManifestFiles();
+        notePhaseDone("loadManifests");
         rebuildCatalog();
+        notePhaseDone("rebuildCatalog");
         instantiateLocationsAndEntities();
+        notePhaseDone("instantiateLocationsAndEntities");
         instantiateMementos();
+        notePhaseDone("instantiateMementos");
         instantiateAdjuncts(instantiator); 
+        notePhaseDone("instantiateAdjuncts");
         reconstructEverything();
+        notePhaseDone("reconstruct");
         associateAdjunctsWithEntities();
+        notePhaseDone("associateAdjuncts");
         manageTheObjects();
+        notePhaseDone("manage");
         finishingUp();
     }
     
+    protected void notePhaseDone(String phaseName) {
+        Duration duration = Duration.of(phaseTimer);
+        phaseDurations.put(phaseName, duration);
+        rebindMetrics.notePhaseDuration("rebind."+phaseName, duration);
+        phaseTimer.reset().start();
+    }
+    
     protected abstract void loadManifestFiles() throws Exception;
     
     public void run() {
@@ -255,6 +295,7 @@ public abstract class RebindIteration {
                 readOnlyRebindCount.incrementAndGet();
 
             timer = Stopwatch.createStarted();
+            executor = rebindManager.getRebindExecutor();
             exceptionHandler.onStart(rebindContext);
 
             doRun();
@@ -272,10 +313,66 @@ public abstract class RebindIteration {
             throw exceptionHandler.onFailed(e);
             
         } finally {
+            executor = null;
             rebindActive.release();
             RebindTracker.reset();
         }
     }
+
+    /**
+     * Runs the given jobs, in parallel if there is a pool, returning their results in the order of the jobs.
+     * Jobs are expected to report their own failures to the {@link #exceptionHandler};
+     * if one throws, the remaining jobs are cancelled and the exception is propagated.
+     */
+    protected <T> List<T> runInParallel(List<? extends Callable<T>> jobs) {
+        List<T> result = Lists.newArrayListWithCapacity(jobs.size());
+        if (executor == null || jobs.size() < 2) {
+            for (Callable<T> job : jobs) {
+                try {
+                    result.add(job.call());
+                } catch (Exception e) {
+                    throw Exceptions.propagate(e);
+                }
+            }
+            return result;
+        }
+        
+        // the pool threads do not run as tasks, so pass on the caller's entitlements (which may come from its task)
+        final EntitlementContext entitlementContext = Entitlements.getEntitlementContext();
+        List<Future<T>> futures = Lists.newArrayListWithCapacity(jobs.size());
+        for (final Callable<T> job : jobs) {
+            futures.add(executor.submit(new Callable<T>() {
+                @Override public T call() throws Exception {
+                    // so that items can tell they are being rebinded, as when run in the rebinding thread
+                    RebindTracker.setRebinding();
+                    if (entitlementContext != null) Entitlements.setEntitlementContext(entitlementContext);
+                    try {
+                        return job.call();
+                    } finally {
+                        if (entitlementContext != null) Entitlements.clearEntitlementContext();
+                        RebindTracker.reset();
+                    }
+                }}));
+        }
+        try {
+            for (Future<T> future : futures) {
+                result.add(future.get());
+            }
+            return result;
+        } catch (ExecutionException e) {
+            cancel(futures);
+            throw Exceptions.propagate(e.getCause());
+        } catch (InterruptedException e) {
+            cancel(futures);
+            throw Exceptions.propagate(e);
+        }
+    }
+    
+    private void cancel(List<? extends Future<?>> futures) {
+        for (Future<?> future : futures) {
+            future.cancel(true);
+        }
+    }
     
     protected void checkEnteringPhase(int targetPhase) {
         phase++;
@@ -381,36 +478,53 @@ public abstract class RebindIteration {
         
         // Instantiate locations
         logRebindingDebug("RebindManager instantiating locations: {}", mementoManifest.getLocationIdToType().keySet());
+        List<String> locationIds = Lists.newArrayList();
+        List<Callable<Location>> locationJobs = Lists.newArrayList();
         for (Map.Entry<String, String> entry : mementoManifest.getLocationIdToType().entrySet()) {
-            String locId = entry.getKey();
-            String locType = entry.getValue();
-            if (LOG.isTraceEnabled()) LOG.trace("RebindManager instantiating location {}", locId);
-            
-            try {
-                Location location = instantiator.newLocation(locId, locType);
-                rebindContext.registerLocation(locId, location);
-            } catch (Exception e) {
-                exceptionHandler.onCreateFailed(BrooklynObjectType.LOCATION, locId, locType, e);
-            }
+            final String locId = entry.getKey();
+            final String locType = entry.getValue();
+            locationIds.add(locId);
+            locationJobs.add(new Callable<Location>() {
+                @Override public Location call() {
+                    if (LOG.isTraceEnabled()) LOG.trace("RebindManager instantiating location {}", locId);
+                    try {
+                        return instantiator.newLocation(locId, locType);
+                    } catch (Exception e) {
+                        exceptionHandler.onCreateFailed(BrooklynObjectType.LOCATION, locId, locType, e);
+                        return null;
+                    }
+                }});
+        }
+        List<Location> locations = runInParallel(locationJobs);
+        for (int i=0; i<locations.size(); i++) {
+            if (locations.get(i) != null) rebindContext.registerLocation(locationIds.get(i), locations.get(i));
         }
         
         // Instantiate entities
         logRebindingDebug("RebindManager instantiating entities: {}", mementoManifest.getEntityIdToManifest().keySet());
+        List<String> entityIds = Lists.newArrayList();
+        List<Callable<Entity>> entityJobs = Lists.newArrayList();
         for (Map.Entry<String, EntityMementoManifest> entry : mementoManifest.getEntityIdToManifest().entrySet()) {
-            String entityId = entry.getKey();
-            EntityMementoManifest entityManifest = entry.getValue();
-            String catalogItemId = findCatalogItemId(classLoader, mementoManifest.getEntityIdToManifest(), entityManifest);
-            
-            if (LOG.isTraceEnabled()) LOG.trace("RebindManager instantiating entity {}", entityId);
-            
-            try {
-                Entity entity = (Entity) instantiator.newEntity(entityId, entityManifest.getType(), catalogItemId);
-                ((EntityInternal)entity).getManagementSupport().setReadOnly( rebindContext.isReadOnly(entity) );
-                rebindContext.registerEntity(entityId, entity);
-
-            } catch (Exception e) {
-                exceptionHandler.onCreateFailed(BrooklynObjectType.ENTITY, entityId, entityManifest.getType(), e);
-            }
+            final String entityId = entry.getKey();
+            final EntityMementoManifest entityManifest = entry.getValue();
+            entityIds.add(entityId);
+            entityJobs.add(new Callable<Entity>() {
+                @Override public Entity call() {
+                    if (LOG.isTraceEnabled()) LOG.trace("RebindManager instantiating entity {}", entityId);
+                    try {
+                        String catalogItemId = findCatalogItemId(classLoader, mementoManifest.getEntityIdToManifest(), entityManifest);
+                        Entity entity = (Entity) instantiator.newEntity(entityId, entityManifest.getType(), catalogItemId);
+                        ((EntityInternal)entity).getManagementSupport().setReadOnly( rebindContext.isReadOnly(entity) );
+                        return entity;
+                    } catch (Exception e) {
+                        exceptionHandler.onCreateFailed(BrooklynObjectType.ENTITY, entityId, entityManifest.getType(), e);
+                        return null;
+                    }
+                }});
+        }
+        List<Entity> entities = runInParallel(entityJobs);
+        for (int i=0; i<entities.size(); i++) {
+            if (entities.get(i) != null) rebindContext.registerEntity(entityIds.get(i), entities.get(i));
         }
     }
 
@@ -421,22 +535,31 @@ public abstract class RebindIteration {
         memento = persistenceStoreAccess.loadMemento(mementoRawData, rebindContext.lookup(), exceptionHandler);
     }
 
-    protected void instantiateAdjuncts(BrooklynObjectInstantiator instantiator) {
+    protected void instantiateAdjuncts(final BrooklynObjectInstantiator instantiator) {
         
         checkEnteringPhase(5);
         
         // Instantiate policies
         if (rebindManager.persistPoliciesEnabled) {
             logRebindingDebug("RebindManager instantiating policies: {}", memento.getPolicyIds());
-            for (PolicyMemento policyMemento : memento.getPolicyMementos().values()) {
-                logRebindingDebug("RebindManager instantiating policy {}", policyMemento);
-                
-                try {
-                    Policy policy = instantiator.newPolicy(policyMemento);
-                    rebindContext.registerPolicy(policyMemento.getId(), policy);
-                } catch (Exception e) {
-                    exceptionHandler.onCreateFailed(BrooklynObjectType.POLICY, policyMemento.getId(), policyMemento.getType(), e);
-                }
+            List<String> ids = Lists.newArrayList();
+            List<Callable<Policy>> jobs = Lists.newArrayList();
+            for (final PolicyMemento policyMemento : memento.getPolicyMementos().values()) {
+                ids.add(policyMemento.getId());
+                jobs.add(new Callable<Policy>() {
+                    @Override public Policy call() {
+                        logRebindingDebug("RebindManager instantiating policy {}", policyMemento);
+                        try {
+                            return instantiator.newPolicy(policyMemento);
+                        } catch (Exception e) {
+                            exceptionHandler.onCreateFailed(BrooklynObjectType.POLICY, policyMemento.getId(), policyMemento.getType(), e);
+                            return null;
+                        }
+                    }});
+            }
+            List<Policy> policies = runInParallel(jobs);
+            for (int i=0; i<policies.size(); i++) {
+                if (policies.get(i) != null) rebindContext.registerPolicy(ids.get(i), policies.get(i));
             }
         } else {
             logRebindingDebug("Not rebinding policies; feature disabled: {}", memento.getPolicyIds());
@@ -445,15 +568,24 @@ public abstract class RebindIteration {
         // Instantiate enrichers
         if (rebindManager.persistEnrichersEnabled) {
             logRebindingDebug("RebindManager instantiating enrichers: {}", memento.getEnricherIds());
-            for (EnricherMemento enricherMemento : memento.getEnricherMementos().values()) {
-                logRebindingDebug("RebindManager instantiating enricher {}", enricherMemento);
-
-                try {
-                    Enricher enricher = instantiator.newEnricher(enricherMemento);
-                    rebindContext.registerEnricher(enricherMemento.getId(), enricher);
-                } catch (Exception e) {
-                    exceptionHandler.onCreateFailed(BrooklynObjectType.ENRICHER, enricherMemento.getId(), enricherMemento.getType(), e);
-                }
+            List<String> ids = Lists.newArrayList();
+            List<Callable<Enricher>> jobs = Lists.newArrayList();
+            for (final EnricherMemento enricherMemento : memento.getEnricherMementos().values()) {
+                ids.add(enricherMemento.getId());
+                jobs.add(new Callable<Enricher>() {
+                    @Override public Enricher call() {
+                        logRebindingDebug("RebindManager instantiating enricher {}", enricherMemento);
+                        try {
+                            return instantiator.newEnricher(enricherMemento);
+                        } catch (Exception e) {
+                            exceptionHandler.onCreateFailed(BrooklynObjectType.ENRICHER, enricherMemento.getId(), enricherMemento.getType(), e);
+                            return null;
+                        }
+                    }});
+            }
+            List<Enricher> enrichers = runInParallel(jobs);
+            for (int i=0; i<enrichers.size(); i++) {
+                if (enrichers.get(i) != null) rebindContext.registerEnricher(ids.get(i), enrichers.get(i));
             }
         } else {
             logRebindingDebug("Not rebinding enrichers; feature disabled: {}", memento.getEnricherIds());
@@ -462,15 +594,24 @@ public abstract class RebindIteration {
         // Instantiate feeds
         if (rebindManager.persistFeedsEnabled) {
             logRebindingDebug("RebindManager instantiating feeds: {}", memento.getFeedIds());
-            for (FeedMemento feedMemento : memento.getFeedMementos().values()) {
-                if (LOG.isDebugEnabled()) LOG.debug("RebindManager instantiating feed {}", feedMemento);
-
-                try {
-                    Feed feed = instantiator.newFeed(feedMemento);
-                    rebindContext.registerFeed(feedMemento.getId(), feed);
-                } catch (Exception e) {
-                    exceptionHandler.onCreateFailed(BrooklynObjectType.FEED, feedMemento.getId(), feedMemento.getType(), e);
-                }
+            List<String> ids = Lists.newArrayList();
+            List<Callable<Feed>> jobs = Lists.newArrayList();
+            for (final FeedMemento feedMemento : memento.getFeedMementos().values()) {
+                ids.add(feedMemento.getId());
+                jobs.add(new Callable<Feed>() {
+                    @Override public Feed call() {
+                        if (LOG.isDebugEnabled()) LOG.debug("RebindManager instantiating feed {}", feedMemento);
+                        try {
+                            return instantiator.newFeed(feedMemento);
+                        } catch (Exception e) {
+                            exceptionHandler.onCreateFailed(BrooklynObjectType.FEED, feedMemento.getId(), feedMemento.getType(), e);
+                            return null;
+                        }
+                    }});
+            }
+            List<Feed> feeds = runInParallel(jobs);
+            for (int i=0; i<feeds.size(); i++) {
+                if (feeds.get(i) != null) rebindContext.registerFeed(ids.get(i), feeds.get(i));
             }
         } else {
             logRebindingDebug("Not rebinding feeds; feature disabled: {}", memento.getFeedIds());
@@ -501,64 +642,88 @@ public abstract class RebindIteration {
         // Reconstruct policies
         if (rebindManager.persistPoliciesEnabled) {
             logRebindingDebug("RebindManager reconstructing policies");
-            for (PolicyMemento policyMemento : memento.getPolicyMementos().values()) {
-                Policy policy = rebindContext.getPolicy(policyMemento.getId());
+            List<Callable<Policy>> jobs = Lists.newArrayList();
+            for (final PolicyMemento policyMemento : memento.getPolicyMementos().values()) {
+                final Policy policy = rebindContext.getPolicy(policyMemento.getId());
                 logRebindingDebug("RebindManager reconstructing policy {}", policyMemento);
    
                 if (policy == null) {
                     // usually because of creation-failure, when not using fail-fast
                     exceptionHandler.onNotFound(BrooklynObjectType.POLICY, policyMemento.getId());
                 } else {
-                    try {
-                        policy.getRebindSupport().reconstruct(rebindContext, policyMemento);
-                    } catch (Exception e) {
-                        exceptionHandler.onRebindFailed(BrooklynObjectType.POLICY, policy, e);
-                        rebindContext.unregisterPolicy(policy);
-                    }
+                    jobs.add(new Callable<Policy>() {
+                        @Override public Policy call() {
+                            try {
+                                policy.getRebindSupport().reconstruct(rebindContext, policyMemento);
+                                return null;
+                            } catch (Exception e) {
+                                exceptionHandler.onRebindFailed(BrooklynObjectType.POLICY, policy, e);
+                                return policy;
+                            }
+                        }});
                 }
             }
+            // unregister failures here, so the context is only changed by this thread
+            for (Policy failed : runInParallel(jobs)) {
+                if (failed != null) rebindContext.unregisterPolicy(failed);
+            }
         }
 
         // Reconstruct enrichers
         if (rebindManager.persistEnrichersEnabled) {
             logRebindingDebug("RebindManager reconstructing enrichers");
-            for (EnricherMemento enricherMemento : memento.getEnricherMementos().values()) {
-                Enricher enricher = rebindContext.getEnricher(enricherMemento.getId());
+            List<Callable<Enricher>> jobs = Lists.newArrayList();
+            for (final EnricherMemento enricherMemento : memento.getEnricherMementos().values()) {
+                final Enricher enricher = rebindContext.getEnricher(enricherMemento.getId());
                 logRebindingDebug("RebindManager reconstructing enricher {}", enricherMemento);
       
                 if (enricher == null) {
                     // usually because of creation-failure, when not using fail-fast
                     exceptionHandler.onNotFound(BrooklynObjectType.ENRICHER, enricherMemento.getId());
                 } else {
-                    try {
-                        enricher.getRebindSupport().reconstruct(rebindContext, enricherMemento);
-                    } catch (Exception e) {
-                        exceptionHandler.onRebindFailed(BrooklynObjectType.ENRICHER, enricher, e);
-                        rebindContext.unregisterEnricher(enricher);
-                    }
+                    jobs.add(new Callable<Enricher>() {
+                        @Override public Enricher call() {
+                            try {
+                                enricher.getRebindSupport().reconstruct(rebindContext, enricherMemento);
+                                return null;
+                            } catch (Exception e) {
+                                exceptionHandler.onRebindFailed(BrooklynObjectType.ENRICHER, enricher, e);
+                                return enricher;
+                            }
+                        }});
                 }
             }
+            for (Enricher failed : runInParallel(jobs)) {
+                if (failed != null) rebindContext.unregisterEnricher(failed);
+            }
         }
    
         // Reconstruct feeds
         if (rebindManager.persistFeedsEnabled) {
             logRebindingDebug("RebindManager reconstructing feeds");
-            for (FeedMemento feedMemento : memento.getFeedMementos().values()) {
-                Feed feed = rebindContext.getFeed(feedMemento.getId());
+            List<Callable<Feed>> jobs = Lists.newArrayList();
+            for (final FeedMemento feedMemento : memento.getFeedMementos().values()) {
+                final Feed feed = rebindContext.getFeed(feedMemento.getId());
                 logRebindingDebug("RebindManager reconstructing feed {}", feedMemento);
       
                 if (feed == null) {
                     // usually because of creation-failure, when not using fail-fast
                     exceptionHandler.onNotFound(BrooklynObjectType.FEED, feedMemento.getId());
                 } else {
-                    try {
-                        feed.getRebindSupport().reconstruct(rebindContext, feedMemento);
-                    } catch (Exception e) {
-                        exceptionHandler.onRebindFailed(BrooklynObjectType.FEED, feed, e);
-                        rebindContext.unregisterFeed(feed);
-                    }
+                    jobs.add(new Callable<Feed>() {
+                        @Override public Feed call() {
+                            try {
+                                feed.getRebindSupport().reconstruct(rebindContext, feedMemento);
+                                return null;
+                            } catch (Exception e) {
+                                exceptionHandler.onRebindFailed(BrooklynObjectType.FEED, feed, e);
+                                return feed;
+                            }
+                        }});
                 }
-
+            }
+            for (Feed failed : runInParallel(jobs)) {
+                if (failed != null) rebindContext.unregisterFeed(failed);
             }
         }
    
@@ -587,25 +752,35 @@ public abstract class RebindIteration {
         checkEnteringPhase(7);
 
         logRebindingDebug("RebindManager associating adjuncts to entities");
-        for (EntityMemento entityMemento : sortParentFirst(memento.getEntityMementos()).values()) {
-            Entity entity = rebindContext.getEntity(entityMemento.getId());
-            logRebindingDebug("RebindManager associating adjuncts to entity {}", entityMemento);
-   
-            if (entity == null) {
-                // usually because of creation-failure, when not using fail-fast
-                exceptionHandler.onNotFound(BrooklynObjectType.ENTITY, entityMemento.getId());
-            } else {
-                try {
-                    entityMemento.injectTypeClass(entity.getClass());
-                    // TODO these call to the entity which in turn sets the entity on the underlying feeds and enrichers;
-                    // that is taken as the cue to start, but it should not be. start should be a separate call.
-                    ((EntityInternal)entity).getRebindSupport().addPolicies(rebindContext, entityMemento);
-                    ((EntityInternal)entity).getRebindSupport().addEnrichers(rebindContext, entityMemento);
-                    ((EntityInternal)entity).getRebindSupport().addFeeds(rebindContext, entityMemento);
-                } catch (Exception e) {
-                    exceptionHandler.onRebindFailed(BrooklynObjectType.ENTITY, entity, e);
+        // entities at the same depth are done in parallel, but all parents before their children,
+        // so adjuncts on a parent are subscribed before those on its children start publishing
+        for (Collection<EntityMemento> level : groupByDepth(sortParentFirst(memento.getEntityMementos()))) {
+            List<Callable<Void>> jobs = Lists.newArrayList();
+            for (final EntityMemento entityMemento : level) {
+                final Entity entity = rebindContext.getEntity(entityMemento.getId());
+                logRebindingDebug("RebindManager associating adjuncts to entity {}", entityMemento);
+       
+                if (entity == null) {
+                    // usually because of creation-failure, when not using fail-fast
+                    exceptionHandler.onNotFound(BrooklynObjectType.ENTITY, entityMemento.getId());
+                } else {
+                    jobs.add(new Callable<Void>() {
+                        @Override public Void call() {
+                            try {
+                                entityMemento.injectTypeClass(entity.getClass());
+                                // TODO these call to the entity which in turn sets the entity on the underlying feeds and enrichers;
+                                // that is taken as the cue to start, but it should not be. start should be a separate call.
+                                ((EntityInternal)entity).getRebindSupport().addPolicies(rebindContext, entityMemento);
+                                ((EntityInternal)entity).getRebindSupport().addEnrichers(rebindContext, entityMemento);
+                                ((EntityInternal)entity).getRebindSupport().addFeeds(rebindContext, entityMemento);
+                            } catch (Exception e) {
+                                exceptionHandler.onRebindFailed(BrooklynObjectType.ENTITY, entity, e);
+                            }
+                            return null;
+                        }});
                 }
             }
+            runInParallel(jobs);
         }
     }
 
@@ -718,7 +893,7 @@ public abstract class RebindIteration {
         }
 
         // Return the top-level applications
-        logRebindingDebug("RebindManager complete; apps: {}", getMementoRootEntities());
+        logRebindingDebug("RebindManager complete; apps: {}; phase durations: {}", getMementoRootEntities(), phaseDurations);
     }
 
     protected void noteErrors(final RebindExceptionHandler exceptionHandler, Exception primaryException) {
@@ -1065,6 +1240,23 @@ public abstract class RebindIteration {
         return RebindManagerImpl.sortParentFirst(nodes);
     }
 
+    /** 
+     * Groups parent-first sorted nodes by their depth in the hierarchy (as far as can be seen in the given nodes),
+     * preserving the order within each depth.
+     */
+    protected <T extends TreeNode> List<Collection<T>> groupByDepth(Map<String, T> sortedNodes) {
+        Map<String, Integer> depths = Maps.newHashMap();
+        List<Collection<T>> result = Lists.newArrayList();
+        for (T node : sortedNodes.values()) {
+            Integer parentDepth = (node.getParent() == null) ? null : depths.get(node.getParent());
+            int depth = (parentDepth == null) ? 0 : parentDepth + 1;
+            depths.put(node.getId(), depth);
+            if (result.size() <= depth) result.add(Lists.<T>newArrayList());
+            result.get(depth).add(node);
+        }
+        return result;
+    }
+
     /** logs at debug, except during subsequent read-only rebinds, in which it logs trace */
     protected void logRebindingDebug(String message, Object... args) {
         if (shouldLogRebinding()) {
@@ -24,11 +24,16 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import javax.annotation.Nullable;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -72,6 +77,7 @@ import com.google.common.base.Function;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /** Manages the persistence/rebind process.
  * <p>
@@ -104,6 +110,11 @@ public class RebindManagerImpl implements RebindManager {
                 + "then linear regression to allow max 5% at 100 items and above", 
                 QuorumChecks.newLinearRange("[[0,-2],[10,8],[100,95],[200,190]]"));
 
+    public static final ConfigKey<Integer> REBIND_THREAD_POOL_SIZE =
+        ConfigKeys.newIntegerConfigKey("rebind.threadPoolSize",
+                "Maximum number of threads used during rebind to instantiate items, and to reconstruct and attach adjuncts, in parallel "
+                + "(1 to do everything in the rebinding thread)", 8);
+
     public static final Logger LOG = LoggerFactory.getLogger(RebindManagerImpl.class);
 
     private final ManagementContextInternal managementContext;
@@ -116,6 +127,8 @@ public class RebindManagerImpl implements RebindManager {
     
     private volatile boolean readOnlyRunning = false;
     private volatile ScheduledTask readOnlyTask = null;
+    /** whether the last read-only rebind succeeded, so need not be repeated if the persisted state is unchanged */
+    private volatile boolean readOnlyRebindUpToDate = false;
     private transient Semaphore rebindActive = new Semaphore(1);
     private transient AtomicInteger readOnlyRebindCount = new AtomicInteger(Integer.MIN_VALUE);
     
@@ -125,6 +138,10 @@ public class RebindManagerImpl implements RebindManager {
     final boolean persistEnrichersEnabled;
     final boolean persistFeedsEnabled;
     final boolean persistCatalogItemsEnabled;
+    final int rebindThreadPoolSize;
+    /** pool for parallel rebind work, shared by all rebind iterations (only one of which runs at a time); created on first use */
+    private ExecutorService rebindExecutor;
+    private final Object rebindExecutorLock = new Object[0];
     
     private RebindFailureMode danglingRefFailureMode;
     private RebindFailureMode rebindFailureMode;
@@ -176,6 +193,7 @@ public class RebindManagerImpl implements RebindManager {
         loadPolicyFailureMode = managementContext.getConfig().getConfig(LOAD_POLICY_FAILURE_MODE);
         
         danglingRefsQuorumRequiredHealthy = managementContext.getConfig().getConfig(DANGLING_REFERENCES_MIN_REQUIRED_HEALTHY);
+        rebindThreadPoolSize = Math.max(1, managementContext.getConfig().getConfig(REBIND_THREAD_POOL_SIZE));
 
         LOG.debug("{} initialized, settings: policies={}, enrichers={}, feeds={}, catalog={}",
                 new Object[]{this, persistPoliciesEnabled, persistEnrichersEnabled, persistFeedsEnabled, persistCatalogItemsEnabled});
@@ -226,6 +244,9 @@ public class RebindManagerImpl implements RebindManager {
         }
         
         this.persistenceStoreAccess = checkNotNull(val, "persister");
+        if (persistenceStoreAccess instanceof BrooklynMementoPersisterToObjectStore) {
+            ((BrooklynMementoPersisterToObjectStore)persistenceStoreAccess).setMetrics(persistMetrics);
+        }
         
         this.persistenceRealChangeListener = new PeriodicDeltaChangeListener(managementContext.getServerExecutionContext(), persistenceStoreAccess, exceptionHandler, persistMetrics, periodicPersistPeriod);
         this.persistencePublicChangeListener = new SafeChangeListener(persistenceRealChangeListener);
@@ -288,9 +309,11 @@ public class RebindManagerImpl implements RebindManager {
         
         readOnlyRunning = true;
         readOnlyRebindCount.set(0);
+        readOnlyRebindUpToDate = false;
 
         try {
             rebind(null, null, mode);
+            readOnlyRebindUpToDate = true;
         } catch (Exception e) {
             throw Exceptions.propagate(e);
         }
@@ -300,7 +323,13 @@ public class RebindManagerImpl implements RebindManager {
                 return Tasks.<Void>builder().dynamic(false).name("rebind (periodic run").body(new Callable<Void>() {
                     public Void call() {
                         try {
+                            if (readOnlyRebindUpToDate && !isPersistedStateChangedSinceLastRebind()) {
+                                if (LOG.isTraceEnabled()) LOG.trace("Skipping read-only rebind; persisted state unchanged");
+                                return null;
+                            }
+                            readOnlyRebindUpToDate = false;
                             rebind(null, null, mode);
+                            readOnlyRebindUpToDate = true;
                             return null;
                         } catch (RuntimeInterruptedException e) {
                             LOG.debug("Interrupted rebinding (re-interrupting): "+e);
@@ -331,6 +360,15 @@ public class RebindManagerImpl implements RebindManager {
             new ScheduledTask(MutableMap.of("displayName", "Periodic read-only rebind"), taskFactory).period(periodicPersistPeriod));
     }
     
+    /** true unless the persister can tell that nothing has been written since it was last read */
+    protected boolean isPersistedStateChangedSinceLastRebind() {
+        BrooklynMementoPersister persister = persistenceStoreAccess;
+        if (persister instanceof BrooklynMementoPersisterToObjectStore) {
+            return ((BrooklynMementoPersisterToObjectStore)persister).isChangedSinceLastLoad();
+        }
+        return true;
+    }
+    
     @Override
     public void stopReadOnly() {
         readOnlyRunning = false;
@@ -364,6 +402,31 @@ public class RebindManagerImpl implements RebindManager {
         stopReadOnly();
         stopPersistence();
         if (persistenceStoreAccess != null) persistenceStoreAccess.stop(true);
+        synchronized (rebindExecutorLock) {
+            if (rebindExecutor != null) {
+                rebindExecutor.shutdownNow();
+                rebindExecutor = null;
+            }
+        }
+    }
+    
+    /**
+     * Returns the pool for rebind work which can be done in parallel, or null if everything is to be done in the rebinding thread.
+     * Its threads time out when idle, so periodic (e.g. read-only) rebinds reuse them without keeping them between runs.
+     */
+    @Nullable
+    ExecutorService getRebindExecutor() {
+        if (rebindThreadPoolSize <= 1) return null;
+        synchronized (rebindExecutorLock) {
+            if (rebindExecutor == null) {
+                ThreadPoolExecutor result = new ThreadPoolExecutor(rebindThreadPoolSize, rebindThreadPoolSize, 60, TimeUnit.SECONDS,
+                        new LinkedBlockingQueue<Runnable>(),
+                        new ThreadFactoryBuilder().setNameFormat("brooklyn-rebind-%d").setDaemon(true).build());
+                result.allowCoreThreadTimeOut(true);
+                rebindExecutor = result;
+            }
+            return rebindExecutor;
+        }
     }
     
         
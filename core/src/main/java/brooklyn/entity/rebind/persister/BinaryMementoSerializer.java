@@ -0,0 +1,258 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.entity.rebind.persister;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import javax.annotation.Nullable;
+
+import brooklyn.util.collections.MutableMap;
+import brooklyn.util.exceptions.Exceptions;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.BaseEncoding;
+import com.thoughtworks.xstream.io.HierarchicalStreamReader;
+import com.thoughtworks.xstream.io.HierarchicalStreamWriter;
+import com.thoughtworks.xstream.io.WriterWrapper;
+import com.thoughtworks.xstream.io.binary.BinaryStreamReader;
+import com.thoughtworks.xstream.io.binary.BinaryStreamWriter;
+import com.thoughtworks.xstream.io.copy.HierarchicalStreamCopier;
+import com.thoughtworks.xstream.io.xml.XppDriver;
+
+/**
+ * Serializes mementos in a compact binary form, using the same XStream mappings and converters as
+ * {@link XmlMementoSerializer}, but writing the object tree as XStream binary tokens (where element names
+ * are written once and then referred to by id), deflated and base64-encoded.
+ * <p>
+ * The persisted form is:
+ * <pre>
+ * #brooklyn-binary-memento:1
+ * id=...&type=...&parent=...&catalogItemId=...
+ * <i>base64 of deflated XStream binary</i>
+ * </pre>
+ * where the second line is a header with the values of those top-level fields, so that the manifest
+ * can be built at rebind without deserializing (see {@link #getHeaderField(String, String)}).
+ * <p>
+ * Because the object tree is the same as for XML, it is as tolerant of changes to the memento classes
+ * as the XML form, and content can be converted between the two forms without deserializing the mementos
+ * (see {@link #fromXml(String)} and {@link #toXml(String)}). This serializer reads content in either form,
+ * so an existing XML store is migrated as objects are next written (or all at once, with
+ * {@link BrooklynPersistenceUtils#convertMementoFormat(brooklyn.mementos.BrooklynMementoRawData, MementoFormat)}).
+ */
+public class BinaryMementoSerializer<T> extends XmlMementoSerializer<T> {
+
+    public static final String PREFIX = "#brooklyn-binary-memento:1\n";
+
+    /** top-level fields included in the header */
+    public static final Set<String> HEADER_FIELDS = ImmutableSet.of("id", "type", "parent", "catalogItemId");
+
+    public BinaryMementoSerializer(ClassLoader classLoader) {
+        super(classLoader);
+    }
+
+    public static boolean isBinary(@Nullable String contents) {
+        return contents!=null && contents.startsWith(PREFIX);
+    }
+
+    @Override
+    public String toString(T memento) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        HeaderCapturingWriter writer = new HeaderCapturingWriter(newBinaryWriter(bytes));
+        xstream.marshal(memento, writer);
+        writer.close();
+        return encode(writer.getHeader(), bytes.toByteArray());
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T fromString(String contents) {
+        if (!isBinary(contents)) {
+            return super.fromString(contents);
+        }
+        HierarchicalStreamReader reader = newBinaryReader(contents);
+        try {
+            return (T) xstream.unmarshal(reader);
+        } finally {
+            reader.close();
+        }
+    }
+
+    /** returns the value of the given top-level field (one of {@link #HEADER_FIELDS}) of binary content, or null if not present */
+    @Nullable
+    public static String getHeaderField(String contents, String field) {
+        if (!isBinary(contents)) throw new IllegalArgumentException("Not binary memento content");
+        int headerEnd = contents.indexOf('\n', PREFIX.length());
+        if (headerEnd<0) throw new IllegalArgumentException("Malformed binary memento content");
+        String header = contents.substring(PREFIX.length(), headerEnd);
+        for (String entry : header.split("&")) {
+            int eq = entry.indexOf('=');
+            if (eq>0 && field.equals(entry.substring(0, eq))) {
+                return urlDecode(entry.substring(eq+1));
+            }
+        }
+        return null;
+    }
+
+    /** converts XML content (as written by {@link XmlMementoSerializer}) to binary, without deserializing it */
+    public static String fromXml(String xml) {
+        if (isBinary(xml)) return xml;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        HeaderCapturingWriter writer = new HeaderCapturingWriter(newBinaryWriter(bytes));
+        HierarchicalStreamReader reader = new XppDriver().createReader(new StringReader(xml));
+        try {
+            new HierarchicalStreamCopier().copy(reader, writer);
+        } finally {
+            reader.close();
+        }
+        writer.close();
+        return encode(writer.getHeader(), bytes.toByteArray());
+    }
+
+    /** converts binary content to XML (as would be written by {@link XmlMementoSerializer}), without deserializing it */
+    public static String toXml(String contents) {
+        if (!isBinary(contents)) return contents;
+        StringWriter result = new StringWriter();
+        HierarchicalStreamReader reader = newBinaryReader(contents);
+        try {
+            HierarchicalStreamWriter writer = new XppDriver().createWriter(result);
+            new HierarchicalStreamCopier().copy(reader, writer);
+            writer.close();
+        } finally {
+            reader.close();
+        }
+        return result.append("\n").toString();
+    }
+
+    private static HierarchicalStreamWriter newBinaryWriter(ByteArrayOutputStream bytes) {
+        // buffered, as the binary writer does many small writes
+        return new BinaryStreamWriter(new BufferedOutputStream(new DeflaterOutputStream(bytes, new Deflater(Deflater.BEST_SPEED)) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    // not done by super as we supplied the deflater
+                    def.end();
+                }
+            }
+        }));
+    }
+
+    private static HierarchicalStreamReader newBinaryReader(String contents) {
+        int headerEnd = contents.indexOf('\n', PREFIX.length());
+        if (headerEnd<0) throw new IllegalArgumentException("Malformed binary memento content");
+        byte[] bytes = BaseEncoding.base64().decode(contents.substring(headerEnd+1).trim());
+        return new BinaryStreamReader(new BufferedInputStream(new InflaterInputStream(new ByteArrayInputStream(bytes))));
+    }
+
+    private static String encode(Map<String, String> header, byte[] payload) {
+        StringBuilder result = new StringBuilder(PREFIX);
+        boolean first = true;
+        for (Map.Entry<String, String> entry : header.entrySet()) {
+            if (!first) result.append('&');
+            first = false;
+            result.append(entry.getKey()).append('=').append(urlEncode(entry.getValue()));
+        }
+        result.append('\n');
+        result.append(BaseEncoding.base64().encode(payload));
+        return result.append('\n').toString();
+    }
+
+    private static String urlEncode(String val) {
+        try {
+            return URLEncoder.encode(val, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw Exceptions.propagate(e);
+        }
+    }
+
+    private static String urlDecode(String val) {
+        try {
+            return URLDecoder.decode(val, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw Exceptions.propagate(e);
+        }
+    }
+
+    /** records the values of the {@link #HEADER_FIELDS} which are children of the root node */
+    private static class HeaderCapturingWriter extends WriterWrapper {
+        private final Map<String, String> header = MutableMap.of();
+        private int depth = 0;
+        private String currentField;
+
+        HeaderCapturingWriter(HierarchicalStreamWriter wrapped) {
+            super(wrapped);
+        }
+
+        Map<String, String> getHeader() {
+            return header;
+        }
+
+        @Override
+        public void startNode(String name) {
+            nodeStarted(name);
+            super.startNode(name);
+        }
+
+        @Override
+        @SuppressWarnings("rawtypes")
+        public void startNode(String name, Class clazz) {
+            nodeStarted(name);
+            super.startNode(name, clazz);
+        }
+
+        private void nodeStarted(String name) {
+            depth++;
+            currentField = (depth==2 && HEADER_FIELDS.contains(name) && !header.containsKey(name)) ? name : null;
+        }
+
+        @Override
+        public void setValue(String text) {
+            if (currentField!=null && text!=null) header.put(currentField, text);
+            super.setValue(text);
+        }
+
+        @Override
+        public void endNode() {
+            depth--;
+            currentField = null;
+            super.endNode();
+        }
+
+        @Override
+        public void close() {
+            super.flush();
+            super.close();
+        }
+    }
+}
@@ -24,6 +24,8 @@ import java.io.IOException;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
@@ -69,10 +71,15 @@ import brooklyn.util.xstream.XmlUtil;
 
 import com.google.common.annotations.Beta;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Charsets;
 import com.google.common.base.Objects;
 import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningExecutorService;
@@ -99,6 +106,22 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
             "Maximum number of attempts to serialize a memento (e.g. if first attempts fail because of concurrent modifications of an entity)", 
             5);
 
+    public static final ConfigKey<MementoFormat> PERSISTER_FORMAT = ConfigKeys.newConfigKey(MementoFormat.class,
+            "persister.format",
+            "Form in which mementos are written, xml or binary (either form can be read, so this can be changed for an existing store)", 
+            MementoFormat.XML);
+
+    public static final ConfigKey<Boolean> PERSISTER_SKIP_UNCHANGED_WRITES = ConfigKeys.newBooleanConfigKey(
+            "persister.skipUnchangedWrites",
+            "Whether to skip writing a memento whose serialized content is identical to that last written by this node", 
+            true);
+
+    public static final ConfigKey<Integer> PERSISTER_CHANGE_JOURNAL_MAX_ENTRIES = ConfigKeys.newIntegerConfigKey(
+            "persister.changeJournal.maxEntries",
+            "Maximum number of entries in the journal of changed objects, used by hot standby nodes to re-read only what has changed; "
+            + "when exceeded the journal is restarted and readers re-read everything (0 to disable the journal)", 
+            1000);
+
     private final PersistenceObjectStore objectStore;
     private final MementoSerializer<Object> serializerWithStandardClassLoader;
 
@@ -106,6 +129,20 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
 
     private final ListeningExecutorService executor;
 
+    /** hashes of the content last written by this node to each path, for skipping unchanged writes */
+    private final Map<String, HashCode> lastWrittenHashes = new ConcurrentHashMap<String, HashCode>();
+    private final boolean skipUnchangedWrites;
+    
+    private volatile PersistenceActivityMetrics metrics = new PersistenceActivityMetrics();
+
+    /** null if disabled */
+    @Nullable private final MementoChangeJournal changeJournal;
+    
+    /** when not writing, the content last loaded (keyed by type then path id), for re-reading only what has changed */
+    private Map<BrooklynObjectType, Map<String, LoadedMemento>> lastLoaded;
+    private MementoChangeJournal.Position lastLoadedPosition;
+    private final Object lastLoadedMutex = new Object();
+
     private volatile boolean writesAllowed = false;
     private volatile boolean writesShuttingDown = false;
     private StringConfigMap brooklynProperties;
@@ -121,10 +158,12 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
         this.brooklynProperties = brooklynProperties;
         
         int maxSerializationAttempts = brooklynProperties.getConfig(PERSISTER_MAX_SERIALIZATION_ATTEMPTS);
-        MementoSerializer<Object> rawSerializer = new XmlMementoSerializer<Object>(classLoader);
+        MementoSerializer<Object> rawSerializer = newRawSerializer(classLoader);
         this.serializerWithStandardClassLoader = new RetryingMementoSerializer<Object>(rawSerializer, maxSerializationAttempts);
 
         int maxThreadPoolSize = brooklynProperties.getConfig(PERSISTER_MAX_THREAD_POOL_SIZE);
+        skipUnchangedWrites = brooklynProperties.getConfig(PERSISTER_SKIP_UNCHANGED_WRITES);
+        int changeJournalMaxEntries = brooklynProperties.getConfig(PERSISTER_CHANGE_JOURNAL_MAX_ENTRIES);
 
         objectStore.createSubPath("entities");
         objectStore.createSubPath("locations");
@@ -132,6 +171,7 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
         objectStore.createSubPath("enrichers");
         objectStore.createSubPath("feeds");
         objectStore.createSubPath("catalog");
+        if (changeJournalMaxEntries > 0) objectStore.createSubPath(MementoChangeJournal.SUB_PATH);
 
         // FIXME does it belong here or to ManagementPlaneSyncRecordPersisterToObjectStore ?
         objectStore.createSubPath("plane");
@@ -141,6 +181,8 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
                 // Note: Thread name referenced in logback-includes' ThreadNameDiscriminator
                 return new Thread(r, "brooklyn-persister");
             }}));
+        
+        changeJournal = (changeJournalMaxEntries > 0) ? new MementoChangeJournal(objectStore, changeJournalMaxEntries) : null;
     }
 
     public MementoSerializer<Object> getMementoSerializer() {
@@ -159,12 +201,16 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
     
     protected MementoSerializer<Object> getSerializerWithCustomClassLoader(LookupContext lookupContext, ClassLoader classLoader) {
         int maxSerializationAttempts = brooklynProperties.getConfig(PERSISTER_MAX_SERIALIZATION_ATTEMPTS);
-        MementoSerializer<Object> rawSerializer = new XmlMementoSerializer<Object>(classLoader);
+        MementoSerializer<Object> rawSerializer = newRawSerializer(classLoader);
         MementoSerializer<Object> result = new RetryingMementoSerializer<Object>(rawSerializer, maxSerializationAttempts);
         result.setLookupContext(lookupContext);
         return result;
     }
     
+    protected MementoSerializer<Object> newRawSerializer(ClassLoader classLoader) {
+        return brooklynProperties.getConfig(PERSISTER_FORMAT).<Object>newSerializer(classLoader);
+    }
+    
     @Nullable protected ClassLoader getCustomClassLoaderForBrooklynObject(LookupContext lookupContext, BrooklynObjectType type, String objectId) {
         BrooklynObject item = lookupContext.peek(type, objectId);
         // TODO enrichers etc aren't yet known -- would need to backtrack to the entity to get them from bundles
@@ -178,7 +224,16 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
         return ClassLoaderFromBrooklynClassLoadingContext.of(CatalogUtils.newClassLoadingContext(lookupContext.lookupManagementContext(), catalogItem));
     }
     
+    /** sets the metrics to which write activity (bytes written, unchanged writes skipped, phase durations) is reported */
+    public void setMetrics(PersistenceActivityMetrics metrics) {
+        this.metrics = checkNotNull(metrics, "metrics");
+    }
+    
     @Override public void enableWriteAccess() {
+        // another node may have written to the store since we last wrote, so don't trust what we last wrote
+        lastWrittenHashes.clear();
+        if (changeJournal != null) changeJournal.restart();
+        clearLoadedMementos();
         writesAllowed = true;
     }
     
@@ -271,9 +326,103 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
     }
     
     public BrooklynMementoRawData loadMementoRawData(final RebindExceptionHandler exceptionHandler) {
-        BrooklynMementoRawData subPathData = listMementoSubPathsAsData(exceptionHandler);
+        if (changeJournal == null || writesAllowed) {
+            return toRawData(loadMementos(listMementoSubPathsAsData(exceptionHandler), exceptionHandler));
+        }
         
-        final BrooklynMementoRawData.Builder builder = BrooklynMementoRawData.builder();
+        synchronized (lastLoadedMutex) {
+            // read the journal before the objects, so anything written after it is read will be seen next time
+            MementoChangeJournal.Changes changes = changeJournal.readSince(lastLoadedPosition);
+            if (lastLoaded == null || !changes.isIncremental()) {
+                lastLoaded = loadMementos(listMementoSubPathsAsData(exceptionHandler), exceptionHandler);
+            } else {
+                Stopwatch stopwatch = Stopwatch.createStarted();
+                Map<BrooklynObjectType, Map<String, Boolean>> changed = MementoChangeJournal.collapse(changes.getChanges());
+                BrooklynMementoRawData.Builder toRead = BrooklynMementoRawData.builder();
+                int numToRead = 0;
+                for (Map.Entry<BrooklynObjectType, Map<String, Boolean>> entry : changed.entrySet()) {
+                    BrooklynObjectType type = entry.getKey();
+                    for (Map.Entry<String, Boolean> change : entry.getValue().entrySet()) {
+                        getOrCreate(lastLoaded, type).remove(change.getKey());
+                        if (change.getValue()) {
+                            toRead.put(type, change.getKey(), getPath(type.getSubPathName(), change.getKey()));
+                            numToRead++;
+                        }
+                    }
+                }
+                Map<BrooklynObjectType, Map<String, LoadedMemento>> reread = loadMementos(toRead.build(), exceptionHandler);
+                for (Map.Entry<BrooklynObjectType, Map<String, LoadedMemento>> entry : reread.entrySet()) {
+                    getOrCreate(lastLoaded, entry.getKey()).putAll(entry.getValue());
+                }
+                if (LOG.isDebugEnabled()) LOG.debug("Re-read {} changed mementos, from {} entries in change journal, in {}", 
+                    new Object[] {numToRead, changes.getChanges().size(), Time.makeTimeStringRounded(stopwatch)});
+            }
+            lastLoadedPosition = changes.getPosition();
+            return toRawData(lastLoaded);
+        }
+    }
+
+    /**
+     * Forgets the mementos last loaded, so the next {@link #loadMementoRawData(RebindExceptionHandler)} reads everything;
+     * used on promotion to master, in case the previous master did not journal its last writes.
+     */
+    @Beta
+    public void clearLoadedMementos() {
+        synchronized (lastLoadedMutex) {
+            lastLoaded = null;
+            lastLoadedPosition = null;
+        }
+    }
+
+    /**
+     * Whether the persisted state may have changed since the last {@link #loadMementoRawData(RebindExceptionHandler)}
+     * by this node when not writing: true unless the change journal shows nothing has been written since.
+     */
+    @Beta
+    public boolean isChangedSinceLastLoad() {
+        if (changeJournal == null || writesAllowed) return true;
+        synchronized (lastLoadedMutex) {
+            return lastLoaded == null || !changeJournal.isUnchangedSince(lastLoadedPosition);
+        }
+    }
+    
+    private static class LoadedMemento {
+        final String id;
+        final String contents;
+        
+        LoadedMemento(String id, String contents) {
+            this.id = id;
+            this.contents = contents;
+        }
+    }
+    
+    private static Map<String, LoadedMemento> getOrCreate(Map<BrooklynObjectType, Map<String, LoadedMemento>> loaded, BrooklynObjectType type) {
+        Map<String, LoadedMemento> result = loaded.get(type);
+        if (result == null) {
+            result = Maps.newConcurrentMap();
+            loaded.put(type, result);
+        }
+        return result;
+    }
+    
+    private static BrooklynMementoRawData toRawData(Map<BrooklynObjectType, Map<String, LoadedMemento>> loaded) {
+        BrooklynMementoRawData.Builder builder = BrooklynMementoRawData.builder();
+        for (BrooklynObjectType type: BrooklynPersistenceUtils.STANDARD_BROOKLYN_OBJECT_TYPE_PERSISTENCE_ORDER) {
+            Map<String, LoadedMemento> ofType = loaded.get(type);
+            if (ofType == null) continue;
+            for (LoadedMemento memento : ofType.values()) {
+                builder.put(type, memento.id, memento.contents);
+            }
+        }
+        return builder.build();
+    }
+    
+    /** reads the objects at the given paths (keyed by type then path id), returning their contents keyed by type then path id */
+    protected Map<BrooklynObjectType, Map<String, LoadedMemento>> loadMementos(BrooklynMementoRawData subPathData, final RebindExceptionHandler exceptionHandler) {
+        final Map<BrooklynObjectType, Map<String, LoadedMemento>> result = MutableMap.of();
+        for (BrooklynObjectType type: BrooklynPersistenceUtils.STANDARD_BROOKLYN_OBJECT_TYPE_PERSISTENCE_ORDER) {
+            getOrCreate(result, type);
+        }
         
         Visitor loaderVisitor = new Visitor() {
             @Override
@@ -285,13 +434,17 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
                     Exceptions.propagateIfFatal(e);
                     exceptionHandler.onLoadMementoFailed(type, "memento "+id+" read error", e);
                 }
+                if (contents == null && changeJournal != null && !writesAllowed) {
+                    // deleted since listed or journalled; a subsequent journal entry will say so
+                    return;
+                }
                 
-                String xmlId = (String) XmlUtil.xpath(contents, "/"+type.toCamelCase()+"/id");
+                String xmlId = getMementoField(contents, type, "id");
                 String safeXmlId = Strings.makeValidFilename(xmlId);
                 if (!Objects.equal(id, safeXmlId))
                     LOG.warn("ID mismatch on "+type.toCamelCase()+", "+id+" from path, "+safeXmlId+" from xml");
                 
-                builder.put(type, xmlId, contents);
+                result.get(type).put(id, new LoadedMemento(xmlId, contents));
             }
         };
 
@@ -299,13 +452,11 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
 
         visitMemento("loading raw", subPathData, loaderVisitor, exceptionHandler);
         
-        BrooklynMementoRawData result = builder.build();
-
         if (LOG.isDebugEnabled()) {
             LOG.debug("Loaded rebind raw data; took {}; {} entities, {} locations, {} policies, {} enrichers, {} feeds, {} catalog items, from {}", new Object[]{
-                     Time.makeTimeStringRounded(stopwatch.elapsed(TimeUnit.MILLISECONDS)), result.getEntities().size(), 
-                     result.getLocations().size(), result.getPolicies().size(), result.getEnrichers().size(),
-                     result.getFeeds().size(), result.getCatalogItems().size(),
+                     Time.makeTimeStringRounded(stopwatch.elapsed(TimeUnit.MILLISECONDS)), result.get(BrooklynObjectType.ENTITY).size(), 
+                     result.get(BrooklynObjectType.LOCATION).size(), result.get(BrooklynObjectType.POLICY).size(), result.get(BrooklynObjectType.ENRICHER).size(),
+                     result.get(BrooklynObjectType.FEED).size(), result.get(BrooklynObjectType.CATALOG_ITEM).size(),
                      objectStore.getSummaryName() });
         }
 
@@ -331,6 +482,7 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
 
                 class XPathHelper {
                     private String get(String innerPath) {
+                        if (BinaryMementoSerializer.isBinary(contents)) return BinaryMementoSerializer.getHeaderField(contents, innerPath);
                         return (String) XmlUtil.xpath(contents, prefix+innerPath);
                     }
                 }
@@ -532,6 +684,11 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
             } catch (Exception e) {
                 throw Exceptions.propagate(e);
             }
+            if (changeJournal != null) {
+                // not journalling each object written, so make readers re-read everything
+                changeJournal.restart();
+                changeJournal.append(ImmutableMap.<BrooklynObjectType, List<String>>of(), ImmutableMap.<BrooklynObjectType, List<String>>of());
+            }
             if (LOG.isDebugEnabled()) LOG.debug("Checkpointed entire memento in {}", Time.makeTimeStringRounded(stopwatch));
         } finally {
             lock.writeLock().unlock();
@@ -577,7 +734,7 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
      * TODO Longer term, if we care more about concurrent calls we could merge the queued deltas so that we
      * don't do unnecessary repeated writes of an entity.
      */
-    private Stopwatch deltaImpl(Delta delta, PersistenceExceptionHandler exceptionHandler) {
+    private Stopwatch deltaImpl(Delta delta, final PersistenceExceptionHandler exceptionHandler) {
         try {
             lock.writeLock().lockInterruptibly();
         } catch (InterruptedException e) {
@@ -587,16 +744,51 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
             objectStore.prepareForMasterUse();
             
             Stopwatch stopwatch = Stopwatch.createStarted();
-            List<ListenableFuture<?>> futures = Lists.newArrayList();
             
+            // serialize everything first (in parallel), then write only what has changed
+            List<PendingWrite> pendingWrites = Lists.newArrayList();
             for (BrooklynObjectType type: BrooklynPersistenceUtils.STANDARD_BROOKLYN_OBJECT_TYPE_PERSISTENCE_ORDER) {
-                for (Memento entity : delta.getObjectsOfType(type)) {
-                    futures.add(asyncPersist(type.getSubPathName(), entity, exceptionHandler));
+                for (Memento memento : delta.getObjectsOfType(type)) {
+                    pendingWrites.add(new PendingWrite(type, getPath(type.getSubPathName(), memento.getId()), memento, asyncSerialize(memento)));
+                }
+            }
+            for (PendingWrite pendingWrite : pendingWrites) {
+                try {
+                    pendingWrite.content = pendingWrite.serialization.get();
+                } catch (InterruptedException e) {
+                    throw Exceptions.propagate(e);
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    exceptionHandler.onPersistMementoFailed(pendingWrite.memento, (cause instanceof Exception) ? (Exception)cause : e);
                 }
             }
+            metrics.notePhaseDuration("serialize", Duration.of(stopwatch));
+            
+            Stopwatch writeStopwatch = Stopwatch.createStarted();
+            List<ListenableFuture<?>> futures = Lists.newArrayList();
+            Map<BrooklynObjectType, List<String>> written = MutableMap.of();
+            Map<BrooklynObjectType, List<String>> deleted = MutableMap.of();
+            for (final PendingWrite pendingWrite : pendingWrites) {
+                if (pendingWrite.content==null) continue;
+                final HashCode hash = Hashing.sha256().hashString(pendingWrite.content, Charsets.UTF_8);
+                if (skipUnchangedWrites && hash.equals(lastWrittenHashes.get(pendingWrite.path))) {
+                    metrics.noteSkippedUnchanged();
+                    continue;
+                }
+                addPathId(written, pendingWrite.type, pendingWrite.memento.getId());
+                futures.add(executor.submit(new Runnable() {
+                    public void run() {
+                        try {
+                            write(pendingWrite.path, pendingWrite.content, hash);
+                        } catch (Exception e) {
+                            exceptionHandler.onPersistMementoFailed(pendingWrite.memento, e);
+                        }
+                    }}));
+            }
             for (BrooklynObjectType type: BrooklynPersistenceUtils.STANDARD_BROOKLYN_OBJECT_TYPE_PERSISTENCE_ORDER) {
                 for (String id : delta.getRemovedIdsOfType(type)) {
                     futures.add(asyncDelete(type.getSubPathName(), id, exceptionHandler));
+                    addPathId(deleted, type, id);
                 }
             }
             
@@ -607,7 +799,11 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
                 Futures.allAsList(futures).get();
             } catch (Exception e) {
                 throw Exceptions.propagate(e);
+            } finally {
+                // only after the writes, so that readers of the journal will see the new content
+                if (changeJournal != null) changeJournal.append(written, deleted);
             }
+            metrics.notePhaseDuration("write", Duration.of(writeStopwatch));
             
             return stopwatch;
         } finally {
@@ -641,16 +837,39 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
         }
     }
 
+    /** returns the given top-level field of persisted content, in either xml or binary form */
+    private static String getMementoField(String contents, BrooklynObjectType type, String field) {
+        if (BinaryMementoSerializer.isBinary(contents)) return BinaryMementoSerializer.getHeaderField(contents, field);
+        return (String) XmlUtil.xpath(contents, "/"+type.toCamelCase()+"/"+field);
+    }
+
     private String read(String subPath) {
         StoreObjectAccessor objectAccessor = objectStore.newAccessor(subPath);
         return objectAccessor.get();
     }
 
-    private void persist(String subPath, Memento memento, PersistenceExceptionHandler exceptionHandler) {
-        try {
-            getWriter(getPath(subPath, memento.getId())).put(getSerializerWithStandardClassLoader().toString(memento));
-        } catch (Exception e) {
-            exceptionHandler.onPersistMementoFailed(memento, e);
+    private static class PendingWrite {
+        final BrooklynObjectType type;
+        final String path;
+        final Memento memento;
+        final ListenableFuture<String> serialization;
+        String content;
+        
+        PendingWrite(BrooklynObjectType type, String path, Memento memento, ListenableFuture<String> serialization) {
+            this.type = type;
+            this.path = path;
+            this.memento = memento;
+            this.serialization = serialization;
+        }
+    }
+    
+    private void write(String path, String content, @Nullable HashCode hash) {
+        // forget the previous hash first, in case the write fails part-way
+        lastWrittenHashes.remove(path);
+        getWriter(path).put(content);
+        if (content!=null) {
+            metrics.noteWritten(content.getBytes(Charsets.UTF_8).length);
+            if (hash!=null) lastWrittenHashes.put(path, hash);
         }
     }
     
@@ -659,7 +878,7 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
             if (content==null) {
                 LOG.warn("Null content for "+type+" "+id);
             }
-            getWriter(getPath(subPath, id)).put(content);
+            write(getPath(subPath, id), content, content==null ? null : Hashing.sha256().hashString(content, Charsets.UTF_8));
         } catch (Exception e) {
             exceptionHandler.onPersistRawMementoFailed(type, id, e);
         }
@@ -667,7 +886,9 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
     
     private void delete(String subPath, String id, PersistenceExceptionHandler exceptionHandler) {
         try {
-            StoreObjectAccessorWithLock w = getWriter(getPath(subPath, id));
+            String path = getPath(subPath, id);
+            lastWrittenHashes.remove(path);
+            StoreObjectAccessorWithLock w = getWriter(path);
             w.delete();
             synchronized (writers) {
                 writers.remove(id);
@@ -677,10 +898,10 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
         }
     }
 
-    private ListenableFuture<?> asyncPersist(final String subPath, final Memento memento, final PersistenceExceptionHandler exceptionHandler) {
-        return executor.submit(new Runnable() {
-            public void run() {
-                persist(subPath, memento, exceptionHandler);
+    private ListenableFuture<String> asyncSerialize(final Memento memento) {
+        return executor.submit(new Callable<String>() {
+            public String call() {
+                return getSerializerWithStandardClassLoader().toString(memento);
             }});
     }
 
@@ -702,6 +923,15 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
         return subPath+"/"+Strings.makeValidFilename(id);
     }
 
+    private static void addPathId(Map<BrooklynObjectType, List<String>> ids, BrooklynObjectType type, String id) {
+        List<String> ofType = ids.get(type);
+        if (ofType == null) {
+            ofType = Lists.newArrayList();
+            ids.put(type, ofType);
+        }
+        ofType.add(Strings.makeValidFilename(id));
+    }
+
     @Override
     public String getBackingStoreDescription() {
         return getObjectStore().getSummaryName();
@@ -19,6 +19,7 @@
 package brooklyn.entity.rebind.persister;
 
 import java.util.List;
+import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -26,6 +27,7 @@ import org.slf4j.LoggerFactory;
 import brooklyn.basic.BrooklynObject;
 import brooklyn.basic.BrooklynObjectInternal;
 import brooklyn.catalog.CatalogItem;
+import brooklyn.config.BrooklynProperties;
 import brooklyn.config.BrooklynServerConfig;
 import brooklyn.config.BrooklynServerPaths;
 import brooklyn.entity.Entity;
@@ -102,12 +104,15 @@ public class BrooklynPersistenceUtils {
         return destinationObjectStore;
     }
 
+    /** writes the given raw mementos to the store, in the format configured by {@link BrooklynMementoPersisterToObjectStore#PERSISTER_FORMAT} */
     public static void writeMemento(ManagementContext managementContext, BrooklynMementoRawData memento,
             PersistenceObjectStore destinationObjectStore) {
+        BrooklynProperties brooklynProperties = ((ManagementContextInternal)managementContext).getBrooklynProperties();
         BrooklynMementoPersisterToObjectStore persister = new BrooklynMementoPersisterToObjectStore(
             destinationObjectStore,
-            ((ManagementContextInternal)managementContext).getBrooklynProperties(),
+            brooklynProperties,
             managementContext.getCatalog().getRootClassLoader());
+        memento = convertMementoFormat(memento, brooklynProperties.getConfig(BrooklynMementoPersisterToObjectStore.PERSISTER_FORMAT));
         PersistenceExceptionHandler exceptionHandler = PersistenceExceptionHandlerImpl.builder().build();
         persister.enableWriteAccess();
         persister.checkpoint(memento, exceptionHandler);
@@ -122,6 +127,30 @@ public class BrooklynPersistenceUtils {
         }
     }
 
+    /** 
+     * converts the given raw mementos to the given format, without deserializing them 
+     * (used by {@link #writeMemento(ManagementContext, BrooklynMementoRawData, PersistenceObjectStore)}, so copying state
+     * with a different {@link BrooklynMementoPersisterToObjectStore#PERSISTER_FORMAT} migrates it);
+     * items which cannot be converted are left unchanged, as either format can be read 
+     */
+    @Beta
+    public static BrooklynMementoRawData convertMementoFormat(BrooklynMementoRawData memento, MementoFormat format) {
+        BrooklynMementoRawData.Builder result = BrooklynMementoRawData.builder();
+        for (BrooklynObjectType type: STANDARD_BROOKLYN_OBJECT_TYPE_PERSISTENCE_ORDER) {
+            for (Map.Entry<String, String> entry: memento.getObjectsOfType(type).entrySet()) {
+                String contents = entry.getValue();
+                try {
+                    contents = (format==MementoFormat.BINARY) ? BinaryMementoSerializer.fromXml(contents) : BinaryMementoSerializer.toXml(contents);
+                } catch (Exception e) {
+                    Exceptions.propagateIfFatal(e);
+                    log.debug("Unable to convert "+type.toCamelCase()+" "+entry.getKey()+" to "+format+", leaving unchanged: "+e);
+                }
+                result.put(type, entry.getKey(), contents);
+            }
+        }
+        return result.build();
+    }
+
     public static CompoundTransformer loadTransformer(ResourceUtils resources, String transformationsFileUrl) {
         if (Strings.isBlank(transformationsFileUrl)) {
             return CompoundTransformer.NOOP; 
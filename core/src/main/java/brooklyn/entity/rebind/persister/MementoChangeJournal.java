@@ -0,0 +1,287 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.entity.rebind.persister;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import brooklyn.entity.rebind.BrooklynObjectType;
+import brooklyn.entity.rebind.persister.PersistenceObjectStore.StoreObjectAccessorWithLock;
+import brooklyn.util.collections.MutableList;
+import brooklyn.util.collections.MutableMap;
+import brooklyn.util.text.Identifiers;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Objects;
+
+/**
+ * An append-only journal, kept in the object store alongside the mementos, of the objects written and deleted
+ * by each write of the master. Nodes which only read the store (e.g. hot standby) can read the journal to find
+ * which mementos have changed since they last read the store, and re-read only those.
+ * <p>
+ * The journal is a head object holding the current epoch, written when a node starts writing to the store and whenever
+ * the journal grows past its maximum size, and one segment object per write, numbered from 1 within the epoch,
+ * with one line per changed object:
+ * <pre>
+ * changes/journal:      #epoch Xy3kd8aQ
+ * changes/Xy3kd8aQ-1:   + ENTITY aB7cD9eF
+ *                       - POLICY gH2iJ4kL
+ * </pre>
+ * where the ids are those used in the object's path. Each write is therefore a single small put, whatever the size
+ * of the journal, rather than a read and re-write of it (as appending is in blob stores). Segments of the previous
+ * epoch are deleted when a new epoch starts. A reader which finds a different epoch from when it last read
+ * (or no journal) cannot tell what has changed, so must re-read everything.
+ * <p>
+ * Segments are written only after the objects they refer to have been written, so a reader which reads the journal
+ * before reading objects will see any later change listed when it next reads the journal.
+ */
+@Beta
+public class MementoChangeJournal {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MementoChangeJournal.class);
+
+    public static final String SUB_PATH = "changes";
+    public static final String JOURNAL_PATH = SUB_PATH+"/journal";
+
+    private static final String EPOCH_PREFIX = "#epoch ";
+    private static final char WRITTEN = '+';
+    private static final char DELETED = '-';
+
+    /** A reader's position in the journal. */
+    public static class Position {
+        private final String epoch;
+        private final int numSegments;
+
+        Position(String epoch, int numSegments) {
+            this.epoch = epoch;
+            this.numSegments = numSegments;
+        }
+
+        @Override
+        public String toString() {
+            return Objects.toStringHelper(this).add("epoch", epoch).add("numSegments", numSegments).toString();
+        }
+    }
+
+    /** A change to a single object, as recorded in the journal. */
+    public static class Change {
+        private final BrooklynObjectType type;
+        private final String pathId;
+        private final boolean deleted;
+
+        Change(BrooklynObjectType type, String pathId, boolean deleted) {
+            this.type = type;
+            this.pathId = pathId;
+            this.deleted = deleted;
+        }
+
+        public BrooklynObjectType getType() {
+            return type;
+        }
+
+        /** the id of the object as used in its path (see {@link brooklyn.util.text.Strings#makeValidFilename(String)}) */
+        public String getPathId() {
+            return pathId;
+        }
+
+        public boolean isDeleted() {
+            return deleted;
+        }
+    }
+
+    /** The result of reading the journal. */
+    public static class Changes {
+        private final Position position;
+        private final List<Change> changes;
+
+        Changes(@Nullable Position position, @Nullable List<Change> changes) {
+            this.position = position;
+            this.changes = changes;
+        }
+
+        /** the position to pass to the next read; null if there is no journal */
+        @Nullable
+        public Position getPosition() {
+            return position;
+        }
+
+        /** whether the changes since the previous position are known; if not everything must be re-read */
+        public boolean isIncremental() {
+            return changes!=null;
+        }
+
+        /** the changes since the previous position, in the order they were made; null if not {@link #isIncremental()} */
+        @Nullable
+        public List<Change> getChanges() {
+            return changes;
+        }
+    }
+
+    private final PersistenceObjectStore objectStore;
+    private final StoreObjectAccessorWithLock headAccessor;
+    private final int maxEntries;
+
+    // writer state
+    private boolean started = false;
+    private String epoch = null;
+    private int numSegments = 0;
+    private int numEntries = 0;
+
+    public MementoChangeJournal(PersistenceObjectStore objectStore, int maxEntries) {
+        this.objectStore = objectStore;
+        this.headAccessor = new StoreObjectAccessorLocking(objectStore.newAccessor(JOURNAL_PATH));
+        this.maxEntries = maxEntries;
+    }
+
+    private StoreObjectAccessorWithLock segmentAccessor(String epoch, int segment) {
+        return new StoreObjectAccessorLocking(objectStore.newAccessor(SUB_PATH+"/"+epoch+"-"+segment));
+    }
+
+    /**
+     * Causes the next write to start a new epoch, so readers re-read everything;
+     * to be called when this node starts writing to the store, as another node may have written since we last did.
+     */
+    public synchronized void restart() {
+        started = false;
+    }
+
+    /** Records that the given objects (by type and path id) have been written and deleted. */
+    public synchronized void append(Map<BrooklynObjectType, ? extends Collection<String>> written, Map<BrooklynObjectType, ? extends Collection<String>> deleted) {
+        StringBuilder entries = new StringBuilder();
+        int count = appendEntries(entries, WRITTEN, written) + appendEntries(entries, DELETED, deleted);
+        if (started && count==0) return;
+
+        if (!started || numEntries+count > maxEntries) {
+            // a new epoch makes readers re-read everything, which includes these changes as they are already written
+            String previousEpoch = started ? epoch : readEpoch(headAccessor.get());
+            epoch = Identifiers.makeRandomId(8);
+            if (LOG.isDebugEnabled()) LOG.debug("Starting new change journal epoch "+epoch+" (previous had "+numEntries+" entries)");
+            headAccessor.put(EPOCH_PREFIX+epoch+"\n");
+            started = true;
+            numSegments = 0;
+            numEntries = 0;
+            if (previousEpoch != null) deleteSegments(previousEpoch);
+        } else {
+            numSegments++;
+            segmentAccessor(epoch, numSegments).put(entries.toString());
+            numEntries += count;
+        }
+    }
+
+    /** deletes the segments of the given epoch, which may have been written by another node */
+    private void deleteSegments(String oldEpoch) {
+        for (int i = 1; ; i++) {
+            StoreObjectAccessorWithLock segment = segmentAccessor(oldEpoch, i);
+            if (!segment.exists()) break;
+            segment.delete();
+        }
+    }
+
+    @Nullable
+    private static String readEpoch(@Nullable String head) {
+        if (head==null || !head.startsWith(EPOCH_PREFIX)) return null;
+        int end = head.indexOf('\n');
+        if (end < 0) return null;
+        return head.substring(EPOCH_PREFIX.length(), end).trim();
+    }
+
+    private static int appendEntries(StringBuilder result, char op, Map<BrooklynObjectType, ? extends Collection<String>> ids) {
+        int count = 0;
+        for (Map.Entry<BrooklynObjectType, ? extends Collection<String>> entry : ids.entrySet()) {
+            for (String id : entry.getValue()) {
+                result.append(op).append(' ').append(entry.getKey().name()).append(' ').append(id).append('\n');
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Reads the journal, returning the changes made since the given position
+     * (which should be from a previous read, or null if there was none).
+     * Only the head and the segments written since that position are read.
+     */
+    public Changes readSince(@Nullable Position previous) {
+        String epoch = readEpoch(headAccessor.get());
+        if (epoch==null) {
+            return new Changes(null, null);
+        }
+        if (previous==null || !epoch.equals(previous.epoch)) {
+            // everything will be re-read, so the next read need only look at segments written after this
+            return new Changes(new Position(epoch, countSegments(epoch)), null);
+        }
+
+        List<Change> changes = MutableList.of();
+        int numSegments = previous.numSegments;
+        String segment;
+        while ((segment = segmentAccessor(epoch, numSegments+1).get()) != null) {
+            for (String line : segment.split("\n")) {
+                if (line.isEmpty()) continue;
+                String[] parts = line.split(" ", 3);
+                if (parts.length!=3 || parts[0].length()!=1) {
+                    LOG.warn("Malformed entry in change journal, will re-read everything: "+line);
+                    return new Changes(new Position(epoch, numSegments), null);
+                }
+                BrooklynObjectType type;
+                try {
+                    type = BrooklynObjectType.valueOf(parts[1]);
+                } catch (IllegalArgumentException e) {
+                    LOG.warn("Unknown type in change journal, will re-read everything: "+line);
+                    return new Changes(new Position(epoch, numSegments), null);
+                }
+                changes.add(new Change(type, parts[2], parts[0].charAt(0)==DELETED));
+            }
+            numSegments++;
+        }
+        return new Changes(new Position(epoch, numSegments), changes);
+    }
+
+    private int countSegments(String epoch) {
+        int numSegments = 0;
+        while (segmentAccessor(epoch, numSegments+1).exists()) numSegments++;
+        return numSegments;
+    }
+
+    /** Whether the journal shows there have been no changes since the given position. */
+    public boolean isUnchangedSince(@Nullable Position previous) {
+        if (previous==null) return false;
+        Changes changes = readSince(previous);
+        return changes.isIncremental() && changes.getChanges().isEmpty();
+    }
+
+    /** Returns the final state of each object changed, keyed by type then path id: true if written, false if deleted. */
+    public static Map<BrooklynObjectType, Map<String, Boolean>> collapse(List<Change> changes) {
+        Map<BrooklynObjectType, Map<String, Boolean>> result = MutableMap.of();
+        for (Change change : changes) {
+            Map<String, Boolean> ofType = result.get(change.getType());
+            if (ofType==null) {
+                ofType = MutableMap.of();
+                result.put(change.getType(), ofType);
+            }
+            ofType.put(change.getPathId(), !change.isDeleted());
+        }
+        return result;
+    }
+}
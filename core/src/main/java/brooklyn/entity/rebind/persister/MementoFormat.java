@@ -0,0 +1,34 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.entity.rebind.persister;
+
+/** The form in which mementos are written to the persistence store; either form can be read. */
+public enum MementoFormat {
+    /** see {@link XmlMementoSerializer} */
+    XML,
+    /** see {@link BinaryMementoSerializer} */
+    BINARY;
+    
+    public <T> XmlMementoSerializer<T> newSerializer(ClassLoader classLoader) {
+        switch (this) {
+        case BINARY: return new BinaryMementoSerializer<T>(classLoader);
+        default: return new XmlMementoSerializer<T>(classLoader);
+        }
+    }
+}
@@ -32,20 +32,39 @@ public class PersistenceActivityMetrics {
     long count=0, failureCount=0;
     Long lastSuccessTime, lastDuration, lastFailureTime;
     List<Map<String,Object>> errorMessages = MutableList.of();
+    
+    long writeCount=0, bytesWritten=0, skippedUnchangedCount=0;
+    Map<String,Long> lastPhaseDurations = MutableMap.of();
 
-    public void noteSuccess(Duration duration) {
+    public synchronized void noteSuccess(Duration duration) {
         count++;
         lastSuccessTime = System.currentTimeMillis();
         lastDuration = duration.toMilliseconds();
     }
     
-    public void noteFailure(Duration duration) {
+    public synchronized void noteFailure(Duration duration) {
         count++;
         failureCount++;
         lastFailureTime = System.currentTimeMillis();
         lastDuration = duration!=null ? duration.toMilliseconds() : -1;
     }
 
+    /** records an object written to the store, of the given size */
+    public synchronized void noteWritten(long bytes) {
+        writeCount++;
+        bytesWritten += bytes;
+    }
+    
+    /** records an object not written because its content was unchanged since it was last written */
+    public synchronized void noteSkippedUnchanged() {
+        skippedUnchangedCount++;
+    }
+    
+    /** records the duration of a named phase (e.g. serialization, writing) of the most recent activity */
+    public synchronized void notePhaseDuration(String phase, Duration duration) {
+        lastPhaseDurations.put(phase, duration.toMilliseconds());
+    }
+
     public void noteError(String error) {
         noteErrorObject(error);
     }
@@ -71,6 +90,10 @@ public class PersistenceActivityMetrics {
         result.put("failureCount", failureCount);
         result.put("lastFailureTimeUtc", lastFailureTime);
         result.put("lastFailureTimeMillisSince", since(lastFailureTime));
+        result.put("writeCount", writeCount);
+        result.put("bytesWritten", bytesWritten);
+        result.put("skippedUnchangedCount", skippedUnchangedCount);
+        result.put("lastPhaseDurations", MutableMap.copyOf(lastPhaseDurations));
         result.put("errorMessages", MutableList.copyOf(errorMessages));
         return result;
     }
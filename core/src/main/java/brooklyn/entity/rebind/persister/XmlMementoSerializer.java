@@ -151,6 +151,13 @@ public class XmlMementoSerializer<T> extends XmlSerializer<T> implements Memento
         }
     }
 
+    @Override
+    public T fromString(String contents) {
+        // also accept the binary form, e.g. if switching back to xml from binary persistence
+        if (BinaryMementoSerializer.isBinary(contents)) contents = BinaryMementoSerializer.toXml(contents);
+        return super.fromString(contents);
+    }
+
     @Override
     public void setLookupContext(LookupContext lookupContext) {
         this.lookupContext = checkNotNull(lookupContext, "lookupContext");
@@ -22,7 +22,11 @@ import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.io.Serializable;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -59,6 +63,21 @@ public final class AttributeMap implements Serializable {
     // Assumed to be something like a ConcurrentMap passed in.
     private final Map<Collection<String>, Object> values;
 
+    // incremented after each change to values, so a cached view of an older version is not used
+    private final AtomicLong version = new AtomicLong();
+    private transient volatile CachedView cachedView;
+    // names of the sensors currently in values; entries for removed sensors are dropped when the view is next rebuilt
+    private final ConcurrentMap<Collection<String>, String> sensorNames = new ConcurrentHashMap<Collection<String>, String>();
+
+    private static class CachedView {
+        final long version;
+        final Map<String, Object> map;
+        CachedView(long version, Map<String, Object> map) {
+            this.version = version;
+            this.map = map;
+        }
+    }
+
     /**
      * Creates a new AttributeMap.
      *
@@ -74,12 +93,36 @@ public final class AttributeMap implements Serializable {
         return ImmutableMap.copyOf(values);
     }
 
+    /**
+     * Returns the values keyed by sensor name.
+     * <p>
+     * The result is unmodifiable, and is cached until the next change so repeated calls
+     * (e.g. from REST clients polling all sensors) do not rebuild it.
+     */
     public Map<String, Object> asMap() {
+        long currentVersion = version.get();
+        CachedView view = cachedView;
+        if (view!=null && view.version==currentVersion) {
+            return view.map;
+        }
         Map<String, Object> result = Maps.newLinkedHashMap();
         for (Map.Entry<Collection<String>, Object> entry : values.entrySet()) {
-            String sensorName = Joiner.on('.').join(entry.getKey());
             Object val = (isNull(entry.getValue())) ? null : entry.getValue();
-            result.put(sensorName, val);
+            result.put(getSensorName(entry.getKey()), val);
+        }
+        if (sensorNames.size() > result.size()) {
+            sensorNames.keySet().retainAll(values.keySet());
+        }
+        result = Collections.unmodifiableMap(result);
+        cachedView = new CachedView(currentVersion, result);
+        return result;
+    }
+
+    private String getSensorName(Collection<String> path) {
+        String result = sensorNames.get(path);
+        if (result==null) {
+            result = Joiner.on('.').join(path);
+            sensorNames.put(path, result);
         }
         return result;
     }
@@ -106,6 +149,7 @@ public final class AttributeMap implements Serializable {
 
         @SuppressWarnings("unchecked")
         T oldValue = (T) values.put(path, newValue);
+        version.incrementAndGet();
         return (isNull(oldValue)) ? null : oldValue;
     }
 
@@ -169,6 +213,7 @@ public final class AttributeMap implements Serializable {
         }
 
         values.remove(path);
+        version.incrementAndGet();
     }
 
     /**
@@ -189,7 +234,11 @@ public final class AttributeMap implements Serializable {
 
     @SuppressWarnings("unchecked")
     public <T> T getValue(AttributeSensor<T> sensor) {
-        return (T) TypeCoercions.coerce(getValue(sensor.getNameParts()), sensor.getType());
+        Object value = getValue(sensor.getNameParts());
+        Class<?> type = sensor.getType();
+        // values are almost always already of the sensor's type, so avoid the cost of coercion
+        if (value==null || type.isInstance(value)) return (T) value;
+        return (T) TypeCoercions.coerce(value, type);
     }
 
     @SuppressWarnings("unchecked")
@@ -30,6 +30,8 @@ import brooklyn.util.guava.TypeTokens;
 import com.google.common.base.Objects;
 import com.google.common.base.Splitter;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import com.google.common.reflect.TypeToken;
 
 /**
@@ -39,12 +41,15 @@ public class BasicSensor<T> implements Sensor<T> {
     private static final long serialVersionUID = -3762018534086101323L;
     
     private static final Splitter dots = Splitter.on('.');
+    
+    /** name parts are interned, so entities' attribute maps share one key (with cheap equality checks) per sensor name */
+    private static final Interner<List<String>> namePartsInterner = Interners.newWeakInterner();
 
     private TypeToken<T> typeToken;
     private Class<? super T> type;
     private String name;
     private String description;
-    private transient List<String> nameParts;
+    private transient volatile List<String> nameParts;
     
     // FIXME In groovy, fields were `public final` with a default constructor; do we need the gson?
     public BasicSensor() { /* for gson */ }
@@ -80,9 +85,14 @@ public class BasicSensor<T> implements Sensor<T> {
     public String getName() { return name; }
  
     /** @see Sensor#getNameParts() */
-    public synchronized List<String> getNameParts() {
-        if (nameParts==null) nameParts = ImmutableList.copyOf(dots.split(name));
-        return nameParts; 
+    public List<String> getNameParts() {
+        List<String> result = nameParts;
+        if (result==null) {
+            // benign race: any concurrent callers compute the same interned list
+            result = namePartsInterner.intern(ImmutableList.copyOf(dots.split(name)));
+            nameParts = result;
+        }
+        return result;
     }
  
     /** @see Sensor#getDescription() */
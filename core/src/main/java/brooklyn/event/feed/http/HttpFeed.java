@@ -26,25 +26,42 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import org.apache.http.auth.AuthScope;
 import org.apache.http.auth.Credentials;
 import org.apache.http.auth.UsernamePasswordCredentials;
-import org.apache.http.client.HttpClient;
+import org.apache.http.client.CredentialsProvider;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.protocol.ClientContext;
+import org.apache.http.impl.client.BasicCookieStore;
+import org.apache.http.impl.client.BasicCredentialsProvider;
+import org.apache.http.params.HttpConnectionParams;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.protocol.HttpContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import brooklyn.config.ConfigKey;
+import brooklyn.entity.basic.BrooklynTaskTags;
 import brooklyn.entity.basic.ConfigKeys;
 import brooklyn.entity.basic.Entities;
+import brooklyn.entity.basic.EntityInternal;
 import brooklyn.entity.basic.EntityLocal;
 import brooklyn.event.feed.AbstractFeed;
 import brooklyn.event.feed.AttributePollHandler;
 import brooklyn.event.feed.DelegatingPollHandler;
+import brooklyn.event.feed.PollHandler;
 import brooklyn.event.feed.Poller;
+import brooklyn.management.ManagementContext;
+import brooklyn.management.Task;
+import brooklyn.management.internal.ManagementContextInternal;
+import brooklyn.util.http.HttpClientManager;
 import brooklyn.util.http.HttpTool;
-import brooklyn.util.http.HttpTool.HttpClientBuilder;
 import brooklyn.util.http.HttpToolResponse;
+import brooklyn.util.task.Tasks;
 import brooklyn.util.time.Duration;
 
 import com.google.common.base.Objects;
@@ -58,6 +75,9 @@ import com.google.common.collect.Maps;
 import com.google.common.collect.SetMultimap;
 import com.google.common.collect.Sets;
 import com.google.common.reflect.TypeToken;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 
 /**
  * Provides a feed of attribute values, by polling over http.
@@ -107,6 +127,9 @@ public class HttpFeed extends AbstractFeed {
 
     public static final Logger log = LoggerFactory.getLogger(HttpFeed.class);
 
+    public static final ConfigKey<Boolean> ASYNC = ConfigKeys.newBooleanConfigKey("async",
+            "Whether polls are made asynchronously, without a thread waiting for each response", false);
+    
     @SuppressWarnings("serial")
     public static final ConfigKey<SetMultimap<HttpPollIdentifier, HttpPollConfig<?>>> POLLS = ConfigKeys.newConfigKey(
             new TypeToken<SetMultimap<HttpPollIdentifier, HttpPollConfig<?>>>() {},
@@ -126,6 +149,7 @@ public class HttpFeed extends AbstractFeed {
         private Map<String, String> baseUriVars = Maps.newLinkedHashMap();
         private Map<String, String> headers = Maps.newLinkedHashMap();
         private boolean suspended = false;
+        private boolean async = false;
         private Credentials credentials;
         private String uniqueTag;
         private volatile boolean built;
@@ -194,6 +218,18 @@ public class HttpFeed extends AbstractFeed {
             this.suspended = startsSuspended;
             return this;
         }
+        /**
+         * Makes requests asynchronously, so that no thread waits for the response
+         * (see {@link HttpClientManager#executeAsync(HttpUriRequest, HttpContext)});
+         * a poll is skipped if the previous request for it has not yet completed.
+         */
+        public Builder async() {
+            return async(true);
+        }
+        public Builder async(boolean val) {
+            this.async = val;
+            return this;
+        }
         public Builder credentials(String username, String password) {
             this.credentials = new UsernamePasswordCredentials(username, password);
             return this;
@@ -275,6 +311,7 @@ public class HttpFeed extends AbstractFeed {
     
     protected HttpFeed(Builder builder) {
         setConfig(ONLY_IF_SERVICE_UP, builder.onlyIfServiceUp);
+        setConfig(ASYNC, builder.async);
         Map<String,String> baseHeaders = ImmutableMap.copyOf(checkNotNull(builder.headers, "headers"));
         
         SetMultimap<HttpPollIdentifier, HttpPollConfig<?>> polls = HashMultimap.<HttpPollIdentifier,HttpPollConfig<?>>create();
@@ -311,15 +348,17 @@ public class HttpFeed extends AbstractFeed {
     @Override
     protected void preStart() {
         SetMultimap<HttpPollIdentifier, HttpPollConfig<?>> polls = getConfig(POLLS);
+        final HttpClientManager clientManager = getHttpClientManager();
+        boolean async = Boolean.TRUE.equals(getConfig(ASYNC));
         
         for (final HttpPollIdentifier pollInfo : polls.keySet()) {
-            // Though HttpClients are thread safe and can take advantage of connection pooling
-            // and authentication caching, the httpcomponents documentation says:
+            // The client is shared, but the httpcomponents documentation says:
             //    "While HttpClient instances are thread safe and can be shared between multiple
             //     threads of execution, it is highly recommended that each thread maintains its
             //     own dedicated instance of HttpContext.
             //  http://hc.apache.org/httpcomponents-client-ga/tutorial/html/connmgmt.html
-            final HttpClient httpClient = createHttpClient(pollInfo);
+            // Requests for a poll are never concurrent, so each poll has its own context.
+            final HttpContext httpContext = createHttpContext(pollInfo);
 
             Set<HttpPollConfig<?>> configs = polls.get(pollInfo);
             long minPeriod = Integer.MAX_VALUE;
@@ -329,50 +368,149 @@ public class HttpFeed extends AbstractFeed {
                 handlers.add(new AttributePollHandler<HttpToolResponse>(config, entity, this));
                 if (config.getPeriod() > 0) minPeriod = Math.min(minPeriod, config.getPeriod());
             }
+            final PollHandler<HttpToolResponse> handler = new DelegatingPollHandler<HttpToolResponse>(handlers);
 
-            Callable<HttpToolResponse> pollJob;
-            
-            if (pollInfo.method.equals("get")) {
-                pollJob = new Callable<HttpToolResponse>() {
+            if (!async) {
+                Callable<HttpToolResponse> pollJob = new Callable<HttpToolResponse>() {
                     public HttpToolResponse call() throws Exception {
                         if (log.isTraceEnabled()) log.trace("http polling for {} sensors at {}", entity, pollInfo);
-                        return HttpTool.httpGet(httpClient, pollInfo.uriProvider.get(), pollInfo.headers);
+                        return clientManager.execute(createRequest(pollInfo), httpContext);
                     }};
-            } else if (pollInfo.method.equals("post")) {
-                pollJob = new Callable<HttpToolResponse>() {
-                    public HttpToolResponse call() throws Exception {
-                        if (log.isTraceEnabled()) log.trace("http polling for {} sensors at {}", entity, pollInfo);
-                        return HttpTool.httpPost(httpClient, pollInfo.uriProvider.get(), pollInfo.headers, pollInfo.body);
-                    }};
-            } else if (pollInfo.method.equals("head")) {
-                pollJob = new Callable<HttpToolResponse>() {
+                getPoller().scheduleAtFixedRate(pollJob, handler, minPeriod);
+                
+            } else {
+                final AtomicBoolean inFlight = new AtomicBoolean();
+                Callable<HttpToolResponse> pollJob = new Callable<HttpToolResponse>() {
                     public HttpToolResponse call() throws Exception {
-                        if (log.isTraceEnabled()) log.trace("http polling for {} sensors at {}", entity, pollInfo);
-                        return HttpTool.httpHead(httpClient, pollInfo.uriProvider.get(), pollInfo.headers);
+                        if (!inFlight.compareAndSet(false, true)) {
+                            if (log.isTraceEnabled()) log.trace("http polling for {} sensors at {} skipped, as previous request not complete", entity, pollInfo);
+                            return null;
+                        }
+                        if (log.isTraceEnabled()) log.trace("http polling asynchronously for {} sensors at {}", entity, pollInfo);
+                        try {
+                            ListenableFuture<HttpToolResponse> response = clientManager.executeAsync(createRequest(pollInfo), httpContext);
+                            Futures.addCallback(response, new FutureCallback<HttpToolResponse>() {
+                                @Override public void onSuccess(HttpToolResponse val) {
+                                    inFlight.set(false);
+                                    handleAsyncResult(pollInfo, handler, val, null);
+                                }
+                                @Override public void onFailure(Throwable t) {
+                                    inFlight.set(false);
+                                    handleAsyncResult(pollInfo, handler, null, t);
+                                }});
+                        } catch (Exception e) {
+                            inFlight.set(false);
+                            throw e;
+                        }
+                        // handled when the response arrives
+                        return null;
                     }};
-            } else {
-                throw new IllegalStateException("Unexpected http method: "+pollInfo.method);
+                getPoller().scheduleAtFixedRate(pollJob, new AsyncPollHandler(handler), minPeriod);
             }
-            
-            getPoller().scheduleAtFixedRate(pollJob, new DelegatingPollHandler<HttpToolResponse>(handlers), minPeriod);
         }
     }
 
-    // TODO Should we really trustAll for https? Make configurable?
-    private HttpClient createHttpClient(HttpPollIdentifier pollIdentifier) {
+    /**
+     * Handles an asynchronous response (or failure) in the entity's execution context, as the poller does
+     * for synchronous polls; ignored if the feed has since been stopped or suspended.
+     */
+    private void handleAsyncResult(HttpPollIdentifier pollInfo, final PollHandler<HttpToolResponse> handler, 
+            final HttpToolResponse val, final Throwable failure) {
+        if (!isRunning()) {
+            if (log.isTraceEnabled()) log.trace("http poll response for {} at {} ignored, as feed no longer running", entity, pollInfo);
+            return;
+        }
+        Task<?> task = Tasks.builder().dynamic(false).name("Poll response").description("Handling http poll response for "+pollInfo)
+                .body(new Runnable() {
+                    public void run() {
+                        if (!isRunning()) return;
+                        if (failure != null) {
+                            handler.onException((failure instanceof Exception) ? (Exception)failure : new ExecutionException(failure));
+                        } else if (handler.checkSuccess(val)) {
+                            handler.onSuccess(val);
+                        } else {
+                            handler.onFailure(val);
+                        }
+                    }})
+                .build();
+        BrooklynTaskTags.setTransient(task);
+        try {
+            ((EntityInternal)entity).getExecutionContext().submit(task);
+        } catch (Exception e) {
+            // e.g. entity unmanaged since the feed was checked
+            if (log.isDebugEnabled()) log.debug("Unable to handle http poll response for "+entity+" at "+pollInfo+" (ignoring): "+e);
+        }
+    }
+
+    /** the poller is given null by asynchronous poll jobs, the response being handled when it arrives */
+    private static class AsyncPollHandler implements PollHandler<HttpToolResponse> {
+        private final PollHandler<HttpToolResponse> delegate;
+        
+        AsyncPollHandler(PollHandler<HttpToolResponse> delegate) {
+            this.delegate = delegate;
+        }
+        @Override public boolean checkSuccess(HttpToolResponse val) {
+            return true;
+        }
+        @Override public void onSuccess(HttpToolResponse val) {
+        }
+        @Override public void onFailure(HttpToolResponse val) {
+        }
+        @Override public void onException(Exception exception) {
+            delegate.onException(exception);
+        }
+        @Override public String getDescription() {
+            return delegate.getDescription();
+        }
+    }
+
+    protected HttpClientManager getHttpClientManager() {
+        ManagementContext mgmt = ((EntityInternal)entity).getManagementContext();
+        if (mgmt instanceof ManagementContextInternal) {
+            return ((ManagementContextInternal)mgmt).getHttpClientManager();
+        }
+        return HttpClientManager.getUnmanagedInstance();
+    }
+
+    private HttpUriRequest createRequest(HttpPollIdentifier pollInfo) {
+        URI uri = pollInfo.uriProvider.get();
+        HttpUriRequest request;
+        if (pollInfo.method.equals("get")) {
+            request = new HttpTool.HttpGetBuilder(uri).headers(pollInfo.headers).build();
+        } else if (pollInfo.method.equals("post")) {
+            request = new HttpTool.HttpPostBuilder(uri).headers(pollInfo.headers).body(pollInfo.body).build();
+        } else if (pollInfo.method.equals("head")) {
+            request = new HttpTool.HttpHeadBuilder(uri).headers(pollInfo.headers).build();
+        } else {
+            throw new IllegalStateException("Unexpected http method: "+pollInfo.method);
+        }
+        // request params take precedence over those of the shared client
+        if (pollInfo.connectionTimeout != null) {
+            HttpConnectionParams.setConnectionTimeout(request.getParams(), toMillisInt(pollInfo.connectionTimeout, "connectionTimeout"));
+        }
+        if (pollInfo.socketTimeout != null) {
+            HttpConnectionParams.setSoTimeout(request.getParams(), toMillisInt(pollInfo.socketTimeout, "socketTimeout"));
+        }
+        return request;
+    }
+
+    private static int toMillisInt(Duration val, String name) {
+        long millis = val.toMilliseconds();
+        if (millis > Integer.MAX_VALUE) throw new IllegalStateException("HttpClient only accepts upto max-int millis for "+name+", but given "+val);
+        return (int) millis;
+    }
+
+    private HttpContext createHttpContext(HttpPollIdentifier pollIdentifier) {
+        HttpContext context = new BasicHttpContext();
         URI uri = pollIdentifier.uriProvider.get();
-        HttpClientBuilder builder = HttpTool.httpClientBuilder()
-                .trustAll()
-                .laxRedirect(true);
-        if (uri != null) builder.uri(uri);
-        if (uri != null) builder.credential(pollIdentifier.credentials);
-        if (pollIdentifier.connectionTimeout != null) {
-            builder.connectionTimeout(pollIdentifier.connectionTimeout);
-        }
-        if (pollIdentifier.socketTimeout != null) {
-            builder.socketTimeout(pollIdentifier.socketTimeout);
-        }
-        return builder.build();
+        if (uri != null && pollIdentifier.credentials.isPresent()) {
+            CredentialsProvider credentialsProvider = new BasicCredentialsProvider();
+            credentialsProvider.setCredentials(new AuthScope(uri.getHost(), uri.getPort()), pollIdentifier.credentials.get());
+            context.setAttribute(ClientContext.CREDS_PROVIDER, credentialsProvider);
+        }
+        // the client is shared, so keep cookies (e.g. sessions) to this poll rather than in the client's store
+        context.setAttribute(ClientContext.COOKIE_STORE, new BasicCookieStore());
+        return context;
     }
 
     @SuppressWarnings("unchecked")
@@ -38,22 +38,32 @@ import brooklyn.entity.basic.EntityLocal;
 import brooklyn.event.feed.AbstractFeed;
 import brooklyn.event.feed.AttributePollHandler;
 import brooklyn.event.feed.DelegatingPollHandler;
+import brooklyn.event.feed.PollHandler;
 import brooklyn.event.feed.Poller;
 import brooklyn.location.basic.Locations;
 import brooklyn.location.basic.Machines;
 import brooklyn.location.basic.SshMachineLocation;
 import brooklyn.util.config.ConfigBag;
+import brooklyn.util.exceptions.Exceptions;
+import brooklyn.util.guava.Maybe;
 import brooklyn.util.internal.ssh.SshTool;
+import brooklyn.util.text.Identifiers;
+import brooklyn.util.text.StringEscapes.BashStringEscapes;
+import brooklyn.util.text.Strings;
 import brooklyn.util.time.Duration;
 
+import com.google.common.base.Joiner;
 import com.google.common.base.Objects;
 import com.google.common.base.Supplier;
 import com.google.common.base.Suppliers;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.SetMultimap;
 import com.google.common.collect.Sets;
+import com.google.common.primitives.Ints;
 import com.google.common.reflect.TypeToken;
 
 /**
@@ -101,6 +111,9 @@ public class SshFeed extends AbstractFeed {
     
     public static final ConfigKey<Boolean> EXEC_AS_COMMAND = ConfigKeys.newBooleanConfigKey("execAsCommand");
     
+    public static final ConfigKey<Boolean> MULTIPLEX = ConfigKeys.newBooleanConfigKey("multiplex",
+            "Whether polls with the same period are run together, in a single ssh session per period", true);
+    
     @SuppressWarnings("serial")
     public static final ConfigKey<SetMultimap<SshPollIdentifier, SshPollConfig<?>>> POLLS = ConfigKeys.newConfigKey(
             new TypeToken<SetMultimap<SshPollIdentifier, SshPollConfig<?>>>() {},
@@ -117,6 +130,7 @@ public class SshFeed extends AbstractFeed {
         private Duration period = Duration.of(500, TimeUnit.MILLISECONDS);
         private List<SshPollConfig<?>> polls = Lists.newArrayList();
         private boolean execAsCommand = false;
+        private boolean multiplex = true;
         private String uniqueTag;
         private volatile boolean built;
         
@@ -158,6 +172,14 @@ public class SshFeed extends AbstractFeed {
             execAsCommand = false;
             return this;
         }
+        /**
+         * Whether polls with the same period are run together, in one ssh session each period
+         * (default true); each poll's output and exit status are still handled separately.
+         */
+        public Builder multiplex(boolean multiplex) {
+            this.multiplex = multiplex;
+            return this;
+        }
         public Builder uniqueTag(String uniqueTag) {
             this.uniqueTag = uniqueTag;
             return this;
@@ -216,6 +238,7 @@ public class SshFeed extends AbstractFeed {
         setConfig(ONLY_IF_SERVICE_UP, builder.onlyIfServiceUp);
         setConfig(MACHINE, builder.machine != null ? builder.machine : null);
         setConfig(EXEC_AS_COMMAND, builder.execAsCommand);
+        setConfig(MULTIPLEX, builder.multiplex);
         
         SetMultimap<SshPollIdentifier, SshPollConfig<?>> polls = HashMultimap.<SshPollIdentifier,SshPollConfig<?>>create();
         for (SshPollConfig<?> config : builder.polls) {
@@ -240,6 +263,7 @@ public class SshFeed extends AbstractFeed {
     @Override
     protected void preStart() {
         SetMultimap<SshPollIdentifier, SshPollConfig<?>> polls = getConfig(POLLS);
+        Map<Long, Map<SshPollIdentifier, PollHandler<SshPollValue>>> pollsByPeriod = Maps.newLinkedHashMap();
         
         for (final SshPollIdentifier pollInfo : polls.keySet()) {
             Set<SshPollConfig<?>> configs = polls.get(pollInfo);
@@ -251,13 +275,182 @@ public class SshFeed extends AbstractFeed {
                 if (config.getPeriod() > 0) minPeriod = Math.min(minPeriod, config.getPeriod());
             }
             
-            getPoller().scheduleAtFixedRate(
-                    new Callable<SshPollValue>() {
-                        public SshPollValue call() throws Exception {
-                            return exec(pollInfo.command.get(), pollInfo.env.get());
-                        }}, 
-                    new DelegatingPollHandler<SshPollValue>(handlers),
-                    minPeriod);
+            if (!pollsByPeriod.containsKey(minPeriod)) {
+                pollsByPeriod.put(minPeriod, Maps.<SshPollIdentifier, PollHandler<SshPollValue>>newLinkedHashMap());
+            }
+            pollsByPeriod.get(minPeriod).put(pollInfo, new DelegatingPollHandler<SshPollValue>(handlers));
+        }
+        
+        boolean multiplex = !Boolean.FALSE.equals(getConfig(MULTIPLEX));
+        for (Map.Entry<Long, Map<SshPollIdentifier, PollHandler<SshPollValue>>> entry : pollsByPeriod.entrySet()) {
+            long period = entry.getKey();
+            if (multiplex && entry.getValue().size() > 1) {
+                scheduleMultiplexed(entry.getValue(), period);
+            } else {
+                for (Map.Entry<SshPollIdentifier, PollHandler<SshPollValue>> poll : entry.getValue().entrySet()) {
+                    final SshPollIdentifier pollInfo = poll.getKey();
+                    getPoller().scheduleAtFixedRate(
+                            new Callable<SshPollValue>() {
+                                public SshPollValue call() throws Exception {
+                                    return exec(pollInfo.command.get(), pollInfo.env.get());
+                                }}, 
+                            poll.getValue(),
+                            period);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Runs the polls together in one script, each in its own subshell, with its output delimited by marker lines
+     * so that it can be passed to just that poll's handlers; a poll which fails does not affect the others.
+     * The polls' commands and env are resolved each time, as for polls run separately.
+     */
+    private void scheduleMultiplexed(Map<SshPollIdentifier, PollHandler<SshPollValue>> polls, long period) {
+        final String marker = "BROOKLYN_SSH_FEED_"+Identifiers.makeRandomId(8);
+        final List<SshPollIdentifier> pollInfos = ImmutableList.copyOf(polls.keySet());
+        final List<PollHandler<SshPollValue>> handlers = ImmutableList.copyOf(polls.values());
+        
+        getPoller().scheduleAtFixedRate(
+                new Callable<SshPollValue>() {
+                    public SshPollValue call() throws Exception {
+                        StringBuilder script = new StringBuilder();
+                        Map<Integer, Exception> failures = Maps.newLinkedHashMap();
+                        for (int i = 0; i < pollInfos.size(); i++) {
+                            try {
+                                String command = pollInfos.get(i).command.get();
+                                Map<String, String> env = pollInfos.get(i).env.get();
+                                appendSection(script, marker, i, command, env);
+                            } catch (Exception e) {
+                                Exceptions.propagateIfFatal(e);
+                                failures.put(i, e);
+                            }
+                        }
+                        SshPollValue result = exec(script.toString(), ImmutableMap.<String, String>of());
+                        return new MultiplexedSshPollValue(result, failures);
+                    }
+                    @Override public String toString() {
+                        return "ssh-feed multiplexed poll of "+pollInfos.size()+" commands";
+                    }},
+                new MultiplexedPollHandler(marker, handlers),
+                period);
+    }
+    
+    static void appendSection(StringBuilder script, String marker, int index, String command, Map<String, String> env) {
+        String begin = BashStringEscapes.wrapBash(marker+"-begin-"+index);
+        String end = BashStringEscapes.wrapBash(marker+"-end-"+index);
+        script.append("printf '%s\\n' ").append(begin).append("; printf '%s\\n' ").append(begin).append(" >&2\n");
+        script.append("(\n");
+        if (env != null) {
+            for (Map.Entry<String, String> entry : env.entrySet()) {
+                if (entry.getKey() == null || entry.getValue() == null) continue;
+                script.append("export ").append(entry.getKey()).append("=\"")
+                        .append(BashStringEscapes.escapeLiteralForDoubleQuotedBash(entry.getValue())).append("\"\n");
+            }
+        }
+        // eval'd, so that even a syntax error in the command is confined to its section
+        script.append("eval ").append(BashStringEscapes.wrapBash(command)).append("\n");
+        // run in the background and waited for, as `bash -e` is disabled in a subshell tested with && or ||;
+        // the status of the wait is tested instead, so that a failing section does not end the script
+        script.append(") < /dev/null &\n");
+        script.append("wait $! && BROOKLYN_POLL_STATUS=0 || BROOKLYN_POLL_STATUS=$?\n");
+        script.append("printf '\\n%s %s\\n' ").append(end).append(" $BROOKLYN_POLL_STATUS; printf '\\n%s\\n' ").append(end).append(" >&2\n");
+    }
+    
+    /** the output of the given section, or absent if the script did not complete it */
+    static Maybe<SshPollValue> extractSection(SshPollValue value, String marker, int index) {
+        String begin = marker+"-begin-"+index+"\n";
+        String end = "\n"+marker+"-end-"+index;
+        
+        String stdout = value.getStdout();
+        int outStart = stdout.indexOf(begin);
+        int outEnd = (outStart >= 0) ? stdout.indexOf(end+" ", outStart + begin.length() - 1) : -1;
+        String stderr = value.getStderr();
+        int errStart = stderr.indexOf(begin);
+        int errEnd = (errStart >= 0) ? stderr.indexOf(end+"\n", errStart + begin.length() - 1) : -1;
+        if (outEnd < 0) return Maybe.absent();
+        
+        int statusStart = outEnd + end.length() + 1;
+        int statusEnd = stdout.indexOf('\n', statusStart);
+        Integer exitStatus = Ints.tryParse(stdout.substring(statusStart, (statusEnd >= 0) ? statusEnd : stdout.length()).trim());
+        if (exitStatus == null) return Maybe.absent();
+        
+        return Maybe.of(new SshPollValue(value.getMachine(), exitStatus,
+                // the begin marker's newline precedes the output, and a newline is added before the end marker
+                stdout.substring(outStart + begin.length(), Math.max(outStart + begin.length(), outEnd)),
+                (errEnd >= 0) ? stderr.substring(errStart + begin.length(), Math.max(errStart + begin.length(), errEnd)) : ""));
+    }
+    
+    private static class MultiplexedSshPollValue extends SshPollValue {
+        final Map<Integer, Exception> failures;
+        
+        MultiplexedSshPollValue(SshPollValue value, Map<Integer, Exception> failures) {
+            super(value.getMachine(), value.getExitStatus(), value.getStdout(), value.getStderr());
+            this.failures = failures;
+        }
+    }
+    
+    /** passes the output of each section of a multiplexed poll to the handlers for that section */
+    private static class MultiplexedPollHandler implements PollHandler<SshPollValue> {
+        private final String marker;
+        private final List<PollHandler<SshPollValue>> handlers;
+        
+        MultiplexedPollHandler(String marker, List<PollHandler<SshPollValue>> handlers) {
+            this.marker = marker;
+            this.handlers = handlers;
+        }
+        
+        @Override
+        public boolean checkSuccess(SshPollValue val) {
+            // success is determined per section
+            return true;
+        }
+
+        @Override
+        public void onSuccess(SshPollValue val) {
+            Map<Integer, Exception> failures = (val instanceof MultiplexedSshPollValue) ? ((MultiplexedSshPollValue)val).failures : ImmutableMap.<Integer, Exception>of();
+            for (int i = 0; i < handlers.size(); i++) {
+                PollHandler<SshPollValue> handler = handlers.get(i);
+                try {
+                    if (failures.containsKey(i)) {
+                        handler.onException(failures.get(i));
+                        continue;
+                    }
+                    Maybe<SshPollValue> section = extractSection(val, marker, i);
+                    if (section.isAbsent()) {
+                        handler.onException(new IllegalStateException("No result for poll in multiplexed ssh script on "+val.getMachine()
+                                +" (exit status "+val.getExitStatus()+"; stderr "+Strings.maxlenWithEllipsis(val.getStderr(), 256)+")"));
+                    } else if (handler.checkSuccess(section.get())) {
+                        handler.onSuccess(section.get());
+                    } else {
+                        handler.onFailure(section.get());
+                    }
+                } catch (Exception e) {
+                    Exceptions.propagateIfFatal(e);
+                    log.warn("Problem handling multiplexed ssh poll result for "+handler.getDescription()+" (continuing)", e);
+                }
+            }
+        }
+
+        @Override
+        public void onFailure(SshPollValue val) {
+            onSuccess(val);
+        }
+
+        @Override
+        public void onException(Exception exception) {
+            for (PollHandler<SshPollValue> handler : handlers) {
+                handler.onException(exception);
+            }
+        }
+
+        @Override
+        public String getDescription() {
+            List<String> descriptions = Lists.newArrayList();
+            for (PollHandler<SshPollValue> handler : handlers) {
+                descriptions.add(handler.getDescription());
+            }
+            return "multiplexed["+Joiner.on(", ").join(descriptions)+"]";
         }
     }
     
@@ -42,8 +42,6 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.Callable;
-import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -56,7 +54,6 @@ import brooklyn.config.ConfigKey;
 import brooklyn.config.ConfigKey.HasConfigKey;
 import brooklyn.config.ConfigUtils;
 import brooklyn.entity.basic.BrooklynConfigKeys;
-import brooklyn.entity.basic.BrooklynTaskTags;
 import brooklyn.entity.basic.ConfigKeys;
 import brooklyn.event.basic.BasicConfigKey;
 import brooklyn.event.basic.MapConfigKey;
@@ -66,6 +63,7 @@ import brooklyn.location.OsDetails;
 import brooklyn.location.PortRange;
 import brooklyn.location.PortSupplier;
 import brooklyn.management.Task;
+import brooklyn.management.internal.ManagementContextInternal;
 import brooklyn.util.ResourceUtils;
 import brooklyn.util.collections.MutableMap;
 import brooklyn.util.config.ConfigBag;
@@ -75,9 +73,11 @@ import brooklyn.util.exceptions.RuntimeInterruptedException;
 import brooklyn.util.file.ArchiveUtils;
 import brooklyn.util.flags.SetFromFlag;
 import brooklyn.util.flags.TypeCoercions;
-import brooklyn.util.guava.KeyTransformingLoadingCache.KeyTransformingSameTypeLoadingCache;
 import brooklyn.util.guava.Maybe;
 import brooklyn.util.internal.ssh.ShellTool;
+import brooklyn.util.internal.ssh.SshConnectionManager;
+import brooklyn.util.internal.ssh.SshConnectionManager.ConnectionKey;
+import brooklyn.util.internal.ssh.SshConnectionManager.ConnectionLease;
 import brooklyn.util.internal.ssh.SshException;
 import brooklyn.util.internal.ssh.SshTool;
 import brooklyn.util.internal.ssh.sshj.SshjTool;
@@ -85,13 +85,10 @@ import brooklyn.util.javalang.StackTraceSimplifier;
 import brooklyn.util.mutex.MutexSupport;
 import brooklyn.util.mutex.WithMutexes;
 import brooklyn.util.net.Urls;
-import brooklyn.util.pool.BasicPool;
-import brooklyn.util.pool.Pool;
 import brooklyn.util.ssh.BashCommands;
 import brooklyn.util.stream.KnownSizeInputStream;
 import brooklyn.util.stream.ReaderInputStream;
 import brooklyn.util.stream.StreamGobbler;
-import brooklyn.util.task.ScheduledTask;
 import brooklyn.util.task.Tasks;
 import brooklyn.util.task.system.internal.ExecWithLoggingHelpers;
 import brooklyn.util.task.system.internal.ExecWithLoggingHelpers.ExecRunner;
@@ -101,14 +98,8 @@ import brooklyn.util.time.Duration;
 import com.google.common.base.Function;
 import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
-import com.google.common.base.Predicate;
 import com.google.common.base.Supplier;
 import com.google.common.base.Throwables;
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
-import com.google.common.cache.RemovalListener;
-import com.google.common.cache.RemovalNotification;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
@@ -204,7 +195,8 @@ public class SshMachineLocation extends AbstractLocation implements MachineLocat
     public static final Set<ConfigKey<?>> REUSABLE_SSH_PROPS = ImmutableSet.of(
             STDOUT, STDERR, SCRIPT_DIR, CLOSE_CONNECTION,
             SshTool.PROP_SCRIPT_HEADER, SshTool.PROP_PERMISSIONS, SshTool.PROP_LAST_MODIFICATION_DATE,
-            SshTool.PROP_LAST_ACCESS_DATE, SshTool.PROP_OWNER_UID, SshTool.PROP_SSH_RETRY_DELAY);
+            SshTool.PROP_LAST_ACCESS_DATE, SshTool.PROP_OWNER_UID, SshTool.PROP_SSH_RETRY_DELAY,
+            SshTool.PROP_SCRIPT_VIA_STDIN);
 
     public static final Set<HasConfigKey<?>> ALL_SSH_CONFIG_KEYS =
             ImmutableSet.<HasConfigKey<?>>builder()
@@ -228,10 +220,9 @@ public class SshMachineLocation extends AbstractLocation implements MachineLocat
     public static final Set<ConfigKey<?>> SSH_CONFIG_GIVEN_TO_PROPS = ImmutableSet.<ConfigKey<?>>of(
             SCRIPT_DIR);
 
-    private Task<?> cleanupTask;
-    /** callers should use {@link #getSshPoolCache()} */
-    @Nullable 
-    private transient LoadingCache<Map<String, ?>, Pool<SshTool>> sshPoolCacheOrNull;
+    /** connections this location has used in the shared pool, closed with the location; callers should use {@link #getSshConnectionKeys()} */
+    @Nullable
+    private transient Set<ConnectionKey> sshConnectionKeysOrNull;
 
     public SshMachineLocation() {
         this(MutableMap.of());
@@ -242,109 +233,23 @@ public class SshMachineLocation extends AbstractLocation implements MachineLocat
         usedPorts = (usedPorts != null) ? Sets.newLinkedHashSet(usedPorts) : Sets.<Integer>newLinkedHashSet();
     }
 
-    private final transient Object poolCacheMutex = new Object();
+    private final transient Object connectionKeysMutex = new Object();
     @Nonnull
-    private LoadingCache<Map<String, ?>, Pool<SshTool>> getSshPoolCache() {
-        synchronized (poolCacheMutex) {
-            if (sshPoolCacheOrNull==null) {
-                sshPoolCacheOrNull = buildSshToolPoolCacheLoader();
-                addSshPoolCacheCleanupTask();
+    private Set<ConnectionKey> getSshConnectionKeys() {
+        synchronized (connectionKeysMutex) {
+            if (sshConnectionKeysOrNull==null) {
+                sshConnectionKeysOrNull = Sets.newConcurrentHashSet();
             }
         }
-        return sshPoolCacheOrNull;
-    }
-
-    private LoadingCache<Map<String, ?>, Pool<SshTool>> buildSshToolPoolCacheLoader() {
-        // TODO: Appropriate numbers for maximum size and expire after access
-        // At the moment every SshMachineLocation instance creates its own pool.
-        // It might make more sense to create one pool and inject it into all SshMachineLocations.
-        Duration expiryDuration = getConfig(SSH_CACHE_EXPIRY_DURATION);
-        
-        LoadingCache<Map<String, ?>, Pool<SshTool>> delegate = CacheBuilder.newBuilder()
-                .maximumSize(10)
-                .expireAfterAccess(expiryDuration.toMilliseconds(), TimeUnit.MILLISECONDS)
-                .recordStats()
-                .removalListener(new RemovalListener<Map<String, ?>, Pool<SshTool>>() {
-                    // TODO: Does it matter that this is synchronous? - Can closing pools cause long delays?
-                    @Override
-                    public void onRemoval(RemovalNotification<Map<String, ?>, Pool<SshTool>> notification) {
-                        Pool<SshTool> removed = notification.getValue();
-                        if (removed == null) {
-                            if (LOG.isDebugEnabled()) {
-                                LOG.debug("Pool evicted from SshTool cache is null so we can't call pool.close(). " +
-                                        "It's probably already been garbage collected. Eviction cause: {} ",
-                                        notification.getCause().name());
-                            }
-                        } else {
-                            if (LOG.isDebugEnabled()) {
-                                LOG.debug("{} evicted from SshTool cache. Eviction cause: {}",
-                                        removed, notification.getCause().name());
-                            }
-                            try {
-                                removed.close();
-                            } catch (IOException e) {
-                                if (LOG.isDebugEnabled()) {
-                                    LOG.debug("Exception closing "+removed, e);
-                                }
-                            }
-                        }
-                    }
-                })
-                .build(new CacheLoader<Map<String, ?>, Pool<SshTool>>() {
-                    public Pool<SshTool> load(Map<String, ?> properties) {
-                        if (LOG.isDebugEnabled()) {
-                            LOG.debug("{} building ssh pool for {} with properties: {}",
-                                    new Object[] {this, getSshHostAndPort(), properties});
-                        }
-                        return buildPool(properties);
-                    }
-                });
+        return sshConnectionKeysOrNull;
+    }
 
-        final Set<String> reusableSshProperties = ImmutableSet.copyOf(
-                Iterables.transform(REUSABLE_SSH_PROPS, new Function<ConfigKey<?>, String>() {
-                    @Override public String apply(ConfigKey<?> input) {
-                        return input.getName();
-                    }
-                }));
-        // Groovy-eclipse compiler refused to compile `KeyTransformingSameTypeLoadingCache.from(...)`
-        return new KeyTransformingSameTypeLoadingCache<Map<String, ?>, Pool<SshTool>>(
-                delegate,
-                new Function<Map<String, ?>, Map<String, ?>>() {
-                    @Override
-                    public Map<String, ?> apply(@Nullable Map<String, ?> input) {
-                        Map<String, Object> copy = new HashMap<String, Object>(input);
-                        copy.keySet().removeAll(reusableSshProperties);
-                        return copy;
-                    }
-                });
-    }
-
-    private BasicPool<SshTool> buildPool(final Map<String, ?> properties) {
-        return BasicPool.<SshTool>builder()
-                .name(getDisplayName()+"@"+address+":"+getPort()+
-                        (config().getRaw(SSH_HOST).isPresent() ? "("+getConfig(SSH_HOST)+":"+getConfig(SSH_PORT)+")" : "")+
-                        ":hash"+System.identityHashCode(this))
-                .supplier(new Supplier<SshTool>() {
-                        @Override public SshTool get() {
-                            return connectSsh(properties);
-                        }})
-                .viabilityChecker(new Predicate<SshTool>() {
-                        @Override public boolean apply(SshTool input) {
-                            return input != null && input.isConnected();
-                        }})
-                .closer(new Function<SshTool,Void>() {
-                        @Override public Void apply(SshTool input) {
-                            if (LOG.isDebugEnabled()) {
-                                LOG.debug("{} closing pool for {}", this, input);
-                            }
-                            try {
-                                input.disconnect();
-                            } catch (Exception e) {
-                                if (logSsh.isDebugEnabled()) logSsh.debug("On machine "+SshMachineLocation.this+", ssh-disconnect failed", e);
-                            }
-                            return null;
-                        }})
-                .build();
+    /** the pool of ssh connections shared by all locations in the management context */
+    protected SshConnectionManager getSshConnectionManager() {
+        if (getManagementContext() instanceof ManagementContextInternal) {
+            return ((ManagementContextInternal)getManagementContext()).getSshConnectionManager();
+        }
+        return SshConnectionManager.getUnmanagedInstance();
     }
 
     @Override
@@ -374,60 +279,19 @@ public class SshMachineLocation extends AbstractLocation implements MachineLocat
         }
     }
     
-    protected void addSshPoolCacheCleanupTask() {
-        if (cleanupTask!=null && !cleanupTask.isDone()) {
-            return;
-        }
-        if (getManagementContext()==null || getManagementContext().getExecutionManager()==null) {
-            LOG.debug("No management context for "+this+"; ssh-pool cache will only be closed when machine is closed");
-            return;
-        }
-        
-        Callable<Task<?>> cleanupTaskFactory = new Callable<Task<?>>() {
-            @Override public Task<Void> call() {
-                return Tasks.<Void>builder().dynamic(false).tag(BrooklynTaskTags.TRANSIENT_TASK_TAG)
-                    .name("ssh-location cache cleaner").body(new Callable<Void>() {
-                    @Override public Void call() {
-                        try {
-                            if (sshPoolCacheOrNull != null) sshPoolCacheOrNull.cleanUp();
-                            if (!SshMachineLocation.this.isManaged()) {
-                                if (sshPoolCacheOrNull != null) sshPoolCacheOrNull.invalidateAll();
-                                cleanupTask.cancel(false);
-                                sshPoolCacheOrNull = null;
-                            }
-                            return null;
-                        } catch (Exception e) {
-                            // Don't rethrow: the behaviour of executionManager is different from a scheduledExecutorService,
-                            // if we throw an exception, then our task will never get executed again
-                            LOG.warn("Problem cleaning up ssh-pool-cache", e);
-                            return null;
-                        } catch (Throwable t) {
-                            LOG.warn("Problem cleaning up ssh-pool-cache (rethrowing)", t);
-                            throw Exceptions.propagate(t);
-                        }
-                    }}).build();
-            }
-        };
-        
-        Duration expiryDuration = getConfig(SSH_CACHE_EXPIRY_DURATION);
-        cleanupTask = getManagementContext().getExecutionManager().submit(new ScheduledTask(
-            MutableMap.of("displayName", "scheduled[ssh-location cache cleaner]"), cleanupTaskFactory).period(expiryDuration));
-    }
-    
     // TODO close has been used for a long time to perform clean-up wanted on unmanagement, but that's not clear; 
     // we should probably expose a mechanism such as that in Entity (or re-use Entity for locations!)
     @Override
     public void close() throws IOException {
-        if (sshPoolCacheOrNull != null) {
+        Set<ConnectionKey> keys = sshConnectionKeysOrNull;
+        if (keys != null && !keys.isEmpty()) {
+            // connections may be shared with other locations for the same machine, so only closed if no longer used by any
             if (LOG.isDebugEnabled()) {
-                LOG.debug("{} invalidating all entries in ssh pool cache. Final stats: {}", this, sshPoolCacheOrNull.stats());
+                LOG.debug("{} releasing ssh connections: {}", this, keys);
             }
-            sshPoolCacheOrNull.invalidateAll();
-        }
-        if (cleanupTask != null) {
-            cleanupTask.cancel(false);
-            cleanupTask = null;
-            sshPoolCacheOrNull = null;
+            Set<ConnectionKey> released = ImmutableSet.copyOf(keys);
+            keys.removeAll(released);
+            getSshConnectionManager().removeUser(released, this);
         }
     }
 
@@ -488,29 +352,71 @@ public class SshMachineLocation extends AbstractLocation implements MachineLocat
     }
 
     protected <T> T execSsh(final Map<String, ?> props, final Function<ShellTool, T> task) {
-        final LoadingCache<Map<String, ?>, Pool<SshTool>> sshPoolCache = getSshPoolCache();
-        Pool<SshTool> pool = sshPoolCache.getUnchecked(props);
-        if (LOG.isTraceEnabled()) {
-            LOG.trace("{} execSsh got pool: {}", this, pool);
+        Map<String, Object> connectionProps = new HashMap<String, Object>(props);
+        for (ConfigKey<?> reusable : REUSABLE_SSH_PROPS) {
+            connectionProps.remove(reusable.getName());
+        }
+        ConnectionKey key = ConnectionKey.of(sshToolArgs(connectionProps).getAllConfig());
+        SshConnectionManager connectionManager = getSshConnectionManager();
+        if (getSshConnectionKeys().add(key)) {
+            connectionManager.addUser(key, this);
         }
 
-        if (truth(props.get(CLOSE_CONNECTION.getName()))) {
-            Function<SshTool, T> close = new Function<SshTool, T>() {
-                @Override
-                public T apply(SshTool input) {
-                    T result = task.apply(input);
+        final Map<String, ?> propsForConnect = connectionProps;
+        ConnectionLease lease = connectionManager.lease(key, getConfig(SSH_CACHE_EXPIRY_DURATION), new Supplier<SshTool>() {
+                @Override public SshTool get() {
                     if (LOG.isDebugEnabled()) {
-                        LOG.debug("{} invalidating all sshPoolCache entries: {}", SshMachineLocation.this, sshPoolCache.stats().toString());
+                        LOG.debug("{} opening ssh connection for {} with properties: {}",
+                                new Object[] {SshMachineLocation.this, getSshHostAndPort(), propsForConnect});
                     }
-                    sshPoolCache.invalidateAll();
-                    sshPoolCache.cleanUp();
-                    return result;
+                    return connectSsh(propsForConnect);
+                }});
+        if (LOG.isTraceEnabled()) {
+            LOG.trace("{} execSsh got connection: {}", this, lease.leasedObject());
+        }
+        try {
+            return task.apply(lease.leasedObject());
+        } finally {
+            if (truth(props.get(CLOSE_CONNECTION.getName()))) {
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("{} closing ssh connection: {}", this, lease.leasedObject());
                 }
-            };
-            return pool.exec(close);
-        } else {
-            return pool.exec(task);
+                lease.discard();
+            } else {
+                lease.close();
+            }
+        }
+    }
+
+    /** the properties for the {@link SshTool}, from this location's config, overridden by the given props */
+    protected ConfigBag sshToolArgs(Map<String, ?> props) {
+        ConfigBag args = new ConfigBag()
+            .configure(SshTool.PROP_USER, truth(user) ? user : getUser())
+            // default value of host, overridden if SSH_HOST is supplied
+            .configure(SshTool.PROP_HOST, address.getHostName());
+
+        for (Map.Entry<String,Object> entry: config().getBag().getAllConfig().entrySet()) {
+            String key = entry.getKey();
+            if (key.startsWith(SshTool.BROOKLYN_CONFIG_KEY_PREFIX)) {
+                key = Strings.removeFromStart(key, SshTool.BROOKLYN_CONFIG_KEY_PREFIX);
+            } else if (ALL_SSH_CONFIG_KEY_NAMES.contains(entry.getKey())) {
+                // key should be included, and does not need to be changed
+
+                // TODO make this config-setting mechanism more universal
+                // currently e.g. it will not admit a tool-specific property.
+                // thinking either we know about the tool here,
+                // or we don't allow unadorned keys to be set
+                // (require use of BROOKLYN_CONFIG_KEY_PREFIX)
+            } else {
+                // this key is not applicable here; ignore it
+                continue;
+            }
+            args.putStringKey(key, entry.getValue());
         }
+
+        // Explicit props trump all.
+        args.putAll(props);
+        return args;
     }
 
     protected SshTool connectSsh() {
@@ -526,32 +432,7 @@ public class SshMachineLocation extends AbstractLocation implements MachineLocat
                 user = newUser;
             }
 
-            ConfigBag args = new ConfigBag()
-                .configure(SshTool.PROP_USER, user)
-                // default value of host, overridden if SSH_HOST is supplied
-                .configure(SshTool.PROP_HOST, address.getHostName());
-
-            for (Map.Entry<String,Object> entry: config().getBag().getAllConfig().entrySet()) {
-                String key = entry.getKey();
-                if (key.startsWith(SshTool.BROOKLYN_CONFIG_KEY_PREFIX)) {
-                    key = Strings.removeFromStart(key, SshTool.BROOKLYN_CONFIG_KEY_PREFIX);
-                } else if (ALL_SSH_CONFIG_KEY_NAMES.contains(entry.getKey())) {
-                    // key should be included, and does not need to be changed
-
-                    // TODO make this config-setting mechanism more universal
-                    // currently e.g. it will not admit a tool-specific property.
-                    // thinking either we know about the tool here,
-                    // or we don't allow unadorned keys to be set
-                    // (require use of BROOKLYN_CONFIG_KEY_PREFIX)
-                } else {
-                    // this key is not applicable here; ignore it
-                    continue;
-                }
-                args.putStringKey(key, entry.getValue());
-            }
-
-            // Explicit props trump all.
-            args.putAll(props);
+            ConfigBag args = sshToolArgs(props);
 
             if (LOG.isTraceEnabled()) LOG.trace("creating ssh session for "+args);
             if (!user.equals(args.get(SshTool.PROP_USER))) {
@@ -961,12 +842,11 @@ public class SshMachineLocation extends AbstractLocation implements MachineLocat
         return getMutexSupport().hasMutex(mutexId);
     }
 
-    //We want the SshMachineLocation to be serializable and therefore the pool needs to be dealt with correctly.
-    //In this case we are not serializing the pool (we made the field transient) and create a new pool when deserialized.
-    //This fix is currently needed for experiments, but isn't used in normal Brooklyn usage.
+    //We want the SshMachineLocation to be serializable; ssh connections are held by the management context's
+    //SshConnectionManager rather than by the location, so there is nothing to recreate when deserialized.
+    //This is currently needed for experiments, but isn't used in normal Brooklyn usage.
     private void readObject(java.io.ObjectInputStream in) throws IOException, ClassNotFoundException {
         in.defaultReadObject();
-        getSshPoolCache();
     }
 
     /** returns the un-passphrased key-pair info if a key is being used, or else null */
@@ -147,6 +147,7 @@ public class HighAvailabilityManagerImpl implements HighAvailabilityManager {
     private volatile transient Duration heartbeatTimeoutOverride;
 
     private volatile ManagementPlaneSyncRecord lastSyncRecord;
+    private volatile Duration lastPromotionDuration;
     
     private volatile PersistenceActivityMetrics managementStateWritePersistenceMetrics = new PersistenceActivityMetrics();
     private volatile PersistenceActivityMetrics managementStateReadPersistenceMetrics = new PersistenceActivityMetrics();
@@ -800,6 +801,7 @@ public class HighAvailabilityManagerImpl implements HighAvailabilityManager {
             return;
         }
         
+        Stopwatch timer = Stopwatch.createStarted();
         if (promotionListener != null) {
             try {
                 promotionListener.promotingToMaster();
@@ -818,6 +820,13 @@ public class HighAvailabilityManagerImpl implements HighAvailabilityManager {
             throw Exceptions.propagate(e);
         }
         managementContext.getRebindManager().start();
+        lastPromotionDuration = Duration.of(timer);
+        LOG.info("Management node "+managementContext.getManagementNodeId()+" promoted to master in "+lastPromotionDuration);
+    }
+    
+    /** time taken by the most recent promotion of this node to master, including rebinding; null if never promoted */
+    public Duration getLastPromotionDuration() {
+        return lastPromotionDuration;
     }
     
     protected void backupOnDemotionIfNeeded() {
@@ -1070,6 +1079,7 @@ public class HighAvailabilityManagerImpl implements HighAvailabilityManager {
             "priority", getPriority(),
             "pollPeriod", getPollPeriod().toMilliseconds(),
             "heartbeatTimeout", getHeartbeatTimeout().toMilliseconds(),
+            "lastPromotionDuration", lastPromotionDuration==null ? null : lastPromotionDuration.toMilliseconds(),
             "history", nodeStateHistory));
         
         result.putAll(managementContext.getRebindManager().getMetrics());
@@ -75,6 +75,8 @@ import brooklyn.util.ResourceUtils;
 import brooklyn.util.collections.MutableMap;
 import brooklyn.util.config.ConfigBag;
 import brooklyn.util.guava.Maybe;
+import brooklyn.util.http.HttpClientManager;
+import brooklyn.util.internal.ssh.SshConnectionManager;
 import brooklyn.util.task.BasicExecutionContext;
 import brooklyn.util.task.Tasks;
 
@@ -155,6 +157,12 @@ public abstract class AbstractManagementContext implements ManagementContextInte
     
     protected volatile BrooklynGarbageCollector gc;
 
+    private final Object sshConnectionManagerMutex = new Object();
+    private SshConnectionManager sshConnectionManager;
+
+    private final Object httpClientManagerMutex = new Object();
+    private HttpClientManager httpClientManager;
+
     private final EntityDriverManager entityDriverManager;
     protected DownloadResolverManager downloadsManager;
 
@@ -192,6 +200,12 @@ public abstract class AbstractManagementContext implements ManagementContextInte
         running = false;
         rebindManager.stop();
         storage.terminate();
+        synchronized (sshConnectionManagerMutex) {
+            if (sshConnectionManager != null) sshConnectionManager.close();
+        }
+        synchronized (httpClientManagerMutex) {
+            if (httpClientManager != null) httpClientManager.close();
+        }
         // Don't unmanage everything; different entities get given their events at different times 
         // so can cause problems (e.g. a group finds out that a member is unmanaged, before the
         // group itself has been told that it is unmanaged).
@@ -423,6 +437,33 @@ public abstract class AbstractManagementContext implements ManagementContextInte
         return gc;
     }
 
+    @Override
+    public SshConnectionManager getSshConnectionManager() {
+        synchronized (sshConnectionManagerMutex) {
+            if (sshConnectionManager == null) {
+                if (isRunning()) {
+                    sshConnectionManager = new SshConnectionManager(getConfig(), getExecutionManager());
+                } else {
+                    // after termination, connections are not pooled
+                    sshConnectionManager = new SshConnectionManager(getConfig(), null);
+                    sshConnectionManager.close();
+                }
+            }
+            return sshConnectionManager;
+        }
+    }
+
+    @Override
+    public HttpClientManager getHttpClientManager() {
+        synchronized (httpClientManagerMutex) {
+            if (httpClientManager == null) {
+                httpClientManager = new HttpClientManager(getConfig());
+                if (!isRunning()) httpClientManager.close();
+            }
+            return httpClientManager;
+        }
+    }
+
     @Override
     public void setManagementNodeUri(URI uri) {
         this.uri = Maybe.of(checkNotNull(uri, "uri"));
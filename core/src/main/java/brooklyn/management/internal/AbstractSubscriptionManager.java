@@ -95,6 +95,10 @@ public abstract class AbstractSubscriptionManager implements SubscriptionManager
      * <li>subscriberExecutionManagerTag - a tag to pass to execution manager (without setting any execution semantics / TaskPreprocessor);
      *      if not supplied and there is a subscriber, this will be inferred from the subscriber and set up with SingleThreadedScheduler
      * <li>eventFilter - a Predicate&lt;SensorEvent&gt; instance to filter what events are delivered
+     * <li>batchDelivery - if true, events are queued per subscriber and delivered in batches by a single task,
+     *      rather than submitting a task for every event (see {@link LocalSubscriptionManager})
+     * <li>coalesce - if true, implies batchDelivery, and an event not yet delivered is replaced by any later event
+     *      from the same producer and sensor (i.e. "latest value wins"); suitable for high-frequency attribute updates
      * </ul>
      * 
      * @see SubscriptionManager#subscribe(Map, Entity, Sensor, SensorEventListener)
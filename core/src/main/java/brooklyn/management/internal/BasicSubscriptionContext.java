@@ -155,12 +155,8 @@ public class BasicSubscriptionContext implements SubscriptionContext {
     public int unsubscribeAll() {
         int count = 0;
         
-        // To avoid ConcurrentModificationException when copying subscriptions, need to synchronize on it
-        Set<SubscriptionHandle> subscriptions = getSubscriptions();
-        Collection<SubscriptionHandle> subscriptionsCopy;
-        synchronized (subscriptions) {
-            subscriptionsCopy = ImmutableList.copyOf(subscriptions);
-        }
+        // Copy, as unsubscribing modifies the (concurrent) set of subscriptions
+        Collection<SubscriptionHandle> subscriptionsCopy = ImmutableList.copyOf(getSubscriptions());
         
         for (SubscriptionHandle s : subscriptionsCopy) {
             count++; 
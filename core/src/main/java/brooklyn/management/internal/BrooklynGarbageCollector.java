@@ -18,6 +18,7 @@
  */
 package brooklyn.management.internal;
 
+import java.lang.ref.WeakReference;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
@@ -27,13 +28,17 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -60,8 +65,10 @@ import brooklyn.util.task.ExecutionListener;
 import brooklyn.util.task.Tasks;
 import brooklyn.util.text.Strings;
 import brooklyn.util.time.Duration;
+import brooklyn.util.time.Time;
 
 import com.google.common.base.Objects;
+import com.google.common.base.Stopwatch;
 import com.google.common.annotations.Beta;
 import com.google.common.collect.Iterables;
 
@@ -81,6 +88,13 @@ import com.google.common.collect.Iterables;
  * and keeping at most 100000 tasks in the system,
  * max 1000 tasks per entity, 50 per effector within that entity, and 50 per other non-effector tag
  * within that entity (or global if not attached to an entity).
+ * <p>
+ * Collection is incremental: completed tasks are recorded in completion order as they finish,
+ * so expiry by age and by global capacity looks only at the oldest tasks, and capacity per tag 
+ * is only checked for tags which have had tasks complete since the previous pass, looking only
+ * at the tasks with those tags. Each pass stops once it has run for {@link #MAX_PASS_DURATION},
+ * continuing on the next pass. A full scan of all tasks is done every {@link #FULL_SCAN_PERIOD},
+ * as a consistency check (e.g. for tasks which completed without notifying the collector).
  * 
  * @author aled
  */
@@ -134,6 +148,17 @@ public class BrooklynGarbageCollector {
             "the duration after which a completed task will be automatically deleted", 
             Duration.days(30));
     
+    public static final ConfigKey<Duration> MAX_PASS_DURATION = ConfigKeys.newDurationConfigKey(
+            "brooklyn.gc.maxPassDuration", 
+            "the maximum time to spend deleting tasks on each pass; remaining work is continued on the next pass "
+            + "(null for no limit)", 
+            Duration.FIVE_SECONDS);
+    
+    public static final ConfigKey<Duration> FULL_SCAN_PERIOD = ConfigKeys.newDurationConfigKey(
+            "brooklyn.gc.fullScanPeriod", 
+            "the period for a full scan of all tasks (rather than incremental), as a consistency check", 
+            Duration.ONE_HOUR);
+    
     protected final static Comparator<Task<?>> TASKS_OLDEST_FIRST_COMPARATOR = new Comparator<Task<?>>() {
         @Override public int compare(Task<?> t1, Task<?> t2) {
             long end1 = t1.getEndTimeUtc();
@@ -153,6 +178,27 @@ public class BrooklynGarbageCollector {
     private final boolean doSystemGc;
     private volatile boolean running = true;
     
+    /** 
+     * Completed tasks, oldest first; weak references, so that tasks deleted by other means can be
+     * garbage collected (entries for them are skipped, and periodically compacted).
+     */
+    private final Queue<WeakReference<Task<?>>> completedTasks = new ConcurrentLinkedQueue<WeakReference<Task<?>>>();
+    private final AtomicInteger completedTasksSize = new AtomicInteger();
+    /** tags of tasks completed since the previous pass, whose capacity should be checked */
+    private final Set<Object> tagsChangedSinceLastPass = Collections.newSetFromMap(new ConcurrentHashMap<Object, Boolean>());
+    
+    // the following are guarded by synchronization on this
+    private int lastMaxTasksPerTag = -1;
+    private int lastMaxTasksPerEntity = -1;
+    private long lastFullScanUtc = -1;
+    private long passDeadline = Long.MAX_VALUE;
+    private int deletedThisPass = 0;
+    
+    private final AtomicLong totalPasses = new AtomicLong();
+    private final AtomicLong totalTasksDeleted = new AtomicLong();
+    private volatile long lastPassDurationMillis = 0;
+    private volatile int lastPassTasksDeleted = 0;
+    
     public BrooklynGarbageCollector(BrooklynProperties brooklynProperties, BasicExecutionManager executionManager, BrooklynStorage storage) {
         this.executionManager = executionManager;
         this.storage = storage;
@@ -250,10 +296,44 @@ public class BrooklynGarbageCollector {
     
     public void deleteTasksForEntity(Entity entity) {
         // remove all references to this entity from tasks
-        executionManager.deleteTag(entity);
-        executionManager.deleteTag(BrooklynTaskTags.tagForContextEntity(entity));
-        executionManager.deleteTag(BrooklynTaskTags.tagForCallerEntity(entity));
-        executionManager.deleteTag(BrooklynTaskTags.tagForTargetEntity(entity));
+        deleteTag(entity);
+        deleteTag(BrooklynTaskTags.tagForContextEntity(entity));
+        deleteTag(BrooklynTaskTags.tagForCallerEntity(entity));
+        deleteTag(BrooklynTaskTags.tagForTargetEntity(entity));
+    }
+    
+    private void deleteTag(Object tag) {
+        int count = executionManager.getNumTasksWithTag(tag);
+        executionManager.deleteTag(tag);
+        recordDeleted(count);
+    }
+    
+    /** deletes the task and (as the execution manager does) its children, returning the number of tasks deleted */
+    private int deleteTask(Task<?> task) {
+        int count = countKnownTasks(task);
+        executionManager.deleteTask(task);
+        recordDeleted(count);
+        return count;
+    }
+    
+    private int countKnownTasks(Task<?> task) {
+        if (!isKnownTask(task)) return 0;
+        int count = 1;
+        if (task instanceof HasTaskChildren) {
+            for (Task<?> child: ((HasTaskChildren)task).getChildren()) {
+                count += countKnownTasks(child);
+            }
+        }
+        return count;
+    }
+    
+    private synchronized void recordDeleted(int count) {
+        deletedThisPass += count;
+        totalTasksDeleted.addAndGet(count);
+    }
+    
+    private boolean isPassBudgetExceeded() {
+        return System.currentTimeMillis() > passDeadline;
     }
     
     public void onUnmanaged(Location loc) {
@@ -263,9 +343,35 @@ public class BrooklynGarbageCollector {
     public void onTaskDone(Task<?> task) {
         if (shouldDeleteTaskImmediately(task)) {
             executionManager.deleteTask(task);
+        } else if (task.isDone()) {
+            completedTasks.add(new WeakReference<Task<?>>(task));
+            completedTasksSize.incrementAndGet();
+            for (Object tag : task.getTags()) {
+                if (!isTagIgnoredForGc(tag)) tagsChangedSinceLastPass.add(tag);
+            }
         }
     }
     
+    /** number of gc passes completed */
+    public long getTotalPasses() {
+        return totalPasses.get();
+    }
+    
+    /** number of tasks deleted by gc passes, in total */
+    public long getTotalTasksDeleted() {
+        return totalTasksDeleted.get();
+    }
+    
+    /** number of tasks deleted by the most recent gc pass */
+    public int getLastPassTasksDeleted() {
+        return lastPassTasksDeleted;
+    }
+    
+    /** duration of the most recent gc pass, in milliseconds */
+    public long getLastPassDurationMillis() {
+        return lastPassDurationMillis;
+    }
+    
     /** @deprecated since 0.7.0, method moved internal until semantics are clarified; see also {@link #shouldDeleteTaskImmediately(Task)} */
     @Deprecated
     public boolean shouldDeleteTask(Task<?> task) {
@@ -330,18 +436,40 @@ public class BrooklynGarbageCollector {
             // caller has changed period, reschedule on next run
             scheduleCollector(false);
         }
+        
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        Duration maxPassDuration = brooklynProperties.getConfig(MAX_PASS_DURATION);
+        passDeadline = (maxPassDuration==null) ? Long.MAX_VALUE : System.currentTimeMillis() + maxPassDuration.toMilliseconds();
+        deletedThisPass = 0;
+        
+        Duration fullScanPeriod = brooklynProperties.getConfig(FULL_SCAN_PERIOD);
+        boolean fullScan = lastFullScanUtc < 0 || fullScanPeriod == null || fullScanPeriod.isShorterThan(Duration.sinceUtc(lastFullScanUtc));
+        if (fullScan) lastFullScanUtc = System.currentTimeMillis();
     
         expireUnmanagedEntityTasks();
-        expireAgedTasks();
+        expireAgedTasks(fullScan);
         expireTransientTasks();
         
         // now look at overcapacity tags, non-entity tags first
         
-        Set<Object> taskTags = executionManager.getTaskTags();
-        
         int maxTasksPerEntity = brooklynProperties.getConfig(MAX_TASKS_PER_ENTITY);
         int maxTasksPerTag = brooklynProperties.getConfig(MAX_TASKS_PER_TAG);
         
+        Collection<Object> taskTags;
+        if (fullScan || maxTasksPerEntity != lastMaxTasksPerEntity || maxTasksPerTag != lastMaxTasksPerTag) {
+            // check all tags (e.g. limits have changed)
+            tagsChangedSinceLastPass.clear();
+            taskTags = executionManager.getTaskTags();
+            lastMaxTasksPerEntity = maxTasksPerEntity;
+            lastMaxTasksPerTag = maxTasksPerTag;
+        } else {
+            taskTags = MutableList.of();
+            for (Iterator<Object> ti = tagsChangedSinceLastPass.iterator(); ti.hasNext(); ) {
+                taskTags.add(ti.next());
+                ti.remove();
+            }
+        }
+        
         Map<Object,AtomicInteger> taskNonEntityTagsOverCapacity = MutableMap.of();
         Map<Object,AtomicInteger> taskEntityTagsOverCapacity = MutableMap.of();
         
@@ -371,15 +499,31 @@ public class BrooklynGarbageCollector {
             }
         }
         
-        int deletedCount = 0;
-        deletedCount += expireOverCapacityTagsInCategory(taskNonEntityTagsOverCapacity, taskAllTagsOverCapacity, TagCategory.NON_ENTITY_NORMAL, false);
-        deletedCount += expireOverCapacityTagsInCategory(taskEntityTagsOverCapacity, taskAllTagsOverCapacity, TagCategory.ENTITY, true);
-        deletedCount += expireSubTasksWhoseSubmitterIsExpired();
+        if (isPassBudgetExceeded()) {
+            // check these tags again next time
+            tagsChangedSinceLastPass.addAll(taskAllTagsOverCapacity.keySet());
+        } else {
+            expireOverCapacityTagsInCategory(taskNonEntityTagsOverCapacity, taskAllTagsOverCapacity, TagCategory.NON_ENTITY_NORMAL, false);
+            expireOverCapacityTagsInCategory(taskEntityTagsOverCapacity, taskAllTagsOverCapacity, TagCategory.ENTITY, true);
+        }
+        
+        // only needed if a submitter might have been deleted
+        if (fullScan || deletedThisPass > 0) {
+            expireSubTasksWhoseSubmitterIsExpired();
+        }
         
         int deletedGlobally = expireIfOverCapacityGlobally();
-        deletedCount += deletedGlobally;
-        if (deletedGlobally>0) deletedCount += expireSubTasksWhoseSubmitterIsExpired();
+        if (deletedGlobally>0) expireSubTasksWhoseSubmitterIsExpired();
+        
+        compactCompletedTasksIfNeeded();
         
+        int deletedCount = deletedThisPass;
+        totalPasses.incrementAndGet();
+        lastPassTasksDeleted = deletedCount;
+        lastPassDurationMillis = stopwatch.elapsed(TimeUnit.MILLISECONDS);
+        if (LOG.isDebugEnabled()) 
+            LOG.debug("brooklyn-gc pass"+(fullScan ? " (full scan)" : "")+" deleted "+deletedCount+" tasks in "+Time.makeTimeStringRounded(stopwatch)
+                + (isPassBudgetExceeded() ? "; exceeded budget of "+maxPassDuration+", will continue on next pass" : ""));
         return deletedCount;
     }
 
@@ -412,9 +556,36 @@ public class BrooklynGarbageCollector {
         }
     }
     
+    /** @deprecated since 0.7.0; use {@link #expireAgedTasks(boolean)} */
+    @Deprecated
     protected void expireAgedTasks() {
+        expireAgedTasks(true);
+    }
+    
+    /** 
+     * Deletes completed tasks older than {@link #MAX_TASK_AGE}, looking at the oldest completed tasks
+     * (or, if fullScan, at all tasks).
+     */
+    protected void expireAgedTasks(boolean fullScan) {
         Duration maxTaskAge = brooklynProperties.getConfig(MAX_TASK_AGE);
         
+        while (!isPassBudgetExceeded()) {
+            WeakReference<Task<?>> ref = completedTasks.peek();
+            if (ref==null) break;
+            Task<?> task = ref.get();
+            if (isKnownTask(task)) {
+                if (!maxTaskAge.isShorterThan(Duration.sinceUtc(task.getEndTimeUtc()))) {
+                    // remaining tasks are younger
+                    break;
+                }
+                // sub-tasks are deleted with their parent
+                if (!BrooklynTaskTags.isSubTask(task)) deleteTask(task);
+            }
+            pollCompletedTask();
+        }
+        
+        if (!fullScan) return;
+        
         Collection<Task<?>> allTasks = executionManager.allTasksLive();
         Collection<Task<?>> tasksToDelete = MutableList.of();
 
@@ -433,7 +604,31 @@ public class BrooklynGarbageCollector {
         }
         
         for (Task<?> task: tasksToDelete) {
-            executionManager.deleteTask(task);
+            deleteTask(task);
+        }
+    }
+    
+    /** whether the task is non-null and has not been deleted from the execution manager */
+    private boolean isKnownTask(Task<?> task) {
+        return task!=null && executionManager.getTask(task.getId())==task;
+    }
+    
+    private void pollCompletedTask() {
+        if (completedTasks.poll()!=null) completedTasksSize.decrementAndGet();
+    }
+    
+    /** 
+     * Removes entries for tasks which have since been deleted (e.g. by tag capacity, or with their entity), 
+     * if there are many more entries than tasks, so that the record of completed tasks does not grow unbounded.
+     */
+    private void compactCompletedTasksIfNeeded() {
+        if (completedTasksSize.get() <= 2*executionManager.getNumInMemoryTasks() + 1000) return;
+        if (isPassBudgetExceeded()) return;
+        for (Iterator<WeakReference<Task<?>>> ti = completedTasks.iterator(); ti.hasNext(); ) {
+            if (!isKnownTask(ti.next().get())) {
+                ti.remove();
+                completedTasksSize.decrementAndGet();
+            }
         }
     }
     
@@ -441,7 +636,7 @@ public class BrooklynGarbageCollector {
         Set<Task<?>> transientTasks = executionManager.getTasksWithTag(BrooklynTaskTags.TRANSIENT_TASK_TAG);
         for (Task<?> t: transientTasks) {
             if (!t.isDone()) continue;
-            executionManager.deleteTask(t);
+            deleteTask(t);
         }
     }
     
@@ -469,7 +664,7 @@ public class BrooklynGarbageCollector {
         }
         
         for (Task<?> task: tasksToDelete) {
-            executionManager.deleteTask(task);
+            deleteTask(task);
         }
         return tasksToDelete.size();
     }
@@ -500,7 +695,15 @@ public class BrooklynGarbageCollector {
         if (taskTagsInCategoryOverCapacity.isEmpty())
             return 0;
         
-        Collection<Task<?>> tasks = executionManager.allTasksLive();
+        // only tasks with an over-capacity tag need be considered
+        Collection<Task<?>> tasks = MutableSet.of();
+        for (Object tag : taskTagsInCategoryOverCapacity.keySet()) {
+            Set<Task<?>> tasksWithTag = executionManager.tasksWithTagLiveOrNull(tag);
+            if (tasksWithTag==null) continue;
+            synchronized (tasksWithTag) {
+                tasks.addAll(tasksWithTag);
+            }
+        }
         List<Task<?>> tasksToConsiderDeleting = MutableList.of();
         try {
             for (Task<?> task: tasks) {
@@ -568,7 +771,7 @@ public class BrooklynGarbageCollector {
             if (delete) {
                 // delete this and update overcapacity info
                 deleted++;
-                executionManager.deleteTask(task);
+                deleteTask(task);
                 for (Object tag: task.getTags()) {
                     AtomicInteger counter = taskAllTagsOverCapacity.get(tag);
                     if (counter!=null && counter.decrementAndGet()<=0)
@@ -588,11 +791,42 @@ public class BrooklynGarbageCollector {
     }
 
     protected int expireIfOverCapacityGlobally() {
-        Collection<Task<?>> tasksLive = executionManager.allTasksLive();
-        if (tasksLive.size() <= brooklynProperties.getConfig(MAX_TASKS_GLOBAL))
+        int maxTasksGlobal = brooklynProperties.getConfig(MAX_TASKS_GLOBAL);
+        if (executionManager.getNumInMemoryTasks() <= maxTasksGlobal)
+            return 0;
+        LOG.debug("brooklyn-gc detected "+executionManager.getNumInMemoryTasks()+" tasks in memory, over global limit, looking at deleting some");
+        
+        // only completed tasks are deleted, and up to the limit of them are kept (tasks still running are not counted)
+        long numToDelete = executionManager.getNumInMemoryTasks() - executionManager.getNumIncompleteTasks() - maxTasksGlobal;
+        if (numToDelete <= 0) {
+            LOG.debug("brooklyn-gc detected only "+(numToDelete+maxTasksGlobal)+" completed tasks in memory, not over global limit, so not deleting any");
             return 0;
-        LOG.debug("brooklyn-gc detected "+tasksLive.size()+" tasks in memory, over global limit, looking at deleting some");
+        }
+        
+        // delete the oldest completed tasks (which may also delete their children)
+        int numDeleted = 0;
+        while (numDeleted < numToDelete && !isPassBudgetExceeded()) {
+            WeakReference<Task<?>> ref = completedTasks.peek();
+            if (ref==null) break;
+            Task<?> task = ref.get();
+            if (isKnownTask(task)) {
+                numDeleted += deleteTask(task);
+            }
+            pollCompletedTask();
+        }
         
+        if (numDeleted < numToDelete && !isPassBudgetExceeded()) {
+            // we don't know about all completed tasks (e.g. if they completed without notifying us), so look at all tasks
+            numDeleted += expireIfOverCapacityGloballyFullScan(maxTasksGlobal);
+        }
+        
+        if (LOG.isDebugEnabled())
+            LOG.debug("brooklyn-gc deleted "+numDeleted+" tasks as was over global limit, now have "+executionManager.getNumInMemoryTasks());
+        return numDeleted;
+    }
+    
+    private int expireIfOverCapacityGloballyFullScan(int maxTasksGlobal) {
+        Collection<Task<?>> tasksLive = executionManager.allTasksLive();
         try {
             tasksLive = MutableList.copyOf(tasksLive);
         } catch (ConcurrentModificationException e) {
@@ -606,7 +840,7 @@ public class BrooklynGarbageCollector {
             }
         }
         
-        int numToDelete = tasks.size() - brooklynProperties.getConfig(MAX_TASKS_GLOBAL);
+        int numToDelete = tasks.size() - maxTasksGlobal;
         if (numToDelete <= 0) {
             LOG.debug("brooklyn-gc detected only "+tasks.size()+" completed tasks in memory, not over global limit, so not deleting any");
             return 0;
@@ -616,10 +850,8 @@ public class BrooklynGarbageCollector {
         
         int numDeleted = 0;
         while (numDeleted < numToDelete && tasks.size()>numDeleted) {
-            executionManager.deleteTask( tasks.get(numDeleted++) );
+            deleteTask( tasks.get(numDeleted++) );
         }
-        if (LOG.isDebugEnabled())
-            LOG.debug("brooklyn-gc deleted "+numDeleted+" tasks as was over global limit, now have "+executionManager.allTasksLive().size());
         return numDeleted;
     }
 
@@ -36,6 +36,7 @@ public interface EntityChangeListener {
         @Override public void onMembersChanged() {}
         @Override public void onTagsChanged() {}
         @Override public void onChildrenChanged() {}
+        @Override public void onParentChanged() {}
         @Override public void onPolicyAdded(Policy policy) {}
         @Override public void onPolicyRemoved(Policy policy) {}
         @Override public void onEnricherAdded(Enricher enricher) {}
@@ -60,6 +61,8 @@ public interface EntityChangeListener {
 
     void onChildrenChanged();
 
+    void onParentChanged();
+
     void onPolicyAdded(Policy policy);
 
     void onPolicyRemoved(Policy policy);
@@ -0,0 +1,184 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.management.internal;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.Nullable;
+
+import brooklyn.entity.Entity;
+import brooklyn.management.EntityQuery;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.SetMultimap;
+import com.google.common.reflect.TypeToken;
+
+/**
+ * Secondary indexes of the entities managed by a {@link LocalEntityManager}: by application, by type
+ * (including all supertypes and interfaces), by tag and by parent. These answer the indexed criteria of an
+ * {@link EntityQuery} without testing every entity.
+ * <p>
+ * What an entity is indexed under is read from the entity when it is indexed; the entity manager indexes
+ * an entity each time it becomes managed (including when a new instance replaces it, on rebind or in
+ * hot-standby), removes it when it is unmanaged, and re-indexes it when its tags or its parent change.
+ * <p>
+ * Nothing is called on other objects while holding the lock here, other than reading an entity's parent,
+ * application and tags, so entities may notify of changes while holding their own locks.
+ */
+class EntityIndexes {
+
+    private static class Entry {
+        final Entity entity;
+        final String applicationId;
+        final Set<Class<?>> types;
+        final Set<Object> tags;
+        final String parentId;
+
+        Entry(Entity entity, String applicationId, Set<Class<?>> types, Set<Object> tags, String parentId) {
+            this.entity = entity;
+            this.applicationId = applicationId;
+            this.types = types;
+            this.tags = tags;
+            this.parentId = parentId;
+        }
+
+        boolean matches(EntityQuery query) {
+            return (query.getApplicationId() == null || query.getApplicationId().equals(applicationId))
+                    && (query.getType() == null || types.contains(query.getType()))
+                    && tags.containsAll(query.getTags())
+                    && (query.getParentId() == null || query.getParentId().equals(parentId));
+        }
+    }
+
+    private final ConcurrentMap<Class<?>, Set<Class<?>>> typesByClass = Maps.newConcurrentMap();
+
+    // all guarded by this
+    private final Map<String, Entry> entries = Maps.newHashMap();
+    private final SetMultimap<String, String> byApplicationId = HashMultimap.create();
+    private final SetMultimap<Class<?>, String> byType = HashMultimap.create();
+    private final SetMultimap<Object, String> byTag = HashMultimap.create();
+    private final SetMultimap<String, String> byParentId = HashMultimap.create();
+
+    /**
+     * Indexes the given entity, replacing any entry for its id.
+     * @param proxy the proxy for the entity, if any, whose interfaces are also indexed
+     */
+    public synchronized void index(Entity entity, @Nullable Entity proxy) {
+        Set<Class<?>> types = typesOf(entity.getClass());
+        if (proxy != null && proxy != entity) {
+            ImmutableSet.Builder<Class<?>> builder = ImmutableSet.<Class<?>>builder().addAll(types);
+            for (Class<?> iface : proxy.getClass().getInterfaces()) {
+                builder.addAll(typesOf(iface));
+            }
+            types = builder.build();
+        }
+        put(entity.getId(), newEntry(entity, types));
+    }
+
+    /** Re-reads the application, tags and parent of the entity, if it is the instance indexed. */
+    public synchronized void reindex(Entity entity) {
+        Entry old = entries.get(entity.getId());
+        if (old == null || old.entity != entity) return;
+        put(entity.getId(), newEntry(entity, old.types));
+    }
+
+    public synchronized void remove(String id) {
+        Entry old = entries.remove(id);
+        if (old == null) return;
+        if (old.applicationId != null) byApplicationId.remove(old.applicationId, id);
+        for (Class<?> type : old.types) {
+            byType.remove(type, id);
+        }
+        for (Object tag : old.tags) {
+            byTag.remove(tag, id);
+        }
+        if (old.parentId != null) byParentId.remove(old.parentId, id);
+    }
+
+    /**
+     * Ids of the entities meeting the application, type, tag and parent criteria of the query
+     * (not its filter); or null if the query has none of those criteria.
+     */
+    @Nullable
+    public synchronized List<String> find(EntityQuery query) {
+        List<Set<String>> candidates = Lists.newArrayList();
+        if (query.getApplicationId() != null) candidates.add(byApplicationId.get(query.getApplicationId()));
+        if (query.getType() != null) candidates.add(byType.get(query.getType()));
+        for (Object tag : query.getTags()) {
+            candidates.add(byTag.get(tag));
+        }
+        if (query.getParentId() != null) candidates.add(byParentId.get(query.getParentId()));
+        if (candidates.isEmpty()) return null;
+
+        // check the smallest candidate set against the other criteria
+        Set<String> smallest = candidates.get(0);
+        for (Set<String> candidate : candidates) {
+            if (candidate.size() < smallest.size()) smallest = candidate;
+        }
+        ImmutableList.Builder<String> result = ImmutableList.builder();
+        for (String id : smallest) {
+            if (candidates.size() == 1 || entries.get(id).matches(query)) result.add(id);
+        }
+        return result.build();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private Entry newEntry(Entity entity, Set<Class<?>> types) {
+        Entity parent = entity.getParent();
+        return new Entry(entity, entity.getApplicationId(), types, ImmutableSet.copyOf(entity.tags().getTags()),
+                parent == null ? null : parent.getId());
+    }
+
+    private void put(String id, Entry entry) {
+        remove(id);
+        entries.put(id, entry);
+        if (entry.applicationId != null) byApplicationId.put(entry.applicationId, id);
+        for (Class<?> type : entry.types) {
+            byType.put(type, id);
+        }
+        for (Object tag : entry.tags) {
+            byTag.put(tag, id);
+        }
+        if (entry.parentId != null) byParentId.put(entry.parentId, id);
+    }
+
+    private Set<Class<?>> typesOf(Class<?> clazz) {
+        Set<Class<?>> result = typesByClass.get(clazz);
+        if (result == null) {
+            result = ImmutableSet.<Class<?>>copyOf(TypeToken.of(clazz).getTypes().rawTypes());
+            typesByClass.putIfAbsent(clazz, result);
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName()+"[size="+size()+"]";
+    }
+}
@@ -22,6 +22,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -35,6 +36,7 @@ import brooklyn.entity.basic.AbstractEntity;
 import brooklyn.entity.basic.Entities;
 import brooklyn.entity.basic.EntityInternal;
 import brooklyn.event.AttributeSensor;
+import brooklyn.management.EntityManager;
 import brooklyn.management.ExecutionContext;
 import brooklyn.management.ManagementContext;
 import brooklyn.management.SubscriptionContext;
@@ -96,6 +98,12 @@ public class EntityManagementSupport {
     protected final AtomicBoolean managementFailed = new AtomicBoolean(false);
     
     private volatile EntityChangeListener entityChangeListener = EntityChangeListener.NOOP;
+    private final EntityChangeListener versioningChangeListener = new VersioningEntityChangeListener();
+
+    /** the last epoch given to an instance; taken once per instance, so changes to different entities do not contend */
+    private static final AtomicLong lastChangeVersionEpoch = new AtomicLong();
+    private final long changeVersionEpoch = lastChangeVersionEpoch.incrementAndGet();
+    private final AtomicLong changeVersion = new AtomicLong();
 
     /**
      * Whether this entity is managed (i.e. "onManagementStarting" has been called, so the framework knows about it,
@@ -395,8 +403,114 @@ public class EntityManagementSupport {
         log.warn("Autodeployment not available for "+entity+"."+effectorName);
     }
     
+    /** the listener to tell of changes to the entity; this also updates the {@link #getChangeVersion()} */
     public EntityChangeListener getEntityChangeListener() {
-        return entityChangeListener;
+        return versioningChangeListener;
+    }
+
+    /**
+     * A version which increases whenever the entity is changed: its attributes, config, children, members,
+     * locations, tags, adjuncts or name (anything reported to the {@link #getEntityChangeListener()}).
+     * The version is counted per instance, starting from 0, and is not persisted; 
+     * use it with {@link #getChangeVersionEpoch()} to distinguish instances.
+     */
+    @Beta
+    public long getChangeVersion() {
+        return changeVersion.get();
+    }
+
+    /**
+     * Identifies this instance of the entity for {@link #getChangeVersion()}: unique within this JVM, 
+     * so no other entity (or other instance of this entity, e.g. after rebind) has the same epoch.
+     */
+    @Beta
+    public long getChangeVersionEpoch() {
+        return changeVersionEpoch;
+    }
+
+    private void onChanged() {
+        changeVersion.incrementAndGet();
+    }
+
+    private class VersioningEntityChangeListener implements EntityChangeListener {
+        @Override
+        public void onChanged() {
+            EntityManagementSupport.this.onChanged();
+            entityChangeListener.onChanged();
+        }
+        @Override
+        public void onChildrenChanged() {
+            EntityManagementSupport.this.onChanged();
+            entityChangeListener.onChildrenChanged();
+        }
+        @Override
+        public void onParentChanged() {
+            EntityManagementSupport.this.onChanged();
+            entityChangeListener.onParentChanged();
+        }
+        @Override
+        public void onLocationsChanged() {
+            EntityManagementSupport.this.onChanged();
+            entityChangeListener.onLocationsChanged();
+        }
+        @Override
+        public void onTagsChanged() {
+            EntityManagementSupport.this.onChanged();
+            entityChangeListener.onTagsChanged();
+        }
+        @Override
+        public void onMembersChanged() {
+            EntityManagementSupport.this.onChanged();
+            entityChangeListener.onMembersChanged();
+        }
+        @Override
+        public void onPolicyAdded(Policy policy) {
+            EntityManagementSupport.this.onChanged();
+            entityChangeListener.onPolicyAdded(policy);
+        }
+        @Override
+        public void onEnricherAdded(Enricher enricher) {
+            EntityManagementSupport.this.onChanged();
+            entityChangeListener.onEnricherAdded(enricher);
+        }
+        @Override
+        public void onFeedAdded(Feed feed) {
+            EntityManagementSupport.this.onChanged();
+            entityChangeListener.onFeedAdded(feed);
+        }
+        @Override
+        public void onPolicyRemoved(Policy policy) {
+            EntityManagementSupport.this.onChanged();
+            entityChangeListener.onPolicyRemoved(policy);
+        }
+        @Override
+        public void onEnricherRemoved(Enricher enricher) {
+            EntityManagementSupport.this.onChanged();
+            entityChangeListener.onEnricherRemoved(enricher);
+        }
+        @Override
+        public void onFeedRemoved(Feed feed) {
+            EntityManagementSupport.this.onChanged();
+            entityChangeListener.onFeedRemoved(feed);
+        }
+        @Override
+        public void onAttributeChanged(AttributeSensor<?> attribute) {
+            EntityManagementSupport.this.onChanged();
+            entityChangeListener.onAttributeChanged(attribute);
+        }
+        @Override
+        public void onConfigChanged(ConfigKey<?> key) {
+            EntityManagementSupport.this.onChanged();
+            entityChangeListener.onConfigChanged(key);
+        }
+        @Override
+        public void onEffectorStarting(Effector<?> effector, Object parameters) {
+            entityChangeListener.onEffectorStarting(effector, parameters);
+        }
+        @Override
+        public void onEffectorCompleted(Effector<?> effector) {
+            entityChangeListener.onEffectorCompleted(effector);
+        }
     }
     
     private class EntityChangeListenerImpl implements EntityChangeListener {
@@ -409,12 +523,19 @@ public class EntityManagementSupport {
             getManagementContext().getRebindManager().getChangeListener().onChanged(entity);
         }
         @Override
+        public void onParentChanged() {
+            EntityManager entityManager = getManagementContext().getEntityManager();
+            if (entityManager instanceof LocalEntityManager) ((LocalEntityManager)entityManager).onParentChanged(entity);
+        }
+        @Override
         public void onLocationsChanged() {
             getManagementContext().getRebindManager().getChangeListener().onChanged(entity);
         }
         @Override
         public void onTagsChanged() {
             getManagementContext().getRebindManager().getChangeListener().onChanged(entity);
+            EntityManager entityManager = getManagementContext().getEntityManager();
+            if (entityManager instanceof LocalEntityManager) ((LocalEntityManager)entityManager).onTagsChanged(entity);
         }
         @Override
         public void onMembersChanged() {
@@ -54,6 +54,7 @@ import brooklyn.entity.proxying.InternalPolicyFactory;
 import brooklyn.entity.trait.Startable;
 import brooklyn.internal.storage.BrooklynStorage;
 import brooklyn.management.AccessController;
+import brooklyn.management.EntityQuery;
 import brooklyn.management.Task;
 import brooklyn.policy.Enricher;
 import brooklyn.policy.EnricherSpec;
@@ -70,7 +71,6 @@ import com.google.common.annotations.Beta;
 import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
-import com.google.common.base.Predicates;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
@@ -108,6 +108,9 @@ public class LocalEntityManager implements EntityManagerInternal {
     /** Proxies of the managed entities that are applications */
     protected final Set<Application> applications = Sets.newConcurrentHashSet();
 
+    /** indexes of the managed entities, for {@link #findEntities(EntityQuery)} */
+    protected final EntityIndexes indexes = new EntityIndexes();
+
     private final BrooklynStorage storage;
     private final Map<String,String> entityTypes;
     private final Set<String> applicationIds;
@@ -189,8 +192,7 @@ public class LocalEntityManager implements EntityManagerInternal {
     
     @Override
     public Collection<Entity> getEntitiesInApplication(Application application) {
-        Predicate<Entity> predicate = EntityPredicates.applicationIdEqualTo(application.getId());
-        return ImmutableList.copyOf(Iterables.filter(entityProxiesById.values(), predicate));
+        return findEntities(EntityQuery.create().inApplication(application));
     }
 
     @Override
@@ -200,8 +202,23 @@ public class LocalEntityManager implements EntityManagerInternal {
     
     @Override
     public Collection<Entity> findEntitiesInApplication(Application application, Predicate<? super Entity> filter) {
-        Predicate<Entity> predicate = Predicates.and(EntityPredicates.applicationIdEqualTo(application.getId()), filter);
-        return ImmutableList.copyOf(Iterables.filter(entityProxiesById.values(), predicate));
+        return findEntities(EntityQuery.create().inApplication(application).filter(filter));
+    }
+
+    @Override
+    public Collection<Entity> findEntities(EntityQuery query) {
+        List<String> ids = indexes.find(query);
+        if (ids == null) {
+            Predicate<? super Entity> filter = query.getFilter();
+            return (filter == null) ? getEntities() : findEntities(filter);
+        }
+        ImmutableList.Builder<Entity> result = ImmutableList.builder();
+        for (String id : ids) {
+            Entity entity = entityProxiesById.get(id);
+            // may have been unmanaged since the lookup
+            if (entity != null && (query.getFilter() == null || query.getFilter().apply(entity))) result.add(entity);
+        }
+        return result.build();
     }
 
     @Override
@@ -469,6 +486,7 @@ public class LocalEntityManager implements EntityManagerInternal {
         entityProxiesById.remove(e.getId());
         entitiesById.remove(e.getId());
         entityModesById.remove(e.getId());
+        indexes.remove(e.getId());
     }
     
     private void stopTasks(Entity entity) {
@@ -660,6 +678,7 @@ public class LocalEntityManager implements EntityManagerInternal {
         entityProxiesById.put(e.getId(), proxyE);
         entityTypes.put(e.getId(), realE.getClass().getName());
         entitiesById.put(e.getId(), realE);
+        indexes.index(realE, proxyE);
 
         preManagedEntitiesById.remove(e.getId());
         if ((e instanceof Application) && (e.getParent()==null)) {
@@ -726,6 +745,7 @@ public class LocalEntityManager implements EntityManagerInternal {
             entityProxiesById.remove(e.getId());
             entityModesById.remove(e.getId());
             Object old = entitiesById.remove(e.getId());
+            indexes.remove(e.getId());
 
             entityTypes.remove(e.getId());
             if (old==null) {
@@ -742,6 +762,16 @@ public class LocalEntityManager implements EntityManagerInternal {
         }
     }
 
+    /** re-indexes the entity on a change to its tags */
+    void onTagsChanged(Entity e) {
+        indexes.reindex(e);
+    }
+
+    /** re-indexes the entity on a change to its parent */
+    void onParentChanged(Entity e) {
+        indexes.reindex(e);
+    }
+
     void addEntitySetListener(CollectionChangeListener<Entity> listener) {
         //must notify listener in a different thread to avoid deadlock (issue #378)
         AsyncCollectionChangeAdapter<Entity> wrappedListener = new AsyncCollectionChangeAdapter<Entity>(managementContext.getExecutionManager(), listener);
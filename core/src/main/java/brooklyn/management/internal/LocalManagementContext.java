@@ -308,7 +308,9 @@ public class LocalManagementContext extends AbstractManagementContext {
         if (!isRunning()) throw new IllegalStateException("Management context no longer running");
 
         if (execution == null) {
-            execution = new BasicExecutionManager(getManagementNodeId());
+            execution = new BasicExecutionManager(getManagementNodeId(), 
+                    configMap.getConfig(BasicExecutionManager.THREAD_POOL_MODE), 
+                    configMap.getConfig(BasicExecutionManager.THREAD_POOL_MAX_SIZE));
             gc = new BrooklynGarbageCollector(configMap, execution, getStorage());
         }
         return execution;
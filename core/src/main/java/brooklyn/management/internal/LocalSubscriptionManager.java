@@ -19,19 +19,20 @@
 package brooklyn.management.internal;
 
 import static brooklyn.util.JavaGroovyEquivalents.elvis;
-import static brooklyn.util.JavaGroovyEquivalents.groovyTruth;
 import static brooklyn.util.JavaGroovyEquivalents.join;
 import static brooklyn.util.JavaGroovyEquivalents.mapOf;
 
-import java.util.Collection;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -44,14 +45,15 @@ import brooklyn.event.SensorEventListener;
 import brooklyn.management.ExecutionManager;
 import brooklyn.management.SubscriptionHandle;
 import brooklyn.management.SubscriptionManager;
+import brooklyn.util.flags.TypeCoercions;
 import brooklyn.util.task.BasicExecutionManager;
 import brooklyn.util.task.SingleThreadedScheduler;
 import brooklyn.util.text.Identifiers;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Objects;
 import com.google.common.base.Predicate;
-import com.google.common.collect.ArrayListMultimap;
-import com.google.common.collect.HashMultimap;
-import com.google.common.collect.Multimaps;
+import com.google.common.util.concurrent.Striped;
 
 /**
  * A {@link SubscriptionManager} that stores subscription details locally.
@@ -66,14 +68,29 @@ public class LocalSubscriptionManager extends AbstractSubscriptionManager {
 
     private final AtomicLong totalEventsPublishedCount = new AtomicLong();
     private final AtomicLong totalEventsDeliveredCount = new AtomicLong();
+    private final AtomicLong totalEventsCoalescedCount = new AtomicLong();
+    private final AtomicLong queuedEventsCount = new AtomicLong();
     
     @SuppressWarnings("rawtypes")
     protected final ConcurrentMap<String, Subscription> allSubscriptions = new ConcurrentHashMap<String, Subscription>();
     @SuppressWarnings("rawtypes")
     protected final ConcurrentMap<Object, Set<Subscription>> subscriptionsBySubscriber = new ConcurrentHashMap<Object, Set<Subscription>>();
+    /** 
+     * Index of subscriptions keyed by {@link EntitySensorToken}, including the wildcard tokens where
+     * the producer and/or sensor is null; looked up (without locking) on every publish. 
+     */
     @SuppressWarnings("rawtypes")
     protected final ConcurrentMap<Object, Set<Subscription>> subscriptionsByToken = new ConcurrentHashMap<Object, Set<Subscription>>();
     
+    /** Queues for subscriptions with batched delivery, keyed by subscriber execution manager tag */
+    private final ConcurrentMap<Object, BatchedDeliveryQueue> batchedDeliveryQueues = new ConcurrentHashMap<Object, BatchedDeliveryQueue>();
+    /** Index of subscriptions with batched delivery, by the key of the queue they share */
+    @SuppressWarnings("rawtypes")
+    private final ConcurrentMap<Object, Set<Subscription>> batchedSubscriptionsByQueueKey = new ConcurrentHashMap<Object, Set<Subscription>>();
+    
+    /** Guards modifications to the sets in the indexes above, striped by key (readers do not lock) */
+    private final Striped<Lock> writeLocks = Striped.lock(64);
+    
     public LocalSubscriptionManager(ExecutionManager m) {
         this.em = m;
     }
@@ -90,8 +107,23 @@ public class LocalSubscriptionManager extends AbstractSubscriptionManager {
         return totalEventsDeliveredCount.get();
     }
     
+    /** Number of events discarded because a later event replaced them before delivery, for coalescing subscriptions */
+    public long getTotalEventsCoalesced() {
+        return totalEventsCoalescedCount.get();
+    }
+    
+    /** Number of events currently awaiting delivery, for subscriptions with batched delivery */
+    public long getNumEventsQueued() {
+        return queuedEventsCount.get();
+    }
+    
+    @VisibleForTesting
+    int getNumBatchedDeliveryQueues() {
+        return batchedDeliveryQueues.size();
+    }
+    
     @SuppressWarnings("unchecked")
-    protected synchronized <T> SubscriptionHandle subscribe(Map<String, Object> flags, Subscription<T> s) {
+    protected <T> SubscriptionHandle subscribe(Map<String, Object> flags, Subscription<T> s) {
         Entity producer = s.producer;
         Sensor<T> sensor= s.sensor;
         s.subscriber = getSubscriber(flags, s);
@@ -106,13 +138,18 @@ public class LocalSubscriptionManager extends AbstractSubscriptionManager {
             s.subscriberExecutionManagerTagSupplied = false;
         }
         s.eventFilter = (Predicate<SensorEvent<T>>) flags.remove("eventFilter");
+        s.coalesce = Boolean.TRUE.equals(TypeCoercions.coerce(flags.remove("coalesce"), Boolean.class));
+        s.batchDelivery = s.coalesce || Boolean.TRUE.equals(TypeCoercions.coerce(flags.remove("batchDelivery"), Boolean.class));
         s.flags = flags;
         
         if (LOG.isDebugEnabled()) LOG.debug("Creating subscription {} for {} on {} {} in {}", new Object[] {s.id, s.subscriber, producer, sensor, this});
         allSubscriptions.put(s.id, s);
-        addToMapOfSets(subscriptionsByToken, makeEntitySensorToken(s.producer, s.sensor), s);
+        addToIndex(subscriptionsByToken, makeEntitySensorToken(s.producer, s.sensor), s);
         if (s.subscriber!=null) {
-            addToMapOfSets(subscriptionsBySubscriber, s.subscriber, s);
+            addToIndex(subscriptionsBySubscriber, s.subscriber, s);
+        }
+        if (s.batchDelivery) {
+            addToIndex(batchedSubscriptionsByQueueKey, getBatchedDeliveryQueueKey(s), s);
         }
         if (!s.subscriberExecutionManagerTagSupplied && s.subscriberExecutionManagerTag!=null) {
             ((BasicExecutionManager) em).setTaskSchedulerForTag(s.subscriberExecutionManagerTag, SingleThreadedScheduler.class);
@@ -125,31 +162,65 @@ public class LocalSubscriptionManager extends AbstractSubscriptionManager {
         return (Set<SubscriptionHandle>) ((Set<?>) elvis(subscriptionsBySubscriber.get(subscriber), Collections.emptySet()));
     }
 
-    public synchronized Set<SubscriptionHandle> getSubscriptionsForEntitySensor(Entity source, Sensor<?> sensor) {
+    public Set<SubscriptionHandle> getSubscriptionsForEntitySensor(Entity source, Sensor<?> sensor) {
         Set<SubscriptionHandle> subscriptions = new LinkedHashSet<SubscriptionHandle>();
-        subscriptions.addAll(elvis(subscriptionsByToken.get(makeEntitySensorToken(source, sensor)), Collections.emptySet()));
-        subscriptions.addAll(elvis(subscriptionsByToken.get(makeEntitySensorToken(null, sensor)), Collections.emptySet()));
-        subscriptions.addAll(elvis(subscriptionsByToken.get(makeEntitySensorToken(source, null)), Collections.emptySet()));
-        subscriptions.addAll(elvis(subscriptionsByToken.get(makeEntitySensorToken(null, null)), Collections.emptySet()));
+        for (Set<Subscription> subs : getSubscriptionBuckets(source, sensor)) {
+            subscriptions.addAll(subs);
+        }
         return subscriptions;
     }
 
+    /**
+     * Returns the (live, concurrent) sets of subscriptions which match the given producer and sensor:
+     * the exact match, and the wildcard matches on producer and/or sensor.
+     * A subscription is in exactly one bucket, so the sets returned are disjoint.
+     */
+    @SuppressWarnings("rawtypes")
+    private List<Set<Subscription>> getSubscriptionBuckets(Entity source, Sensor<?> sensor) {
+        List<Set<Subscription>> result = new ArrayList<Set<Subscription>>(4);
+        addIfNotNull(result, subscriptionsByToken.get(makeEntitySensorToken(source, sensor)));
+        if (sensor!=null) addIfNotNull(result, subscriptionsByToken.get(makeEntitySensorToken(source, null)));
+        if (source!=null) addIfNotNull(result, subscriptionsByToken.get(makeEntitySensorToken(null, sensor)));
+        if (source!=null && sensor!=null) addIfNotNull(result, subscriptionsByToken.get(makeEntitySensorToken(null, null)));
+        return result;
+    }
+    
+    private static <T> void addIfNotNull(List<T> list, T item) {
+        if (item!=null) list.add(item);
+    }
+
     /**
      * Unsubscribe the given subscription id.
      *
      * @see #subscribe(Map, Entity, Sensor, SensorEventListener)
      */
     @SuppressWarnings("rawtypes")
-    public synchronized boolean unsubscribe(SubscriptionHandle sh) {
+    public boolean unsubscribe(SubscriptionHandle sh) {
         if (!(sh instanceof Subscription)) throw new IllegalArgumentException("Only subscription handles of type Subscription supported: sh="+sh+"; type="+(sh != null ? sh.getClass().getCanonicalName() : null));
         Subscription s = (Subscription) sh;
         boolean result = allSubscriptions.remove(s.id) != null;
-        boolean b2 = removeFromMapOfCollections(subscriptionsByToken, makeEntitySensorToken(s.producer, s.sensor), s);
+        boolean b2 = removeFromIndex(subscriptionsByToken, makeEntitySensorToken(s.producer, s.sensor), s);
         assert result==b2;
         if (s.subscriber!=null) {
-            boolean b3 = removeFromMapOfCollections(subscriptionsBySubscriber, s.subscriber, s);
+            boolean b3 = removeFromIndex(subscriptionsBySubscriber, s.subscriber, s);
             assert b3 == b2;
         }
+        if (s.batchDelivery) {
+            // locked against getBatchedDeliveryQueue, so a concurrent publish cannot recreate the queue after it is removed
+            Object key = getBatchedDeliveryQueueKey(s);
+            Lock lock = writeLocks.get(key);
+            lock.lock();
+            try {
+                // the queue is shared by all subscriptions with the same tag, which may be from other subscribers
+                removeFromIndex(batchedSubscriptionsByQueueKey, key, s);
+                if (!batchedSubscriptionsByQueueKey.containsKey(key)) {
+                    // any events still pending will be delivered by the drain task, which holds a reference to the queue
+                    batchedDeliveryQueues.remove(key);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
 
         // FIXME ALEX - this seems wrong
         ((BasicExecutionManager) em).setTaskSchedulerForTag(s.subscriberExecutionManagerTag, SingleThreadedScheduler.class);
@@ -173,12 +244,17 @@ public class LocalSubscriptionManager extends AbstractSubscriptionManager {
         if (LOG.isTraceEnabled()) LOG.trace("{} got event {}", this, event);
         totalEventsPublishedCount.incrementAndGet();
         
-        Set<Subscription> subs = (Set<Subscription>) ((Set<?>) getSubscriptionsForEntitySensor(event.getSource(), event.getSensor()));
-        if (groovyTruth(subs)) {
+        // lock-free lookup: the buckets are concurrent sets, so concurrent subscribe/unsubscribe does not block us
+        for (Set<Subscription> subs : getSubscriptionBuckets(event.getSource(), event.getSensor())) {
             if (LOG.isTraceEnabled()) LOG.trace("sending {}, {} to {}", new Object[] {event.getSensor().getName(), event, join(subs, ",")});
             for (Subscription s : subs) {
                 if (s.eventFilter!=null && !s.eventFilter.apply(event))
                     continue;
+                if (s.batchDelivery) {
+                    BatchedDeliveryQueue queue = getBatchedDeliveryQueue(s);
+                    if (queue!=null) queue.enqueue(s, event);
+                    continue;
+                }
                 final Subscription sAtClosureCreation = s;
                 
 //                Set<Object> tags = MutableSet.of();
@@ -196,97 +272,199 @@ public class LocalSubscriptionManager extends AbstractSubscriptionManager {
                         return "LSM.publish("+event+")";
                     }
                     public void run() {
-                        try {
-                            sAtClosureCreation.listener.onEvent(event);
-                        } catch (Throwable t) {
-                            if (event!=null && event.getSource()!=null && Entities.isNoLongerManaged(event.getSource())) {
-                                LOG.debug("Error in "+this+", after entity unmanaged: "+t, t);
-                            } else {
-                                LOG.warn("Error in "+this+": "+t, t);
-                            }
-                        }
+                        deliver(sAtClosureCreation, event, this);
                     }});
                 totalEventsDeliveredCount.incrementAndGet();
             }
         }
     }
     
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private void deliver(Subscription s, SensorEvent event, Object context) {
+        try {
+            s.listener.onEvent(event);
+        } catch (Throwable t) {
+            if (event!=null && event.getSource()!=null && Entities.isNoLongerManaged(event.getSource())) {
+                LOG.debug("Error in "+context+", after entity unmanaged: "+t, t);
+            } else {
+                LOG.warn("Error in "+context+": "+t, t);
+            }
+        }
+    }
+    
+    /** returns the queue for the given subscription, creating it if needed; or null if the subscription has been cancelled */
+    @SuppressWarnings("rawtypes")
+    private BatchedDeliveryQueue getBatchedDeliveryQueue(Subscription s) {
+        Object key = getBatchedDeliveryQueueKey(s);
+        BatchedDeliveryQueue result = batchedDeliveryQueues.get(key);
+        if (result!=null) return result;
+        
+        Lock lock = writeLocks.get(key);
+        lock.lock();
+        try {
+            // unsubscribe removes the subscription before removing the queue under this lock
+            if (!allSubscriptions.containsKey(s.id)) return null;
+            result = batchedDeliveryQueues.get(key);
+            if (result==null) {
+                result = new BatchedDeliveryQueue(s.subscriberExecutionManagerTag);
+                batchedDeliveryQueues.put(key, result);
+            }
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    @SuppressWarnings("rawtypes")
+    private Object getBatchedDeliveryQueueKey(Subscription s) {
+        return s.subscriberExecutionManagerTag!=null ? s.subscriberExecutionManagerTag : s;
+    }
+    
+    /**
+     * Pending events for subscriptions which have requested batch delivery, for a single subscriber 
+     * (more precisely, for a single subscriber execution manager tag).
+     * <p>
+     * At most one task is outstanding per queue; it drains all pending events each time it runs, 
+     * delivering them in the order published, until the queue is empty.
+     * For subscriptions which request coalescing, an event which has not yet been delivered is replaced
+     * by a later event from the same producer and sensor.
+     */
+    private class BatchedDeliveryQueue {
+        private final Object tag;
+        /** keyed by {@link CoalescingKey} for coalescing subscriptions, otherwise by a unique object */
+        private final Map<Object, PendingDelivery> pending = new LinkedHashMap<Object, PendingDelivery>();
+        private boolean drainScheduled = false;
+        
+        BatchedDeliveryQueue(Object tag) {
+            this.tag = tag;
+        }
+        
+        @SuppressWarnings("rawtypes")
+        void enqueue(Subscription s, SensorEvent event) {
+            boolean scheduleDrain;
+            synchronized (this) {
+                Object key = s.coalesce ? new CoalescingKey(s, event) : new Object();
+                if (pending.put(key, new PendingDelivery(s, event))!=null) {
+                    totalEventsCoalescedCount.incrementAndGet();
+                } else {
+                    queuedEventsCount.incrementAndGet();
+                }
+                scheduleDrain = !drainScheduled;
+                drainScheduled = true;
+            }
+            if (scheduleDrain) {
+                try {
+                    em.submit(mapOf("tag", tag), new Runnable() {
+                        @Override
+                        public String toString() {
+                            return "LSM.publishBatch("+tag+")";
+                        }
+                        public void run() {
+                            drain(this);
+                        }});
+                } catch (RuntimeException e) {
+                    // events stay pending; let the next enqueue try again rather than never draining this queue
+                    synchronized (this) {
+                        drainScheduled = false;
+                    }
+                    throw e;
+                }
+            }
+        }
+        
+        void drain(Object context) {
+            while (true) {
+                List<PendingDelivery> batch;
+                synchronized (this) {
+                    if (pending.isEmpty()) {
+                        drainScheduled = false;
+                        return;
+                    }
+                    batch = new ArrayList<PendingDelivery>(pending.values());
+                    pending.clear();
+                    queuedEventsCount.addAndGet(-batch.size());
+                }
+                for (PendingDelivery delivery : batch) {
+                    deliver(delivery.subscription, delivery.event, context);
+                    totalEventsDeliveredCount.incrementAndGet();
+                }
+            }
+        }
+    }
+    
+    @SuppressWarnings("rawtypes")
+    private static class PendingDelivery {
+        final Subscription subscription;
+        final SensorEvent event;
+        
+        PendingDelivery(Subscription subscription, SensorEvent event) {
+            this.subscription = subscription;
+            this.event = event;
+        }
+    }
+    
+    private static class CoalescingKey {
+        private final String subscriptionId;
+        private final Object token;
+        
+        @SuppressWarnings("rawtypes")
+        CoalescingKey(Subscription s, SensorEvent event) {
+            this.subscriptionId = s.id;
+            this.token = makeEntitySensorToken(event);
+        }
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(subscriptionId, token);
+        }
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof CoalescingKey)) return false;
+            return subscriptionId.equals(((CoalescingKey)obj).subscriptionId) && token.equals(((CoalescingKey)obj).token);
+        }
+    }
+    
     @Override
     public String toString() {
         return tostring;
     }
     
     /**
-     * Copied from LanguageUtils.groovy, to remove dependency.
-     * 
-     * Adds the given value to a collection in the map under the key.
-     * 
-     * A collection (as {@link LinkedHashMap}) will be created if necessary,
-     * synchronized on map for map access/change and set for addition there
-     *
-     * @return the updated set (instance, not copy)
-     * 
-     * @deprecated since 0.5; use {@link HashMultimap}, and {@link Multimaps#synchronizedSetMultimap(com.google.common.collect.SetMultimap)}
+     * Adds the given value to the set in the map under the key, creating the set if necessary.
+     * <p>
+     * Sets are concurrent so that readers (in particular {@link #publish(SensorEvent)}) can iterate 
+     * without locking; writers for a given key are serialized by {@link #writeLocks}, which ensures
+     * a set is never removed from the map while another thread is adding to it.
      */
-    @Deprecated
-    private static <K,V> Set<V> addToMapOfSets(Map<K,Set<V>> map, K key, V valueInCollection) {
-        Set<V> coll;
-        synchronized (map) {
-            coll = map.get(key);
+    private <K,V> void addToIndex(ConcurrentMap<K,Set<V>> map, K key, V value) {
+        Lock lock = writeLocks.get(key);
+        lock.lock();
+        try {
+            Set<V> coll = map.get(key);
             if (coll==null) {
-                coll = new LinkedHashSet<V>();
+                coll = Collections.newSetFromMap(new ConcurrentHashMap<V,Boolean>());
                 map.put(key, coll);
             }
-            if (coll.isEmpty()) {
-                synchronized (coll) {
-                    coll.add(valueInCollection);
-                }
-                //if collection was empty then add to the collection while holding the map lock, to prevent removal
-                return coll;
-            }
+            coll.add(value);
+        } finally {
+            lock.unlock();
         }
-        synchronized (coll) {
-            if (!coll.isEmpty()) {
-                coll.add(valueInCollection);
-                return coll;
-            }
-        }
-        //if was empty, recurse, because someone else might be removing the collection
-        return addToMapOfSets(map, key, valueInCollection);
     }
 
     /**
-     * Copied from LanguageUtils.groovy, to remove dependency.
-     * 
-     * Removes the given value from a collection in the map under the key.
-     *
-     * @return the updated set (instance, not copy)
-     * 
-     * @deprecated since 0.5; use {@link ArrayListMultimap} or {@link HashMultimap}, and {@link Multimaps#synchronizedListMultimap(com.google.common.collect.ListMultimap)} etc
+     * Removes the given value from the set in the map under the key, 
+     * removing the set from the map if it is then empty.
      */
-    @Deprecated
-    private static <K,V> boolean removeFromMapOfCollections(Map<K,? extends Collection<V>> map, K key, V valueInCollection) {
-        Collection<V> coll;
-        synchronized (map) {
-            coll = map.get(key);
+    private <K,V> boolean removeFromIndex(ConcurrentMap<K,Set<V>> map, K key, V value) {
+        Lock lock = writeLocks.get(key);
+        lock.lock();
+        try {
+            Set<V> coll = map.get(key);
             if (coll==null) return false;
+            boolean result = coll.remove(value);
+            if (coll.isEmpty()) map.remove(key, coll);
+            return result;
+        } finally {
+            lock.unlock();
         }
-        boolean result;
-        synchronized (coll) {
-            result = coll.remove(valueInCollection);
-        }
-        if (coll.isEmpty()) {
-            synchronized (map) {
-                synchronized (coll) {
-                    if (coll.isEmpty()) {
-                        //only remove from the map if no one is adding to the collection or to the map, and the collection is still in the map
-                        if (map.get(key)==coll) {
-                            map.remove(key);
-                        }
-                    }
-                }
-            }
-        }
-        return result;
     }
 }
@@ -38,8 +38,12 @@ import brooklyn.management.ManagementContext;
 import brooklyn.management.Task;
 import brooklyn.management.ha.OsgiManager;
 import brooklyn.util.guava.Maybe;
+import brooklyn.util.http.HttpClientManager;
+import brooklyn.util.internal.ssh.SshConnectionManager;
 import brooklyn.util.task.TaskTags;
 
+import com.google.common.annotations.Beta;
+
 public interface ManagementContextInternal extends ManagementContext {
 
     public static final String SUB_TASK_TAG = TaskTags.SUB_TASK_TAG;
@@ -89,6 +93,18 @@ public interface ManagementContextInternal extends ManagementContext {
     InternalLocationFactory getLocationFactory();
     
     InternalPolicyFactory getPolicyFactory();
+
+    /**
+     * The ssh connections shared by all locations in this management context.
+     */
+    @Beta
+    SshConnectionManager getSshConnectionManager();
+    
+    /**
+     * The http client shared by all http feeds in this management context.
+     */
+    @Beta
+    HttpClientManager getHttpClientManager();
     
     /**
      * Registers an entity that has been created, but that has not yet begun to be managed.
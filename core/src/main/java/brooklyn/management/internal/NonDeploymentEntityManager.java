@@ -26,6 +26,7 @@ import brooklyn.entity.Application;
 import brooklyn.entity.Entity;
 import brooklyn.entity.proxying.EntitySpec;
 import brooklyn.entity.proxying.EntityTypeRegistry;
+import brooklyn.management.EntityQuery;
 import brooklyn.management.ManagementContext;
 import brooklyn.policy.Enricher;
 import brooklyn.policy.EnricherSpec;
@@ -119,6 +120,15 @@ public class NonDeploymentEntityManager implements EntityManagerInternal {
         }
     }
 
+    @Override
+    public Collection<Entity> findEntities(EntityQuery query) {
+        if (isInitialManagementContextReal()) {
+            return initialManagementContext.getEntityManager().findEntities(query);
+        } else {
+            return Collections.emptyList();
+        }
+    }
+
     @Override
     public Entity getEntity(String id) {
         if (isInitialManagementContextReal()) {
@@ -71,6 +71,8 @@ import brooklyn.management.ha.OsgiManager;
 import brooklyn.mementos.BrooklynMementoPersister;
 import brooklyn.mementos.BrooklynMementoRawData;
 import brooklyn.util.guava.Maybe;
+import brooklyn.util.http.HttpClientManager;
+import brooklyn.util.internal.ssh.SshConnectionManager;
 import brooklyn.util.time.Duration;
 
 import com.google.common.base.Objects;
@@ -276,6 +278,24 @@ public class NonDeploymentManagementContext implements ManagementContextInternal
         checkInitialManagementContextReal();
         return initialManagementContext.getStorage();
     }
+
+    @Override
+    public SshConnectionManager getSshConnectionManager() {
+        if (isInitialManagementContextReal()) {
+            return initialManagementContext.getSshConnectionManager();
+        } else {
+            return SshConnectionManager.getUnmanagedInstance();
+        }
+    }
+
+    @Override
+    public HttpClientManager getHttpClientManager() {
+        if (isInitialManagementContextReal()) {
+            return initialManagementContext.getHttpClientManager();
+        } else {
+            return HttpClientManager.getUnmanagedInstance();
+        }
+    }
     
     @Override
     public RebindManager getRebindManager() {
@@ -41,6 +41,10 @@ class Subscription<T> implements SubscriptionHandle {
     public final SensorEventListener<? super T> listener;
     public Map<String,Object> flags;
     public Predicate<SensorEvent<T>> eventFilter;
+    /** whether events are queued and delivered in batches by a single task per subscriber */
+    public boolean batchDelivery;
+    /** whether a queued event is replaced by a later event from the same producer and sensor (implies batchDelivery) */
+    public boolean coalesce;
 
     public Subscription(Entity producer, Sensor<T> sensor, SensorEventListener<? super T> listener) {
         this.producer = producer;
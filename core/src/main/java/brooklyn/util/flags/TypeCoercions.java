@@ -69,7 +69,10 @@ import com.google.common.base.Function;
 import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.ImmutableCollection;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
@@ -91,6 +94,35 @@ public class TypeCoercions {
     @GuardedBy("TypeCoercions.class")
     private static Table<Class, Class, Function> registry = HashBasedTable.create();
 
+    /** incremented on each change to the {@link #registry}, so that {@link CoercionPlan}s found before then are discarded */
+    private static volatile int registryVersion = 0;
+
+    /** Coercion plans, keyed by target type then value type; weak keys so as not to prevent classes being unloaded. */
+    private static final Cache<Class<?>, Cache<Class<?>, CoercionPlan>> coercionPlans = CacheBuilder.newBuilder()
+            .weakKeys().softValues().build();
+
+    /**
+     * The results of the reflective and registry lookups for coercing a value of one type to another,
+     * cached as they are expensive and are done for every config and attribute read which needs coercion.
+     * Null fields mean that no such method or adapter exists.
+     */
+    private static class CoercionPlan {
+        final int registryVersion;
+        /** {@code value.asTargetType()} */
+        final Method asMethod;
+        /** {@code TargetType.fromValueType(value)} */
+        final Method fromMethod;
+        /** adapter from the {@link TypeCoercions#registry} */
+        final Function adapter;
+
+        CoercionPlan(int registryVersion, Method asMethod, Method fromMethod, Function adapter) {
+            this.registryVersion = registryVersion;
+            this.asMethod = asMethod;
+            this.fromMethod = fromMethod;
+            this.adapter = adapter;
+        }
+    }
+
     /**
      * Attempts to coerce {@code value} to {@code targetType}.
      * <p>
@@ -131,28 +163,32 @@ public class TypeCoercions {
                 if (arguments.length != 1) {
                     throw new IllegalStateException("Unexpected number of parameters in collection type: " + arguments);
                 }
-                Collection coerced = Lists.newLinkedList();
                 TypeToken<?> listEntryType = TypeToken.of(arguments[0]);
+                // returned as-is only if an immutable type was asked for, as callers asking for e.g. a List may modify the copy
+                if (ImmutableCollection.class.isAssignableFrom(targetType) && targetType.isInstance(value) && allInstances((Iterable<?>) value, listEntryType)) {
+                    return (T) value;
+                }
+                Collection coerced = Set.class.isAssignableFrom(targetType) ? Sets.newLinkedHashSet() : Lists.newArrayList();
                 for (Object entry : (Iterable<?>) value) {
                     coerced.add(coerce(entry, listEntryType));
                 }
-                if (Set.class.isAssignableFrom(targetType)) {
-                    return (T) Sets.newLinkedHashSet(coerced);
-                } else {
-                    return (T) Lists.newArrayList(coerced);
-                }
+                return (T) coerced;
             } else if (value instanceof Map && Map.class.isAssignableFrom(targetType)) {
                 Type[] arguments = ((ParameterizedType) targetTypeToken.getType()).getActualTypeArguments();
                 if (arguments.length != 2) {
                     throw new IllegalStateException("Unexpected number of parameters in map type: " + arguments);
                 }
-                Map coerced = Maps.newLinkedHashMap();
                 TypeToken<?> mapKeyType = TypeToken.of(arguments[0]);
                 TypeToken<?> mapValueType = TypeToken.of(arguments[1]);
+                if (ImmutableMap.class.isAssignableFrom(targetType) && targetType.isInstance(value) && 
+                        allInstances(((Map<?,?>) value).keySet(), mapKeyType) && allInstances(((Map<?,?>) value).values(), mapValueType)) {
+                    return (T) value;
+                }
+                Map coerced = Maps.newLinkedHashMap();
                 for (Map.Entry entry : ((Map<?,?>) value).entrySet()) {
                     coerced.put(coerce(entry.getKey(), mapKeyType),  coerce(entry.getValue(), mapValueType));
                 }
-                return (T) Maps.newLinkedHashMap(coerced);
+                return (T) coerced;
             }
         }
 
@@ -178,35 +214,23 @@ public class TypeCoercions {
             return (T) value.toString();
         }
 
+        CoercionPlan plan = getCoercionPlan(value.getClass(), targetType);
+
         //look for value.asType where Type is castable to targetType
-        String targetTypeSimpleName = getVerySimpleName(targetType);
-        if (targetTypeSimpleName!=null && targetTypeSimpleName.length()>0) {
-            for (Method m: value.getClass().getMethods()) {
-                if (m.getName().startsWith("as") && m.getParameterTypes().length==0 &&
-                        targetType.isAssignableFrom(m.getReturnType()) ) {
-                    if (m.getName().equals("as"+getVerySimpleName(m.getReturnType()))) {
-                        try {
-                            return (T) m.invoke(value);
-                        } catch (Exception e) {
-                            throw new ClassCoercionException("Cannot coerce type "+value.getClass()+" to "+targetType.getCanonicalName()+" ("+value+"): "+m.getName()+" adapting failed, "+e);
-                        }
-                    }
-                }
+        if (plan.asMethod!=null) {
+            try {
+                return (T) plan.asMethod.invoke(value);
+            } catch (Exception e) {
+                throw new ClassCoercionException("Cannot coerce type "+value.getClass()+" to "+targetType.getCanonicalName()+" ("+value+"): "+plan.asMethod.getName()+" adapting failed, "+e);
             }
         }
         
         //now look for static TargetType.fromType(Type t) where value instanceof Type  
-        for (Method m: targetType.getMethods()) {
-            if (((m.getModifiers()&Modifier.STATIC)==Modifier.STATIC) && 
-                    m.getName().startsWith("from") && m.getParameterTypes().length==1 &&
-                    m.getParameterTypes()[0].isInstance(value)) {
-                if (m.getName().equals("from"+getVerySimpleName(m.getParameterTypes()[0]))) {
-                    try {
-                        return (T) m.invoke(null, value);
-                    } catch (Exception e) {
-                        throw new ClassCoercionException("Cannot coerce type "+value.getClass()+" to "+targetType.getCanonicalName()+" ("+value+"): "+m.getName()+" adapting failed, "+e);
-                    }
-                }
+        if (plan.fromMethod!=null) {
+            try {
+                return (T) plan.fromMethod.invoke(null, value);
+            } catch (Exception e) {
+                throw new ClassCoercionException("Cannot coerce type "+value.getClass()+" to "+targetType.getCanonicalName()+" ("+value+"): "+plan.fromMethod.getName()+" adapting failed, "+e);
             }
         }
         
@@ -234,30 +258,88 @@ public class TypeCoercions {
         }
 
         //now look in registry
-        synchronized (TypeCoercions.class) {
-            Map<Class, Function> adapters = registry.row(targetType);
-            for (Map.Entry<Class, Function> entry : adapters.entrySet()) {
-                if (entry.getKey().isInstance(value)) {
-                    T result = (T) entry.getValue().apply(value);
-                    
-                    // Check if need to unwrap again (e.g. if want List<Integer> and are given a String "1,2,3"
-                    // then we'll have so far converted to List.of("1", "2", "3"). Call recursively.
-                    // First check that value has changed, to avoid stack overflow!
-                    if (!Objects.equal(value, result) && targetTypeToken.getType() instanceof ParameterizedType) {
-                        // Could duplicate check for `result instanceof Collection` etc; but recursive call
-                        // will be fine as if that doesn't match we'll safely reach `targetType.isInstance(value)`
-                        // and just return the result.
-                        return coerce(result, targetTypeToken);
-                    }
-                    return result;
-                }
-            }
+        if (plan.adapter!=null) {
+            T result = (T) plan.adapter.apply(value);
+            
+            // Check if need to unwrap again (e.g. if want List<Integer> and are given a String "1,2,3"
+            // then we'll have so far converted to List.of("1", "2", "3"). Call recursively.
+            // First check that value has changed, to avoid stack overflow!
+            if (!Objects.equal(value, result) && targetTypeToken.getType() instanceof ParameterizedType) {
+                // Could duplicate check for `result instanceof Collection` etc; but recursive call
+                // will be fine as if that doesn't match we'll safely reach `targetType.isInstance(value)`
+                // and just return the result.
+                return coerce(result, targetTypeToken);
+            }
+            return result;
         }
 
         //not found
         throw new ClassCoercionException("Cannot coerce type "+value.getClass()+" to "+targetType.getCanonicalName()+" ("+value+"): no adapter known");
     }
 
+    private static boolean allInstances(Iterable<?> values, TypeToken<?> type) {
+        if (!(type.getType() instanceof Class)) return false;
+        Class<?> rawType = type.getRawType();
+        for (Object value : values) {
+            if (value!=null && !rawType.isInstance(value)) return false;
+        }
+        return true;
+    }
+
+    private static CoercionPlan getCoercionPlan(Class<?> valueType, Class<?> targetType) {
+        Cache<Class<?>, CoercionPlan> plansForTarget = coercionPlans.getIfPresent(targetType);
+        if (plansForTarget==null) {
+            plansForTarget = CacheBuilder.newBuilder().weakKeys().softValues().build();
+            // benign race: if two threads create the map for a target type, plans in one are lost and recomputed
+            coercionPlans.put(targetType, plansForTarget);
+        }
+        CoercionPlan plan = plansForTarget.getIfPresent(valueType);
+        if (plan==null || plan.registryVersion!=registryVersion) {
+            plan = newCoercionPlan(valueType, targetType);
+            plansForTarget.put(valueType, plan);
+        }
+        return plan;
+    }
+
+    private static CoercionPlan newCoercionPlan(Class<?> valueType, Class<?> targetType) {
+        Method asMethod = null;
+        String targetTypeSimpleName = getVerySimpleName(targetType);
+        if (targetTypeSimpleName!=null && targetTypeSimpleName.length()>0) {
+            for (Method m: valueType.getMethods()) {
+                if (m.getName().startsWith("as") && m.getParameterTypes().length==0 &&
+                        targetType.isAssignableFrom(m.getReturnType()) ) {
+                    if (m.getName().equals("as"+getVerySimpleName(m.getReturnType()))) {
+                        asMethod = m;
+                        break;
+                    }
+                }
+            }
+        }
+        
+        Method fromMethod = null;
+        for (Method m: targetType.getMethods()) {
+            if (((m.getModifiers()&Modifier.STATIC)==Modifier.STATIC) && 
+                    m.getName().startsWith("from") && m.getParameterTypes().length==1 &&
+                    m.getParameterTypes()[0].isAssignableFrom(valueType)) {
+                if (m.getName().equals("from"+getVerySimpleName(m.getParameterTypes()[0]))) {
+                    fromMethod = m;
+                    break;
+                }
+            }
+        }
+        
+        synchronized (TypeCoercions.class) {
+            Function adapter = null;
+            for (Map.Entry<Class, Function> entry : registry.row(targetType).entrySet()) {
+                if (entry.getKey().isAssignableFrom(valueType)) {
+                    adapter = entry.getValue();
+                    break;
+                }
+            }
+            return new CoercionPlan(registryVersion, asMethod, fromMethod, adapter);
+        }
+    }
+
     /**
      * Type coercion {@link Function function} for {@link Enum enums}.
      * <p>
@@ -475,7 +557,9 @@ public class TypeCoercions {
 
     /** Registers an adapter for use with type coercion. Returns any old adapter. */
     public synchronized static <A,B> Function registerAdapter(Class<A> sourceType, Class<B> targetType, Function<? super A,B> fn) {
-        return registry.put(targetType, sourceType, fn);
+        Function result = registry.put(targetType, sourceType, fn);
+        registryVersion++;
+        return result;
     }
 
     static { BrooklynInitialization.initTypeCoercionStandardAdapters(); }
@@ -0,0 +1,204 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.util.http;
+
+import java.io.Closeable;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.conn.scheme.Scheme;
+import org.apache.http.conn.ssl.SSLSocketFactory;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.client.LaxRedirectStrategy;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
+import org.apache.http.impl.conn.SchemeRegistryFactory;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HttpContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import brooklyn.config.BrooklynProperties;
+import brooklyn.config.ConfigKey;
+import brooklyn.config.StringConfigMap;
+import brooklyn.entity.basic.ConfigKeys;
+import brooklyn.util.exceptions.Exceptions;
+import brooklyn.util.time.Duration;
+
+import com.google.common.annotations.Beta;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * An http client shared by the {@link brooklyn.event.feed.http.HttpFeed}s of a management context,
+ * so that connections are pooled and kept alive between polls rather than there being a client per poll.
+ * The number of connections, in total and to each host, is limited.
+ * <p>
+ * Like the clients the feeds created for themselves, this trusts all https certificates and follows redirects
+ * for all methods. Credentials and timeouts are per request, given in the {@link HttpContext} and the
+ * request's params.
+ * <p>
+ * Requests can also be run asynchronously, on a small set of threads owned by this manager,
+ * so that callers (e.g. poll tasks) need not wait for the response.
+ */
+@Beta
+public class HttpClientManager implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HttpClientManager.class);
+
+    public static final ConfigKey<Integer> MAX_CONNECTIONS = ConfigKeys.newIntegerConfigKey(
+            "brooklyn.http.pool.maxConnections", "Maximum number of http connections open at once, to all hosts", 500);
+
+    public static final ConfigKey<Integer> MAX_CONNECTIONS_PER_HOST = ConfigKeys.newIntegerConfigKey(
+            "brooklyn.http.pool.maxConnectionsPerHost", "Maximum number of http connections open at once to a single host and port", 20);
+
+    public static final ConfigKey<Duration> IDLE_CONNECTION_TIMEOUT = ConfigKeys.newDurationConfigKey(
+            "brooklyn.http.pool.idleTimeout", "Time after which idle http connections are closed", Duration.ONE_MINUTE);
+
+    public static final ConfigKey<Integer> MAX_ASYNC_REQUESTS = ConfigKeys.newIntegerConfigKey(
+            "brooklyn.http.async.maxConcurrentRequests", "Maximum number of asynchronous http requests run at once; "
+            + "others are queued", 50);
+
+    private static HttpClientManager unmanagedInstance;
+
+    /** for feeds of entities which are not managed */
+    public static synchronized HttpClientManager getUnmanagedInstance() {
+        if (unmanagedInstance == null) {
+            unmanagedInstance = new HttpClientManager(BrooklynProperties.Factory.newEmpty());
+        }
+        return unmanagedInstance;
+    }
+
+    private final PoolingClientConnectionManager connectionManager;
+    private final DefaultHttpClient httpClient;
+    private final Duration idleConnectionTimeout;
+    private final int maxAsyncRequests;
+
+    private final Object executorMutex = new Object();
+    // guarded by executorMutex; created on first use
+    private ListeningExecutorService asyncExecutor;
+    private volatile boolean closed = false;
+
+    private final AtomicInteger requestsInFlight = new AtomicInteger();
+    private final AtomicLong totalRequests = new AtomicLong();
+    private volatile long lastIdleCheck = System.currentTimeMillis();
+
+    public HttpClientManager(StringConfigMap config) {
+        connectionManager = new PoolingClientConnectionManager(SchemeRegistryFactory.createDefault());
+        connectionManager.setMaxTotal(config.getConfig(MAX_CONNECTIONS));
+        connectionManager.setDefaultMaxPerRoute(config.getConfig(MAX_CONNECTIONS_PER_HOST));
+        try {
+            connectionManager.getSchemeRegistry().register(new Scheme("https", 443,
+                    new SSLSocketFactory(new HttpTool.TrustAllStrategy(), SSLSocketFactory.ALLOW_ALL_HOSTNAME_VERIFIER)));
+        } catch (Exception e) {
+            throw Exceptions.propagate(e);
+        }
+        httpClient = new DefaultHttpClient(connectionManager);
+        // support redirects for POST (similar to `curl --post301 -L`)
+        httpClient.setRedirectStrategy(new LaxRedirectStrategy());
+        idleConnectionTimeout = config.getConfig(IDLE_CONNECTION_TIMEOUT);
+        maxAsyncRequests = config.getConfig(MAX_ASYNC_REQUESTS);
+    }
+
+    /** the shared client; callers should supply their own {@link HttpContext} for each series of requests */
+    public HttpClient getHttpClient() {
+        return httpClient;
+    }
+
+    /** executes the request with the shared client, consuming the response */
+    public HttpToolResponse execute(HttpUriRequest request, HttpContext context) {
+        if (closed) throw new IllegalStateException("Http client manager closed; cannot execute "+request);
+        closeIdleIfDue();
+        totalRequests.incrementAndGet();
+        requestsInFlight.incrementAndGet();
+        try {
+            return HttpTool.execAndConsume(httpClient, request, context);
+        } finally {
+            requestsInFlight.decrementAndGet();
+        }
+    }
+
+    /** as {@link #execute(HttpUriRequest, HttpContext)}, but on a thread of this manager */
+    public ListenableFuture<HttpToolResponse> executeAsync(final HttpUriRequest request, final HttpContext context) {
+        return getAsyncExecutor().submit(new Callable<HttpToolResponse>() {
+            @Override public HttpToolResponse call() {
+                return execute(request, context);
+            }});
+    }
+
+    private ListeningExecutorService getAsyncExecutor() {
+        synchronized (executorMutex) {
+            if (closed) throw new IllegalStateException("Http client manager closed");
+            if (asyncExecutor == null) {
+                asyncExecutor = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(maxAsyncRequests,
+                        new ThreadFactoryBuilder().setNameFormat("brooklyn-http-async-%d").setDaemon(true).build()));
+            }
+            return asyncExecutor;
+        }
+    }
+
+    private void closeIdleIfDue() {
+        long now = System.currentTimeMillis();
+        if (now - lastIdleCheck > idleConnectionTimeout.toMilliseconds()) {
+            lastIdleCheck = now;
+            connectionManager.closeExpiredConnections();
+            connectionManager.closeIdleConnections(idleConnectionTimeout.toMilliseconds(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /** number of requests being executed, including those waiting for a connection */
+    public int getNumRequestsInFlight() {
+        return requestsInFlight.get();
+    }
+
+    public long getTotalRequests() {
+        return totalRequests.get();
+    }
+
+    public int getNumConnectionsLeased() {
+        return connectionManager.getTotalStats().getLeased();
+    }
+
+    public int getNumConnectionsIdle() {
+        return connectionManager.getTotalStats().getAvailable();
+    }
+
+    /** number of requests waiting for a connection, as the limit has been reached */
+    public int getNumRequestsPending() {
+        PoolStats stats = connectionManager.getTotalStats();
+        return stats.getPending();
+    }
+
+    /** closes all connections; subsequent requests fail */
+    @Override
+    public void close() {
+        closed = true;
+        synchronized (executorMutex) {
+            if (asyncExecutor != null) asyncExecutor.shutdownNow();
+        }
+        if (LOG.isDebugEnabled()) LOG.debug("{} closing, after {} requests", this, totalRequests);
+        connectionManager.shutdown();
+    }
+}
@@ -61,6 +61,7 @@ import org.apache.http.message.BasicNameValuePair;
 import org.apache.http.params.BasicHttpParams;
 import org.apache.http.params.HttpConnectionParams;
 import org.apache.http.params.HttpParams;
+import org.apache.http.protocol.HttpContext;
 import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -293,7 +294,7 @@ public class HttpTool {
     }
     
     public static class HttpPostBuilder extends HttpEntityEnclosingRequestBaseBuilder<HttpPostBuilder, HttpPost> {
-        HttpPostBuilder(URI uri) {
+        public HttpPostBuilder(URI uri) {
             super(new HttpPost(uri));
         }
     }
@@ -352,9 +353,14 @@ public class HttpTool {
     }
     
     public static HttpToolResponse execAndConsume(HttpClient httpClient, HttpUriRequest req) {
+        return execAndConsume(httpClient, req, null);
+    }
+    
+    /** @param context the context for the request, e.g. with credentials; may be null */
+    public static HttpToolResponse execAndConsume(HttpClient httpClient, HttpUriRequest req, HttpContext context) {
         long startTime = System.currentTimeMillis();
         try {
-            HttpResponse httpResponse = httpClient.execute(req);
+            HttpResponse httpResponse = httpClient.execute(req, context);
             
             try {
                 return new HttpToolResponse(httpResponse, startTime);
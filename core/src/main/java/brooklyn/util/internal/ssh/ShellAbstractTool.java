@@ -268,6 +268,20 @@ public abstract class ShellAbstractTool implements ShellTool {
             return cmds.build();
         }
 
+        /** builds the command to write the given script (readable only by the user) and then run it,
+         * as {@link #buildRunScriptCommand()}, so that both can be sent in the one session;
+         * the script is passed as a here-document, with a delimiter it cannot contain */
+        protected List<String> buildWriteAndRunScriptCommand(String scriptContents) {
+            String delimiter = "BROOKLYN_SCRIPT_"+Identifiers.makeRandomId(8);
+            while (scriptContents.contains(delimiter)) delimiter += Identifiers.makeRandomId(4);
+            return MutableList.<String>builder()
+                    .add("( umask 077 && cat > "+scriptPath+" ) <<'"+delimiter+"' || exit 1")
+                    .add(scriptContents.endsWith("\n") ? scriptContents+delimiter : scriptContents+"\n"+delimiter)
+                    .add("chmod 700 "+scriptPath+" || exit 1")
+                    .addAll(buildRunScriptCommand())
+                    .build();
+        }
+
         protected String getSummary() {
             String summary = getOptionalVal(props, PROP_SUMMARY);
             return (summary != null) ? summary : scriptPath; 
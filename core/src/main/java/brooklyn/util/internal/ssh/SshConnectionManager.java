@@ -0,0 +1,594 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.util.internal.ssh;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import brooklyn.config.BrooklynProperties;
+import brooklyn.config.ConfigKey;
+import brooklyn.config.StringConfigMap;
+import brooklyn.entity.basic.BrooklynTaskTags;
+import brooklyn.entity.basic.ConfigKeys;
+import brooklyn.management.ExecutionManager;
+import brooklyn.management.Task;
+import brooklyn.util.collections.MutableMap;
+import brooklyn.util.config.ConfigBag;
+import brooklyn.util.exceptions.Exceptions;
+import brooklyn.util.pool.Lease;
+import brooklyn.util.task.ScheduledTask;
+import brooklyn.util.task.Tasks;
+import brooklyn.util.time.Duration;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Charsets;
+import com.google.common.base.Objects;
+import com.google.common.base.Supplier;
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.MapMaker;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multiset;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+/**
+ * Pools ssh connections for all {@link brooklyn.location.basic.SshMachineLocation}s of a management context,
+ * so that locations for the same machine (e.g. from a fixed list of machines, or after rebind) share connections.
+ * <p>
+ * Connections are keyed by user, host, port and a fingerprint of the other connection properties
+ * (including credentials). The number of idle connections is limited, and idle connections are closed
+ * when expired, and least recently used first when over the limit. The number of connections open, in total
+ * and to each host, can also be limited (it is not by default, as a leased connection is held for as long
+ * as a command runs). Connections idle for a while are checked before reuse by running a trivial command.
+ * <p>
+ * Users of a key (e.g. locations) can be registered, so that idle connections are closed when
+ * the last user no longer needs them (see {@link #addUser(ConnectionKey, Object)}).
+ * <p>
+ * Once closed (e.g. when the management context is terminated) connections are no longer pooled,
+ * but each lease still opens (and on return closes) its own connection.
+ */
+@Beta
+public class SshConnectionManager implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SshConnectionManager.class);
+
+    public static final ConfigKey<Integer> MAX_CONNECTIONS = ConfigKeys.newIntegerConfigKey(
+            "brooklyn.ssh.pool.maxConnections", "Maximum number of ssh connections open at once, to all hosts; "
+            + "when reached, idle connections are closed, or else callers wait (up to the lease timeout) "
+            + "for a connection to be returned; unlimited if not set");
+
+    public static final ConfigKey<Integer> MAX_CONNECTIONS_PER_HOST = ConfigKeys.newIntegerConfigKey(
+            "brooklyn.ssh.pool.maxConnectionsPerHost", "Maximum number of ssh connections open at once to a single host, "
+            + "as for " + MAX_CONNECTIONS.getName() + "; unlimited if not set");
+
+    public static final ConfigKey<Integer> MAX_IDLE_CONNECTIONS = ConfigKeys.newIntegerConfigKey(
+            "brooklyn.ssh.pool.maxIdleConnections", "Maximum number of idle ssh connections kept for reuse, to all hosts; "
+            + "the least recently used are closed first", 200);
+
+    public static final ConfigKey<Duration> LEASE_TIMEOUT = ConfigKeys.newDurationConfigKey(
+            "brooklyn.ssh.pool.leaseTimeout", "Time to wait for a connection when the maximum number are open "
+            + "(only applies if " + MAX_CONNECTIONS.getName() + " or " + MAX_CONNECTIONS_PER_HOST.getName() + " is set)", Duration.FIVE_MINUTES);
+
+    public static final ConfigKey<Duration> HEALTH_CHECK_IDLE_TIME = ConfigKeys.newDurationConfigKey(
+            "brooklyn.ssh.pool.healthCheckIdleTime", "Idle time after which a connection is checked by running a command before being reused",
+            Duration.ONE_MINUTE);
+
+    public static final ConfigKey<Duration> SWEEP_PERIOD = ConfigKeys.newDurationConfigKey(
+            "brooklyn.ssh.pool.sweepPeriod", "How often to close idle connections which have expired", Duration.TEN_SECONDS);
+
+    private static SshConnectionManager unmanagedInstance;
+
+    /** for locations which are not managed; idle connections are closed lazily, on subsequent use */
+    public static synchronized SshConnectionManager getUnmanagedInstance() {
+        if (unmanagedInstance == null) {
+            unmanagedInstance = new SshConnectionManager(BrooklynProperties.Factory.newEmpty(), null);
+        }
+        return unmanagedInstance;
+    }
+
+    /**
+     * Identifies connections which can be shared. The fingerprint is a hash of all the connection properties,
+     * so credentials are not held in the key.
+     */
+    public static class ConnectionKey {
+        private final String user;
+        private final String host;
+        private final int port;
+        private final String fingerprint;
+
+        /** @param toolArgs properties for the {@link SshTool}, without those which may vary per use
+         * (see {@link brooklyn.location.basic.SshMachineLocation#REUSABLE_SSH_PROPS}) */
+        public static ConnectionKey of(Map<String, ?> toolArgs) {
+            ConfigBag bag = ConfigBag.newInstance(toolArgs);
+            Hasher hasher = Hashing.sha256().newHasher();
+            for (Map.Entry<String, ?> entry : new TreeMap<String, Object>(toolArgs).entrySet()) {
+                hasher.putString(entry.getKey(), Charsets.UTF_8).putChar('=')
+                        .putString(String.valueOf(entry.getValue()), Charsets.UTF_8).putChar('\n');
+            }
+            Integer port = bag.get(SshTool.PROP_PORT);
+            return new ConnectionKey(bag.get(SshTool.PROP_USER), bag.get(SshTool.PROP_HOST), (port != null) ? port : 22,
+                    hasher.hash().toString());
+        }
+
+        public ConnectionKey(String user, String host, int port, String fingerprint) {
+            this.user = user;
+            this.host = host;
+            this.port = port;
+            this.fingerprint = fingerprint;
+        }
+
+        public String getHost() {
+            return host;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof ConnectionKey)) return false;
+            ConnectionKey o = (ConnectionKey) obj;
+            return port == o.port && Objects.equal(user, o.user) && Objects.equal(host, o.host) && Objects.equal(fingerprint, o.fingerprint);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(user, host, port, fingerprint);
+        }
+
+        @Override
+        public String toString() {
+            return user+"@"+host+":"+port;
+        }
+    }
+
+    private class Connection {
+        final ConnectionKey key;
+        final SshTool tool;
+        final Duration idleTimeout;
+        long lastUsed = System.currentTimeMillis();
+
+        Connection(ConnectionKey key, SshTool tool, Duration idleTimeout) {
+            this.key = key;
+            this.tool = tool;
+            this.idleTimeout = idleTimeout;
+        }
+
+        boolean isExpired(long now) {
+            return now - lastUsed > idleTimeout.toMilliseconds();
+        }
+
+        @Override
+        public String toString() {
+            return "Connection["+key+"; "+tool+"]";
+        }
+    }
+
+    /** a leased connection; closing it returns the connection to the pool */
+    public class ConnectionLease implements Lease<SshTool> {
+        private final Connection connection;
+        private boolean returned = false;
+
+        ConnectionLease(Connection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public SshTool leasedObject() {
+            return connection.tool;
+        }
+
+        @Override
+        public void close() {
+            returnConnection(true);
+        }
+
+        /** closes the connection, rather than returning it to the pool */
+        public void discard() {
+            returnConnection(false);
+        }
+
+        private synchronized void returnConnection(boolean reusable) {
+            if (returned) return;
+            returned = true;
+            release(connection, reusable);
+        }
+    }
+
+    private final int maxConnections;
+    private final int maxConnectionsPerHost;
+    private final int maxIdleConnections;
+    private final Duration leaseTimeout;
+    private final Duration healthCheckIdleTime;
+    private final Duration sweepPeriod;
+
+    private final Object lock = new Object();
+    // guarded by lock
+    private final Map<ConnectionKey, Deque<Connection>> idleByKey = Maps.newHashMap();
+    private final Set<Connection> idleLeastRecentlyUsedFirst = new LinkedHashSet<Connection>();
+    private final Multiset<String> openByHost = HashMultiset.create();
+    private final Map<ConnectionKey, Set<Object>> usersByKey = Maps.newHashMap();
+    private int open = 0;
+    private int leased = 0;
+    private boolean closed = false;
+    private long lastSweep = System.currentTimeMillis();
+
+    private final AtomicLong totalLeases = new AtomicLong();
+    private final AtomicLong totalCreated = new AtomicLong();
+    private final AtomicLong totalClosed = new AtomicLong();
+
+    @Nullable
+    private final ExecutionManager executionManager;
+    // guarded by lock; started on first use, so there is no task where ssh is not used
+    private Task<?> sweepTask;
+
+    public SshConnectionManager(StringConfigMap config, @Nullable ExecutionManager executionManager) {
+        this.maxConnections = Objects.firstNonNull(config.getConfig(MAX_CONNECTIONS), Integer.MAX_VALUE);
+        this.maxConnectionsPerHost = Objects.firstNonNull(config.getConfig(MAX_CONNECTIONS_PER_HOST), Integer.MAX_VALUE);
+        this.maxIdleConnections = config.getConfig(MAX_IDLE_CONNECTIONS);
+        this.leaseTimeout = config.getConfig(LEASE_TIMEOUT);
+        this.healthCheckIdleTime = config.getConfig(HEALTH_CHECK_IDLE_TIME);
+        this.sweepPeriod = config.getConfig(SWEEP_PERIOD);
+        this.executionManager = executionManager;
+    }
+
+    /**
+     * Returns a connection for the given key, reusing an idle one if available, or else using the connector
+     * to open one; the caller must close the lease when done, to return the connection to the pool.
+     *
+     * @param idleTimeout how long the connection is kept while idle
+     */
+    public ConnectionLease lease(ConnectionKey key, Duration idleTimeout, Supplier<? extends SshTool> connector) {
+        totalLeases.incrementAndGet();
+        long deadline = System.currentTimeMillis() + Math.min(leaseTimeout.toMilliseconds(), Long.MAX_VALUE/2);
+        sweepIfDue();
+        while (true) {
+            Connection existing;
+            List<Connection> evicted = Lists.newArrayList();
+            synchronized (lock) {
+                existing = takeIdle(key);
+                if (existing == null) {
+                    while (open >= maxConnections || openByHost.count(key.getHost()) >= maxConnectionsPerHost) {
+                        Connection evictable = findEvictable(key.getHost());
+                        if (evictable != null) {
+                            removeIdle(evictable);
+                            markClosed(evictable);
+                            evicted.add(evictable);
+                            continue;
+                        }
+                        long remaining = deadline - System.currentTimeMillis();
+                        if (remaining <= 0) {
+                            closeQuietly(evicted);
+                            throw new IllegalStateException("Timeout after "+leaseTimeout+" waiting for ssh connection to "+key+" ("+getMetrics()+")");
+                        }
+                        try {
+                            lock.wait(remaining);
+                        } catch (InterruptedException e) {
+                            closeQuietly(evicted);
+                            throw Exceptions.propagate(e);
+                        }
+                    }
+                    open++;
+                    openByHost.add(key.getHost());
+                }
+                leased++;
+            }
+            closeQuietly(evicted);
+
+            if (existing != null) {
+                if (isHealthy(existing)) {
+                    if (LOG.isTraceEnabled()) LOG.trace("{} reusing {} ({})", new Object[] {this, existing, getMetrics()});
+                    return new ConnectionLease(existing);
+                }
+                if (LOG.isDebugEnabled()) LOG.debug("{} not reusing {} as no longer healthy; discarding and trying again", this, existing);
+                release(existing, false);
+                continue;
+            }
+
+            SshTool tool;
+            try {
+                tool = connector.get();
+            } catch (RuntimeException e) {
+                synchronized (lock) {
+                    leased--;
+                    open--;
+                    openByHost.remove(key.getHost());
+                    lock.notifyAll();
+                }
+                throw e;
+            }
+            totalCreated.incrementAndGet();
+            Connection connection = new Connection(key, tool, idleTimeout);
+            if (LOG.isDebugEnabled()) LOG.debug("{} opened {} ({})", new Object[] {this, connection, getMetrics()});
+            return new ConnectionLease(connection);
+        }
+    }
+
+    /**
+     * Records that the given user (e.g. a location) uses connections for the key, so that they are kept
+     * until it and any other users are removed. Users are held weakly, and compared by identity.
+     */
+    public void addUser(ConnectionKey key, Object user) {
+        synchronized (lock) {
+            Set<Object> users = usersByKey.get(key);
+            if (users == null) {
+                users = Collections.newSetFromMap(new MapMaker().weakKeys().<Object, Boolean>makeMap());
+                usersByKey.put(key, users);
+            }
+            users.add(user);
+        }
+    }
+
+    /**
+     * Records that the given user no longer needs connections for the keys, closing idle connections
+     * for those keys which have no other users; connections leased by other users are unaffected.
+     */
+    public void removeUser(Collection<ConnectionKey> keys, Object user) {
+        List<ConnectionKey> unused = Lists.newArrayList();
+        synchronized (lock) {
+            for (ConnectionKey key : keys) {
+                Set<Object> users = usersByKey.get(key);
+                if (users != null) {
+                    users.remove(user);
+                    if (!users.isEmpty()) continue;
+                    usersByKey.remove(key);
+                }
+                unused.add(key);
+            }
+        }
+        closeIdle(unused);
+    }
+
+    /** closes idle connections for the given keys, regardless of their users */
+    public void closeIdle(Collection<ConnectionKey> keys) {
+        List<Connection> toClose = Lists.newArrayList();
+        synchronized (lock) {
+            for (ConnectionKey key : keys) {
+                Deque<Connection> idle = idleByKey.remove(key);
+                if (idle == null) continue;
+                for (Connection connection : idle) {
+                    idleLeastRecentlyUsedFirst.remove(connection);
+                    markClosed(connection);
+                    toClose.add(connection);
+                }
+            }
+            lock.notifyAll();
+        }
+        closeQuietly(toClose);
+    }
+
+    /** closes idle connections which have expired */
+    public void closeExpired() {
+        List<Connection> toClose = Lists.newArrayList();
+        synchronized (lock) {
+            long now = System.currentTimeMillis();
+            lastSweep = now;
+            for (Iterator<Connection> iter = idleLeastRecentlyUsedFirst.iterator(); iter.hasNext();) {
+                Connection connection = iter.next();
+                if (connection.isExpired(now)) {
+                    iter.remove();
+                    idleByKey.get(connection.key).remove(connection);
+                    if (idleByKey.get(connection.key).isEmpty()) idleByKey.remove(connection.key);
+                    markClosed(connection);
+                    toClose.add(connection);
+                }
+            }
+            for (Iterator<Set<Object>> iter = usersByKey.values().iterator(); iter.hasNext();) {
+                // users are held weakly, so may have been garbage collected
+                if (iter.next().isEmpty()) iter.remove();
+            }
+            if (!toClose.isEmpty()) lock.notifyAll();
+        }
+        if (!toClose.isEmpty() && LOG.isDebugEnabled()) LOG.debug("{} closing {} expired connection(s) ({})", new Object[] {this, toClose.size(), getMetrics()});
+        closeQuietly(toClose);
+    }
+
+    /** closes all idle connections, and stops pooling */
+    @Override
+    public void close() {
+        List<Connection> toClose = Lists.newArrayList();
+        synchronized (lock) {
+            closed = true;
+            for (Connection connection : idleLeastRecentlyUsedFirst) {
+                markClosed(connection);
+                toClose.add(connection);
+            }
+            idleLeastRecentlyUsedFirst.clear();
+            idleByKey.clear();
+            if (sweepTask != null) sweepTask.cancel(false);
+            lock.notifyAll();
+        }
+        if (LOG.isDebugEnabled()) LOG.debug("{} closing, with {} idle connection(s) ({})", new Object[] {this, toClose.size(), getMetrics()});
+        closeQuietly(toClose);
+    }
+
+    public int getNumOpenConnections() {
+        synchronized (lock) {
+            return open;
+        }
+    }
+
+    public int getNumLeasedConnections() {
+        synchronized (lock) {
+            return leased;
+        }
+    }
+
+    public int getNumIdleConnections() {
+        synchronized (lock) {
+            return idleLeastRecentlyUsedFirst.size();
+        }
+    }
+
+    public long getTotalLeases() {
+        return totalLeases.get();
+    }
+
+    public long getTotalConnectionsCreated() {
+        return totalCreated.get();
+    }
+
+    public long getTotalConnectionsClosed() {
+        return totalClosed.get();
+    }
+
+    protected boolean isHealthy(Connection connection) {
+        try {
+            if (!connection.tool.isConnected()) return false;
+            if (System.currentTimeMillis() - connection.lastUsed > healthCheckIdleTime.toMilliseconds()) {
+                return connection.tool.execCommands(ImmutableMap.<String, Object>of(), ImmutableList.of("true")) == 0;
+            }
+            return true;
+        } catch (Exception e) {
+            Exceptions.propagateIfFatal(e);
+            if (LOG.isDebugEnabled()) LOG.debug("Health check failed for "+connection, e);
+            return false;
+        }
+    }
+
+    private void release(Connection connection, boolean reusable) {
+        List<Connection> toClose = Lists.newArrayList();
+        synchronized (lock) {
+            leased--;
+            if (closed || !reusable) {
+                markClosed(connection);
+                toClose.add(connection);
+            } else {
+                connection.lastUsed = System.currentTimeMillis();
+                Deque<Connection> idle = idleByKey.get(connection.key);
+                if (idle == null) {
+                    idle = new ArrayDeque<Connection>();
+                    idleByKey.put(connection.key, idle);
+                }
+                idle.addLast(connection);
+                idleLeastRecentlyUsedFirst.add(connection);
+                while (idleLeastRecentlyUsedFirst.size() > maxIdleConnections) {
+                    Connection evictable = idleLeastRecentlyUsedFirst.iterator().next();
+                    removeIdle(evictable);
+                    markClosed(evictable);
+                    toClose.add(evictable);
+                }
+            }
+            lock.notifyAll();
+        }
+        closeQuietly(toClose);
+    }
+
+    // guarded by lock
+    private Connection takeIdle(ConnectionKey key) {
+        Deque<Connection> idle = idleByKey.get(key);
+        if (idle == null) return null;
+        Connection result = idle.pollLast();
+        if (idle.isEmpty()) idleByKey.remove(key);
+        if (result != null) idleLeastRecentlyUsedFirst.remove(result);
+        return result;
+    }
+
+    // guarded by lock
+    private void removeIdle(Connection connection) {
+        idleLeastRecentlyUsedFirst.remove(connection);
+        Deque<Connection> idle = idleByKey.get(connection.key);
+        if (idle != null) {
+            idle.remove(connection);
+            if (idle.isEmpty()) idleByKey.remove(connection.key);
+        }
+    }
+
+    /** the least recently used idle connection whose closing would make room for a connection to the given host */
+    // guarded by lock
+    private Connection findEvictable(String host) {
+        boolean hostFull = openByHost.count(host) >= maxConnectionsPerHost;
+        for (Connection connection : idleLeastRecentlyUsedFirst) {
+            if (!hostFull || Objects.equal(host, connection.key.getHost())) return connection;
+        }
+        return null;
+    }
+
+    // guarded by lock
+    private void markClosed(Connection connection) {
+        open--;
+        openByHost.remove(connection.key.getHost());
+        totalClosed.incrementAndGet();
+    }
+
+    private void closeQuietly(Collection<Connection> connections) {
+        for (Connection connection : connections) {
+            try {
+                connection.tool.disconnect();
+            } catch (Exception e) {
+                Exceptions.propagateIfFatal(e);
+                if (LOG.isDebugEnabled()) LOG.debug("Problem closing "+connection+" (continuing)", e);
+            }
+        }
+    }
+
+    private void sweepIfDue() {
+        boolean due;
+        synchronized (lock) {
+            if (executionManager != null) {
+                if (sweepTask == null && !closed) sweepTask = newSweepTask();
+                return;
+            }
+            due = System.currentTimeMillis() - lastSweep > sweepPeriod.toMilliseconds();
+        }
+        if (due) closeExpired();
+    }
+
+    private Task<?> newSweepTask() {
+        Callable<Task<?>> sweepTaskFactory = new Callable<Task<?>>() {
+            @Override public Task<Void> call() {
+                return Tasks.<Void>builder().dynamic(false).tag(BrooklynTaskTags.TRANSIENT_TASK_TAG)
+                    .name("ssh connection cleaner").body(new Callable<Void>() {
+                    @Override public Void call() {
+                        try {
+                            closeExpired();
+                        } catch (Exception e) {
+                            // Don't rethrow: the behaviour of executionManager is different from a scheduledExecutorService,
+                            // if we throw an exception, then our task will never get executed again
+                            LOG.warn("Problem cleaning up ssh connections", e);
+                        }
+                        return null;
+                    }}).build();
+            }
+        };
+        return executionManager.submit(new ScheduledTask(
+            MutableMap.of("displayName", "scheduled[ssh connection cleaner]"), sweepTaskFactory).period(sweepPeriod));
+    }
+
+    private String getMetrics() {
+        return String.format("open=%s; leased=%s; idle=%s; totalLeases=%s; totalCreated=%s; totalClosed=%s",
+                open, leased, idleLeastRecentlyUsedFirst.size(), totalLeases, totalCreated, totalClosed);
+    }
+}
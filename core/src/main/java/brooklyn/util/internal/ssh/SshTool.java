@@ -75,6 +75,8 @@ public interface SshTool extends ShellTool {
     public static final ConfigKey<Long> PROP_LAST_MODIFICATION_DATE = newConfigKey("lastModificationDate", "Last-modification-date to be set on files copied/created (should be UTC/1000, ie seconds since 1970; default 0 usually means current)", 0L);
     public static final ConfigKey<Long> PROP_LAST_ACCESS_DATE = newConfigKey("lastAccessDate", "Last-access-date to be set on files copied/created (should be UTC/1000, ie seconds since 1970; default 0 usually means lastModificationDate)", 0L);
     public static final ConfigKey<Integer> PROP_OWNER_UID = newConfigKey("ownerUid", "Default owner UID (not username) for files created on remote machine; default is unset", -1);
+    public static final ConfigKey<Boolean> PROP_SCRIPT_VIA_STDIN = newConfigKey("scriptViaStdin", "When running a script, whether to send it on stdin of the "
+            + "same ssh session which writes and runs it, rather than copying it to the remote machine first; saves a round trip per script (sshj tool only)", false);
     
     // TODO remove unnecessary "public static final" modifiers
     
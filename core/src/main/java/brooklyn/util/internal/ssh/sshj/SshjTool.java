@@ -308,6 +308,8 @@ public class SshjTool extends SshAbstractTool implements SshTool {
      * 
      * So on balance, the script-based approach seems most reliable, even if there is an overhead
      * of separate message(s) for copying the file!
+     * That overhead can be avoided with {@link #PROP_SCRIPT_VIA_STDIN}, which writes the script from a
+     * here-document sent to the same shell that then runs it.
      * 
      * Another consideration is long-running scripts. On some clouds when executing a script that takes 
      * several minutes, we have seen it fail with -1 (e.g. 1 in 20 times). This suggests the ssh connection
@@ -328,6 +330,10 @@ public class SshjTool extends SshAbstractTool implements SshTool {
                 public int run() {
                     String scriptContents = toScript(props, commands, env);
                     if (LOG.isTraceEnabled()) LOG.trace("Running shell command at {} as script: {}", host, scriptContents);
+                    // not with a pty, which would echo the script and can truncate long lines
+                    if (Boolean.TRUE.equals(getOptionalVal(props, PROP_SCRIPT_VIA_STDIN)) && !allocatePTY) {
+                        return asInt(acquire(new ShellAction(buildWriteAndRunScriptCommand(scriptContents), out, err, execTimeout)), -1);
+                    }
                     copyToServer(ImmutableMap.of("permissions", "0700"), scriptContents.getBytes(), scriptPath);
                     return asInt(acquire(new ShellAction(buildRunScriptCommand(), out, err, execTimeout)), -1);
                 }
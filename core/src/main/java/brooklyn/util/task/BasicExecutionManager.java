@@ -22,7 +22,6 @@ import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
@@ -36,6 +35,7 @@ import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.SynchronousQueue;
@@ -44,10 +44,13 @@ import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import brooklyn.config.ConfigKey;
+import brooklyn.entity.basic.ConfigKeys;
 import brooklyn.internal.BrooklynFeatureEnablement;
 import brooklyn.management.ExecutionManager;
 import brooklyn.management.HasTaskChildren;
@@ -62,9 +65,12 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.CaseFormat;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
+import com.google.common.primitives.Ints;
 import com.google.common.util.concurrent.ExecutionList;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.Striped;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /**
@@ -75,6 +81,37 @@ public class BasicExecutionManager implements ExecutionManager {
     private static final Logger log = LoggerFactory.getLogger(BasicExecutionManager.class);
 
     private static final boolean RENAME_THREADS = BrooklynFeatureEnablement.isEnabled(BrooklynFeatureEnablement.FEATURE_RENAME_THREADS);
+
+    /** The kind of thread pool used to run tasks. */
+    public static enum ThreadPoolMode {
+        /** 
+         * A new thread is created whenever no idle thread is available (the default).
+         * Tasks never wait for a thread, but a burst of tasks can create very many threads. 
+         */
+        UNBOUNDED,
+        /** 
+         * At most {@link BasicExecutionManager#THREAD_POOL_MAX_SIZE} threads; further tasks are queued until a thread is free.
+         * Note that tasks blocked waiting on other tasks (e.g. a parent waiting for its children) 
+         * hold their thread, so the limit must be generous enough to avoid all threads waiting on queued tasks.
+         */
+        BOUNDED,
+        /** 
+         * A virtual thread per task, if supported by the JVM (java 21 or later); 
+         * otherwise falls back to {@link #UNBOUNDED}.
+         */
+        VIRTUAL
+    }
+    
+    public static final ConfigKey<ThreadPoolMode> THREAD_POOL_MODE = ConfigKeys.newConfigKey(ThreadPoolMode.class, 
+            "brooklyn.executionManager.threadPool.mode", 
+            "the kind of thread pool used to run tasks: UNBOUNDED (default), BOUNDED or VIRTUAL (if supported by the JVM)", 
+            ThreadPoolMode.UNBOUNDED);
+    
+    public static final ConfigKey<Integer> THREAD_POOL_MAX_SIZE = ConfigKeys.newIntegerConfigKey(
+            "brooklyn.executionManager.threadPool.maxSize", 
+            "the maximum number of threads used to run tasks, when the thread pool mode is BOUNDED", 
+            1000);
+    
     
     private static class PerThreadCurrentTaskHolder {
         public static final ThreadLocal<Task<?>> perThreadCurrentTask = new ThreadLocal<Task<?>>();
@@ -95,12 +132,14 @@ public class BasicExecutionManager implements ExecutionManager {
     // TODO Could have a set of all knownTasks; but instead we're having a separate set per tag,
     // so the same task could be listed multiple times if it has multiple tags...
 
-    //access to this field AND to members in this field is synchronized, 
-    //to allow us to preserve order while guaranteeing thread-safe
-    //(but more testing is needed before we are completely sure it is thread-safe!)
-    //synch blocks are as finely grained as possible for efficiency;
-    //NB CopyOnWriteArraySet is a perf bottleneck, and the simple map makes it easier to remove when a tag is empty
-    private Map<Object,Set<Task<?>>> tasksByTag = new HashMap<Object,Set<Task<?>>>();
+    //lookups in this map are not synchronized; the member sets are synchronized, to preserve order
+    //while guaranteeing thread-safety; adding to or removing from a member set (and adding or removing 
+    //the set itself) is guarded by the tagIndexLocks stripe for that tag, so that a set is never removed
+    //from the map while a task is being added to it.
+    //NB CopyOnWriteArraySet is a perf bottleneck, and the map makes it easy to remove when a tag is empty
+    private final ConcurrentMap<Object,Set<Task<?>>> tasksByTag = new ConcurrentHashMap<Object,Set<Task<?>>>();
+    
+    private final Striped<Lock> tagIndexLocks = Striped.lock(64);
     
     private ConcurrentMap<String,Task<?>> tasksById = new ConcurrentHashMap<String,Task<?>>();
 
@@ -126,19 +165,75 @@ public class BasicExecutionManager implements ExecutionManager {
     };
     
     public BasicExecutionManager(String contextid) {
+        this(contextid, ThreadPoolMode.UNBOUNDED, Integer.MAX_VALUE);
+    }
+    
+    /**
+     * @param mode  the kind of thread pool to use to run tasks; see {@link ThreadPoolMode}
+     * @param maxThreads  the maximum number of threads, if mode is {@link ThreadPoolMode#BOUNDED}; ignored otherwise
+     */
+    public BasicExecutionManager(String contextid, ThreadPoolMode mode, int maxThreads) {
         threadFactory = newThreadFactory(contextid);
         daemonThreadFactory = new ThreadFactoryBuilder()
                 .setThreadFactory(threadFactory)
                 .setDaemon(true)
                 .build();
                 
-        // use Executors.newCachedThreadPool(daemonThreadFactory), but timeout of 1s rather than 60s for better shutdown!
-        runner = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 10L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), 
-                daemonThreadFactory);
+        runner = newRunner(contextid, checkNotNull(mode, "mode"), maxThreads);
             
         delayedRunner = new ScheduledThreadPoolExecutor(1, daemonThreadFactory);
     }
     
+    /** 
+     * For use by overriders to use a custom executor.
+     * But be extremely careful: called by constructor, so before sub-class' constructor will
+     * have been invoked!
+     */
+    protected ExecutorService newRunner(String contextid, ThreadPoolMode mode, int maxThreads) {
+        switch (mode) {
+        case BOUNDED:
+            Preconditions.checkArgument(maxThreads > 0, "maxThreads must be positive, but was %s", maxThreads);
+            ThreadPoolExecutor result = new ThreadPoolExecutor(maxThreads, maxThreads, 10L, TimeUnit.SECONDS, 
+                    new LinkedBlockingQueue<Runnable>(), daemonThreadFactory);
+            result.allowCoreThreadTimeOut(true);
+            return result;
+        case VIRTUAL:
+            ThreadFactory virtualThreadFactory = newVirtualThreadFactory(contextid);
+            if (virtualThreadFactory != null) {
+                // a thread per task; idle threads are cheap, but there is no benefit in keeping them for long
+                return new ThreadPoolExecutor(0, Integer.MAX_VALUE, 1L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), 
+                        virtualThreadFactory);
+            }
+            log.warn("Virtual threads not supported by this JVM (java "+System.getProperty("java.version")+"); "
+                    + "using unbounded thread pool for execution manager "+contextid);
+            // fall through
+        case UNBOUNDED:
+        default:
+            // use Executors.newCachedThreadPool(daemonThreadFactory), but timeout of 1s rather than 60s for better shutdown!
+            return new ThreadPoolExecutor(0, Integer.MAX_VALUE, 10L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), 
+                    daemonThreadFactory);
+        }
+    }
+    
+    /**
+     * Returns a factory for virtual threads (via {@code Thread.ofVirtual()}) if supported by this JVM, 
+     * or null if not supported. Uses reflection, as we compile against older java versions.
+     */
+    @VisibleForTesting
+    static ThreadFactory newVirtualThreadFactory(String contextid) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, "brooklyn-execmanager-"+contextid+"-virtual-", 0L);
+            builder = builderType.getMethod("uncaughtExceptionHandler", Thread.UncaughtExceptionHandler.class).invoke(builder, new UncaughtExceptionHandlerImplementation());
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (Exception e) {
+            Exceptions.propagateIfFatal(e);
+            if (log.isTraceEnabled()) log.trace("Virtual threads not available: "+e);
+            return null;
+        }
+    }
+    
     private final static class UncaughtExceptionHandlerImplementation implements Thread.UncaughtExceptionHandler {
         @Override
         public void uncaughtException(Thread t, Throwable e) {
@@ -179,8 +274,12 @@ public class BasicExecutionManager implements ExecutionManager {
      */
     public void deleteTag(Object tag) {
         Set<Task<?>> tasks;
-        synchronized (tasksByTag) {
+        Lock lock = tagIndexLocks.get(tag);
+        lock.lock();
+        try {
             tasks = tasksByTag.remove(tag);
+        } finally {
+            lock.unlock();
         }
         if (tasks != null) {
             for (Task<?> task : tasks) {
@@ -204,15 +303,7 @@ public class BasicExecutionManager implements ExecutionManager {
     protected boolean deleteTaskNonRecursive(Task<?> task) {
         Set<?> tags = checkNotNull(task, "task").getTags();
         for (Object tag : tags) {
-            synchronized (tasksByTag) {
-                Set<Task<?>> tasks = tasksWithTagLiveOrNull(tag);
-                if (tasks != null) {
-                    tasks.remove(task);
-                    if (tasks.isEmpty()) {
-                        tasksByTag.remove(tag);
-                    }
-                }
-            }
+            removeFromTagIndex(tag, task);
         }
         Task<?> removed = tasksById.remove(task.getId());
         incompleteTaskIds.remove(task.getId());
@@ -241,29 +332,65 @@ public class BasicExecutionManager implements ExecutionManager {
         return activeTaskCount.get();
     }
 
+    /** count of threads currently in the pool used to run tasks, or -1 if not known */
+    public int getNumThreads() {
+        return (runner instanceof ThreadPoolExecutor) ? ((ThreadPoolExecutor)runner).getPoolSize() : -1;
+    }
+    
+    /** count of tasks waiting for a thread to become available (only non-zero in {@link ThreadPoolMode#BOUNDED} mode) */
+    public int getNumQueuedTasks() {
+        return (runner instanceof ThreadPoolExecutor) ? ((ThreadPoolExecutor)runner).getQueue().size() : 0;
+    }
+
     /** count of tasks kept in memory, often including ended tasks */
     public long getNumInMemoryTasks() {
         return tasksById.size();
     }
 
-    private Set<Task<?>> tasksWithTagCreating(Object tag) {
+    private void addToTagIndex(Object tag, Task<?> task) {
         Preconditions.checkNotNull(tag);
-        synchronized (tasksByTag) {
-            Set<Task<?>> result = tasksWithTagLiveOrNull(tag);
-            if (result==null) {
-                result = Collections.synchronizedSet(new LinkedHashSet<Task<?>>());
-                tasksByTag.put(tag, result);
+        Lock lock = tagIndexLocks.get(tag);
+        lock.lock();
+        try {
+            Set<Task<?>> tasks = tasksByTag.get(tag);
+            if (tasks==null) {
+                tasks = Collections.synchronizedSet(new LinkedHashSet<Task<?>>());
+                tasksByTag.put(tag, tasks);
             }
-            return result;
+            tasks.add(task);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void removeFromTagIndex(Object tag, Task<?> task) {
+        if (tag==null) return;
+        Lock lock = tagIndexLocks.get(tag);
+        lock.lock();
+        try {
+            Set<Task<?>> tasks = tasksByTag.get(tag);
+            if (tasks != null) {
+                tasks.remove(task);
+                if (tasks.isEmpty()) {
+                    tasksByTag.remove(tag);
+                }
+            }
+        } finally {
+            lock.unlock();
         }
     }
 
-    /** exposes live view, for internal use only */
+    /** exposes live view, for internal use only; callers must synchronize on the set when iterating */
     @Beta
     public Set<Task<?>> tasksWithTagLiveOrNull(Object tag) {
-        synchronized (tasksByTag) {
-            return tasksByTag.get(tag);
-        }
+        if (tag==null) return null;
+        return tasksByTag.get(tag);
+    }
+    
+    /** count of tasks kept in memory with the given tag */
+    public int getNumTasksWithTag(Object tag) {
+        Set<Task<?>> result = tasksWithTagLiveOrNull(tag);
+        return (result==null) ? 0 : result.size();
     }
 
     @Override
@@ -307,32 +434,53 @@ public class BasicExecutionManager implements ExecutionManager {
     /** only works with at least one tag; returns empty if no tags */
     @Override
     public Set<Task<?>> getTasksWithAllTags(Iterable<?> tags) {
-        //NB: for this method retrieval for multiple tags could be made (much) more efficient (if/when it is used with multiple tags!)
-        //by first looking for the least-used tag, getting those tasks, and then for each of those tasks
-        //checking whether it contains the other tags (looking for second-least used, then third-least used, etc)
-        Set<Task<?>> result = new LinkedHashSet<Task<?>>();
-        boolean first = true;
-        Iterator<?> ti = tags.iterator();
-        while (ti.hasNext()) {
-            Object tag = ti.next();
-            if (first) { 
-                first = false;
-                result.addAll(getTasksWithTag(tag));
-            } else {
-                result.retainAll(getTasksWithTag(tag));
+        // start with the least-used tag, then check those tasks against the other tags, in order of increasing size
+        // (sizes are recorded once, as the live sets can change size while sorting, which would break the comparator's contract)
+        List<SetWithSize> tasksForTags = Lists.newArrayList();
+        for (Object tag : tags) {
+            Set<Task<?>> tasksForTag = tasksWithTagLiveOrNull(tag);
+            if (tasksForTag==null) return Collections.emptySet();
+            tasksForTags.add(new SetWithSize(tasksForTag));
+        }
+        if (tasksForTags.isEmpty()) return Collections.emptySet();
+        Collections.sort(tasksForTags);
+        
+        Set<Task<?>> result;
+        Set<Task<?>> smallest = tasksForTags.get(0).set;
+        synchronized (smallest) {
+            result = new LinkedHashSet<Task<?>>(smallest);
+        }
+        for (SetWithSize tasksForTagWithSize : tasksForTags.subList(1, tasksForTags.size())) {
+            Set<Task<?>> tasksForTag = tasksForTagWithSize.set;
+            if (result.isEmpty()) break;
+            for (Iterator<Task<?>> ri = result.iterator(); ri.hasNext();) {
+                if (!tasksForTag.contains(ri.next())) ri.remove();
             }
         }
         return Collections.unmodifiableSet(result);
     }
 
+    private static class SetWithSize implements Comparable<SetWithSize> {
+        final Set<Task<?>> set;
+        final int size;
+        
+        SetWithSize(Set<Task<?>> set) {
+            this.set = set;
+            this.size = set.size();
+        }
+        
+        @Override
+        public int compareTo(SetWithSize other) {
+            return Ints.compare(size, other.size);
+        }
+    }
+
     /** live view of all tasks, for internal use only */
     @Beta
     public Collection<Task<?>> allTasksLive() { return tasksById.values(); }
     
     public Set<Object> getTaskTags() { 
-        synchronized (tasksByTag) {
-            return Collections.unmodifiableSet(Sets.newLinkedHashSet(tasksByTag.keySet())); 
-        }
+        return Collections.unmodifiableSet(Sets.newLinkedHashSet(tasksByTag.keySet())); 
     }
 
     public Task<?> submit(Runnable r) { return submit(new LinkedHashMap<Object,Object>(1), r); }
@@ -608,7 +756,17 @@ public class BasicExecutionManager implements ExecutionManager {
         if (flags.get("tags")!=null) ((TaskInternal<?>)task).getMutableTags().addAll((Collection<?>)flags.remove("tags"));
 
         for (Object tag: ((TaskInternal<?>)task).getTags()) {
-            tasksWithTagCreating(tag).add(task);
+            addToTagIndex(tag, task);
+        }
+        
+        for (ExecutionListener listener : listeners) {
+            if (listener instanceof TaskSubmissionListener) {
+                try {
+                    ((TaskSubmissionListener)listener).onTaskSubmitted(task);
+                } catch (Exception e) {
+                    log.warn("Error running execution listener "+listener+" of task "+task+" submitted", e);
+                }
+            }
         }
     }
 
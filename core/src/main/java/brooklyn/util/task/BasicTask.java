@@ -432,10 +432,11 @@ public class BasicTask<T> implements TaskInternal<T> {
             if (internalFuture != null) break;
         }
         Long remaining = end==null ? null : end -  System.currentTimeMillis();
-        if (isDone()) {
-            return internalFuture.get(1, TimeUnit.MILLISECONDS);
-        } else if (remaining == null) {
+        if (remaining == null) {
             return internalFuture.get();
+        } else if (isDone()) {
+            // the result may be set very shortly after the end time (see isDone), so allow for that under load
+            return internalFuture.get(Math.max(1, remaining), TimeUnit.MILLISECONDS);
         } else if (remaining > 0) {
             return internalFuture.get(remaining, TimeUnit.MILLISECONDS);
         } else {
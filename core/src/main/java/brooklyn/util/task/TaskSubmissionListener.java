@@ -0,0 +1,36 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.util.task;
+
+import brooklyn.management.Task;
+
+import com.google.common.annotations.Beta;
+
+/**
+ * An {@link ExecutionListener} which is also told when tasks are submitted, so that it need not scan
+ * for tasks in progress; registered with {@link BasicExecutionManager#addListener(ExecutionListener)}.
+ */
+@Beta
+public interface TaskSubmissionListener extends ExecutionListener {
+
+    /** invoked in the submitting thread when a task is submitted, once its tags and submit time are set,
+     * so should return quickly */
+    public void onTaskSubmitted(Task<?> task);
+
+}
@@ -303,6 +303,40 @@ public class EnrichersTest extends BrooklynAppUnitTestSupport {
         EntityTestUtils.assertAttributeEqualsEventually(group, NUM2, 5);
     }
 
+    @Test
+    public void testAggregatingIncrementallyFollowsMembership() {
+        AttributeSensor<Integer> min = Sensors.newIntegerSensor("test.min");
+        AttributeSensor<Integer> max = Sensors.newIntegerSensor("test.max");
+        AttributeSensor<Integer> count = Sensors.newIntegerSensor("test.count");
+        group.addMember(entity);
+        group.addMember(entity2);
+        group.addEnricher(Enrichers.builder().aggregating(NUM1).publishing(NUM2).fromMembers().computingSum().build());
+        group.addEnricher(Enrichers.builder().aggregating(NUM1).publishing(min).fromMembers().computingMin().build());
+        group.addEnricher(Enrichers.builder().aggregating(NUM1).publishing(max).fromMembers().computingMax().build());
+        group.addEnricher(Enrichers.builder().aggregating(NUM1).publishing(count).fromMembers().computingCount().build());
+
+        entity.setAttribute(NUM1, 2);
+        entity2.setAttribute(NUM1, 5);
+        EntityTestUtils.assertAttributeEqualsEventually(group, NUM2, 7);
+        EntityTestUtils.assertAttributeEqualsEventually(group, min, 2);
+        EntityTestUtils.assertAttributeEqualsEventually(group, max, 5);
+        EntityTestUtils.assertAttributeEqualsEventually(group, count, 2);
+
+        entity2.setAttribute(NUM1, 1);
+        EntityTestUtils.assertAttributeEqualsEventually(group, NUM2, 3);
+        EntityTestUtils.assertAttributeEqualsEventually(group, min, 1);
+        EntityTestUtils.assertAttributeEqualsEventually(group, max, 2);
+
+        group.removeMember(entity);
+        EntityTestUtils.assertAttributeEqualsEventually(group, NUM2, 1);
+        EntityTestUtils.assertAttributeEqualsEventually(group, min, 1);
+        EntityTestUtils.assertAttributeEqualsEventually(group, max, 1);
+        EntityTestUtils.assertAttributeEqualsEventually(group, count, 1);
+
+        entity2.setAttribute(NUM1, null);
+        EntityTestUtils.assertAttributeEqualsEventually(group, count, 0);
+    }
+
     @Test
     public void testAggregatingExcludingBlankString() {
         group.addMember(entity);
@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.enricher.basic;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import brooklyn.enricher.basic.IncrementalFunction.Reducer;
+
+import com.google.common.reflect.TypeToken;
+
+public class IncrementalFunctionsTest {
+
+    @Test
+    public void testSumFollowsAddsAndRemoves() {
+        Reducer<Number, Integer> sum = IncrementalFunctions.sum(null, null, TypeToken.of(Integer.class)).newReducer();
+        assertNull(sum.get());
+        sum.add(3);
+        sum.add(4);
+        sum.add(null);
+        assertEquals(sum.get(), (Integer) 7);
+        sum.remove(3);
+        assertEquals(sum.get(), (Integer) 4);
+        sum.remove(4);
+        assertNull(sum.get());
+    }
+
+    @Test
+    public void testSumDoesNotAccumulateRoundingErrors() {
+        Reducer<Number, Double> sum = IncrementalFunctions.sum(null, 0, TypeToken.of(Double.class)).newReducer();
+        sum.add(1.0);
+        for (int i = 0; i < 1000; i++) {
+            sum.add(0.1);
+            sum.add(1e20);
+            sum.remove(1e20);
+            sum.remove(0.1);
+        }
+        assertEquals(sum.get(), 1.0);
+        sum.add(Double.POSITIVE_INFINITY);
+        assertEquals(sum.get(), Double.POSITIVE_INFINITY);
+        sum.remove(Double.POSITIVE_INFINITY);
+        assertEquals(sum.get(), 1.0);
+    }
+
+    @Test
+    public void testAverageUsesValueIfNullAndValueIfNone() {
+        Reducer<Number, Double> avg = IncrementalFunctions.average(0, -1, TypeToken.of(Double.class)).newReducer();
+        assertEquals(avg.get(), -1.0);
+        avg.add(3);
+        avg.add(null);
+        assertEquals(avg.get(), 1.5);
+        avg.remove(null);
+        assertEquals(avg.get(), 3.0);
+    }
+
+    @Test
+    public void testCount() {
+        Reducer<Object, Integer> count = IncrementalFunctions.count(false).newReducer();
+        count.add("a");
+        count.add(null);
+        assertEquals(count.get(), (Integer) 1);
+        count.remove("a");
+        assertEquals(count.get(), (Integer) 0);
+    }
+
+    @Test
+    public void testMinAndMaxWithDuplicatesAndMixedNumberTypes() {
+        Reducer<Number, Number> min = IncrementalFunctions.<Number>min(null).newReducer();
+        Reducer<Number, Number> max = IncrementalFunctions.<Number>max(null).newReducer();
+        for (Number n : Arrays.<Number>asList(2, 5L, 2, 0.5, null)) {
+            min.add(n);
+            max.add(n);
+        }
+        assertEquals(min.get(), 0.5);
+        assertEquals(max.get(), 5L);
+        min.remove(0.5);
+        min.remove(2);
+        assertEquals(min.get(), 2);
+        max.remove(5L);
+        assertEquals(max.get(), 2);
+        max.remove(2);
+        max.remove(2);
+        max.remove(0.5);
+        assertNull(max.get());
+    }
+
+    @Test
+    public void testApplyMatchesReducer() {
+        List<Number> values = Arrays.<Number>asList(4, null, 8);
+        assertEquals(IncrementalFunctions.sum(null, null, TypeToken.of(Integer.class)).apply(values), (Integer) 12);
+        assertEquals(IncrementalFunctions.average(null, null, TypeToken.of(Double.class)).apply(values), 6.0);
+        assertEquals(IncrementalFunctions.count(true).apply(Arrays.<Object>asList(4, null, 8)), (Integer) 3);
+        assertEquals(IncrementalFunctions.<Number>max(null).apply(values), 8);
+    }
+}
@@ -19,11 +19,13 @@
 package brooklyn.entity.basic;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -48,6 +50,7 @@ import brooklyn.util.guava.Maybe;
 import com.google.common.base.Function;
 import com.google.common.base.Functions;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 
 public class AttributeMapTest {
@@ -159,6 +162,58 @@ public class AttributeMapTest {
         assertEquals(map.getValue(sensor), "parentValue");
     }
     
+    @Test
+    public void testGetValueCoercesOnlyWhenTypeDiffers() throws Exception {
+        AttributeSensor<Integer> sensor = Sensors.newIntegerSensor("a", "");
+        
+        map.update(ImmutableList.of("a"), "1");
+        assertEquals(map.getValue(sensor), (Integer)1);
+        
+        map.update(sensor, 2);
+        assertEquals(map.getValue(sensor), (Integer)2);
+        
+        map.update(sensor, null);
+        assertEquals(map.getValue(sensor), null);
+    }
+    
+    @Test
+    public void testAsMapIsCachedUntilChanged() throws Exception {
+        AttributeSensor<String> sensor1 = Sensors.newStringSensor("a", "");
+        AttributeSensor<String> sensor2 = Sensors.newStringSensor("b.c", "");
+        
+        map.update(sensor1, "1val");
+        Map<String, Object> view = map.asMap();
+        assertEquals(view, ImmutableMap.of("a", "1val"));
+        assertSame(map.asMap(), view);
+        
+        map.update(sensor2, "2val");
+        assertEquals(map.asMap(), ImmutableMap.of("a", "1val", "b.c", "2val"));
+        assertEquals(view, ImmutableMap.of("a", "1val"));
+        
+        map.remove(sensor1);
+        assertEquals(map.asMap(), ImmutableMap.of("b.c", "2val"));
+    }
+    
+    @Test
+    public void testEntityGetAllAttributesIsCachedUntilChanged() throws Exception {
+        AttributeSensor<String> sensor1 = Sensors.newStringSensor("a", "");
+        AttributeSensor<String> sensor2 = Sensors.newStringSensor("b", "");
+        
+        entity.setAttribute(sensor1, "1val");
+        Map<AttributeSensor, Object> attribs = entity.getAllAttributes();
+        assertEquals(attribs.get(sensor1), "1val");
+        assertSame(entity.getAllAttributes(), attribs);
+        
+        entity.setAttribute(sensor2, "2val");
+        assertEquals(entity.getAllAttributes().get(sensor2), "2val");
+        assertEquals(attribs.get(sensor2), null);
+    }
+    
+    @Test
+    public void testSensorNamePartsAreShared() throws Exception {
+        assertSame(Sensors.newStringSensor("a.b", "").getNameParts(), Sensors.newIntegerSensor("a.b", "").getNameParts());
+    }
+    
     @Test
     public void testConcurrentModifyAttributeCalls() throws Exception {
         AttributeSensor<Integer> sensor = Sensors.newIntegerSensor("a", "");
@@ -198,6 +198,89 @@ public class DynamicGroupTest {
             }});
     }
     
+    @Test
+    public void testGroupFollowsSensorChangesOfIndexableFilterWithoutSubscription() throws Exception {
+        final AttributeSensor<String> MY_ATTRIBUTE = Sensors.newStringSensor("test.myAttribute", "My test attribute");
+        group.setEntityFilter(EntityPredicates.allOf(EntityPredicates.isInstanceOf(TestEntity.class),
+                EntityPredicates.attributeEqualTo(MY_ATTRIBUTE, "yes")));
+
+        e1.setAttribute(MY_ATTRIBUTE, "yes");
+        app.setAttribute(MY_ATTRIBUTE, "yes");
+        Asserts.succeedsEventually(new Runnable() {
+            public void run() {
+                assertEqualsIgnoringOrder(group.getMembers(), ImmutableSet.of(e1));
+            }});
+
+        e1.setAttribute(MY_ATTRIBUTE, "no");
+        e2.setAttribute(MY_ATTRIBUTE, "yes");
+        Asserts.succeedsEventually(new Runnable() {
+            public void run() {
+                assertEqualsIgnoringOrder(group.getMembers(), ImmutableSet.of(e2));
+            }});
+    }
+
+    @Test
+    public void testGroupFollowsMembershipOfOtherGroup() throws Exception {
+        final BasicGroup other = app.createAndManageChild(EntitySpec.create(BasicGroup.class));
+        group.setEntityFilter(EntityPredicates.isMemberOf(other));
+
+        other.addMember(e1);
+        Asserts.succeedsEventually(new Runnable() {
+            public void run() {
+                assertEqualsIgnoringOrder(group.getMembers(), ImmutableSet.of(e1));
+            }});
+
+        other.removeMember(e1);
+        other.addMember(e2);
+        Asserts.succeedsEventually(new Runnable() {
+            public void run() {
+                assertEqualsIgnoringOrder(group.getMembers(), ImmutableSet.of(e2));
+            }});
+    }
+
+    @Test
+    public void testStopsFollowingSensorsOfReplacedFilter() throws Exception {
+        final AttributeSensor<String> MY_ATTRIBUTE = Sensors.newStringSensor("test.myAttribute", "My test attribute");
+        group.setEntityFilter(EntityPredicates.attributeEqualTo(MY_ATTRIBUTE, "yes"));
+        group.setEntityFilter(EntityPredicates.idEqualTo(e2.getId()));
+
+        e1.setAttribute(MY_ATTRIBUTE, "yes");
+        Asserts.succeedsContinually(MutableMap.of("timeout", VERY_SHORT_WAIT_MS), new Runnable() {
+            public void run() {
+                assertEqualsIgnoringOrder(group.getMembers(), ImmutableSet.of(e2));
+            }});
+    }
+
+    @Test
+    public void testCombinationWithNonIndexablePredicateIsNotIndexable() throws Exception {
+        assertTrue(EntityPredicates.allOf(EntityPredicates.isInstanceOf(TestEntity.class), EntityPredicates.isChildOf(app)) instanceof IndexableEntityPredicate);
+        assertFalse(EntityPredicates.allOf(EntityPredicates.isInstanceOf(TestEntity.class), Predicates.<Entity>equalTo(e1)) instanceof IndexableEntityPredicate);
+        assertFalse(EntityPredicates.anyOf(EntityPredicates.isInstanceOf(TestEntity.class), Predicates.<Entity>equalTo(e1)) instanceof IndexableEntityPredicate);
+    }
+
+    @Test
+    public void testPredicatesOnThingsChangingWithoutEventsAreNotIndexable() throws Exception {
+        // so that groups using them (and the entities which rescan such groups) do not go stale
+        assertFalse(EntityPredicates.hasTag("a") instanceof IndexableEntityPredicate);
+        assertFalse(EntityPredicates.configEqualTo(TestEntity.CONF_NAME, "a") instanceof IndexableEntityPredicate);
+    }
+
+    @Test
+    public void testConsistencyCheckFindsChangesWithoutEvents() throws Exception {
+        final DynamicGroup checkedGroup = app.createAndManageChild(EntitySpec.create(DynamicGroup.class)
+                .configure(DynamicGroup.CONSISTENCY_CHECK_PERIOD, Duration.millis(10))
+                .configure(DynamicGroup.ENTITY_FILTER, EntityPredicates.hasTag("tagged")));
+        group.setEntityFilter(EntityPredicates.hasTag("tagged"));
+
+        e1.tags().addTag("tagged");
+        Asserts.succeedsEventually(new Runnable() {
+            public void run() {
+                assertEqualsIgnoringOrder(checkedGroup.getMembers(), ImmutableSet.of(e1));
+            }});
+        // with no events for tag changes, only a rescan finds them
+        assertEqualsIgnoringOrder(group.getMembers(), ImmutableSet.of());
+    }
+
     @Test
     public void testGroupRemovesUnmanagedEntity() throws Exception {
         group.setEntityFilter(EntityPredicates.idEqualTo(e1.getId()));
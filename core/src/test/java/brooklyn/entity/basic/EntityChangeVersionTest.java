@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.entity.basic;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertTrue;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import brooklyn.entity.BrooklynAppUnitTestSupport;
+import brooklyn.entity.Entity;
+import brooklyn.entity.proxying.EntitySpec;
+import brooklyn.test.entity.TestEntity;
+
+public class EntityChangeVersionTest extends BrooklynAppUnitTestSupport {
+
+    private TestEntity entity;
+
+    @BeforeMethod(alwaysRun=true)
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        entity = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+    }
+
+    private long version(Entity entity) {
+        return ((EntityInternal)entity).getManagementSupport().getChangeVersion();
+    }
+
+    private long epoch(Entity entity) {
+        return ((EntityInternal)entity).getManagementSupport().getChangeVersionEpoch();
+    }
+
+    @Test
+    public void testVersionIncreasesOnChange() throws Exception {
+        long v0 = version(entity);
+        entity.setAttribute(TestEntity.NAME, "a");
+        long v1 = version(entity);
+        assertTrue(v1 > v0, "v0="+v0+"; v1="+v1);
+
+        entity.setConfig(TestEntity.CONF_NAME, "b");
+        long v2 = version(entity);
+        assertTrue(v2 > v1, "v1="+v1+"; v2="+v2);
+
+        entity.setDisplayName("c");
+        long v3 = version(entity);
+        assertTrue(v3 > v2, "v2="+v2+"; v3="+v3);
+
+        entity.removeAttribute(TestEntity.NAME);
+        long v4 = version(entity);
+        assertTrue(v4 > v3, "v3="+v3+"; v4="+v4);
+    }
+
+    @Test
+    public void testVersionUnchangedOnRead() throws Exception {
+        entity.setAttribute(TestEntity.NAME, "a");
+        long v0 = version(entity);
+        entity.getAttribute(TestEntity.NAME);
+        entity.getConfig(TestEntity.CONF_NAME);
+        entity.getChildren();
+        assertEquals(version(entity), v0);
+    }
+
+    @Test
+    public void testParentVersionIncreasesOnChildAdded() throws Exception {
+        long v0 = version(entity);
+        entity.createAndManageChild(EntitySpec.create(TestEntity.class));
+        assertTrue(version(entity) > v0);
+    }
+
+    @Test
+    public void testEpochsUniqueAcrossEntities() throws Exception {
+        TestEntity other = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+        assertNotEquals(epoch(entity), epoch(other));
+    }
+
+    @Test
+    public void testVersionCountedPerEntity() throws Exception {
+        TestEntity other = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+        long v0 = version(entity);
+        other.setAttribute(TestEntity.NAME, "a");
+        assertEquals(version(entity), v0);
+    }
+}
@@ -25,6 +25,7 @@ import static org.testng.Assert.fail;
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
@@ -37,6 +38,7 @@ import brooklyn.event.basic.DependentConfiguration;
 import brooklyn.location.basic.SimulatedLocation;
 import brooklyn.test.entity.TestEntity;
 import brooklyn.util.exceptions.Exceptions;
+import brooklyn.util.task.DeferredSupplier;
 
 import com.google.common.base.Function;
 import com.google.common.base.Predicates;
@@ -195,6 +197,41 @@ public class EntityConfigMapUsageTest extends BrooklynAppUnitTestSupport {
         assertEquals(e3.getConfig(strKey), "aval");
     }
 
+    @Test
+    public void testResolvedConfigCachedUntilChanged() throws Exception {
+        TestEntity parent = app.createAndManageChild(EntitySpec.create(TestEntity.class)
+                .configure(strKey, "aval"));
+        TestEntity entity = parent.createAndManageChild(EntitySpec.create(TestEntity.class));
+        
+        assertEquals(entity.getConfig(strKey), "aval");
+        EntityConfigMap configMap = ((EntityInternal)entity).getConfigMap();
+        long hits = configMap.getResolvedValueCacheHits();
+        long totalHits = EntityConfigMap.getTotalResolvedValueCacheHits();
+        assertEquals(entity.getConfig(strKey), "aval");
+        assertEquals(configMap.getResolvedValueCacheHits(), hits+1);
+        assertTrue(EntityConfigMap.getTotalResolvedValueCacheHits() > totalHits);
+        assertEquals(entity.getConfig(intKeyWithDefault), (Integer)1);
+        
+        ((EntityLocal)parent).setConfig(strKey, "bval");
+        assertEquals(entity.getConfig(strKey), "bval");
+        
+        ((EntityLocal)entity).setConfig(intKeyWithDefault, 2);
+        assertEquals(entity.getConfig(intKeyWithDefault), (Integer)2);
+    }
+    
+    @Test
+    public void testDeferredConfigNotCached() throws Exception {
+        final AtomicInteger count = new AtomicInteger();
+        TestEntity entity = app.createAndManageChild(EntitySpec.create(TestEntity.class)
+                .configure(strKey, new DeferredSupplier<String>() {
+                    @Override public String get() {
+                        return "val"+count.incrementAndGet();
+                    }}));
+        
+        assertEquals(entity.getConfig(strKey), "val1");
+        assertEquals(entity.getConfig(strKey), "val2");
+    }
+    
     // This has been relaxed to a warning, with a message saying "may not be supported in future versions"
     @Test(enabled=false)
     public void testConfigCannotBeSetAfterApplicationIsStarted() throws Exception {
@@ -889,6 +889,140 @@ public class DynamicClusterTest extends BrooklynAppUnitTestSupport {
         assertTrue(cluster.getAttribute(Attributes.SERVICE_UP));
     }
 
+    @Test
+    public void testMaxConcurrentStartsLimitsMembersStartingAtOnce() throws Exception {
+        final AtomicInteger starting = new AtomicInteger();
+        final AtomicInteger maxStarting = new AtomicInteger();
+        DynamicCluster cluster = app.createAndManageChild(EntitySpec.create(DynamicCluster.class)
+                .configure(DynamicCluster.INITIAL_SIZE, 0)
+                .configure(DynamicCluster.MAX_CONCURRENT_STARTS, 2)
+                .configure(DynamicCluster.MEMBER_SPEC, EntitySpec.create(FailingEntity.class)
+                        .configure(FailingEntity.LISTENER, new FailingEntity.EventListener() {
+                            @Override public void onEvent(Entity entity, String action, Object[] args) {
+                                if (!"start".equals(action)) return;
+                                int now = starting.incrementAndGet();
+                                synchronized (maxStarting) {
+                                    maxStarting.set(Math.max(maxStarting.get(), now));
+                                }
+                                Time.sleep(50);
+                                starting.decrementAndGet();
+                            }})));
+
+        cluster.start(ImmutableList.of(loc));
+        cluster.resize(6);
+
+        assertEquals(cluster.getMembers().size(), 6);
+        assertTrue(maxStarting.get() <= 2, "maxStarting="+maxStarting.get());
+        EntityTestUtils.assertAttributeEqualsEventually(cluster, DynamicCluster.PROVISIONING_DONE, 6);
+        EntityTestUtils.assertAttributeEqualsEventually(cluster, DynamicCluster.PROVISIONING_IN_FLIGHT, 0);
+        EntityTestUtils.assertAttributeEqualsEventually(cluster, DynamicCluster.PROVISIONING_PENDING, 0);
+    }
+
+    @Test
+    public void testMaxStartsPerSecondPerLocationLimitsRate() throws Exception {
+        DynamicCluster cluster = app.createAndManageChild(EntitySpec.create(DynamicCluster.class)
+                .configure(DynamicCluster.INITIAL_SIZE, 0)
+                .configure(DynamicCluster.MAX_STARTS_PER_SECOND_PER_LOCATION, 10d)
+                .configure(DynamicCluster.MEMBER_SPEC, EntitySpec.create(TestEntity.class)));
+        cluster.start(ImmutableList.of(loc));
+
+        long startTime = System.currentTimeMillis();
+        cluster.resize(5);
+        long duration = System.currentTimeMillis() - startTime;
+
+        assertEquals(cluster.getMembers().size(), 5);
+        // first start is immediate, then one every 100ms
+        assertTrue(duration >= 300, "duration="+duration);
+    }
+
+    @Test
+    public void testFirstWaveFailingDoesNotStartTheRest() throws Exception {
+        final AtomicInteger counter = new AtomicInteger(0);
+        DynamicCluster cluster = app.createAndManageChild(EntitySpec.create(DynamicCluster.class)
+                .configure(DynamicCluster.INITIAL_SIZE, 0)
+                .configure(DynamicCluster.FIRST_WAVE_SIZE, 2)
+                .configure("factory", new EntityFactory() {
+                    @Override public Entity newEntity(Map flags, Entity parent) {
+                        counter.incrementAndGet();
+                        return app.getManagementContext().getEntityManager().createEntity(EntitySpec.create(FailingEntity.class)
+                                .configure(flags)
+                                .configure(FailingEntity.FAIL_ON_START, true)
+                                .parent(parent));
+                    }}));
+
+        cluster.start(ImmutableList.of(loc));
+        try {
+            cluster.resize(5);
+            fail();
+        } catch (Exception e) {
+            if (!e.toString().contains("2 of the first 2 members of 5 failed to start")) throw e;
+        }
+
+        assertEquals(counter.get(), 2);
+        assertEquals(cluster.getMembers().size(), 0);
+        EntityTestUtils.assertAttributeEqualsEventually(cluster, DynamicCluster.PROVISIONING_DONE, 2);
+        EntityTestUtils.assertAttributeEqualsEventually(cluster, DynamicCluster.PROVISIONING_IN_FLIGHT, 0);
+        EntityTestUtils.assertAttributeEqualsEventually(cluster, DynamicCluster.PROVISIONING_PENDING, 0);
+    }
+
+    @Test
+    public void testFirstWavePartlyFailingDoesNotStartTheRest() throws Exception {
+        final AtomicInteger counter = new AtomicInteger(0);
+        DynamicCluster cluster = app.createAndManageChild(EntitySpec.create(DynamicCluster.class)
+                .configure(DynamicCluster.INITIAL_SIZE, 0)
+                .configure(DynamicCluster.FIRST_WAVE_SIZE, 3)
+                .configure("factory", new EntityFactory() {
+                    @Override public Entity newEntity(Map flags, Entity parent) {
+                        int num = counter.incrementAndGet();
+                        return app.getManagementContext().getEntityManager().createEntity(EntitySpec.create(FailingEntity.class)
+                                .configure(flags)
+                                .configure(FailingEntity.FAIL_ON_START, (num==2))
+                                .parent(parent));
+                    }}));
+
+        cluster.start(ImmutableList.of(loc));
+        try {
+            cluster.resize(6);
+            fail();
+        } catch (Exception e) {
+            if (!e.toString().contains("1 of the first 3 members of 6 failed to start")) throw e;
+        }
+
+        assertEquals(counter.get(), 3);
+        assertEquals(cluster.getMembers().size(), 2);
+        EntityTestUtils.assertAttributeEqualsEventually(cluster, DynamicCluster.PROVISIONING_DONE, 3);
+        EntityTestUtils.assertAttributeEqualsEventually(cluster, DynamicCluster.PROVISIONING_IN_FLIGHT, 0);
+        EntityTestUtils.assertAttributeEqualsEventually(cluster, DynamicCluster.PROVISIONING_PENDING, 0);
+    }
+
+    @Test
+    public void testFirstWaveSucceedingStartsTheRest() throws Exception {
+        final int failNum = 3;
+        final AtomicInteger counter = new AtomicInteger(0);
+        DynamicCluster cluster = app.createAndManageChild(EntitySpec.create(DynamicCluster.class)
+                .configure(DynamicCluster.INITIAL_SIZE, 0)
+                .configure(DynamicCluster.FIRST_WAVE_SIZE, 1)
+                .configure(DynamicCluster.MAX_CONCURRENT_STARTS, 2)
+                .configure("factory", new EntityFactory() {
+                    @Override public Entity newEntity(Map flags, Entity parent) {
+                        int num = counter.incrementAndGet();
+                        return app.getManagementContext().getEntityManager().createEntity(EntitySpec.create(FailingEntity.class)
+                                .configure(flags)
+                                .configure(FailingEntity.FAIL_ON_START, (num==failNum))
+                                .parent(parent));
+                    }}));
+
+        cluster.start(ImmutableList.of(loc));
+        resizeExpectingError(cluster, 4);
+
+        assertEquals(counter.get(), 4);
+        assertEquals(cluster.getMembers().size(), 3);
+        for (Entity member : cluster.getMembers()) {
+            assertFalse(((FailingEntity)member).getConfig(FailingEntity.FAIL_ON_START));
+        }
+        EntityTestUtils.assertAttributeEqualsEventually(cluster, DynamicCluster.PROVISIONING_DONE, 4);
+    }
+
     private Throwable unwrapException(Throwable e) {
         if (e instanceof ExecutionException) {
             return unwrapException(e.getCause());
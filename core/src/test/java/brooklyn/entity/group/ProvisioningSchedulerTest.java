@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.entity.group;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.Test;
+
+import brooklyn.location.Location;
+import brooklyn.location.basic.SimulatedLocation;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableList;
+
+public class ProvisioningSchedulerTest {
+
+    private static class RecordingStart implements Runnable {
+        final List<String> started;
+        final String name;
+        final CountDownLatch latch;
+
+        RecordingStart(List<String> started, String name, CountDownLatch latch) {
+            this.started = started;
+            this.name = name;
+            this.latch = latch;
+        }
+
+        @Override
+        public void run() {
+            started.add(name);
+            if (latch != null) latch.countDown();
+        }
+    }
+
+    @Test
+    public void testQueuesStartsOverConcurrentLimitUntilReleased() throws Exception {
+        ProvisioningScheduler scheduler = new ProvisioningScheduler(2, null);
+        List<String> started = new CopyOnWriteArrayList<String>();
+        for (int i = 0; i < 5; i++) {
+            scheduler.submit(null, new RecordingStart(started, "start"+i, null));
+        }
+        assertEquals(started, ImmutableList.of("start0", "start1"));
+        assertEquals(scheduler.getNumQueued(), 3);
+        assertEquals(scheduler.getNumInFlight(), 2);
+
+        scheduler.release();
+        assertEquals(started, ImmutableList.of("start0", "start1", "start2"));
+        scheduler.release();
+        scheduler.release();
+        scheduler.release();
+        assertEquals(started.size(), 5);
+        assertEquals(scheduler.getNumQueued(), 0);
+        assertEquals(scheduler.getNumInFlight(), 1);
+    }
+
+    @Test
+    public void testChangedLimitCountsStartsAlreadyBegun() throws Exception {
+        ProvisioningScheduler scheduler = new ProvisioningScheduler(1, null);
+        List<String> started = new CopyOnWriteArrayList<String>();
+        scheduler.submit(null, new RecordingStart(started, "a", null));
+        scheduler.submit(null, new RecordingStart(started, "b", null));
+        scheduler.submit(null, new RecordingStart(started, "c", null));
+        assertEquals(started, ImmutableList.of("a"));
+
+        scheduler.setLimits(2, null);
+        assertEquals(started, ImmutableList.of("a", "b"));
+        scheduler.release();
+        assertEquals(started, ImmutableList.of("a", "b", "c"));
+    }
+
+    @Test
+    public void testStartWhichFailsIsReleased() throws Exception {
+        ProvisioningScheduler scheduler = new ProvisioningScheduler(1, null);
+        List<String> started = new CopyOnWriteArrayList<String>();
+        scheduler.submit(null, new Runnable() {
+            @Override public void run() {
+                throw new IllegalStateException("Simulating failure to begin start, for test");
+            }});
+        scheduler.submit(null, new RecordingStart(started, "next", null));
+        assertEquals(started, ImmutableList.of("next"));
+    }
+
+    @Test
+    public void testRateLimitedPerLocationWithoutBlockingSubmitter() throws Exception {
+        ProvisioningScheduler scheduler = new ProvisioningScheduler(null, 2.0);
+        Location loc1 = new SimulatedLocation();
+        Location loc2 = new SimulatedLocation();
+        List<String> started = new CopyOnWriteArrayList<String>();
+        CountDownLatch latch = new CountDownLatch(4);
+
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        scheduler.submit(loc1, new RecordingStart(started, "loc1-a", latch));
+        scheduler.submit(loc2, new RecordingStart(started, "loc2-a", latch));
+        scheduler.submit(loc1, new RecordingStart(started, "loc1-b", latch));
+        scheduler.submit(loc1, new RecordingStart(started, "loc1-c", latch));
+        assertTrue(stopwatch.elapsed(TimeUnit.MILLISECONDS) < 250, "elapsed="+stopwatch);
+        assertEquals(started, ImmutableList.of("loc1-a", "loc2-a"));
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        long elapsed = stopwatch.elapsed(TimeUnit.MILLISECONDS);
+        assertTrue(elapsed >= 900, "elapsed="+elapsed);
+        assertEquals(started, ImmutableList.of("loc1-a", "loc2-a", "loc1-b", "loc1-c"));
+    }
+}
@@ -18,6 +18,7 @@
  */
 package brooklyn.entity.proxying;
 
+import static brooklyn.test.Asserts.assertEqualsIgnoringOrder;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
@@ -26,8 +27,13 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import brooklyn.entity.BrooklynAppUnitTestSupport;
+import brooklyn.entity.Entity;
 import brooklyn.entity.basic.ApplicationBuilder;
+import brooklyn.entity.basic.BasicEntity;
+import brooklyn.entity.basic.Entities;
+import brooklyn.entity.trait.Startable;
 import brooklyn.management.EntityManager;
+import brooklyn.management.EntityQuery;
 import brooklyn.test.Asserts;
 import brooklyn.test.entity.TestApplication;
 import brooklyn.test.entity.TestEntity;
@@ -79,4 +85,46 @@ public class EntityManagerTest extends BrooklynAppUnitTestSupport {
         Asserts.assertEqualsIgnoringOrder(entityManager.findEntities(Predicates.instanceOf(TestApplication.class)), ImmutableList.of(app, app2));
         Asserts.assertEqualsIgnoringOrder(entityManager.findEntitiesInApplication(app, Predicates.instanceOf(TestApplication.class)), ImmutableList.of(app));
     }
+
+    @Test
+    public void testFindEntitiesByQuery() {
+        TestApplication app2 = ApplicationBuilder.newManagedApp(TestApplication.class, mgmt);
+        TestEntity entity = app.createAndManageChild(EntitySpec.create(TestEntity.class).tag("mytag"));
+        TestEntity child = entity.createAndManageChild(EntitySpec.create(TestEntity.class).tag("mytag").tag("other"));
+        TestEntity entity2 = app2.createAndManageChild(EntitySpec.create(TestEntity.class).tag("mytag"));
+        BasicEntity basic = app.createAndManageChild(EntitySpec.create(BasicEntity.class));
+
+        assertEqualsIgnoringOrder(entityManager.findEntities(EntityQuery.create().ofType(TestEntity.class)), ImmutableList.of(entity, child, entity2));
+        assertEqualsIgnoringOrder(entityManager.findEntities(EntityQuery.create().ofType(TestEntityImpl.class)), ImmutableList.of(entity, child, entity2));
+        assertEqualsIgnoringOrder(entityManager.findEntities(EntityQuery.create().ofType(Startable.class)), ImmutableList.of(app, entity, child, app2, entity2));
+        assertEqualsIgnoringOrder(entityManager.findEntities(EntityQuery.create().ofType(Entity.class)), entityManager.getEntities());
+        assertEqualsIgnoringOrder(entityManager.findEntities(EntityQuery.create().inApplication(app).ofType(TestEntity.class)), ImmutableList.of(entity, child));
+        assertEqualsIgnoringOrder(entityManager.findEntities(EntityQuery.create().withTag("mytag")), ImmutableList.of(entity, child, entity2));
+        assertEqualsIgnoringOrder(entityManager.findEntities(EntityQuery.create().withTag("mytag").withTag("other")), ImmutableList.of(child));
+        assertEqualsIgnoringOrder(entityManager.findEntities(EntityQuery.create().childOf(app)), ImmutableList.of(entity, basic));
+        assertEqualsIgnoringOrder(entityManager.findEntities(EntityQuery.create().inApplication(app)
+                .filter(Predicates.instanceOf(BasicEntity.class))), ImmutableList.of(basic));
+        assertEqualsIgnoringOrder(entityManager.findEntities(EntityQuery.create()), entityManager.getEntities());
+    }
+
+    @Test
+    public void testQueryFollowsChangesToTagsParentsAndManagement() {
+        TestEntity entity = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+        TestEntity entity2 = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+        TestEntity child = entity.createAndManageChild(EntitySpec.create(TestEntity.class));
+
+        entity.tags().addTag("mytag");
+        assertEqualsIgnoringOrder(entityManager.findEntities(EntityQuery.create().withTag("mytag")), ImmutableList.of(entity));
+        entity.tags().removeTag("mytag");
+        assertEqualsIgnoringOrder(entityManager.findEntities(EntityQuery.create().withTag("mytag")), ImmutableList.of());
+
+        assertEqualsIgnoringOrder(entityManager.findEntities(EntityQuery.create().childOf(entity)), ImmutableList.of(child));
+        entity.removeChild(child);
+        assertEqualsIgnoringOrder(entityManager.findEntities(EntityQuery.create().childOf(entity)), ImmutableList.of());
+
+        Entities.unmanage(entity2);
+        assertEqualsIgnoringOrder(entityManager.findEntities(EntityQuery.create().ofType(TestEntity.class)), ImmutableList.of(entity, child));
+        // a detached child is no longer in an application
+        assertEqualsIgnoringOrder(entityManager.getEntitiesInApplication(app), ImmutableList.of(app, entity));
+    }
 }
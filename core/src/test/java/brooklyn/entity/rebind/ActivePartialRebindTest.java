@@ -29,6 +29,7 @@ import brooklyn.entity.basic.AbstractEntity;
 import brooklyn.entity.basic.Entities;
 import brooklyn.entity.basic.EntityInternal;
 import brooklyn.entity.proxying.EntitySpec;
+import brooklyn.entity.rebind.transformer.CompoundTransformer;
 import brooklyn.test.entity.TestEntity;
 import brooklyn.util.text.Strings;
 
@@ -37,8 +38,12 @@ public class ActivePartialRebindTest extends RebindTestFixtureWithApp {
     private static final Logger log = LoggerFactory.getLogger(ActivePartialRebindTest.class);
     
     protected void doPartialRebindOfIds(String ...objectsToRebindIds) {
+        doPartialRebindOfIds(null, objectsToRebindIds);
+    }
+    
+    protected void doPartialRebindOfIds(CompoundTransformer transformer, String ...objectsToRebindIds) {
         RebindManagerImpl rm = (RebindManagerImpl) origManagementContext.getRebindManager();
-        rm.rebindPartialActive(null, objectsToRebindIds);        
+        rm.rebindPartialActive(transformer, objectsToRebindIds);        
     }
     
     @Test
@@ -79,6 +84,21 @@ public class ActivePartialRebindTest extends RebindTestFixtureWithApp {
         Assert.assertTrue( ((EntityInternal)c1b).getManagementSupport().isDeployed(), "Not deployed: "+c1b );
     }
 
+    @Test
+    public void testRebindWithTransformer() throws Exception {
+        TestEntity c1 = origApp.addChild(EntitySpec.create(TestEntity.class));
+        c1.setConfig(TestEntity.CONF_NAME, "valueBeforeTransform");
+        Entities.manage(c1);
+        
+        CompoundTransformer transformer = CompoundTransformer.builder()
+            .xmlReplaceItem("//text()[.='valueBeforeTransform']", "valueAfterTransform")
+            .build();
+        doPartialRebindOfIds(transformer, c1.getId());
+        
+        Entity c2 = origManagementContext.lookup(c1.getId(), Entity.class);
+        Assert.assertEquals(c2.getConfig(TestEntity.CONF_NAME), "valueAfterTransform");
+    }
+
     @Test(groups="Integration")
     public void testRebindCheckingMemoryLeak() throws Exception {
         TestEntity c1 = origApp.addChild(EntitySpec.create(TestEntity.class));
@@ -29,6 +29,8 @@ import brooklyn.entity.basic.AbstractGroup;
 import brooklyn.entity.basic.AbstractGroupImpl;
 import brooklyn.entity.basic.BasicGroup;
 import brooklyn.entity.basic.Entities;
+import brooklyn.entity.basic.EntityInternal;
+import brooklyn.entity.group.DynamicCluster;
 import brooklyn.entity.proxying.EntitySpec;
 import brooklyn.entity.proxying.ImplementedBy;
 import brooklyn.test.Asserts;
@@ -56,6 +58,22 @@ public class RebindGroupTest extends RebindTestFixtureWithApp {
         assertEquals(newGroup.getAttribute(BasicGroup.GROUP_MEMBERS), ImmutableSet.of(newEntity));
     }
     
+    @Test
+    public void testDynamicClusterProvisioningCountsResetOnRebind() throws Exception {
+        DynamicCluster origCluster = origApp.createAndManageChild(EntitySpec.create(DynamicCluster.class)
+                .configure(DynamicCluster.MEMBER_SPEC, EntitySpec.create(TestEntity.class)));
+        ((EntityInternal)origCluster).setAttribute(DynamicCluster.PROVISIONING_PENDING, 3);
+        ((EntityInternal)origCluster).setAttribute(DynamicCluster.PROVISIONING_IN_FLIGHT, 2);
+        ((EntityInternal)origCluster).setAttribute(DynamicCluster.PROVISIONING_DONE, 4);
+
+        // starts in progress are not resumed after a restart
+        newApp = rebind();
+        DynamicCluster newCluster = (DynamicCluster) Iterables.find(newApp.getChildren(), Predicates.instanceOf(DynamicCluster.class));
+        assertEquals(newCluster.getAttribute(DynamicCluster.PROVISIONING_PENDING), (Integer)0);
+        assertEquals(newCluster.getAttribute(DynamicCluster.PROVISIONING_IN_FLIGHT), (Integer)0);
+        assertEquals(newCluster.getAttribute(DynamicCluster.PROVISIONING_DONE), (Integer)4);
+    }
+    
     // FIXME Fails because attribute AbstractGroup.GROUP_MEMBERS is an ImmutableSet which cannot have null values.
     // However, deserializing the origEntity was a dangling reference which was returned as null.
     // Therefore deserializing the group fails.
@@ -19,20 +19,34 @@
 package brooklyn.entity.rebind;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
 
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.testng.annotations.Test;
 
 import brooklyn.entity.Entity;
+import brooklyn.entity.basic.Entities;
 import brooklyn.entity.proxying.EntitySpec;
 import brooklyn.management.Task;
+import brooklyn.management.entitlement.EntitlementContext;
+import brooklyn.management.entitlement.Entitlements;
+import brooklyn.management.entitlement.WebEntitlementContext;
+import brooklyn.policy.EnricherSpec;
+import brooklyn.policy.PolicySpec;
 import brooklyn.test.entity.TestEntity;
 import brooklyn.test.entity.TestEntityImpl;
+import brooklyn.test.policy.TestEnricher;
+import brooklyn.test.policy.TestPolicy;
 import brooklyn.util.task.BasicTask;
 import brooklyn.util.task.DynamicTasks;
 
 import com.google.common.base.Predicates;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 
 public class RebindManagerTest extends RebindTestFixtureWithApp {
@@ -45,6 +59,70 @@ public class RebindManagerTest extends RebindTestFixtureWithApp {
         Entity newEntity = Iterables.find(newApp.getChildren(), Predicates.instanceOf(TestEntity.class));
         assertEquals(newEntity.getAttribute(TestEntity.NAME), "abc");
     }
+    
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testRebindsHierarchyWithAdjunctsAndRecordsPhaseDurations() throws Exception {
+        // enough items that instantiation, reconstruction and adjunct association are done in parallel
+        for (int i=0; i<10; i++) {
+            TestEntity child = origApp.createAndManageChild(EntitySpec.create(TestEntity.class).displayName("child-"+i));
+            child.addPolicy(PolicySpec.create(TestPolicy.class));
+            child.addEnricher(EnricherSpec.create(TestEnricher.class));
+            for (int j=0; j<3; j++) {
+                Entities.manage(child.addChild(EntitySpec.create(TestEntity.class).displayName("grandchild-"+i+"-"+j)));
+            }
+        }
+        
+        newApp = rebind();
+        
+        assertEquals(newApp.getChildren().size(), 10);
+        for (Entity child : newApp.getChildren()) {
+            assertEquals(child.getParent(), newApp);
+            assertEquals(child.getPolicies().size(), 1, "policies="+child.getPolicies());
+            assertEquals(Iterables.size(Iterables.filter(child.getEnrichers(), Predicates.instanceOf(TestEnricher.class))), 1, "enrichers="+child.getEnrichers());
+            assertEquals(child.getChildren().size(), 3);
+            for (Entity grandchild : child.getChildren()) {
+                assertEquals(grandchild.getParent(), child);
+                assertTrue(grandchild.getDisplayName().startsWith("grand"+child.getDisplayName()), "grandchild="+grandchild+"; child="+child);
+            }
+        }
+        
+        Map<String, Object> rebindMetrics = (Map<String, Object>) newManagementContext.getRebindManager().getMetrics().get("rebind");
+        Map<String, Object> phaseDurations = (Map<String, Object>) rebindMetrics.get("lastPhaseDurations");
+        assertTrue(phaseDurations.keySet().containsAll(ImmutableSet.of("rebind.loadManifests", "rebind.instantiateLocationsAndEntities", 
+                "rebind.instantiateAdjuncts", "rebind.reconstruct", "rebind.associateAdjuncts", "rebind.manage")), "phaseDurations="+phaseDurations);
+    }
+    
+    @Test
+    public void testParallelRebindWorkUsesCallersEntitlementContext() throws Exception {
+        for (int i=0; i<10; i++) {
+            origApp.createAndManageChild(EntitySpec.create(TestEntity.class).impl(TestEntityRecordingEntitlementContext.class));
+        }
+        TestEntityRecordingEntitlementContext.contexts.clear();
+        
+        EntitlementContext context = new WebEntitlementContext("myuser", "127.0.0.1", "myuri", "myrequest");
+        Entitlements.setEntitlementContext(context);
+        try {
+            newApp = rebind();
+        } finally {
+            Entitlements.clearEntitlementContext();
+        }
+        
+        assertEquals(TestEntityRecordingEntitlementContext.contexts.size(), 10);
+        for (EntitlementContext contextSeen : TestEntityRecordingEntitlementContext.contexts) {
+            assertSame(contextSeen, context);
+        }
+    }
+    
+    public static class TestEntityRecordingEntitlementContext extends TestEntityImpl {
+        static final List<EntitlementContext> contexts = new CopyOnWriteArrayList<EntitlementContext>();
+        
+        public TestEntityRecordingEntitlementContext() {
+            EntitlementContext context = Entitlements.getEntitlementContext();
+            if (context != null) contexts.add(context);
+        }
+    }
+    
     public static class TestEntityWithTaskInRebind extends TestEntityImpl {
         @Override
         public void rebind() {
@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.entity.rebind.persister;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Date;
+import java.util.Map;
+
+import org.testng.annotations.Test;
+
+import brooklyn.entity.basic.Entities;
+import brooklyn.entity.proxying.EntitySpec;
+import brooklyn.entity.rebind.BrooklynObjectType;
+import brooklyn.event.basic.Sensors;
+import brooklyn.management.ha.HighAvailabilityMode;
+import brooklyn.mementos.BrooklynMementoRawData;
+import brooklyn.mementos.EntityMemento;
+import brooklyn.test.entity.TestApplication;
+import brooklyn.test.entity.TestEntity;
+import brooklyn.util.collections.MutableMap;
+import brooklyn.util.text.Identifiers;
+
+/** runs all the {@link XmlMementoSerializerTest} tests against the binary form, plus conversion between forms */
+public class BinaryMementoSerializerTest extends XmlMementoSerializerTest {
+
+    @Override
+    protected XmlMementoSerializer<Object> newSerializer() {
+        return new BinaryMementoSerializer<Object>(BinaryMementoSerializerTest.class.getClassLoader());
+    }
+
+    @Test
+    public void testWritesBinaryAndReadsXml() throws Exception {
+        Map<String, String> obj = MutableMap.of("mykey", "myval");
+        String binary = serializer.toString(obj);
+        assertTrue(BinaryMementoSerializer.isBinary(binary), binary);
+
+        String xml = new XmlMementoSerializer<Object>(getClass().getClassLoader()).toString(obj);
+        assertEquals(serializer.fromString(xml), obj);
+
+        // and xml serializer can read binary
+        assertEquals(new XmlMementoSerializer<Object>(getClass().getClassLoader()).fromString(binary), obj);
+    }
+
+    @Test
+    public void testLargeValue() throws Exception {
+        Map<String, String> obj = MutableMap.of("mykey", Identifiers.makeRandomId(100*1000));
+        String serializedForm = serializer.toString(obj);
+        assertTrue(BinaryMementoSerializer.isBinary(serializedForm));
+        assertEquals(serializer.fromString(serializedForm), obj);
+    }
+
+    @Test
+    public void testEntityMementoHeaderAndConversion() throws Exception {
+        TestApplication app = TestApplication.Factory.newManagedInstanceForTests();
+        try {
+            TestEntity entity = app.createAndManageChild(EntitySpec.create(TestEntity.class)
+                    .configure(TestEntity.CONF_NAME, "myname"));
+            for (int i=0; i<10; i++) {
+                entity.setAttribute(Sensors.newStringSensor("test.sensor."+i), "val"+i);
+            }
+            EntityMemento memento = (EntityMemento) BrooklynPersistenceUtils.newObjectMemento(Entities.deproxy(entity));
+
+            String xml = new XmlMementoSerializer<Object>(getClass().getClassLoader()).toString(memento);
+            String binary = serializer.toString(memento);
+            assertTrue(binary.length() < xml.length(), "binary="+binary.length()+"; xml="+xml.length());
+
+            assertEquals(BinaryMementoSerializer.getHeaderField(binary, "id"), entity.getId());
+            assertEquals(BinaryMementoSerializer.getHeaderField(binary, "type"), memento.getType());
+            assertEquals(BinaryMementoSerializer.getHeaderField(binary, "parent"), app.getId());
+            assertNull(BinaryMementoSerializer.getHeaderField(binary, "catalogItemId"));
+
+            // converting structurally gives the same as serializing
+            assertEquals(BinaryMementoSerializer.toXml(binary), xml);
+            assertEquals(BinaryMementoSerializer.toXml(BinaryMementoSerializer.fromXml(xml)), xml);
+            assertEquals(BinaryMementoSerializer.getHeaderField(BinaryMementoSerializer.fromXml(xml), "parent"), app.getId());
+
+            BrooklynMementoRawData raw = BrooklynMementoRawData.builder().entity(entity.getId(), xml).build();
+            BrooklynMementoRawData converted = BrooklynPersistenceUtils.convertMementoFormat(raw, MementoFormat.BINARY);
+            assertTrue(BinaryMementoSerializer.isBinary(converted.getObjectsOfType(BrooklynObjectType.ENTITY).get(entity.getId())));
+            BrooklynMementoRawData reverted = BrooklynPersistenceUtils.convertMementoFormat(converted, MementoFormat.XML);
+            assertEquals(reverted.getEntities(), raw.getEntities());
+
+            // copies are written in the configured format (xml by default), whatever form they were read in
+            Map<String, String> files = MutableMap.of();
+            InMemoryObjectStore store = new InMemoryObjectStore(files, MutableMap.<String, Date>of());
+            store.injectManagementContext(app.getManagementContext());
+            store.prepareForSharedUse(PersistMode.AUTO, HighAvailabilityMode.DISABLED);
+            BrooklynPersistenceUtils.writeMemento(app.getManagementContext(), converted, store);
+            assertEquals(files.get("entities/"+entity.getId()), xml);
+        } finally {
+            Entities.destroyAll(app.getManagementContext());
+        }
+    }
+}
@@ -23,6 +23,8 @@ import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertTrue;
 
+import java.util.Map;
+
 import org.testng.SkipException;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
@@ -33,14 +35,17 @@ import brooklyn.entity.Entity;
 import brooklyn.entity.basic.ApplicationBuilder;
 import brooklyn.entity.basic.Entities;
 import brooklyn.entity.proxying.EntitySpec;
+import brooklyn.entity.rebind.BrooklynObjectType;
 import brooklyn.entity.rebind.PersistenceExceptionHandler;
 import brooklyn.entity.rebind.PersistenceExceptionHandlerImpl;
+import brooklyn.entity.rebind.PersisterDeltaImpl;
 import brooklyn.entity.rebind.RebindContextImpl;
 import brooklyn.entity.rebind.RebindManager.RebindFailureMode;
 import brooklyn.entity.rebind.RebindTestUtils;
 import brooklyn.entity.rebind.RecordingRebindExceptionHandler;
 import brooklyn.location.Location;
 import brooklyn.location.LocationSpec;
+import brooklyn.location.basic.LocationInternal;
 import brooklyn.location.basic.SshMachineLocation;
 import brooklyn.management.ManagementContext;
 import brooklyn.mementos.BrooklynMemento;
@@ -161,4 +166,29 @@ public abstract class BrooklynMementoPersisterTestFixture {
             throw new SkipException("Persister "+persister+" not a "+BrooklynMementoPersisterToObjectStore.class.getSimpleName());
         }
     }
+
+    @Test
+    public void testUnchangedMementoNotRewritten() throws Exception {
+        if (persister instanceof BrooklynMementoPersisterToObjectStore) {
+            RebindTestUtils.waitForPersisted(localManagementContext);
+            PersistenceActivityMetrics metrics = new PersistenceActivityMetrics();
+            ((BrooklynMementoPersisterToObjectStore) persister).setMetrics(metrics);
+            
+            PersisterDeltaImpl delta = new PersisterDeltaImpl();
+            delta.add(BrooklynObjectType.LOCATION, ((LocationInternal)location).getRebindSupport().getMemento());
+            PersistenceExceptionHandler exceptionHandler = PersistenceExceptionHandlerImpl.builder().build();
+            persister.delta(delta, exceptionHandler);
+            persister.delta(delta, exceptionHandler);
+            
+            Map<String, Object> metricsMap = metrics.asMap();
+            assertTrue((Long)metricsMap.get("skippedUnchangedCount") >= 1, "metrics="+metricsMap);
+            assertTrue(((Map<?,?>)metricsMap.get("lastPhaseDurations")).containsKey("serialize"), "metrics="+metricsMap);
+            
+            // and is still there
+            BrooklynMemento reloadedMemento = loadMemento();
+            assertEquals(Iterables.getOnlyElement(reloadedMemento.getLocationIds()), location.getId());
+        } else {
+            throw new SkipException("Persister "+persister+" not a "+BrooklynMementoPersisterToObjectStore.class.getSimpleName());
+        }
+    }
 }
@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.entity.rebind.persister;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import brooklyn.entity.rebind.BrooklynObjectType;
+import brooklyn.management.ha.HighAvailabilityMode;
+import brooklyn.util.collections.MutableMap;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+public class MementoChangeJournalTest {
+
+    private static final Map<BrooklynObjectType, List<String>> NONE = ImmutableMap.of();
+
+    private Map<String, String> files;
+    private InMemoryObjectStore objectStore;
+    private MementoChangeJournal writer;
+    private MementoChangeJournal reader;
+
+    @BeforeMethod(alwaysRun=true)
+    public void setUp() throws Exception {
+        files = MutableMap.of();
+        objectStore = new InMemoryObjectStore(files, MutableMap.<String, Date>of());
+        objectStore.prepareForSharedUse(PersistMode.AUTO, HighAvailabilityMode.DISABLED);
+        writer = new MementoChangeJournal(objectStore, 5);
+        reader = new MementoChangeJournal(objectStore, 5);
+    }
+
+    @Test
+    public void testReadsOnlyChangesSincePreviousRead() throws Exception {
+        writer.append(NONE, NONE);
+        MementoChangeJournal.Changes changes = reader.readSince(null);
+        assertFalse(changes.isIncremental());
+        assertNotNull(changes.getPosition());
+
+        writer.append(ImmutableMap.of(BrooklynObjectType.ENTITY, ImmutableList.of("e1")), NONE);
+        writer.append(NONE, ImmutableMap.of(BrooklynObjectType.POLICY, ImmutableList.of("p1")));
+        changes = reader.readSince(changes.getPosition());
+        assertTrue(changes.isIncremental());
+        assertEquals(changes.getChanges().size(), 2);
+        assertEquals(changes.getChanges().get(0).getPathId(), "e1");
+        assertFalse(changes.getChanges().get(0).isDeleted());
+        assertEquals(changes.getChanges().get(1).getType(), BrooklynObjectType.POLICY);
+        assertTrue(changes.getChanges().get(1).isDeleted());
+
+        assertTrue(reader.isUnchangedSince(changes.getPosition()));
+        writer.append(ImmutableMap.of(BrooklynObjectType.ENTITY, ImmutableList.of("e2")), NONE);
+        assertFalse(reader.isUnchangedSince(changes.getPosition()));
+        changes = reader.readSince(changes.getPosition());
+        assertEquals(changes.getChanges().size(), 1);
+        assertEquals(changes.getChanges().get(0).getPathId(), "e2");
+    }
+
+    @Test
+    public void testWritesOneSegmentPerAppendWithoutRewritingJournal() throws Exception {
+        writer.append(NONE, NONE);
+        String head = files.get(MementoChangeJournal.JOURNAL_PATH);
+
+        writer.append(ImmutableMap.of(BrooklynObjectType.ENTITY, ImmutableList.of("e1")), NONE);
+        writer.append(ImmutableMap.of(BrooklynObjectType.ENTITY, ImmutableList.of("e2")), NONE);
+
+        assertEquals(files.get(MementoChangeJournal.JOURNAL_PATH), head);
+        assertEquals(files.size(), 3, "files="+files);
+    }
+
+    @Test
+    public void testNewEpochWhenFullDeletesOldSegmentsAndForcesFullRead() throws Exception {
+        writer.append(NONE, NONE);
+        MementoChangeJournal.Position position = reader.readSince(null).getPosition();
+        for (int i = 0; i < 5; i++) {
+            writer.append(ImmutableMap.of(BrooklynObjectType.ENTITY, ImmutableList.of("e"+i)), NONE);
+        }
+        assertEquals(files.size(), 6, "files="+files);
+
+        writer.append(ImmutableMap.of(BrooklynObjectType.ENTITY, ImmutableList.of("e5")), NONE);
+        assertEquals(files.keySet(), ImmutableSet.of(MementoChangeJournal.JOURNAL_PATH));
+        assertFalse(reader.readSince(position).isIncremental());
+    }
+
+    @Test
+    public void testRestartDeletesSegmentsOfOtherWriter() throws Exception {
+        writer.append(NONE, NONE);
+        writer.append(ImmutableMap.of(BrooklynObjectType.ENTITY, ImmutableList.of("e1")), NONE);
+
+        MementoChangeJournal newWriter = new MementoChangeJournal(objectStore, 5);
+        newWriter.restart();
+        newWriter.append(NONE, NONE);
+        assertEquals(files.keySet(), ImmutableSet.of(MementoChangeJournal.JOURNAL_PATH));
+    }
+}
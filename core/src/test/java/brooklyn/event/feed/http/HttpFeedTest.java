@@ -24,6 +24,8 @@ import static org.testng.Assert.assertTrue;
 import java.net.URL;
 import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -44,12 +46,15 @@ import brooklyn.event.basic.Sensors;
 import brooklyn.event.feed.FeedConfig;
 import brooklyn.event.feed.PollConfig;
 import brooklyn.location.Location;
+import brooklyn.management.internal.ManagementContextInternal;
 import brooklyn.test.Asserts;
+import brooklyn.test.EntityTestUtils;
 import brooklyn.test.entity.TestEntity;
 import brooklyn.util.collections.MutableList;
 import brooklyn.util.collections.MutableMap;
 import brooklyn.util.guava.Functionals;
 import brooklyn.util.http.BetterMockWebServer;
+import brooklyn.util.http.HttpClientManager;
 import brooklyn.util.http.HttpToolResponse;
 import brooklyn.util.time.Duration;
 
@@ -59,7 +64,9 @@ import com.google.common.base.Predicates;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
+import com.google.mockwebserver.Dispatcher;
 import com.google.mockwebserver.MockResponse;
+import com.google.mockwebserver.RecordedRequest;
 import com.google.mockwebserver.SocketPolicy;
 
 public class HttpFeedTest extends BrooklynAppUnitTestSupport {
@@ -245,6 +252,162 @@ public class HttpFeedTest extends BrooklynAppUnitTestSupport {
         server.shutdown();
     }
 
+    @Test
+    public void testPollsAsynchronously() throws Exception {
+        feed = HttpFeed.builder()
+                .entity(entity)
+                .baseUrl(baseUrl)
+                .async()
+                .poll(HttpPollConfig.forSensor(SENSOR_INT)
+                        .period(100)
+                        .onSuccess(HttpValueFunctions.responseCode()))
+                .poll(new HttpPollConfig<String>(SENSOR_STRING)
+                        .method("post")
+                        .period(100)
+                        .onSuccess(HttpValueFunctions.stringContentsFunction()))
+                .build();
+        
+        assertSensorEventually(SENSOR_INT, (Integer)200, TIMEOUT_MS);
+        assertSensorEventually(SENSOR_STRING, "{\"foo\":\"myfoo\"}", TIMEOUT_MS);
+    }
+    
+    @Test
+    public void testUsesExceptionHandlerWhenPollingAsynchronously() throws Exception {
+        server.shutdown();
+        feed = HttpFeed.builder()
+                .entity(entity)
+                .baseUrl(baseUrl)
+                .async()
+                .poll(new HttpPollConfig<Integer>(SENSOR_INT)
+                        .period(100)
+                        .onSuccess(HttpValueFunctions.responseCode())
+                        .onException(Functions.constant(-1)))
+                .build();
+
+        assertSensorEventually(SENSOR_INT, -1, TIMEOUT_MS);
+    }
+    
+    @Test
+    public void testFeedsShareKeptAliveConnections() throws Exception {
+        EntityLocal entity2 = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+        HttpClientManager clientManager = ((ManagementContextInternal)mgmt).getHttpClientManager();
+        long requestsBefore = clientManager.getTotalRequests();
+        
+        feed = HttpFeed.builder()
+                .entity(entity)
+                .baseUrl(baseUrl)
+                .poll(HttpPollConfig.forSensor(SENSOR_INT)
+                        .period(100)
+                        .onSuccess(HttpValueFunctions.responseCode()))
+                .build();
+        HttpFeed feed2 = HttpFeed.builder()
+                .entity(entity2)
+                .baseUrl(baseUrl)
+                .poll(HttpPollConfig.forSensor(SENSOR_INT)
+                        .period(100)
+                        .onSuccess(HttpValueFunctions.responseCode()))
+                .build();
+        try {
+            assertSensorEventually(SENSOR_INT, (Integer)200, TIMEOUT_MS);
+            EntityTestUtils.assertAttributeEqualsEventually(entity2, SENSOR_INT, 200);
+            Asserts.succeedsEventually(new Runnable() {
+                public void run() {
+                    assertTrue(server.getRequestCount() >= 6, "requests="+server.getRequestCount());
+                }});
+        } finally {
+            feed2.stop();
+        }
+        feed.stop();
+        
+        assertTrue(clientManager.getTotalRequests() - requestsBefore >= 6, "requests="+clientManager.getTotalRequests());
+        // the second and later requests on a connection have a sequence number above zero
+        boolean reused = false;
+        for (int i = 0; i < 6; i++) {
+            if (server.takeRequest().getSequenceNumber() > 0) reused = true;
+        }
+        assertTrue(reused, "no connection was reused");
+    }
+    
+    @Test
+    public void testAsyncResponseIgnoredOnceFeedStopped() throws Exception {
+        final CountDownLatch requestReceived = new CountDownLatch(1);
+        final CountDownLatch sendResponse = new CountDownLatch(1);
+        BetterMockWebServer slowServer = BetterMockWebServer.newInstanceLocalhost();
+        slowServer.setDispatcher(new Dispatcher() {
+            @Override public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                requestReceived.countDown();
+                sendResponse.await();
+                return new MockResponse().setResponseCode(200);
+            }});
+        slowServer.play();
+        try {
+            HttpFeed slowFeed = HttpFeed.builder()
+                    .entity(entity)
+                    .baseUrl(slowServer.getUrl("/"))
+                    .async()
+                    .poll(HttpPollConfig.forSensor(SENSOR_INT)
+                            .period(100)
+                            .onSuccess(HttpValueFunctions.responseCode()))
+                    .build();
+            assertTrue(requestReceived.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+            slowFeed.stop();
+            sendResponse.countDown();
+            
+            EntityTestUtils.assertAttributeEqualsContinually(MutableMap.of("timeout", 500), entity, SENSOR_INT, null);
+        } finally {
+            sendResponse.countDown();
+            slowServer.shutdown();
+        }
+    }
+    
+    @Test
+    public void testFeedsDoNotShareCookies() throws Exception {
+        // cookies ignore the port, so a session cookie from one server would otherwise be sent to the other
+        final BetterMockWebServer cookieServer = BetterMockWebServer.newInstanceLocalhost();
+        for (int i = 0; i < 100; i++) {
+            cookieServer.enqueue(new MockResponse().setResponseCode(200).addHeader("Set-Cookie: session=secret"));
+        }
+        cookieServer.play();
+        EntityLocal entity2 = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+        try {
+            feed = HttpFeed.builder()
+                    .entity(entity)
+                    .baseUrl(cookieServer.getUrl("/"))
+                    .poll(HttpPollConfig.forSensor(SENSOR_INT)
+                            .period(100)
+                            .onSuccess(HttpValueFunctions.responseCode()))
+                    .build();
+            assertSensorEventually(SENSOR_INT, (Integer)200, TIMEOUT_MS);
+            Asserts.succeedsEventually(new Runnable() {
+                public void run() {
+                    assertTrue(cookieServer.getRequestCount() >= 2, "requests="+cookieServer.getRequestCount());
+                }});
+            
+            HttpFeed feed2 = HttpFeed.builder()
+                    .entity(entity2)
+                    .baseUrl(baseUrl)
+                    .poll(HttpPollConfig.forSensor(SENSOR_INT)
+                            .period(100)
+                            .onSuccess(HttpValueFunctions.responseCode()))
+                    .build();
+            try {
+                EntityTestUtils.assertAttributeEqualsEventually(entity2, SENSOR_INT, 200);
+            } finally {
+                feed2.stop();
+            }
+            
+            assertEquals(cookieServer.takeRequest().getHeader("Cookie"), null);
+            assertEquals(cookieServer.takeRequest().getHeader("Cookie"), "session=secret");
+            for (int i = 0; i < server.getRequestCount(); i++) {
+                assertEquals(server.takeRequest().getHeader("Cookie"), null);
+            }
+        } finally {
+            feed.stop();
+            feed = null;
+            cookieServer.shutdown();
+        }
+    }
+    
     @Test(groups="Integration")
     // marked integration as it takes a wee while
     public void testSuspendResume() throws Exception {
@@ -180,6 +180,31 @@ public class SshFeedIntegrationTest extends BrooklynAppUnitTestSupport {
         EntityTestUtils.assertAttributeEventually(entity, SENSOR_STRING, StringPredicates.containsLiteral("Exit status 123"));
     }
     
+    @Test(groups="Integration")
+    public void testMultiplexedPollsHandledSeparately() throws Exception {
+        final AttributeSensor<String> SENSOR_STRING2 = Sensors.newStringSensor("aString2", "");
+        feed = SshFeed.builder()
+                .entity(entity)
+                .machine(machine)
+                .poll(new SshPollConfig<String>(SENSOR_STRING)
+                        .env(MutableMap.of("GREETING", "hello"))
+                        .command("echo $GREETING")
+                        .onSuccess(SshValueFunctions.stdout()))
+                .poll(new SshPollConfig<Integer>(SENSOR_INT)
+                        .command("echo oops >&2; exit 123")
+                        .checkSuccess(Predicates.alwaysTrue())
+                        .onSuccess(SshValueFunctions.exitStatus()))
+                .poll(new SshPollConfig<String>(SENSOR_STRING2)
+                        .command("if then fi")
+                        .onFailure(SshValueFunctions.stderr()))
+                .build();
+
+        EntityTestUtils.assertAttributeEventually(entity, SENSOR_STRING, 
+            Predicates.compose(Predicates.equalTo("hello"), StringFunctions.trim()));
+        EntityTestUtils.assertAttributeEqualsEventually(entity, SENSOR_INT, 123);
+        EntityTestUtils.assertAttributeEventually(entity, SENSOR_STRING2, StringPredicates.containsLiteral("syntax error"));
+    }
+    
     @Test(groups="Integration")
     public void testAddedEarly() throws Exception {
         final TestEntity entity2 = app.addChild(EntitySpec.create(TestEntity.class)
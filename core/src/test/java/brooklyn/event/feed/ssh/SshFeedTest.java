@@ -0,0 +1,167 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.event.feed.ssh;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.List;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import brooklyn.entity.BrooklynAppUnitTestSupport;
+import brooklyn.entity.proxying.EntitySpec;
+import brooklyn.event.AttributeSensor;
+import brooklyn.event.basic.Sensors;
+import brooklyn.location.LocationSpec;
+import brooklyn.location.basic.SshMachineLocation;
+import brooklyn.test.Asserts;
+import brooklyn.test.entity.TestEntity;
+import brooklyn.util.guava.Maybe;
+import brooklyn.util.internal.ssh.RecordingSshTool;
+import brooklyn.util.internal.ssh.RecordingSshTool.ExecCmd;
+import brooklyn.util.internal.ssh.SshTool;
+import brooklyn.util.time.Duration;
+import brooklyn.util.time.Time;
+
+import com.google.common.collect.ImmutableList;
+
+public class SshFeedTest extends BrooklynAppUnitTestSupport {
+
+    final static AttributeSensor<String> SENSOR_STRING = Sensors.newStringSensor("aString", "");
+    final static AttributeSensor<String> SENSOR_STRING2 = Sensors.newStringSensor("aString2", "");
+    final static AttributeSensor<String> SENSOR_STRING3 = Sensors.newStringSensor("aString3", "");
+
+    private SshMachineLocation machine;
+    private TestEntity entity;
+    private SshFeed feed;
+
+    @BeforeMethod(alwaysRun=true)
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        RecordingSshTool.execScriptCmds.clear();
+        machine = mgmt.getLocationManager().createLocation(LocationSpec.create(SshMachineLocation.class)
+                .configure("address", "1.2.3.4")
+                .configure(SshTool.PROP_TOOL_CLASS, RecordingSshTool.class.getName()));
+        entity = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+    }
+
+    @AfterMethod(alwaysRun=true)
+    @Override
+    public void tearDown() throws Exception {
+        if (feed != null) feed.stop();
+        super.tearDown();
+        RecordingSshTool.execScriptCmds.clear();
+    }
+
+    @Test
+    public void testMultiplexesPollsWithSamePeriod() throws Exception {
+        feed = SshFeed.builder()
+                .entity(entity)
+                .machine(machine)
+                .period(Duration.millis(10))
+                .poll(new SshPollConfig<String>(SENSOR_STRING).command("echo first").onSuccess(SshValueFunctions.stdout()))
+                .poll(new SshPollConfig<String>(SENSOR_STRING2).command("echo second").onSuccess(SshValueFunctions.stdout()))
+                .poll(new SshPollConfig<String>(SENSOR_STRING3).command("echo third").onSuccess(SshValueFunctions.stdout())
+                        .period(Duration.ONE_DAY))
+                .build();
+
+        assertExecsEventually(4);
+        feed.stop();
+        List<ExecCmd> execs = ImmutableList.copyOf(RecordingSshTool.execScriptCmds);
+
+        int combined = 0;
+        int separate = 0;
+        for (ExecCmd exec : execs) {
+            assertEquals(exec.commands.size(), 1, "exec="+exec);
+            String script = exec.commands.get(0);
+            if (script.contains("echo first")) {
+                assertTrue(script.contains("echo second"), "script="+script);
+                assertFalse(script.contains("echo third"), "script="+script);
+                combined++;
+            } else {
+                assertEquals(script, "echo third");
+                separate++;
+            }
+        }
+        assertEquals(separate, 1, "execs="+execs);
+        assertEquals(combined, execs.size() - 1, "execs="+execs);
+    }
+
+    @Test
+    public void testDoesNotMultiplexWhenDisabled() throws Exception {
+        feed = SshFeed.builder()
+                .entity(entity)
+                .machine(machine)
+                .period(Duration.ONE_DAY)
+                .multiplex(false)
+                .poll(new SshPollConfig<String>(SENSOR_STRING).command("echo first").onSuccess(SshValueFunctions.stdout()))
+                .poll(new SshPollConfig<String>(SENSOR_STRING2).command("echo second").onSuccess(SshValueFunctions.stdout()))
+                .build();
+
+        assertExecsEventually(2);
+        Time.sleep(Duration.millis(100));
+        assertEquals(RecordingSshTool.execScriptCmds.size(), 2, "execs="+RecordingSshTool.execScriptCmds);
+        for (ExecCmd exec : RecordingSshTool.execScriptCmds) {
+            assertEquals(exec.commands.size(), 1, "exec="+exec);
+            assertFalse(exec.commands.get(0).contains("printf"), "exec="+exec);
+        }
+    }
+
+    @Test
+    public void testExtractsSections() throws Exception {
+        String marker = "BROOKLYN_SSH_FEED_test";
+        SshPollValue value = new SshPollValue(machine, 0,
+                marker+"-begin-0\nhello\n\n"+marker+"-end-0 0\n"
+                        +marker+"-begin-1\nno-newline\n"+marker+"-end-1 3\n"
+                        +marker+"-begin-2\n\n"+marker+"-end-2 0\n"
+                        +marker+"-begin-3\npartial",
+                marker+"-begin-0\n\n"+marker+"-end-0\n"
+                        +marker+"-begin-1\noops\n\n"+marker+"-end-1\n"
+                        +marker+"-begin-2\n\n"+marker+"-end-2\n");
+
+        SshPollValue section0 = SshFeed.extractSection(value, marker, 0).get();
+        assertEquals(section0.getExitStatus(), 0);
+        assertEquals(section0.getStdout(), "hello\n");
+        assertEquals(section0.getStderr(), "");
+
+        SshPollValue section1 = SshFeed.extractSection(value, marker, 1).get();
+        assertEquals(section1.getExitStatus(), 3);
+        assertEquals(section1.getStdout(), "no-newline");
+        assertEquals(section1.getStderr(), "oops\n");
+
+        SshPollValue section2 = SshFeed.extractSection(value, marker, 2).get();
+        assertEquals(section2.getStdout(), "");
+
+        Maybe<SshPollValue> section3 = SshFeed.extractSection(value, marker, 3);
+        assertTrue(section3.isAbsent());
+        assertTrue(SshFeed.extractSection(value, marker, 4).isAbsent());
+    }
+
+    private void assertExecsEventually(final int count) {
+        Asserts.succeedsEventually(new Runnable() {
+            public void run() {
+                assertTrue(RecordingSshTool.execScriptCmds.size() >= count, "execs="+RecordingSshTool.execScriptCmds);
+            }});
+    }
+}
@@ -54,6 +54,7 @@ import brooklyn.location.MachineLocation;
 import brooklyn.location.PortRange;
 import brooklyn.location.basic.PortRanges.LinearPortRange;
 import brooklyn.management.ManagementContext;
+import brooklyn.management.internal.ManagementContextInternal;
 import brooklyn.test.Asserts;
 import brooklyn.test.entity.LocalManagementContextForTests;
 import brooklyn.test.entity.TestApplication;
@@ -62,6 +63,7 @@ import brooklyn.util.config.ConfigBag;
 import brooklyn.util.file.ArchiveUtils;
 import brooklyn.util.guava.Maybe;
 import brooklyn.util.internal.ssh.RecordingSshTool;
+import brooklyn.util.internal.ssh.SshConnectionManager;
 import brooklyn.util.internal.ssh.SshException;
 import brooklyn.util.internal.ssh.SshTool;
 import brooklyn.util.net.Networking;
@@ -122,6 +124,29 @@ public class SshMachineLocationTest {
         assertSame(host2.getMachineDetails(), machineDetails);
     }
     
+    @Test
+    public void testLocationsForSameMachineShareConnections() throws Exception {
+        SshMachineLocation host2 = mgmt.getLocationManager().createLocation(LocationSpec.create(SshMachineLocation.class)
+                .configure("address", Networking.getLocalHost())
+                .configure(SshTool.PROP_TOOL_CLASS, RecordingSshTool.class.getName()));
+        SshMachineLocation host3 = mgmt.getLocationManager().createLocation(LocationSpec.create(SshMachineLocation.class)
+                .configure("address", Networking.getLocalHost())
+                .configure(SshTool.PROP_TOOL_CLASS, RecordingSshTool.class.getName()));
+        SshConnectionManager connectionManager = ((ManagementContextInternal)mgmt).getSshConnectionManager();
+
+        host2.execCommands("first", ImmutableList.of("true"));
+        host3.execCommands("second", ImmutableList.of("true"));
+        assertEquals(connectionManager.getTotalConnectionsCreated(), 1);
+        assertEquals(connectionManager.getNumIdleConnections(), 1);
+
+        // still used by host2
+        host3.close();
+        assertEquals(connectionManager.getNumOpenConnections(), 1);
+
+        host2.close();
+        assertEquals(connectionManager.getNumOpenConnections(), 0);
+    }
+    
     // Wow, this is hard to test (until I accepted creating the entity + effector)! Code smell?
     // Need to call getMachineDetails in a DynamicSequentialTask so that the "innessential" takes effect,
     // to not fail its caller. But to get one of those outside of an effector is non-obvious.
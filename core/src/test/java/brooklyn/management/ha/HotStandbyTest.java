@@ -28,6 +28,7 @@ import java.util.Deque;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -49,11 +50,13 @@ import brooklyn.entity.rebind.RebindTestFixture;
 import brooklyn.entity.rebind.persister.BrooklynMementoPersisterToObjectStore;
 import brooklyn.entity.rebind.persister.InMemoryObjectStore;
 import brooklyn.entity.rebind.persister.ListeningObjectStore;
+import brooklyn.entity.rebind.persister.ListeningObjectStore.ObjectStoreTransactionListener;
 import brooklyn.entity.rebind.persister.PersistMode;
 import brooklyn.entity.rebind.persister.PersistenceObjectStore;
 import brooklyn.location.Location;
 import brooklyn.location.LocationSpec;
 import brooklyn.location.basic.LocalhostMachineProvisioningLocation.LocalhostMachine;
+import brooklyn.management.EntityQuery;
 import brooklyn.management.internal.AbstractManagementContext;
 import brooklyn.management.internal.ManagementContextInternal;
 import brooklyn.test.EntityTestUtils;
@@ -89,12 +92,13 @@ public class HotStandbyTest {
         private ManagementPlaneSyncRecordPersister persister;
         private HighAvailabilityManagerImpl ha;
         private Duration persistOrRebindPeriod = Duration.ONE_SECOND;
+        private EntityReadCounter entityReads = new EntityReadCounter();
 
         public void setUp() throws Exception {
             nodeName = "node "+nodes.size();
             mgmt = newLocalManagementContext();
             ownNodeId = mgmt.getManagementNodeId();
-            objectStore = new ListeningObjectStore(newPersistenceObjectStore());
+            objectStore = new ListeningObjectStore(newPersistenceObjectStore(), entityReads);
             objectStore.injectManagementContext(mgmt);
             objectStore.prepareForSharedUse(PersistMode.CLEAN, HighAvailabilityMode.DISABLED);
             persister = new ManagementPlaneSyncRecordPersisterToObjectStore(mgmt, objectStore, classLoader);
@@ -131,6 +135,21 @@ public class HotStandbyTest {
         }
     }
     
+    /** counts the entity mementos read from the store */
+    public static class EntityReadCounter implements ObjectStoreTransactionListener {
+        private final AtomicInteger count = new AtomicInteger();
+        
+        @Override public void recordQueryOut(String summary, int size) {}
+        @Override public void recordDataOut(String summary, int size) {}
+        @Override public void recordDataIn(String summary, int size) {
+            if (summary.startsWith("reading entities/")) count.incrementAndGet();
+        }
+        
+        public int getAndReset() {
+            return count.getAndSet(0);
+        }
+    }
+    
     @BeforeMethod(alwaysRun=true)
     public void setUp() throws Exception {
         nodes.clear();
@@ -312,6 +331,8 @@ public class HotStandbyTest {
         assertEquals(app2RO.getConfig(TestEntity.CONF_NAME), "second-app");
         
         assertEquals(n2.mgmt.getEntityManager().getEntities().size(), 3);
+        assertEquals(Iterables.getOnlyElement(n2.mgmt.getEntityManager().findEntities(EntityQuery.create().ofType(TestEntity.class))).getId(), child.getId());
+        assertEquals(Iterables.getOnlyElement(n2.mgmt.getEntityManager().findEntities(EntityQuery.create().childOf(app.getId()))).getId(), child.getId());
         
         // now test removals
         
@@ -323,12 +344,55 @@ public class HotStandbyTest {
         
         EntityTestUtils.assertAttributeEqualsEventually(appRO, TestEntity.SEQUENCE, 5);
         assertEquals(n2.mgmt.getEntityManager().getEntities().size(), 1);
+        assertEquals(n2.mgmt.getEntityManager().findEntities(EntityQuery.create().ofType(TestEntity.class)).size(), 0);
+        assertEquals(n2.mgmt.getEntityManager().getEntitiesInApplication(appRO).size(), 1);
         assertEquals(appRO.getChildren().size(), 0);
         assertEquals(n2.mgmt.getApplications().size(), 1);
         Assert.assertNull(n2.mgmt.lookup(app2.getId(), Application.class));
         Assert.assertNull(n2.mgmt.lookup(child.getId(), Application.class));
     }
 
+    @Test
+    public void testHotStandbyRereadsOnlyChangedMementos() throws Exception {
+        HaMgmtNode n1 = createMaster(Duration.PRACTICALLY_FOREVER);
+        TestApplication app = createFirstAppAndPersist(n1);
+        List<TestEntity> children = MutableList.of();
+        for (int i=0; i<10; i++) {
+            children.add(app.createAndManageChild(EntitySpec.create(TestEntity.class)));
+        }
+        forcePersistNow(n1);
+        HaMgmtNode n2 = createHotStandby(Duration.PRACTICALLY_FOREVER);
+        assertEquals(n2.entityReads.getAndReset(), 11);
+        BrooklynMementoPersisterToObjectStore n2Persister = (BrooklynMementoPersisterToObjectStore) n2.mgmt.getRebindManager().getPersister();
+        assertFalse(n2Persister.isChangedSinceLastLoad());
+        
+        // one child changed; only that is re-read
+        children.get(0).setAttribute(TestEntity.SEQUENCE, 4);
+        forcePersistNow(n1);
+        assertTrue(n2Persister.isChangedSinceLastLoad());
+        forceRebindNow(n2);
+        assertEquals(n2.entityReads.getAndReset(), 1);
+        assertEquals(n2.mgmt.lookup(children.get(0).getId(), Entity.class).getAttribute(TestEntity.SEQUENCE), (Integer)4);
+        assertEquals(n2.mgmt.getEntityManager().getEntities().size(), 11);
+        
+        // a child removed; only the parent (whose children have changed) is re-read
+        Entities.unmanage(children.get(1));
+        forcePersistNow(n1);
+        forceRebindNow(n2);
+        assertEquals(n2.entityReads.getAndReset(), 1);
+        Assert.assertNull(n2.mgmt.lookup(children.get(1).getId(), Entity.class));
+        assertEquals(n2.mgmt.getEntityManager().getEntities().size(), 10);
+        assertFalse(n2Persister.isChangedSinceLastLoad());
+        
+        // and on promotion everything is re-read
+        n1.ha.changeMode(HighAvailabilityMode.DISABLED);
+        n2.ha.changeMode(HighAvailabilityMode.AUTO);
+        assertMaster(n2);
+        assertEquals(n2.entityReads.getAndReset(), 10);
+        assertEquals(n2.mgmt.lookup(children.get(0).getId(), Entity.class).getAttribute(TestEntity.SEQUENCE), (Integer)4);
+        Assert.assertNotNull(n2.ha.getLastPromotionDuration());
+    }
+
     @Test(groups="Integration", invocationCount=50)
     public void testHotStandbySeesStructuralChangesIncludingRemovalManyTimes() throws Exception {
         doTestHotStandbySeesStructuralChangesIncludingRemoval(true);
@@ -28,6 +28,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Semaphore;
 
 import org.slf4j.Logger;
@@ -53,11 +55,13 @@ import brooklyn.test.entity.LocalManagementContextForTests;
 import brooklyn.test.entity.TestApplication;
 import brooklyn.test.entity.TestEntity;
 import brooklyn.util.collections.MutableMap;
+import brooklyn.util.exceptions.Exceptions;
 import brooklyn.util.javalang.JavaClassNames;
 import brooklyn.util.repeat.Repeater;
 import brooklyn.util.task.BasicExecutionManager;
 import brooklyn.util.task.ExecutionListener;
 import brooklyn.util.task.TaskBuilder;
+import brooklyn.util.task.TaskSubmissionListener;
 import brooklyn.util.task.Tasks;
 import brooklyn.util.time.Duration;
 import brooklyn.util.time.Time;
@@ -120,6 +124,38 @@ public class EntityExecutionManagerTest {
         completedTasks.get(t2).isShorterThan(Duration.TEN_SECONDS);
     }
     
+    @Test
+    public void testOnSubmittedCallback() throws Exception {
+        mgmt = LocalManagementContextForTests.newInstance();
+        BasicExecutionManager bem = (BasicExecutionManager)mgmt.getExecutionManager();
+        final List<Task<?>> submittedTasks = new CopyOnWriteArrayList<Task<?>>();
+        bem.addListener(new TaskSubmissionListener() {
+            @Override
+            public void onTaskSubmitted(Task<?> task) {
+                Assert.assertTrue(task.getTags().contains("mytag"), "tags="+task.getTags());
+                submittedTasks.add(task);
+            }
+            @Override
+            public void onTaskDone(Task<?> task) {
+            }
+        });
+        final CountDownLatch latch = new CountDownLatch(1);
+        Task<Void> t1 = bem.submit(MutableMap.of("tag", "mytag"), Tasks.<Void>builder().name("t1").dynamic(false).body(new Runnable() {
+                public void run() {
+                    try {
+                        latch.await();
+                    } catch (InterruptedException e) {
+                        throw Exceptions.propagate(e);
+                    }
+                }}).build());
+        try {
+            Assert.assertEquals(submittedTasks, ImmutableList.of(t1));
+        } finally {
+            latch.countDown();
+        }
+        t1.get();
+    }
+    
     protected void forceGc() {
         ((LocalManagementContext)app.getManagementContext()).getGarbageCollector().gcIteration();
     }
@@ -178,6 +214,27 @@ public class EntityExecutionManagerTest {
         assertTaskCountForEntitySoon(e, 2);
     }
     
+    @Test
+    public void testGcTaskAtNormalTagLimitOnIncrementalPass() throws Exception {
+        app = TestApplication.Factory.newManagedInstanceForTests();
+        e = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+        
+        ((BrooklynProperties)app.getManagementContext().getConfig()).put(
+            BrooklynGarbageCollector.MAX_TASKS_PER_TAG, 2);
+        
+        // first pass is a full scan; subsequent passes only look at tags of newly completed tasks
+        forceGc();
+        BrooklynGarbageCollector gc = ((LocalManagementContext)app.getManagementContext()).getGarbageCollector();
+        long deletedBefore = gc.getTotalTasksDeleted();
+
+        for (int count=0; count<5; count++)
+            runEmptyTaskWithNameAndTags(e, "task"+count, ManagementContextInternal.NON_TRANSIENT_TASK_TAG, "boring-tag");
+
+        assertTaskCountForEntitySoon(e, 2);
+        assertTrue(gc.getTotalTasksDeleted() - deletedBefore >= 3, "deleted="+(gc.getTotalTasksDeleted() - deletedBefore));
+        assertTrue(gc.getTotalPasses() >= 2, "passes="+gc.getTotalPasses());
+    }
+
     @Test
     public void testGcTaskAtEntityLimit() throws Exception {
         app = TestApplication.Factory.newManagedInstanceForTests();
@@ -195,6 +252,38 @@ public class EntityExecutionManagerTest {
         assertTaskCountForEntitySoon(e, 2);
     }
     
+    @Test
+    public void testGcAtGlobalLimitKeepsCompletedTasksWhenManyRunning() throws Exception {
+        app = TestApplication.Factory.newManagedInstanceForTests();
+        e = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+        
+        ((BrooklynProperties)app.getManagementContext().getConfig()).put(
+            BrooklynGarbageCollector.MAX_TASKS_GLOBAL, 5);
+        
+        final CountDownLatch latch = new CountDownLatch(1);
+        List<Task<?>> running = Lists.newArrayList();
+        try {
+            for (int count=0; count<5; count++) {
+                running.add(((EntityInternal)e).getExecutionContext().submit(Tasks.<Void>builder().name("running"+count).dynamic(false)
+                        .tag(ManagementContextInternal.NON_TRANSIENT_TASK_TAG)
+                        .body(new Callable<Void>() {
+                            public Void call() throws Exception {
+                                latch.await();
+                                return null;
+                            }}).build()));
+            }
+            for (int count=0; count<5; count++)
+                runEmptyTaskWithNameAndTags(e, "task"+count, ManagementContextInternal.NON_TRANSIENT_TASK_TAG, "boring-tag");
+            forceGc();
+            
+            // running tasks do not count against the limit, so the five most recent completed tasks are kept
+            assertEquals(app.getManagementContext().getExecutionManager().getTasksWithTag("boring-tag").size(), 5);
+        } finally {
+            latch.countDown();
+        }
+        for (Task<?> task: running) task.get();
+    }
+    
     @Test
     public void testGcTaskWithTagAndEntityLimit() throws Exception {
         app = TestApplication.Factory.newManagedInstanceForTests();
@@ -19,6 +19,7 @@
 package brooklyn.management.internal;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
 import java.util.List;
@@ -39,7 +40,14 @@ import brooklyn.event.SensorEvent;
 import brooklyn.event.SensorEventListener;
 import brooklyn.management.SubscriptionHandle;
 import brooklyn.management.SubscriptionManager;
+import brooklyn.test.Asserts;
 import brooklyn.test.entity.TestEntity;
+import brooklyn.util.collections.MutableMap;
+import brooklyn.util.exceptions.Exceptions;
+
+import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 
 /**
  * testing the {@link SubscriptionManager} and associated classes.
@@ -140,6 +148,118 @@ public class LocalSubscriptionManagerTest extends BrooklynAppUnitTestSupport {
         assertEquals(events.get(0).getSource().getId(), member.getId());
     }
     
+    @Test
+    public void testBatchedDeliveryPreservesOrder() throws Exception {
+        final List<Integer> values = new CopyOnWriteArrayList<Integer>();
+        SubscriptionManager subscriptionManager = app.getManagementContext().getSubscriptionManager();
+        subscriptionManager.subscribe(MutableMap.<String, Object>of("subscriber", app, "batchDelivery", true), entity, TestEntity.SEQUENCE, new SensorEventListener<Integer>() {
+            @Override public void onEvent(SensorEvent<Integer> event) {
+                values.add(event.getValue());
+            }});
+        for (int i = 0; i < 100; i++) {
+            entity.setAttribute(TestEntity.SEQUENCE, i);
+        }
+        
+        Asserts.succeedsEventually(new Runnable() {
+            public void run() {
+                assertEquals(values.size(), 100);
+            }});
+        for (int i = 0; i < 100; i++) {
+            assertEquals(values.get(i), (Integer)i);
+        }
+    }
+    
+    @Test
+    public void testCoalescingDeliveryKeepsLatestValue() throws Exception {
+        final List<Integer> values = new CopyOnWriteArrayList<Integer>();
+        final CountDownLatch firstEventLatch = new CountDownLatch(1);
+        final CountDownLatch releaseLatch = new CountDownLatch(1);
+        LocalSubscriptionManager subscriptionManager = (LocalSubscriptionManager) app.getManagementContext().getSubscriptionManager();
+        long coalescedBefore = subscriptionManager.getTotalEventsCoalesced();
+        
+        subscriptionManager.subscribe(MutableMap.<String, Object>of("subscriber", app, "coalesce", true), entity, TestEntity.SEQUENCE, new SensorEventListener<Integer>() {
+            @Override public void onEvent(SensorEvent<Integer> event) {
+                values.add(event.getValue());
+                firstEventLatch.countDown();
+                try {
+                    releaseLatch.await(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    throw Exceptions.propagate(e);
+                }
+            }});
+        
+        // block the subscriber while it processes the first event, so that subsequent events pile up
+        entity.setAttribute(TestEntity.SEQUENCE, 0);
+        assertTrue(firstEventLatch.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        for (int i = 1; i <= 100; i++) {
+            entity.setAttribute(TestEntity.SEQUENCE, i);
+        }
+        assertEquals(subscriptionManager.getNumEventsQueued(), 1);
+        releaseLatch.countDown();
+        
+        Asserts.succeedsEventually(new Runnable() {
+            public void run() {
+                assertEquals(values, ImmutableList.of(0, 100));
+            }});
+        assertEquals(subscriptionManager.getTotalEventsCoalesced() - coalescedBefore, 99);
+        assertEquals(subscriptionManager.getNumEventsQueued(), 0);
+    }
+    
+    @Test
+    public void testUnsubscribeWhilePublishingDoesNotLeaveBatchedQueue() throws Exception {
+        final LocalSubscriptionManager subscriptionManager = (LocalSubscriptionManager) app.getManagementContext().getSubscriptionManager();
+        final List<Integer> values = new CopyOnWriteArrayList<Integer>();
+        final AtomicReference<SubscriptionHandle> handle = new AtomicReference<SubscriptionHandle>();
+        int queuesBefore = subscriptionManager.getNumBatchedDeliveryQueues();
+        
+        // the filter is applied by the publishing thread after it has found the subscription, 
+        // so unsubscribing there is the same as a concurrent unsubscribe just before the event is queued
+        Predicate<SensorEvent<Integer>> unsubscribingFilter = new Predicate<SensorEvent<Integer>>() {
+            @Override public boolean apply(SensorEvent<Integer> input) {
+                subscriptionManager.unsubscribe(handle.get());
+                return true;
+            }};
+        handle.set(subscriptionManager.subscribe(MutableMap.<String, Object>of("subscriber", "mysubscriber", "batchDelivery", true, "eventFilter", unsubscribingFilter), 
+                entity, TestEntity.SEQUENCE, new SensorEventListener<Integer>() {
+                    @Override public void onEvent(SensorEvent<Integer> event) {
+                        values.add(event.getValue());
+                    }}));
+        entity.setAttribute(TestEntity.SEQUENCE, 1);
+        
+        assertEquals(subscriptionManager.getNumBatchedDeliveryQueues(), queuesBefore);
+        assertEquals(subscriptionManager.getNumEventsQueued(), 0);
+        assertEquals(values, ImmutableList.of());
+    }
+    
+    @Test
+    public void testBatchedQueueWithSharedTagKeptUntilLastSubscriptionUnsubscribes() throws Exception {
+        LocalSubscriptionManager subscriptionManager = (LocalSubscriptionManager) app.getManagementContext().getSubscriptionManager();
+        final List<Integer> values = new CopyOnWriteArrayList<Integer>();
+        int queuesBefore = subscriptionManager.getNumBatchedDeliveryQueues();
+        
+        List<SubscriptionHandle> handles = Lists.newArrayList();
+        for (int i = 0; i < 2; i++) {
+            // a different listener, so a different subscriber, each time
+            handles.add(subscriptionManager.subscribe(MutableMap.<String, Object>of("subscriberExecutionManagerTag", "mytag", "batchDelivery", true), 
+                    entity, TestEntity.SEQUENCE, new SensorEventListener<Integer>() {
+                        @Override public void onEvent(SensorEvent<Integer> event) {
+                            values.add(event.getValue());
+                        }}));
+        }
+        entity.setAttribute(TestEntity.SEQUENCE, 1);
+        assertEquals(subscriptionManager.getNumBatchedDeliveryQueues(), queuesBefore+1);
+        
+        subscriptionManager.unsubscribe(handles.get(0));
+        assertEquals(subscriptionManager.getNumBatchedDeliveryQueues(), queuesBefore+1);
+        
+        subscriptionManager.unsubscribe(handles.get(1));
+        assertEquals(subscriptionManager.getNumBatchedDeliveryQueues(), queuesBefore);
+        Asserts.succeedsEventually(new Runnable() {
+            public void run() {
+                assertEquals(values, ImmutableList.of(1, 1));
+            }});
+    }
+    
     // Regression test for ConcurrentModificationException in issue #327
     @Test(groups="Integration")
     public void testConcurrentSubscribingAndPublishing() throws Exception {
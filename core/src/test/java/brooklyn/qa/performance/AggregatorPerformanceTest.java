@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.qa.performance;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.Test;
+
+import brooklyn.enricher.Enrichers;
+import brooklyn.entity.basic.BasicGroup;
+import brooklyn.entity.proxying.EntitySpec;
+import brooklyn.event.AttributeSensor;
+import brooklyn.event.basic.Sensors;
+import brooklyn.test.EntityTestUtils;
+import brooklyn.test.entity.TestEntity;
+
+import com.google.common.base.Function;
+import com.google.common.collect.Lists;
+
+/**
+ * Measures the cost of aggregating a sensor over a group's members, per event, as the group grows:
+ * with the incremental {@link Enrichers.AggregatorBuilder#computingSum()} the rate should stay roughly
+ * the same, whereas a function over all the values gets slower with each member added.
+ */
+public class AggregatorPerformanceTest extends AbstractPerformanceTest {
+
+    private static final AttributeSensor<Integer> VALUE = Sensors.newIntegerSensor("test.aggregated.value");
+    private static final AttributeSensor<Long> TOTAL = Sensors.newLongSensor("test.aggregated.total");
+
+    private static final int NUM_ITERATIONS = 10000;
+    private static final int[] GROUP_SIZES = new int[] {10, 100, 1000};
+
+    @Test(groups={"Integration", "Acceptance"})
+    public void testIncrementalSumAsGroupGrows() {
+        for (int size : GROUP_SIZES) {
+            measureAggregation("incrementalSum-"+size, size, true);
+        }
+    }
+
+    @Test(groups={"Integration", "Acceptance"})
+    public void testRecomputedSumAsGroupGrows() {
+        for (int size : GROUP_SIZES) {
+            measureAggregation("recomputedSum-"+size, size, false);
+        }
+    }
+
+    protected void measureAggregation(String prefix, int size, boolean incremental) {
+        double minRatePerSec = 100 * PERFORMANCE_EXPECTATION;
+        final BasicGroup group = app.createAndManageChild(EntitySpec.create(BasicGroup.class));
+        final List<TestEntity> members = Lists.newArrayList();
+        final int[] lastValues = new int[size];
+        for (int i = 0; i < size; i++) {
+            TestEntity member = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+            member.setAttribute(VALUE, 0);
+            group.addMember(member);
+            members.add(member);
+        }
+
+        Enrichers.AggregatorBuilder<Integer, Long> builder = Enrichers.builder()
+                .aggregating(VALUE)
+                .publishing(TOTAL)
+                .fromMembers();
+        if (incremental) {
+            builder.computingSum();
+        } else {
+            builder.computing(new Function<Collection<Integer>, Long>() {
+                @Override public Long apply(Collection<Integer> input) {
+                    long result = 0;
+                    for (Integer val : input) {
+                        if (val != null) result += val;
+                    }
+                    return result;
+                }});
+        }
+        group.addEnricher(builder.build());
+
+        final AtomicInteger iter = new AtomicInteger();
+        measureAndAssert(prefix, NUM_ITERATIONS, minRatePerSec,
+                new Runnable() {
+                    @Override public void run() {
+                        int i = iter.incrementAndGet();
+                        lastValues[i % lastValues.length] = i;
+                        members.get(i % lastValues.length).setAttribute(VALUE, i);
+                    }},
+                new Runnable() {
+                    @Override public void run() {
+                        long expected = 0;
+                        for (int val : lastValues) {
+                            expected += val;
+                        }
+                        EntityTestUtils.assertAttributeEqualsEventually(group, TOTAL, expected);
+                    }});
+    }
+}
@@ -28,8 +28,10 @@ import org.testng.annotations.Test;
 
 import brooklyn.entity.basic.Entities;
 import brooklyn.entity.proxying.EntitySpec;
+import brooklyn.event.AttributeSensor;
 import brooklyn.event.SensorEvent;
 import brooklyn.event.SensorEventListener;
+import brooklyn.event.basic.Sensors;
 import brooklyn.management.Task;
 import brooklyn.test.Asserts;
 import brooklyn.test.entity.TestEntity;
@@ -99,6 +101,38 @@ public class EntityPerformanceTest extends AbstractPerformanceTest {
             }});
     }
 
+    @Test(groups={"Integration", "Acceptance"})
+    public void testGetAndUpdateAttributeWithManySensors() {
+        int numIterations = numIterations();
+        double minRatePerSec = 1000 * PERFORMANCE_EXPECTATION;
+        final int numSensors = 500;
+        final List<AttributeSensor<Integer>> sensors = Lists.newArrayList();
+        for (int j = 0; j < numSensors; j++) {
+            AttributeSensor<Integer> sensor = Sensors.newIntegerSensor("test.perf.sensor"+j);
+            sensors.add(sensor);
+            entity.setAttribute(sensor, j);
+        }
+        final AtomicInteger i = new AtomicInteger();
+        
+        measureAndAssert("getAttribute ("+numSensors+" sensors, "+numSensors+" gets per iteration)", numIterations, minRatePerSec, new Runnable() {
+            public void run() {
+                for (AttributeSensor<Integer> sensor : sensors) {
+                    entity.getAttribute(sensor);
+                }
+            }});
+        
+        measureAndAssert("updateAttribute ("+numSensors+" sensors)", numIterations, minRatePerSec, new Runnable() {
+            public void run() {
+                int val = i.getAndIncrement();
+                entity.setAttribute(sensors.get(val % numSensors), val);
+            }});
+        
+        measureAndAssert("getAllAttributes ("+numSensors+" sensors)", numIterations, minRatePerSec, new Runnable() {
+            public void run() {
+                entity.getAllAttributes();
+            }});
+    }
+
     @Test(groups={"Integration", "Acceptance"})
     public void testInvokeEffector() {
         int numIterations = numIterations();
@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.qa.performance;
+
+import static org.testng.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import brooklyn.entity.Entity;
+import brooklyn.entity.basic.Entities;
+import brooklyn.entity.proxying.EntitySpec;
+import brooklyn.entity.rebind.persister.BrooklynPersistenceUtils;
+import brooklyn.entity.rebind.persister.MementoFormat;
+import brooklyn.entity.rebind.persister.XmlMementoSerializer;
+import brooklyn.event.basic.Sensors;
+import brooklyn.mementos.Memento;
+import brooklyn.test.entity.TestEntity;
+import brooklyn.util.collections.MutableList;
+
+/**
+ * Compares the time to serialize and deserialize the mementos of a generated estate,
+ * and the size of the result, for each {@link MementoFormat}.
+ */
+public class MementoSerializerPerformanceTest extends AbstractPerformanceTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MementoSerializerPerformanceTest.class);
+
+    private static final int NUM_ENTITIES = 1000;
+    private static final int NUM_ATTRIBUTES_PER_ENTITY = 20;
+
+    private List<Memento> mementos;
+
+    @BeforeMethod(alwaysRun=true)
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+
+        mementos = MutableList.of();
+        for (int i = 0; i < NUM_ENTITIES; i++) {
+            TestEntity entity = app.createAndManageChild(EntitySpec.create(TestEntity.class)
+                    .configure(TestEntity.CONF_NAME, "entity-"+i));
+            for (int j = 0; j < NUM_ATTRIBUTES_PER_ENTITY; j++) {
+                entity.setAttribute(Sensors.newStringSensor("test.attribute."+j), "value-"+j+"-of-entity-"+i);
+            }
+        }
+        for (Entity entity : mgmt.getEntityManager().getEntities()) {
+            mementos.add(BrooklynPersistenceUtils.newObjectMemento(Entities.deproxy(entity)));
+        }
+    }
+
+    protected int numIterations() {
+        return 10;
+    }
+
+    @Test(groups={"Integration", "Acceptance"})
+    public void testXmlAndBinaryFormats() throws Exception {
+        long xmlSize = measureFormat(MementoFormat.XML);
+        long binarySize = measureFormat(MementoFormat.BINARY);
+
+        LOG.info("Serialized "+mementos.size()+" mementos: xml "+xmlSize+" chars; binary "+binarySize+" chars");
+        assertTrue(binarySize < xmlSize, "binary="+binarySize+"; xml="+xmlSize);
+    }
+
+    protected long measureFormat(MementoFormat format) {
+        int numIterations = numIterations();
+        double minRatePerSec = 1 * PERFORMANCE_EXPECTATION;
+        final XmlMementoSerializer<Object> serializer = format.newSerializer(getClass().getClassLoader());
+        final List<String> serialized = MutableList.of();
+
+        measureAndAssert("MementoSerializer("+format+").toString ("+mementos.size()+" mementos)", numIterations, minRatePerSec, new Runnable() {
+            public void run() {
+                serialized.clear();
+                for (Memento memento : mementos) {
+                    serialized.add(serializer.toString(memento));
+                }
+            }});
+
+        final AtomicInteger count = new AtomicInteger();
+        measureAndAssert("MementoSerializer("+format+").fromString ("+mementos.size()+" mementos)", numIterations, minRatePerSec, new Runnable() {
+            public void run() {
+                for (String contents : serialized) {
+                    if (serializer.fromString(contents) != null) count.incrementAndGet();
+                }
+            }});
+
+        long size = 0;
+        for (String contents : serialized) {
+            size += contents.length();
+        }
+        return size;
+    }
+}
@@ -32,6 +32,7 @@ import org.testng.annotations.Test;
 import brooklyn.entity.proxying.EntitySpec;
 import brooklyn.event.SensorEvent;
 import brooklyn.event.SensorEventListener;
+import brooklyn.management.SubscriptionHandle;
 import brooklyn.management.SubscriptionManager;
 import brooklyn.test.entity.TestEntity;
 import brooklyn.util.collections.MutableMap;
@@ -165,4 +166,50 @@ public class SubscriptionPerformanceTest extends AbstractPerformanceTest {
             throw exception.get();
         }
     }
+    
+    @Test(groups={"Integration", "Acceptance"})
+    public void testPublishWithConcurrentSubscribeChurn() throws Exception {
+        int numIterations = NUM_ITERATIONS;
+        double minRatePerSec = 1000 * PERFORMANCE_EXPECTATION;
+        int numChurnThreads = 4;
+        final AtomicInteger iter = new AtomicInteger();
+        final AtomicReference<Exception> exception = new AtomicReference<Exception>();
+        final SensorEventListener<Object> noopListener = new SensorEventListener<Object>() {
+            @Override public void onEvent(SensorEvent<Object> event) {
+            }};
+        
+        // Simulates enrichers/policies being added and removed during a cluster resize, 
+        // on both the publishing entity and on unrelated entities
+        List<Thread> threads = Lists.newArrayList();
+        for (int i = 0; i < numChurnThreads; i++) {
+            final Object subscriber = "churn-"+i;
+            final TestEntity producer = entities.get(i % 2 == 0 ? 0 : 1);
+            threads.add(new Thread() {
+                public void run() {
+                    try {
+                        while (!Thread.currentThread().isInterrupted()) {
+                            SubscriptionHandle handle = subscriptionManager.subscribe(MutableMap.<String, Object>of("subscriber", subscriber), producer, TestEntity.SEQUENCE, noopListener);
+                            subscriptionManager.unsubscribe(handle);
+                        }
+                    } catch (Exception e) {
+                        exception.set(e);
+                    }
+                }});
+        }
+        
+        try {
+            for (Thread t : threads) t.start();
+            measureAndAssert("publishWithConcurrentSubscribeChurn", numIterations, minRatePerSec, new Runnable() {
+                @Override public void run() {
+                    entity.setAttribute(TestEntity.SEQUENCE, (iter.incrementAndGet()));
+                }});
+        } finally {
+            for (Thread t : threads) t.interrupt();
+            for (Thread t : threads) t.join(LONG_TIMEOUT_MS);
+        }
+        
+        if (exception.get() != null) {
+            throw exception.get();
+        }
+    }
 }
@@ -31,6 +31,7 @@ import org.slf4j.LoggerFactory;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import brooklyn.management.internal.ManagementContextInternal;
 import brooklyn.util.collections.MutableMap;
 import brooklyn.util.exceptions.Exceptions;
 import brooklyn.util.task.BasicExecutionManager;
@@ -170,6 +171,42 @@ public class TaskPerformanceTest extends AbstractPerformanceTest {
         if (exceptions.size() > 0) throw exceptions.get(0);
     }
     
+    @Test(groups={"Integration", "Acceptance"})
+    public void testTagQueriesWithConcurrentSubmission() throws Exception {
+        double minRatePerSec = 1000 * PERFORMANCE_EXPECTATION;
+        int numTags = 100;
+        int numQueryIterations = 10000;
+        final AtomicInteger submitCount = new AtomicInteger();
+        
+        // populate with many tags, and one "rare" tag to show the benefit of starting intersection from the smallest set
+        // (marked non-transient so they are not deleted on completion)
+        for (int i = 0; i < numIterations/10; i++) {
+            executionManager.submit(MutableMap.of("tags", ImmutableList.of(ManagementContextInternal.NON_TRANSIENT_TASK_TAG, "common", "tag-"+(i % numTags))), new Runnable() { public void run() {} });
+        }
+        executionManager.submit(MutableMap.of("tags", ImmutableList.of(ManagementContextInternal.NON_TRANSIENT_TASK_TAG, "common", "rare")), new Runnable() { public void run() {} });
+        
+        // keep submitting (and so updating the tag index) while querying
+        Thread submitter = new Thread() {
+            public void run() {
+                while (!Thread.currentThread().isInterrupted()) {
+                    int i = submitCount.incrementAndGet();
+                    executionManager.submit(MutableMap.of("tags", ImmutableList.of("tag-"+(i % 100))), new Runnable() { public void run() {} });
+                }
+            }};
+        try {
+            submitter.start();
+            measureAndAssert("testTagQueriesWithConcurrentSubmission", numQueryIterations, minRatePerSec,
+                    new Runnable() {
+                        public void run() {
+                            assertTrue(executionManager.getTasksWithAllTags(ImmutableList.of("common", "rare")).size() == 1);
+                            executionManager.getTasksWithAnyTag(ImmutableList.of("rare", "tag-1"));
+                        }});
+        } finally {
+            submitter.interrupt();
+            submitter.join(LONG_TIMEOUT_MS);
+        }
+    }
+    
     public static void main(String[] args) throws Exception {
         TaskPerformanceTest t = new TaskPerformanceTest();
         t.setUp();
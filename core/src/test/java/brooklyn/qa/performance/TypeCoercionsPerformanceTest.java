@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.qa.performance;
+
+import java.util.List;
+import java.util.Map;
+
+import org.testng.annotations.Test;
+
+import brooklyn.entity.basic.Lifecycle;
+import brooklyn.util.collections.MutableList;
+import brooklyn.util.collections.MutableMap;
+import brooklyn.util.flags.TypeCoercions;
+import brooklyn.util.time.Duration;
+
+import com.google.common.reflect.TypeToken;
+
+/**
+ * Measures the rate of the common coercions done when reading config and attributes.
+ */
+public class TypeCoercionsPerformanceTest extends AbstractPerformanceTest {
+
+    protected int numIterations() {
+        return 100*1000;
+    }
+
+    @Test(groups={"Integration", "Acceptance"})
+    public void testCoerceStringToPrimitives() {
+        measureAndAssert("coerce String to int and boolean", numIterations(), 10000 * PERFORMANCE_EXPECTATION, new Runnable() {
+            public void run() {
+                TypeCoercions.coerce("123", Integer.class);
+                TypeCoercions.coerce("true", Boolean.class);
+            }});
+    }
+
+    @Test(groups={"Integration", "Acceptance"})
+    public void testCoerceStringToDuration() {
+        measureAndAssert("coerce String to Duration", numIterations(), 10000 * PERFORMANCE_EXPECTATION, new Runnable() {
+            public void run() {
+                TypeCoercions.coerce("30s", Duration.class);
+            }});
+    }
+
+    @Test(groups={"Integration", "Acceptance"})
+    public void testCoerceStringToEnum() {
+        measureAndAssert("coerce String to enum", numIterations(), 10000 * PERFORMANCE_EXPECTATION, new Runnable() {
+            public void run() {
+                TypeCoercions.coerce("running", Lifecycle.class);
+            }});
+    }
+
+    @Test(groups={"Integration", "Acceptance"})
+    @SuppressWarnings("serial")
+    public void testCoerceCollections() {
+        final List<String> list = MutableList.of("1", "2", "3", "4", "5");
+        final Map<String, String> map = MutableMap.of("a", "1", "b", "2", "c", "3");
+        final TypeToken<List<Integer>> listType = new TypeToken<List<Integer>>() {};
+        final TypeToken<Map<String, Integer>> mapType = new TypeToken<Map<String, Integer>>() {};
+        final TypeToken<Map<String, String>> unchangedMapType = new TypeToken<Map<String, String>>() {};
+
+        measureAndAssert("coerce List<String> to List<Integer>, and Map<String,String> to Map<String,Integer> and to itself",
+                numIterations(), 10000 * PERFORMANCE_EXPECTATION, new Runnable() {
+            public void run() {
+                TypeCoercions.coerce(list, listType);
+                TypeCoercions.coerce(map, mapType);
+                TypeCoercions.coerce(map, unchangedMapType);
+            }});
+    }
+}
@@ -34,10 +34,12 @@ import org.testng.Assert;
 import org.testng.annotations.Test;
 
 import brooklyn.entity.basic.Lifecycle;
+import brooklyn.util.collections.MutableList;
 import brooklyn.util.flags.ClassCoercionException;
 import brooklyn.util.flags.TypeCoercions;
 import brooklyn.util.text.StringPredicates;
 
+import com.google.common.base.Function;
 import com.google.common.base.Predicate;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
@@ -312,6 +314,49 @@ public class TypeCoercionsTest {
         TypeCoercions.coerce(new Object(), TypeToken.of(Integer.class));
     }
 
+    @Test
+    public void testCoercionUsesAdapterRegisteredAfterFailedCoercion() {
+        try {
+            TypeCoercions.coerce("3", WithRegisteredAdapter.class);
+            Assert.fail("Expected coercion failure");
+        } catch (ClassCoercionException e) {
+            // expected; and the failure is now cached
+        }
+        TypeCoercions.registerAdapter(String.class, WithRegisteredAdapter.class, new Function<String, WithRegisteredAdapter>() {
+            @Override public WithRegisteredAdapter apply(String input) {
+                WithRegisteredAdapter result = new WithRegisteredAdapter();
+                result.value = Integer.parseInt(input);
+                return result;
+            }});
+        Assert.assertEquals(TypeCoercions.coerce("3", WithRegisteredAdapter.class).value, 3);
+    }
+
+    @Test
+    @SuppressWarnings("serial")
+    public void testImmutableCollectionNotCopiedIfEntriesMatch() {
+        ImmutableList<String> list = ImmutableList.of("a", "b");
+        Assert.assertSame(TypeCoercions.coerce(list, new TypeToken<ImmutableList<String>>() {}), list);
+        ImmutableMap<String, Integer> map = ImmutableMap.of("a", 1);
+        Assert.assertSame(TypeCoercions.coerce(map, new TypeToken<ImmutableMap<String, Integer>>() {}), map);
+        
+        // mutable values are still copied, so callers can't modify the original through the result
+        List<String> mutableList = MutableList.of("a", "b");
+        List<String> coerced = TypeCoercions.coerce(mutableList, new TypeToken<List<String>>() {});
+        Assert.assertEquals(coerced, mutableList);
+        Assert.assertNotSame(coerced, mutableList);
+        
+        // and immutable values are copied when a mutable type is asked for, as callers may modify the result
+        List<String> coercedFromImmutable = TypeCoercions.coerce(list, new TypeToken<List<String>>() {});
+        coercedFromImmutable.add("c");
+        Assert.assertEquals(coercedFromImmutable, ImmutableList.of("a", "b", "c"));
+        Map<String, Integer> coercedMapFromImmutable = TypeCoercions.coerce(map, new TypeToken<Map<String, Integer>>() {});
+        coercedMapFromImmutable.put("b", 2);
+        Assert.assertEquals(coercedMapFromImmutable, ImmutableMap.of("a", 1, "b", 2));
+        
+        // and immutable values are coerced if entries don't match
+        assertEquals(TypeCoercions.coerce(ImmutableList.of("1", "2"), new TypeToken<List<Integer>>() {}), ImmutableList.of(1, 2));
+    }
+
     public static class WithAs {
         String value;
         public WithAs(Object x) { value = ""+x; }
@@ -320,6 +365,10 @@ public class TypeCoercionsTest {
         }
     }
 
+    public static class WithRegisteredAdapter {
+        int value;
+    }
+
     public static class WithFrom {
         int value;
         public static WithFrom fromString(String s) {
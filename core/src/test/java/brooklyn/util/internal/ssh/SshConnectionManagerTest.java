@@ -0,0 +1,262 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.util.internal.ssh;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.List;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import brooklyn.config.BrooklynProperties;
+import brooklyn.util.internal.ssh.SshConnectionManager.ConnectionKey;
+import brooklyn.util.internal.ssh.SshConnectionManager.ConnectionLease;
+import brooklyn.util.time.Duration;
+
+import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+
+public class SshConnectionManagerTest {
+
+    private BrooklynProperties props;
+    private SshConnectionManager manager;
+    private List<SshTool> connected;
+    private Supplier<SshTool> connector;
+
+    @BeforeMethod(alwaysRun=true)
+    public void setUp() throws Exception {
+        props = BrooklynProperties.Factory.newEmpty();
+        props.put(SshConnectionManager.LEASE_TIMEOUT, Duration.millis(10));
+        connected = Lists.newCopyOnWriteArrayList();
+        connector = new Supplier<SshTool>() {
+            @Override public SshTool get() {
+                SshTool tool = new RecordingSshTool(ImmutableMap.of());
+                tool.connect();
+                connected.add(tool);
+                return tool;
+            }};
+    }
+
+    @AfterMethod(alwaysRun=true)
+    public void tearDown() throws Exception {
+        if (manager != null) manager.close();
+    }
+
+    private SshConnectionManager newManager() {
+        return manager = new SshConnectionManager(props, null);
+    }
+
+    private ConnectionKey key(String user, String host) {
+        return ConnectionKey.of(ImmutableMap.of(SshTool.PROP_USER.getName(), user, SshTool.PROP_HOST.getName(), host));
+    }
+
+    @Test
+    public void testKeyIncludesAllProperties() throws Exception {
+        ConnectionKey key = key("me", "host1");
+        assertEquals(key, key("me", "host1"));
+        assertNotEquals(key, key("you", "host1"));
+        assertNotEquals(key, ConnectionKey.of(ImmutableMap.of(SshTool.PROP_USER.getName(), "me", SshTool.PROP_HOST.getName(), "host1",
+                SshTool.PROP_PASSWORD.getName(), "secret")));
+        assertFalse(ConnectionKey.of(ImmutableMap.of(SshTool.PROP_PASSWORD.getName(), "secret")).toString().contains("secret"));
+    }
+
+    @Test
+    public void testReusesConnectionForSameKey() throws Exception {
+        newManager();
+        ConnectionLease lease1 = manager.lease(key("me", "host1"), Duration.ONE_MINUTE, connector);
+        SshTool tool = lease1.leasedObject();
+        lease1.close();
+        assertEquals(manager.getNumIdleConnections(), 1);
+
+        ConnectionLease lease2 = manager.lease(key("me", "host1"), Duration.ONE_MINUTE, connector);
+        assertSame(lease2.leasedObject(), tool);
+        assertEquals(manager.getNumLeasedConnections(), 1);
+
+        ConnectionLease lease3 = manager.lease(key("you", "host1"), Duration.ONE_MINUTE, connector);
+        assertNotSame(lease3.leasedObject(), tool);
+        lease2.close();
+        lease3.close();
+
+        assertEquals(manager.getTotalLeases(), 3);
+        assertEquals(manager.getTotalConnectionsCreated(), 2);
+        assertEquals(manager.getNumOpenConnections(), 2);
+        assertEquals(manager.getNumLeasedConnections(), 0);
+    }
+
+    @Test
+    public void testDoesNotReuseDisconnectedConnection() throws Exception {
+        newManager();
+        ConnectionLease lease1 = manager.lease(key("me", "host1"), Duration.ONE_MINUTE, connector);
+        SshTool tool = lease1.leasedObject();
+        lease1.close();
+        tool.disconnect();
+
+        ConnectionLease lease2 = manager.lease(key("me", "host1"), Duration.ONE_MINUTE, connector);
+        assertNotSame(lease2.leasedObject(), tool);
+        lease2.close();
+        assertEquals(manager.getNumOpenConnections(), 1);
+    }
+
+    @Test
+    public void testClosesLeastRecentlyUsedIdleConnectionToSameHostWhenHostLimitReached() throws Exception {
+        props.put(SshConnectionManager.MAX_CONNECTIONS_PER_HOST, 2);
+        newManager();
+        ConnectionLease lease1 = manager.lease(key("a", "host1"), Duration.ONE_MINUTE, connector);
+        ConnectionLease lease2 = manager.lease(key("b", "host1"), Duration.ONE_MINUTE, connector);
+        ConnectionLease leaseOther = manager.lease(key("a", "host2"), Duration.ONE_MINUTE, connector);
+        leaseOther.close();
+        lease1.close();
+        lease2.close();
+
+        ConnectionLease lease3 = manager.lease(key("c", "host1"), Duration.ONE_MINUTE, connector);
+        assertFalse(lease1.leasedObject().isConnected());
+        assertTrue(lease2.leasedObject().isConnected());
+        assertTrue(leaseOther.leasedObject().isConnected());
+        lease3.close();
+        assertEquals(manager.getNumOpenConnections(), 3);
+    }
+
+    @Test
+    public void testFailsWhenAllConnectionsToHostLeased() throws Exception {
+        props.put(SshConnectionManager.MAX_CONNECTIONS_PER_HOST, 1);
+        newManager();
+        ConnectionLease lease1 = manager.lease(key("a", "host1"), Duration.ONE_MINUTE, connector);
+        try {
+            manager.lease(key("b", "host1"), Duration.ONE_MINUTE, connector);
+            fail();
+        } catch (IllegalStateException e) {
+            assertTrue(e.toString().contains("Timeout"), "e="+e);
+        }
+        lease1.close();
+        manager.lease(key("b", "host1"), Duration.ONE_MINUTE, connector).close();
+        assertEquals(connected.size(), 2);
+    }
+
+    @Test
+    public void testConnectionsToHostNotLimitedByDefault() throws Exception {
+        newManager();
+        List<ConnectionLease> leases = Lists.newArrayList();
+        for (int i = 0; i < 100; i++) {
+            leases.add(manager.lease(key("a", "host1"), Duration.ONE_MINUTE, connector));
+        }
+        assertEquals(manager.getNumLeasedConnections(), 100);
+        for (ConnectionLease lease : leases) {
+            lease.close();
+        }
+    }
+
+    @Test
+    public void testLimitsIdleConnections() throws Exception {
+        props.put(SshConnectionManager.MAX_IDLE_CONNECTIONS, 1);
+        newManager();
+        ConnectionLease lease1 = manager.lease(key("a", "host1"), Duration.ONE_MINUTE, connector);
+        ConnectionLease lease2 = manager.lease(key("a", "host2"), Duration.ONE_MINUTE, connector);
+        lease1.close();
+        lease2.close();
+        assertFalse(lease1.leasedObject().isConnected());
+        assertTrue(lease2.leasedObject().isConnected());
+        assertEquals(manager.getNumIdleConnections(), 1);
+        assertEquals(manager.getNumOpenConnections(), 1);
+    }
+
+    @Test
+    public void testClosesExpiredConnections() throws Exception {
+        newManager();
+        ConnectionLease lease1 = manager.lease(key("a", "host1"), Duration.ONE_MILLISECOND, connector);
+        ConnectionLease lease2 = manager.lease(key("a", "host2"), Duration.ONE_MINUTE, connector);
+        lease1.close();
+        lease2.close();
+        Thread.sleep(10);
+        manager.closeExpired();
+        assertFalse(lease1.leasedObject().isConnected());
+        assertTrue(lease2.leasedObject().isConnected());
+        assertEquals(manager.getTotalConnectionsClosed(), 1);
+    }
+
+    @Test
+    public void testClosesIdleConnectionsForKeys() throws Exception {
+        newManager();
+        ConnectionLease lease1 = manager.lease(key("a", "host1"), Duration.ONE_MINUTE, connector);
+        ConnectionLease lease2 = manager.lease(key("a", "host2"), Duration.ONE_MINUTE, connector);
+        lease1.close();
+        lease2.close();
+        manager.closeIdle(ImmutableList.of(key("a", "host1")));
+        assertFalse(lease1.leasedObject().isConnected());
+        assertTrue(lease2.leasedObject().isConnected());
+    }
+
+    @Test
+    public void testRemovingUserKeepsConnectionsOfOtherUsers() throws Exception {
+        newManager();
+        Object user1 = new Object();
+        Object user2 = new Object();
+        manager.addUser(key("a", "host1"), user1);
+        manager.addUser(key("a", "host1"), user2);
+        manager.addUser(key("a", "host2"), user1);
+        ConnectionLease lease1 = manager.lease(key("a", "host1"), Duration.ONE_MINUTE, connector);
+        ConnectionLease lease2 = manager.lease(key("a", "host2"), Duration.ONE_MINUTE, connector);
+        lease1.close();
+        lease2.close();
+
+        manager.removeUser(ImmutableList.of(key("a", "host1"), key("a", "host2")), user1);
+        assertTrue(lease1.leasedObject().isConnected());
+        assertFalse(lease2.leasedObject().isConnected());
+
+        manager.removeUser(ImmutableList.of(key("a", "host1")), user2);
+        assertFalse(lease1.leasedObject().isConnected());
+        assertEquals(manager.getNumOpenConnections(), 0);
+    }
+
+    @Test
+    public void testDiscardedLeaseClosesConnection() throws Exception {
+        newManager();
+        ConnectionLease lease1 = manager.lease(key("a", "host1"), Duration.ONE_MINUTE, connector);
+        ConnectionLease lease2 = manager.lease(key("a", "host1"), Duration.ONE_MINUTE, connector);
+        lease1.close();
+        lease2.discard();
+        assertTrue(lease1.leasedObject().isConnected());
+        assertFalse(lease2.leasedObject().isConnected());
+        assertEquals(manager.getNumOpenConnections(), 1);
+    }
+
+    @Test
+    public void testClosedManagerStillLeasesButDoesNotPool() throws Exception {
+        newManager();
+        ConnectionLease lease1 = manager.lease(key("a", "host1"), Duration.ONE_MINUTE, connector);
+        lease1.close();
+        manager.close();
+        assertFalse(lease1.leasedObject().isConnected());
+
+        ConnectionLease lease2 = manager.lease(key("a", "host1"), Duration.ONE_MINUTE, connector);
+        assertTrue(lease2.leasedObject().isConnected());
+        lease2.close();
+        assertFalse(lease2.leasedObject().isConnected());
+        assertEquals(manager.getNumOpenConnections(), 0);
+    }
+}
@@ -103,7 +103,7 @@ public abstract class SshToolAbstractPerformanceTest {
         runMany(task, context, iterations);
     }
 
-    private void runMany(Runnable task, String context, int iterations) throws Exception {
+    protected void runMany(Runnable task, String context, int iterations) throws Exception {
         MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
         ObjectName osMBeanName = ObjectName.getInstance(ManagementFactory.OPERATING_SYSTEM_MXBEAN_NAME);
         long preCpuTime = (Long) mbeanServer.getAttribute(osMBeanName, "ProcessCpuTime");
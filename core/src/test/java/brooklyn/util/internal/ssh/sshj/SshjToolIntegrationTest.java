@@ -48,6 +48,7 @@ import brooklyn.util.os.Os;
 import brooklyn.util.time.Duration;
 
 import com.google.common.base.Stopwatch;
+import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 
@@ -165,6 +166,52 @@ public class SshjToolIntegrationTest extends SshToolAbstractIntegrationTest {
         assertEquals(localtool3.getLocalTempDir(), new File(Os.tidyPath(customRelativeTempDir)));
     }
 
+    @Test(groups = {"Integration"})
+    public void testExecScriptViaStdinStdoutStderrAndExitCode() throws Exception {
+        List<String> cmds = ImmutableList.of(
+                "echo mystringToStdout",
+                "echo mystringToStderr 1>&2",
+                "echo '$HOME' \"EOF\" `echo quoted`",
+                "exit 123");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        int exitCode = tool.execScript(
+                ImmutableMap.of(
+                        "out", out, 
+                        "err", err, 
+                        SshjTool.PROP_SCRIPT_VIA_STDIN.getName(), true,
+                        SshjTool.PROP_NO_EXTRA_OUTPUT.getName(), true),
+                cmds, 
+                ImmutableMap.<String,String>of());
+        String outStr = new String(out.toByteArray());
+        String errStr = new String(err.toByteArray());
+
+        assertEquals(exitCode, 123);
+        assertEquals(outStr.trim(), "mystringToStdout\n$HOME EOF quoted");
+        assertEquals(errStr.trim(), "mystringToStderr");
+    }
+
+    @Test(groups = {"Integration"})
+    public void testExecScriptViaStdinDoesNotPassStdinToScript() throws Exception {
+        String out = execScript(
+                ImmutableMap.of(SshjTool.PROP_SCRIPT_VIA_STDIN.getName(), true),
+                tool,
+                ImmutableList.of("cat", "echo after"),
+                ImmutableMap.<String,Object>of());
+        assertTrue(out.contains("after"), "out="+out);
+    }
+
+    @Test(groups = {"Integration"})
+    public void testExecScriptViaStdinBigScript() throws Exception {
+        String bigstring = Strings.repeat("a", 100000);
+        String out = execScript(
+                ImmutableMap.of(SshjTool.PROP_SCRIPT_VIA_STDIN.getName(), true),
+                tool,
+                ImmutableList.of("echo "+bigstring+" | wc -c"),
+                ImmutableMap.<String,Object>of());
+        assertTrue(out.contains(""+(bigstring.length()+1)), "out="+out);
+    }
+
     @Test(groups = {"Integration"})
     public void testAsyncExecStdoutAndStderr() throws Exception {
         boolean origFeatureEnablement = BrooklynFeatureEnablement.enable(BrooklynFeatureEnablement.FEATURE_SSH_ASYNC_EXEC);
@@ -18,13 +18,18 @@
  */
 package brooklyn.util.internal.ssh.sshj;
 
+import static org.testng.Assert.assertEquals;
+
 import java.util.Map;
 
 import org.testng.annotations.Test;
 
+import brooklyn.util.collections.MutableMap;
 import brooklyn.util.internal.ssh.SshTool;
 import brooklyn.util.internal.ssh.SshToolAbstractPerformanceTest;
 
+import com.google.common.collect.ImmutableList;
+
 /**
  * Test the performance of different variants of invoking the sshj tool.
  * 
@@ -37,6 +42,36 @@ public class SshjToolPerformanceTest extends SshToolAbstractPerformanceTest {
         return new SshjTool(flags);
     }
     
+    /**
+     * Compares copying each script before running it with sending it in the same session,
+     * over one connection (as the same {@link brooklyn.location.basic.SshMachineLocation} would reuse).
+     */
+    @Test(groups = {"Integration"})
+    public void testConsecutiveScriptsCopiedOnOneConnection() throws Exception {
+        runManyScriptsOnOneConnection(false, "script-copied", 100);
+    }
+
+    @Test(groups = {"Integration"})
+    public void testConsecutiveScriptsViaStdinOnOneConnection() throws Exception {
+        runManyScriptsOnOneConnection(true, "script-via-stdin", 100);
+    }
+
+    private void runManyScriptsOnOneConnection(boolean viaStdin, String context, int iterations) throws Exception {
+        final SshTool tool = newSshTool(MutableMap.of("host", "localhost"));
+        final Map<String, ?> flags = MutableMap.of(SshTool.PROP_SCRIPT_VIA_STDIN.getName(), viaStdin);
+        tool.connect();
+        try {
+            Runnable task = new Runnable() {
+                @Override public void run() {
+                    int result = tool.execScript(flags, ImmutableList.of("true"));
+                    assertEquals(result, 0);
+                }};
+            runMany(task, context, iterations);
+        } finally {
+            tool.disconnect();
+        }
+    }
+
     // Need to have at least one test method here (rather than just inherited) for eclipse to recognize it
     @Test(enabled = false)
     public void testDummy() throws Exception {
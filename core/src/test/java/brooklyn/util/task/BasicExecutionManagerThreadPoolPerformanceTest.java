@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.util.task;
+
+import static org.testng.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import brooklyn.management.Task;
+import brooklyn.util.task.BasicExecutionManager.ThreadPoolMode;
+import brooklyn.util.time.Time;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.Lists;
+
+/**
+ * Compares the {@link ThreadPoolMode}s of {@link BasicExecutionManager}, 
+ * for a burst of tasks which block (as ssh and http calls do), 
+ * looking at the peak number of threads and at the latency from task submission to task start.
+ */
+public class BasicExecutionManagerThreadPoolPerformanceTest {
+    
+    private static final Logger log = LoggerFactory.getLogger(BasicExecutionManagerThreadPoolPerformanceTest.class);
+    
+    private static final long TIMEOUT_MS = 60*1000;
+    
+    private BasicExecutionManager em;
+
+    @AfterMethod(alwaysRun=true)
+    public void tearDown() throws Exception {
+        if (em != null) em.shutdownNow();
+    }
+
+    @Test
+    public void testBoundedModeLimitsThreads() throws Exception {
+        int maxThreads = 4;
+        int peakThreads = runBurst(ThreadPoolMode.BOUNDED, maxThreads, 20, 50);
+        assertTrue(peakThreads <= maxThreads, "peakThreads="+peakThreads);
+    }
+
+    @Test(groups="Integration")
+    public void testBurstOfBlockingTasksUnbounded() throws Exception {
+        runBurst(ThreadPoolMode.UNBOUNDED, Integer.MAX_VALUE, 2000, 100);
+    }
+    
+    @Test(groups="Integration")
+    public void testBurstOfBlockingTasksBounded() throws Exception {
+        int maxThreads = 200;
+        int peakThreads = runBurst(ThreadPoolMode.BOUNDED, maxThreads, 2000, 100);
+        assertTrue(peakThreads <= maxThreads, "peakThreads="+peakThreads);
+    }
+    
+    @Test(groups="Integration")
+    public void testBurstOfBlockingTasksVirtual() throws Exception {
+        runBurst(ThreadPoolMode.VIRTUAL, Integer.MAX_VALUE, 2000, 100);
+    }
+    
+    /** @return peak number of threads observed in the execution manager's pool */
+    protected int runBurst(ThreadPoolMode mode, int maxThreads, int numTasks, final long taskDurationMs) throws Exception {
+        em = new BasicExecutionManager("mycontext-"+mode, mode, maxThreads);
+        final AtomicInteger peakThreads = new AtomicInteger();
+        
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        List<Task<?>> tasks = Lists.newArrayList();
+        for (int i = 0; i < numTasks; i++) {
+            tasks.add(em.submit(new Runnable() {
+                public void run() {
+                    int numThreads = em.getNumThreads();
+                    int peak;
+                    while ((peak = peakThreads.get()) < numThreads && !peakThreads.compareAndSet(peak, numThreads)) {}
+                    Time.sleep(taskDurationMs);
+                }}));
+        }
+        long totalLatency = 0;
+        long maxLatency = 0;
+        for (Task<?> task : tasks) {
+            task.get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            long latency = task.getStartTimeUtc() - task.getSubmitTimeUtc();
+            totalLatency += latency;
+            maxLatency = Math.max(maxLatency, latency);
+        }
+        long duration = stopwatch.elapsed(TimeUnit.MILLISECONDS);
+        
+        String msg = mode+" (max "+maxThreads+" threads): "+numTasks+" tasks of "+taskDurationMs+"ms in "+duration+"ms; "
+                + "peak threads "+peakThreads.get()+"; "
+                + "start latency mean "+(totalLatency/numTasks)+"ms, max "+maxLatency+"ms";
+        log.info(msg);
+        return peakThreads.get();
+    }
+}
@@ -182,6 +182,11 @@ public class BasicTaskExecutionTest {
         assertEquals(em.getTasksWithAllTags(ImmutableList.of("A", "B")).size(), 1);
         assertEquals(em.getTasksWithAllTags(ImmutableList.of("B", "C")).size(), 1);
         assertEquals(em.getTasksWithAnyTag(ImmutableList.of("A", "D")).size(), 3);
+        assertEquals(em.getTasksWithAllTags(ImmutableList.of("A", "B", "C")).size(), 0);
+        assertEquals(em.getTasksWithAllTags(ImmutableList.of("A", "E")).size(), 0);
+        assertEquals(em.getTasksWithAllTags(ImmutableList.of()).size(), 0);
+        assertEquals(em.getNumTasksWithTag("B"), 2);
+        assertEquals(em.getNumTasksWithTag("E"), 0);
     }
 
     @Test
@@ -26,6 +26,7 @@ import static org.jclouds.aws.ec2.reference.AWSEC2Constants.PROPERTY_EC2_CC_AMI_
 import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.jclouds.Constants;
 import org.jclouds.ContextBuilder;
@@ -41,8 +42,11 @@ import brooklyn.entity.basic.Entities;
 import brooklyn.entity.basic.Sanitizer;
 import brooklyn.util.collections.MutableMap;
 import brooklyn.util.config.ConfigBag;
+import brooklyn.util.time.Duration;
 
+import com.google.common.annotations.Beta;
 import com.google.common.base.Predicates;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Maps;
 import com.google.inject.Module;
@@ -60,6 +64,11 @@ public class ComputeServiceRegistryImpl implements ComputeServiceRegistry, Jclou
 
     protected final Object createComputeServicesMutex = new Object();
 
+    protected final TemplateCache templateCache = new TemplateCache();
+
+    protected final AtomicLong computeServiceCacheHits = new AtomicLong();
+    protected final AtomicLong computeServiceCacheMisses = new AtomicLong();
+
     @Override
     public ComputeService findComputeService(ConfigBag conf, boolean allowReuse) {
         String provider = checkNotNull(conf.get(CLOUD_PROVIDER), "provider must not be null");
@@ -106,6 +115,12 @@ public class ComputeServiceRegistryImpl implements ComputeServiceRegistry, Jclou
         }
         properties.putAll(extra);
 
+        // jclouds memoizes its listings of images, hardware and locations for the session interval
+        Duration imageListingCacheTtl = conf.get(IMAGE_LISTING_CACHE_TTL);
+        if (imageListingCacheTtl != null) {
+            properties.setProperty(Constants.PROPERTY_SESSION_INTERVAL, Long.toString(imageListingCacheTtl.toSeconds()));
+        }
+
         String endpoint = conf.get(CLOUD_ENDPOINT);
         if (!groovyTruth(endpoint)) endpoint = getDeprecatedProperty(conf, Constants.PROPERTY_ENDPOINT);
         if (groovyTruth(endpoint)) properties.setProperty(Constants.PROPERTY_ENDPOINT, endpoint);
@@ -122,9 +137,11 @@ public class ComputeServiceRegistryImpl implements ComputeServiceRegistry, Jclou
         if (allowReuse) {
             ComputeService result = cachedComputeServices.get(cacheKey);
             if (result!=null) {
+                computeServiceCacheHits.incrementAndGet();
                 LOG.trace("jclouds ComputeService cache hit for compute service, for "+Sanitizer.sanitize(properties));
                 return result;
             }
+            computeServiceCacheMisses.incrementAndGet();
             LOG.debug("jclouds ComputeService cache miss for compute service, creating, for "+Sanitizer.sanitize(properties));
         }
 
@@ -157,6 +174,26 @@ public class ComputeServiceRegistryImpl implements ComputeServiceRegistry, Jclou
         return computeService;
      }
 
+    /**
+     * The templates resolved by locations using this registry; keys should include the cloud account,
+     * as the cache is shared by all compute services.
+     */
+    @Beta
+    public TemplateCache getTemplateCache() {
+        return templateCache;
+    }
+
+    /** counts of hits and misses in the compute service and template caches, for monitoring */
+    @Beta
+    public Map<String, Long> getMetrics() {
+        return ImmutableMap.<String, Long>builder()
+                .put("computeServiceCacheSize", (long) cachedComputeServices.size())
+                .put("computeServiceCacheHits", computeServiceCacheHits.get())
+                .put("computeServiceCacheMisses", computeServiceCacheMisses.get())
+                .putAll(templateCache.getMetrics())
+                .build();
+    }
+
     /** returns the jclouds modules we typically install */ 
     protected ImmutableSet<Module> getCommonModules() {
         return ImmutableSet.<Module> of(
@@ -208,6 +208,9 @@ public class JcloudsLocation extends AbstractCloudMachineProvisioningLocation im
     @SetFromFlag // so it's persisted
     private final Map<JcloudsSshMachineLocation,String> vmInstanceIds = Maps.newLinkedHashMap();
 
+    private final Object nodeCreationBatcherLock = new Object[0];
+    private transient NodeCreationBatcher nodeCreationBatcher;
+
     static { Networking.init(); }
 
     public JcloudsLocation() {
@@ -550,7 +553,7 @@ public class JcloudsLocation extends AbstractCloudMachineProvisioningLocation im
         }
     }
 
-    protected JcloudsSshMachineLocation obtainOnce(ConfigBag setup) throws NoMachinesAvailableException {
+    protected JcloudsSshMachineLocation obtainOnce(final ConfigBag setup) throws NoMachinesAvailableException {
         AccessController.Response access = getManagementContext().getAccessController().canProvisionLocation(this);
         if (!access.isAllowed()) {
             throw new IllegalStateException("Access controller forbids provisioning in "+this+": "+access.getMsg());
@@ -564,60 +567,40 @@ public class JcloudsLocation extends AbstractCloudMachineProvisioningLocation im
         if (usePortForwarding) checkNotNull(portForwarder, "portForwarder, when use-port-forwarding enabled");
 
         final ComputeService computeService = getConfig(COMPUTE_SERVICE_REGISTRY).findComputeService(setup, true);
-        CloudMachineNamer cloudMachineNamer = getCloudMachineNamer(setup);
-        String groupId = elvis(setup.get(GROUP_ID), cloudMachineNamer.generateNewGroupId());
+        final CloudMachineNamer cloudMachineNamer = getCloudMachineNamer(setup);
+        final String groupId = elvis(setup.get(GROUP_ID), cloudMachineNamer.generateNewGroupId());
+        final boolean initUserInTemplate = waitForSshable && !skipJcloudsSshing;
         NodeMetadata node = null;
         JcloudsSshMachineLocation sshMachineLocation = null;
 
         try {
             LOG.info("Creating VM "+setup.getDescription()+" in "+this);
 
-            Semaphore machineCreationSemaphore = getMachineCreationSemaphore();
-            boolean acquired = machineCreationSemaphore.tryAcquire(0, TimeUnit.SECONDS);
-            if (!acquired) {
-                LOG.info("Waiting in {} for machine-creation permit ({} other queuing requests already)", new Object[] {this, machineCreationSemaphore.getQueueLength()});
-                Stopwatch blockStopwatch = Stopwatch.createStarted();
-                machineCreationSemaphore.acquire();
-                LOG.info("Acquired in {} machine-creation permit, after waiting {}", this, Time.makeTimeStringRounded(blockStopwatch));
-            } else {
-                LOG.debug("Acquired in {} machine-creation permit immediately", this);
-            }
-
             Stopwatch provisioningStopwatch = Stopwatch.createStarted();
             Duration templateTimestamp, provisionTimestamp, usableTimestamp, customizedTimestamp;
 
-            LoginCredentials userCredentials = null;
-            Set<? extends NodeMetadata> nodes;
-            Template template;
-            try {
-                // Setup the template
-                template = buildTemplate(computeService, setup);
-                if (waitForSshable && !skipJcloudsSshing) {
-                    userCredentials = initTemplateForCreateUser(template, setup);
-                }
-
-                //FIXME initialCredentials = initUserTemplateOptions(template, setup);
-                for (JcloudsLocationCustomizer customizer : getCustomizers(setup)) {
-                    customizer.customize(this, computeService, template);
-                    customizer.customize(this, computeService, template.getOptions());
-                }
-                LOG.debug("jclouds using template {} / options {} to provision machine in {}",
-                        new Object[] {template, template.getOptions(), setup.getDescription()});
-
-                if (!setup.getUnusedConfig().isEmpty())
-                    LOG.debug("NOTE: unused flags passed to obtain VM in "+setup.getDescription()+": "+
-                            setup.getUnusedConfig());
-
-                templateTimestamp = Duration.of(provisioningStopwatch);
-                template.getOptions().getUserMetadata().put("Name", cloudMachineNamer.generateNewMachineUniqueNameFromGroupId(groupId));
-
-                nodes = computeService.createNodesInGroup(groupId, 1, template);
-                provisionTimestamp = Duration.of(provisioningStopwatch);
-            } finally {
-                machineCreationSemaphore.release();
+            NodeCreationBatcher.CreatedNodes created;
+            Duration batchWindow = setup.get(MACHINE_CREATION_BATCH_WINDOW);
+            Integer maxBatchSize = setup.get(MAX_MACHINE_CREATION_BATCH_SIZE);
+            Object batchKey = (batchWindow != null && batchWindow.isPositive() && maxBatchSize != null && maxBatchSize > 1)
+                    ? getNodeCreationBatchKey(setup, initUserInTemplate) : null;
+            if (batchKey != null) {
+                created = getNodeCreationBatcher().obtain(batchKey, batchWindow, maxBatchSize,
+                        new NodeCreationBatcher.BatchCreator() {
+                            @Override
+                            public NodeCreationBatcher.CreatedNodes create(int count) throws Exception {
+                                return createNodes(computeService, setup, cloudMachineNamer, groupId, count, initUserInTemplate);
+                            }
+                        });
+            } else {
+                created = createNodes(computeService, setup, cloudMachineNamer, groupId, 1, initUserInTemplate);
             }
+            Template template = created.getTemplate();
+            LoginCredentials userCredentials = created.getUserCredentials();
+            provisionTimestamp = Duration.of(provisioningStopwatch);
+            templateTimestamp = Duration.min(created.getTemplateBuildTime(), provisionTimestamp);
 
-            node = Iterables.getOnlyElement(nodes, null);
+            node = Iterables.getOnlyElement(created.getNodes(), null);
             LOG.debug("jclouds created {} for {}", node, setup.getDescription());
             if (node == null)
                 throw new IllegalStateException("No nodes returned by jclouds create-nodes in " + setup.getDescription());
@@ -832,6 +815,138 @@ public class JcloudsLocation extends AbstractCloudMachineProvisioningLocation im
         }
     }
 
+    /**
+     * Builds the template, and creates the given number of nodes with it in a single request to jclouds.
+     * If only some of several nodes are created, returns those along with the failure (having released
+     * those which failed, if {@link #DESTROY_ON_FAILURE}).
+     * <p>
+     * The template, including any user set up by {@link #initTemplateForCreateUser(Template, ConfigBag)},
+     * is shared by all the nodes; see {@link #getNodeCreationBatchKey(ConfigBag, boolean)} for which requests may share it.
+     */
+    protected NodeCreationBatcher.CreatedNodes createNodes(ComputeService computeService, ConfigBag setup, CloudMachineNamer cloudMachineNamer,
+            String groupId, int count, boolean initUserInTemplate) throws Exception {
+        Semaphore machineCreationSemaphore = getMachineCreationSemaphore();
+        boolean acquired = machineCreationSemaphore.tryAcquire(0, TimeUnit.SECONDS);
+        if (!acquired) {
+            LOG.info("Waiting in {} for machine-creation permit ({} other queuing requests already)", new Object[] {this, machineCreationSemaphore.getQueueLength()});
+            Stopwatch blockStopwatch = Stopwatch.createStarted();
+            machineCreationSemaphore.acquire();
+            LOG.info("Acquired in {} machine-creation permit, after waiting {}", this, Time.makeTimeStringRounded(blockStopwatch));
+        } else {
+            LOG.debug("Acquired in {} machine-creation permit immediately", this);
+        }
+
+        try {
+            Stopwatch templateStopwatch = Stopwatch.createStarted();
+            LoginCredentials userCredentials = null;
+
+            // Setup the template
+            Template template = buildTemplate(computeService, setup);
+            if (initUserInTemplate) {
+                userCredentials = initTemplateForCreateUser(template, setup);
+            }
+
+            //FIXME initialCredentials = initUserTemplateOptions(template, setup);
+            for (JcloudsLocationCustomizer customizer : getCustomizers(setup)) {
+                customizer.customize(this, computeService, template);
+                customizer.customize(this, computeService, template.getOptions());
+            }
+            LOG.debug("jclouds using template {} / options {} to provision {} machine{} in {}",
+                    new Object[] {template, template.getOptions(), count, Strings.s(count), setup.getDescription()});
+
+            if (!setup.getUnusedConfig().isEmpty())
+                LOG.debug("NOTE: unused flags passed to obtain VM in "+setup.getDescription()+": "+
+                        setup.getUnusedConfig());
+
+            Duration templateBuildTime = Duration.of(templateStopwatch);
+            if (count == 1) {
+                template.getOptions().getUserMetadata().put("Name", cloudMachineNamer.generateNewMachineUniqueNameFromGroupId(groupId));
+            } // else leave jclouds to name each node uniquely within the group, as group-suffix like the above
+
+            try {
+                Set<? extends NodeMetadata> nodes = computeService.createNodesInGroup(groupId, count, template);
+                return new NodeCreationBatcher.CreatedNodes(template, userCredentials, templateBuildTime, nodes, null);
+            } catch (RunNodesException e) {
+                invalidateCachedTemplate(setup);
+                if (count == 1) throw e;
+                LOG.warn("jclouds created only "+e.getSuccessfulNodes().size()+" of "+count+" nodes in "+setup.getDescription()+": "+e.getMessage());
+                if (Boolean.TRUE.equals(setup.get(DESTROY_ON_FAILURE))) {
+                    for (NodeMetadata failed : e.getNodeErrors().keySet()) {
+                        releaseNodeSafely(failed);
+                    }
+                }
+                return new NodeCreationBatcher.CreatedNodes(template, userCredentials, templateBuildTime, e.getSuccessfulNodes(), e);
+            } catch (RuntimeException e) {
+                invalidateCachedTemplate(setup);
+                throw e;
+            }
+        } finally {
+            machineCreationSemaphore.release();
+        }
+    }
+
+    protected NodeCreationBatcher getNodeCreationBatcher() {
+        synchronized (nodeCreationBatcherLock) {
+            if (nodeCreationBatcher == null) nodeCreationBatcher = new NodeCreationBatcher();
+            return nodeCreationBatcher;
+        }
+    }
+
+    /** the template cache to use, or null if templates are not to be cached */
+    @Nullable
+    protected TemplateCache getTemplateCache(ConfigBag setup) {
+        Duration ttl = setup.get(TEMPLATE_CACHE_TTL);
+        if (ttl == null || !ttl.isPositive()) return null;
+        ComputeServiceRegistry registry = setup.get(COMPUTE_SERVICE_REGISTRY);
+        return (registry instanceof ComputeServiceRegistryImpl) ? ((ComputeServiceRegistryImpl)registry).getTemplateCache() : null;
+    }
+
+    /**
+     * requests with equal keys resolve to the same template: the same cloud account and region, and the same
+     * template constraints and customizers; returns null if the template cannot be cached (e.g. a custom
+     * {@link TemplateBuilder} is supplied)
+     */
+    @Nullable
+    protected Object getTemplateCacheKey(ConfigBag setup) {
+        if (setup.get(TEMPLATE_BUILDER) != null) return null;
+        MutableMap.Builder<Object, Object> result = MutableMap.builder();
+        for (ConfigKey<?> key : ImmutableList.<ConfigKey<?>>of(CLOUD_PROVIDER, CLOUD_ENDPOINT, CLOUD_REGION_ID, ACCESS_IDENTITY, ACCESS_CREDENTIAL,
+                IMAGE_CHOOSER, JCLOUDS_LOCATION_CUSTOMIZER, JCLOUDS_LOCATION_CUSTOMIZERS, JCLOUDS_LOCATION_CUSTOMIZER_TYPE, JCLOUDS_LOCATION_CUSTOMIZERS_SUPPLIER_TYPE)) {
+            result.putIfNotNull(key.getName(), setup.get(key));
+        }
+        for (ConfigKey<?> key : SUPPORTED_TEMPLATE_BUILDER_PROPERTIES.keySet()) {
+            if (setup.containsKey(key)) result.put(key.getName(), setup.get(key));
+        }
+        return result.build().asUnmodifiable();
+    }
+
+    protected void invalidateCachedTemplate(ConfigBag setup) {
+        TemplateCache templateCache = getTemplateCache(setup);
+        Object templateCacheKey = (templateCache != null) ? getTemplateCacheKey(setup) : null;
+        if (templateCacheKey != null) templateCache.invalidate(templateCacheKey);
+    }
+
+    /**
+     * requests with equal keys can share a batch, all nodes being created in the group of whichever request makes the batch:
+     * so all their config must match, including who is asking (whose group id is generated from it) unless {@link #GROUP_ID}
+     * is set explicitly; returns null if the request cannot be batched, because the user set up in the template would have
+     * generated login credentials, which all the nodes would then share
+     */
+    @Nullable
+    protected Object getNodeCreationBatchKey(ConfigBag setup, boolean initUserInTemplate) {
+        if (initUserInTemplate && isGeneratingLoginCredentials(setup)) return null;
+        Map<String, Object> result = Maps.newLinkedHashMap(setup.getAllConfig());
+        if (setup.get(GROUP_ID) != null) result.remove(CALLER_CONTEXT.getName());
+        return result;
+    }
+
+    /** whether {@link #createUserStatements(Image, ConfigBag)} would generate a password or key for the machine */
+    protected boolean isGeneratingLoginCredentials(ConfigBag setup) {
+        if (Boolean.TRUE.equals(setup.get(DONT_CREATE_USER))) return false;
+        // a random password is set unless one is supplied, even when logging in with a key
+        return Strings.isBlank(LocationConfigUtils.getOsCredential(setup).getPassword());
+    }
+
 
     // ------------- constructing the template, etc ------------------------
 
@@ -1141,6 +1256,17 @@ public class JcloudsLocation extends AbstractCloudMachineProvisioningLocation im
             customizer.customize(this, computeService, templateBuilder);
         }
 
+        // If these constraints were resolved recently, ask for the same image and hardware directly
+        TemplateCache templateCache = getTemplateCache(config);
+        Object templateCacheKey = (templateCache != null) ? getTemplateCacheKey(config) : null;
+        TemplateCache.ResolvedTemplate cached = (templateCacheKey != null) ? templateCache.get(templateCacheKey) : null;
+        if (cached != null) {
+            LOG.debug("jclouds using cached template {} for provisioning in {} for {}", new Object[] {
+                    cached, this, config.getDescription()});
+            templateBuilder.imageId(cached.getImageId());
+            templateBuilder.hardwareId(cached.getHardwareId());
+        }
+
         LOG.debug("jclouds using templateBuilder {} for provisioning in {} for {}", new Object[] {
             templateBuilder, this, config.getDescription()});
 
@@ -1151,10 +1277,19 @@ public class JcloudsLocation extends AbstractCloudMachineProvisioningLocation im
             if (template==null) throw new NullPointerException("No template found (templateBuilder.build returned null)");
             LOG.debug("jclouds found template "+template+" (image "+template.getImage()+") for provisioning in "+this+" for "+config.getDescription());
             if (template.getImage()==null) throw new NullPointerException("Template does not contain an image (templateBuilder.build returned invalid template)");
+            if (templateCacheKey != null && cached == null) {
+                templateCache.put(templateCacheKey, template, config.get(TEMPLATE_CACHE_TTL));
+            }
         } catch (AuthorizationException e) {
             LOG.warn("Error resolving template: not authorized (rethrowing: "+e+")");
             throw new IllegalStateException("Not authorized to access cloud "+this+" to resolve "+templateBuilder, e);
         } catch (Exception e) {
+            if (cached != null) {
+                // the cached image or hardware may have gone; resolve the constraints afresh
+                LOG.debug("jclouds unable to use cached template "+cached+" in "+this+", resolving again: "+e);
+                templateCache.invalidate(templateCacheKey);
+                return buildTemplate(computeService, config);
+            }
             try {
                 synchronized (this) {
                     // delay subsequent log.warns (put in synch block) so the "Loading..." message is obvious
@@ -38,6 +38,7 @@ import brooklyn.location.basic.LocationConfigKeys;
 import brooklyn.location.cloud.CloudLocationConfig;
 import brooklyn.location.jclouds.networking.JcloudsPortForwarderExtension;
 import brooklyn.util.internal.ssh.SshTool;
+import brooklyn.util.time.Duration;
 
 import com.google.common.annotations.Beta;
 import com.google.common.base.Function;
@@ -233,6 +234,28 @@ public interface JcloudsLocationConfig extends CloudLocationConfig {
     public static final ConfigKey<Semaphore> MACHINE_CREATION_SEMAPHORE = ConfigKeys.newConfigKey(
             Semaphore.class, "machineCreationSemaphore", "Semaphore for controlling concurrent machine creation", null);
 
+    @Beta
+    public static final ConfigKey<Duration> MACHINE_CREATION_BATCH_WINDOW = ConfigKeys.newConfigKey(Duration.class,
+            "machineCreationBatchWindow", "If set, concurrent requests for machines with the same configuration and caller (or explicit groupId) "
+                    + "made within this time are created with a single request to the cloud, sharing one template (so location customizers "
+                    + "must not be machine-specific); requests which would generate a login password or key for the machine are not batched; "
+                    + "not batched by default", null);
+
+    @Beta
+    public static final ConfigKey<Integer> MAX_MACHINE_CREATION_BATCH_SIZE = ConfigKeys.newIntegerConfigKey(
+            "maxMachineCreationBatchSize", "Maximum number of machines to create with a single request to the cloud, when machineCreationBatchWindow is set", 50);
+
+    @Beta
+    public static final ConfigKey<Duration> TEMPLATE_CACHE_TTL = ConfigKeys.newConfigKey(Duration.class,
+            "templateCacheTtl", "If set, the image and hardware chosen for a template are remembered for this long, "
+                    + "and reused for requests with the same cloud account and template constraints (and forgotten if provisioning fails); "
+                    + "not cached by default", null);
+
+    @Beta
+    public static final ConfigKey<Duration> IMAGE_LISTING_CACHE_TTL = ConfigKeys.newConfigKey(Duration.class,
+            "imageListingCacheTtl", "How long jclouds caches its listings of images, hardware profiles and locations "
+                    + "(sets jclouds.session-interval, whole seconds); jclouds default if not set", null);
+
     @SuppressWarnings("serial")
     public static final ConfigKey<Function<Iterable<? extends Image>,Image>> IMAGE_CHOOSER = ConfigKeys.newConfigKey(
         new TypeToken<Function<Iterable<? extends Image>,Image>>() {},
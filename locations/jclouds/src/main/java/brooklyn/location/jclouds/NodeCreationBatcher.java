@@ -0,0 +1,197 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.location.jclouds;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+import javax.annotation.Nullable;
+
+import org.jclouds.compute.domain.NodeMetadata;
+import org.jclouds.compute.domain.Template;
+import org.jclouds.domain.LoginCredentials;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import brooklyn.util.exceptions.Exceptions;
+import brooklyn.util.time.Duration;
+
+import com.google.common.annotations.Beta;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+/**
+ * Combines concurrent requests for equivalent nodes into a single request to the cloud.
+ * <p>
+ * The first request for a given key waits for up to the batch window (or until the batch is full),
+ * collecting any other requests for the same key, then creates nodes for all of them at once;
+ * each request is then handed its own node from those created.
+ * <p>
+ * All nodes in a batch are created from one template, so share its login credentials
+ * (including any generated for a new user).
+ */
+@Beta
+public class NodeCreationBatcher {
+
+    private static final Logger LOG = LoggerFactory.getLogger(NodeCreationBatcher.class);
+
+    /** creates the given number of nodes in a single request, on behalf of a batch */
+    public interface BatchCreator {
+        CreatedNodes create(int count) throws Exception;
+    }
+
+    /** the nodes created for a batch, and the template and credentials they were created with */
+    public static class CreatedNodes {
+        private final Template template;
+        private final LoginCredentials userCredentials;
+        private final Duration templateBuildTime;
+        private final List<NodeMetadata> nodes;
+        private final Throwable failure;
+
+        /**
+         * @param userCredentials the credentials set up in the template for the user to be created, if any
+         * @param failure the cause of any nodes requested not being created; null if all were
+         */
+        public CreatedNodes(Template template, @Nullable LoginCredentials userCredentials, Duration templateBuildTime,
+                Iterable<? extends NodeMetadata> nodes, @Nullable Throwable failure) {
+            this.template = template;
+            this.userCredentials = userCredentials;
+            this.templateBuildTime = templateBuildTime;
+            this.nodes = ImmutableList.copyOf(nodes);
+            this.failure = failure;
+        }
+
+        public Template getTemplate() {
+            return template;
+        }
+
+        @Nullable
+        public LoginCredentials getUserCredentials() {
+            return userCredentials;
+        }
+
+        public Duration getTemplateBuildTime() {
+            return templateBuildTime;
+        }
+
+        public List<NodeMetadata> getNodes() {
+            return nodes;
+        }
+
+        @Nullable
+        public Throwable getFailure() {
+            return failure;
+        }
+
+        /** the nodes created for the given request in the batch, as a single node */
+        protected CreatedNodes forRequest(int index, int batchSize) {
+            if (index >= nodes.size()) {
+                throw new IllegalStateException("Only "+nodes.size()+" of "+batchSize+" nodes requested in a batch were created", failure);
+            }
+            return new CreatedNodes(template, userCredentials, templateBuildTime, ImmutableList.of(nodes.get(index)), null);
+        }
+    }
+
+    private static class Batch {
+        final SettableFuture<CreatedNodes> result = SettableFuture.create();
+        int size = 1;
+        boolean closed;
+    }
+
+    // guarded by itself
+    private final Map<Object, Batch> openBatches = Maps.newHashMap();
+
+    /**
+     * Obtains a single node, created along with those for any other requests with an equal key
+     * made within the batch window.
+     *
+     * @param key identifies requests which can be satisfied by the same template
+     * @param creator used to create the nodes, if this request is the first in its batch
+     * @return the node created for this request, in {@link CreatedNodes#getNodes()}
+     */
+    public CreatedNodes obtain(Object key, Duration window, int maxBatchSize, BatchCreator creator) throws Exception {
+        Batch batch;
+        int index;
+        synchronized (openBatches) {
+            batch = openBatches.get(key);
+            if (batch == null) {
+                batch = new Batch();
+                index = 0;
+                if (maxBatchSize > 1) openBatches.put(key, batch);
+                else batch.closed = true;
+            } else {
+                index = batch.size++;
+                if (batch.size >= maxBatchSize) {
+                    close(key, batch);
+                }
+            }
+        }
+
+        if (index == 0) {
+            try {
+                int size = waitForBatch(key, batch, window);
+                if (size > 1) LOG.debug("Creating {} nodes in a single batch", size);
+                batch.result.set(creator.create(size));
+            } catch (Throwable t) {
+                synchronized (openBatches) {
+                    close(key, batch);
+                }
+                batch.result.setException(t);
+                Exceptions.propagateIfFatal(t);
+            }
+        }
+
+        // wait even if interrupted, so that a node created for this request is not left unused
+        CreatedNodes created;
+        try {
+            created = Uninterruptibles.getUninterruptibly(batch.result);
+        } catch (ExecutionException e) {
+            throw Exceptions.propagate(e.getCause());
+        }
+        synchronized (openBatches) {
+            return created.forRequest(index, batch.size);
+        }
+    }
+
+    /** waits until the batch is full or the window has passed, returning the final size of the batch */
+    private int waitForBatch(Object key, Batch batch, Duration window) throws InterruptedException {
+        long endTime = System.currentTimeMillis() + window.toMilliseconds();
+        synchronized (openBatches) {
+            while (!batch.closed) {
+                long remaining = endTime - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    close(key, batch);
+                } else {
+                    openBatches.wait(remaining);
+                }
+            }
+            return batch.size;
+        }
+    }
+
+    // requires synchronized on openBatches
+    private void close(Object key, Batch batch) {
+        if (openBatches.get(key) == batch) openBatches.remove(key);
+        batch.closed = true;
+        openBatches.notifyAll();
+    }
+}
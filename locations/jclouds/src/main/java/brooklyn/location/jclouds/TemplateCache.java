@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.location.jclouds;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+
+import org.jclouds.compute.domain.Template;
+
+import brooklyn.util.time.Duration;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Remembers which image and hardware profile were chosen for given template constraints, for a time,
+ * so that subsequent requests with the same constraints can ask jclouds for those directly
+ * rather than listing and choosing from all the images and hardware profiles in the cloud again.
+ * <p>
+ * Keys should include the cloud, region and credentials as well as the constraints;
+ * see {@link JcloudsLocation#getTemplateCacheKey(brooklyn.util.config.ConfigBag)}.
+ */
+@Beta
+public class TemplateCache {
+
+    public static class ResolvedTemplate {
+        private final String imageId;
+        private final String hardwareId;
+        private final long expiryTime;
+
+        protected ResolvedTemplate(String imageId, String hardwareId, long expiryTime) {
+            this.imageId = imageId;
+            this.hardwareId = hardwareId;
+            this.expiryTime = expiryTime;
+        }
+
+        public String getImageId() {
+            return imageId;
+        }
+
+        public String getHardwareId() {
+            return hardwareId;
+        }
+
+        protected boolean isExpired(long now) {
+            return now >= expiryTime;
+        }
+
+        @Override
+        public String toString() {
+            return Objects.toStringHelper(this).add("imageId", imageId).add("hardwareId", hardwareId).toString();
+        }
+    }
+
+    private final ConcurrentMap<Object, ResolvedTemplate> cache = new ConcurrentHashMap<Object, ResolvedTemplate>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    /** the image and hardware previously resolved for the given key, if not expired; otherwise null */
+    @Nullable
+    public ResolvedTemplate get(Object key) {
+        ResolvedTemplate result = cache.get(key);
+        if (result != null && result.isExpired(System.currentTimeMillis())) {
+            if (cache.remove(key, result)) expirations.incrementAndGet();
+            result = null;
+        }
+        if (result != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+        return result;
+    }
+
+    public void put(Object key, Template template, Duration ttl) {
+        if (template.getImage() == null || template.getHardware() == null) return;
+        cache.put(key, new ResolvedTemplate(template.getImage().getId(), template.getHardware().getId(),
+                System.currentTimeMillis() + ttl.toMilliseconds()));
+    }
+
+    /** forgets the template for the given key, e.g. because provisioning with it failed */
+    public void invalidate(Object key) {
+        if (cache.remove(key) != null) invalidations.incrementAndGet();
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    public Map<String, Long> getMetrics() {
+        return ImmutableMap.<String, Long>builder()
+                .put("templateCacheSize", (long) cache.size())
+                .put("templateCacheHits", hits.get())
+                .put("templateCacheMisses", misses.get())
+                .put("templateCacheExpirations", expirations.get())
+                .put("templateCacheInvalidations", invalidations.get())
+                .build();
+    }
+}
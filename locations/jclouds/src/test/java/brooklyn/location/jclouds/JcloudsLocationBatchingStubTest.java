@@ -0,0 +1,189 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.location.jclouds;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.jclouds.compute.ComputeService;
+import org.jclouds.compute.RunNodesException;
+import org.jclouds.compute.domain.NodeMetadata;
+import org.jclouds.compute.domain.Template;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import brooklyn.entity.basic.Entities;
+import brooklyn.management.internal.LocalManagementContext;
+import brooklyn.test.entity.LocalManagementContextForTests;
+import brooklyn.util.collections.MutableMap;
+import brooklyn.util.config.ConfigBag;
+import brooklyn.util.time.Duration;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+/**
+ * Provisions with the jclouds "stub" provider, which needs no cloud account, to check how
+ * many create-nodes requests are made.
+ */
+public class JcloudsLocationBatchingStubTest {
+
+    private LocalManagementContext managementContext;
+    private final List<Integer> createRequests = Lists.newCopyOnWriteArrayList();
+    private ExecutorService executor;
+
+    @BeforeMethod(alwaysRun=true)
+    public void setUp() throws Exception {
+        managementContext = LocalManagementContextForTests.newInstance();
+        executor = Executors.newCachedThreadPool();
+        createRequests.clear();
+    }
+
+    @AfterMethod(alwaysRun=true)
+    public void tearDown() throws Exception {
+        if (executor != null) executor.shutdownNow();
+        if (managementContext != null) Entities.destroyAll(managementContext);
+    }
+
+    protected JcloudsLocation newLocation(Duration batchWindow) {
+        ComputeServiceRegistry computeServiceRegistry = new ComputeServiceRegistry() {
+            @Override
+            public ComputeService findComputeService(ConfigBag conf, boolean allowReuse) {
+                ComputeService delegate = ComputeServiceRegistryImpl.INSTANCE.findComputeService(conf, allowReuse);
+                return new DelegatingComputeService(delegate) {
+                    @Override
+                    public Set<? extends NodeMetadata> createNodesInGroup(String group, int count, Template template) throws RunNodesException {
+                        createRequests.add(count);
+                        return super.createNodesInGroup(group, count, template);
+                    }
+                };
+            }
+        };
+        Map<Object, Object> flags = MutableMap.<Object, Object>builder()
+                .put(JcloudsLocationConfig.ACCESS_IDENTITY, "stub")
+                .put(JcloudsLocationConfig.ACCESS_CREDENTIAL, "stub")
+                .put(JcloudsLocationConfig.COMPUTE_SERVICE_REGISTRY, computeServiceRegistry)
+                .put(JcloudsLocationConfig.WAIT_FOR_SSHABLE, "false")
+                .putIfNotNull(JcloudsLocationConfig.MACHINE_CREATION_BATCH_WINDOW, batchWindow)
+                .build();
+        return (JcloudsLocation) managementContext.getLocationRegistry().resolve("jclouds:stub", flags);
+    }
+
+    @Test
+    public void testConcurrentObtainsAreCreatedInOneRequest() throws Exception {
+        final JcloudsLocation location = newLocation(Duration.ONE_SECOND);
+        List<Future<JcloudsSshMachineLocation>> futures = Lists.newArrayList();
+        for (int i = 0; i < 4; i++) {
+            futures.add(executor.submit(new Callable<JcloudsSshMachineLocation>() {
+                @Override public JcloudsSshMachineLocation call() throws Exception {
+                    return location.obtain(ImmutableMap.of());
+                }}));
+        }
+        Set<String> nodeIds = Sets.newLinkedHashSet();
+        for (Future<JcloudsSshMachineLocation> future : futures) {
+            nodeIds.add(future.get().getNode().getId());
+        }
+
+        assertEquals(nodeIds.size(), 4, "nodes="+nodeIds);
+        assertEquals(createRequests, ImmutableList.of(4));
+    }
+
+    @Test
+    public void testObtainsWithDifferentConfigAreNotBatchedTogether() throws Exception {
+        final JcloudsLocation location = newLocation(Duration.ONE_SECOND);
+        Future<JcloudsSshMachineLocation> small = executor.submit(new Callable<JcloudsSshMachineLocation>() {
+            @Override public JcloudsSshMachineLocation call() throws Exception {
+                return location.obtain(ImmutableMap.of(JcloudsLocationConfig.MIN_RAM, 512));
+            }});
+        Future<JcloudsSshMachineLocation> large = executor.submit(new Callable<JcloudsSshMachineLocation>() {
+            @Override public JcloudsSshMachineLocation call() throws Exception {
+                return location.obtain(ImmutableMap.of(JcloudsLocationConfig.MIN_RAM, 2048));
+            }});
+        small.get();
+        large.get();
+
+        assertEquals(createRequests, ImmutableList.of(1, 1));
+    }
+
+    protected List<Future<JcloudsSshMachineLocation>> obtainConcurrently(final JcloudsLocation location, List<? extends Map<?, ?>> flagsList) {
+        List<Future<JcloudsSshMachineLocation>> futures = Lists.newArrayList();
+        for (final Map<?, ?> flags : flagsList) {
+            futures.add(executor.submit(new Callable<JcloudsSshMachineLocation>() {
+                @Override public JcloudsSshMachineLocation call() throws Exception {
+                    return location.obtain(flags);
+                }}));
+        }
+        return futures;
+    }
+
+    @Test
+    public void testObtainsFromDifferentCallersAreNotBatchedTogether() throws Exception {
+        List<Future<JcloudsSshMachineLocation>> futures = obtainConcurrently(newLocation(Duration.ONE_SECOND), ImmutableList.of(
+                ImmutableMap.of(JcloudsLocationConfig.CALLER_CONTEXT, "caller1"),
+                ImmutableMap.of(JcloudsLocationConfig.CALLER_CONTEXT, "caller2")));
+        for (Future<JcloudsSshMachineLocation> future : futures) {
+            future.get();
+        }
+
+        assertEquals(createRequests, ImmutableList.of(1, 1));
+    }
+
+    @Test
+    public void testObtainsFromDifferentCallersInExplicitGroupAreBatchedTogether() throws Exception {
+        List<Future<JcloudsSshMachineLocation>> futures = obtainConcurrently(newLocation(Duration.ONE_SECOND), ImmutableList.of(
+                ImmutableMap.of(JcloudsLocationConfig.CALLER_CONTEXT, "caller1", JcloudsLocationConfig.GROUP_ID, "mygroup"),
+                ImmutableMap.of(JcloudsLocationConfig.CALLER_CONTEXT, "caller2", JcloudsLocationConfig.GROUP_ID, "mygroup")));
+        for (Future<JcloudsSshMachineLocation> future : futures) {
+            future.get();
+        }
+
+        assertEquals(createRequests, ImmutableList.of(2));
+    }
+
+    @Test
+    public void testObtainsGeneratingLoginCredentialsAreNotBatched() throws Exception {
+        JcloudsLocation location = newLocation(Duration.ONE_SECOND);
+
+        assertNull(location.getNodeCreationBatchKey(ConfigBag.newInstanceExtending(location.getAllConfigBag()), true));
+        assertNotNull(location.getNodeCreationBatchKey(ConfigBag.newInstanceExtending(location.getAllConfigBag(),
+                ImmutableMap.of(JcloudsLocationConfig.PASSWORD, "mypassword")), true));
+        assertNotNull(location.getNodeCreationBatchKey(ConfigBag.newInstanceExtending(location.getAllConfigBag()), false));
+    }
+
+    @Test
+    public void testObtainsAreNotBatchedByDefault() throws Exception {
+        JcloudsLocation location = newLocation(null);
+        location.obtain(ImmutableMap.of());
+        location.obtain(ImmutableMap.of());
+
+        assertEquals(createRequests, ImmutableList.of(1, 1));
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.location.jclouds;
+
+import static org.testng.Assert.assertEquals;
+
+import java.util.Map;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import brooklyn.entity.basic.Entities;
+import brooklyn.management.internal.LocalManagementContext;
+import brooklyn.test.entity.LocalManagementContextForTests;
+import brooklyn.util.collections.MutableMap;
+import brooklyn.util.time.Duration;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Provisions with the jclouds "stub" provider, which needs no cloud account, to check that resolved
+ * templates are reused.
+ */
+public class JcloudsLocationTemplateCacheStubTest {
+
+    private LocalManagementContext managementContext;
+    private ComputeServiceRegistryImpl registry;
+
+    @BeforeMethod(alwaysRun=true)
+    public void setUp() throws Exception {
+        managementContext = LocalManagementContextForTests.newInstance();
+        registry = ComputeServiceRegistryImpl.INSTANCE;
+        registry.getTemplateCache().clear();
+    }
+
+    @AfterMethod(alwaysRun=true)
+    public void tearDown() throws Exception {
+        if (registry != null) registry.getTemplateCache().clear();
+        if (managementContext != null) Entities.destroyAll(managementContext);
+    }
+
+    protected JcloudsLocation newLocation(Duration templateCacheTtl) {
+        Map<Object, Object> flags = MutableMap.<Object, Object>builder()
+                .put(JcloudsLocationConfig.ACCESS_IDENTITY, "stub")
+                .put(JcloudsLocationConfig.ACCESS_CREDENTIAL, "stub")
+                .put(JcloudsLocationConfig.WAIT_FOR_SSHABLE, "false")
+                .putIfNotNull(JcloudsLocationConfig.TEMPLATE_CACHE_TTL, templateCacheTtl)
+                .build();
+        return (JcloudsLocation) managementContext.getLocationRegistry().resolve("jclouds:stub", flags);
+    }
+
+    @Test
+    public void testReusesResolvedTemplateForSameConstraints() throws Exception {
+        JcloudsLocation location = newLocation(Duration.ONE_MINUTE);
+        long hitsBefore = registry.getMetrics().get("templateCacheHits");
+        long missesBefore = registry.getMetrics().get("templateCacheMisses");
+
+        JcloudsSshMachineLocation machine1 = location.obtain(ImmutableMap.of(JcloudsLocationConfig.MIN_RAM, 1024));
+        JcloudsSshMachineLocation machine2 = location.obtain(ImmutableMap.of(JcloudsLocationConfig.MIN_RAM, 1024));
+
+        assertEquals(registry.getMetrics().get("templateCacheMisses") - missesBefore, 1L);
+        assertEquals(registry.getMetrics().get("templateCacheHits") - hitsBefore, 1L);
+        assertEquals(machine2.getNode().getImageId(), machine1.getNode().getImageId());
+    }
+
+    @Test
+    public void testDifferentConstraintsAreResolvedSeparately() throws Exception {
+        JcloudsLocation location = newLocation(Duration.ONE_MINUTE);
+        long missesBefore = registry.getMetrics().get("templateCacheMisses");
+
+        location.obtain(ImmutableMap.of(JcloudsLocationConfig.MIN_RAM, 512));
+        location.obtain(ImmutableMap.of(JcloudsLocationConfig.MIN_RAM, 2048));
+
+        assertEquals(registry.getMetrics().get("templateCacheMisses") - missesBefore, 2L);
+        assertEquals(registry.getTemplateCache().size(), 2);
+    }
+
+    @Test
+    public void testTemplatesNotCachedByDefault() throws Exception {
+        JcloudsLocation location = newLocation(null);
+        location.obtain(ImmutableMap.of());
+        location.obtain(ImmutableMap.of());
+
+        assertEquals(registry.getTemplateCache().size(), 0);
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.location.jclouds;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+import org.jclouds.compute.domain.Hardware;
+import org.jclouds.compute.domain.Image;
+import org.jclouds.compute.domain.Template;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import brooklyn.util.time.Duration;
+import brooklyn.util.time.Time;
+
+public class TemplateCacheTest {
+
+    private TemplateCache cache;
+    private Template template;
+
+    @BeforeMethod(alwaysRun=true)
+    public void setUp() throws Exception {
+        cache = new TemplateCache();
+        Image image = mock(Image.class);
+        when(image.getId()).thenReturn("myimage");
+        Hardware hardware = mock(Hardware.class);
+        when(hardware.getId()).thenReturn("myhardware");
+        template = mock(Template.class);
+        when(template.getImage()).thenReturn(image);
+        when(template.getHardware()).thenReturn(hardware);
+    }
+
+    @Test
+    public void testReturnsResolvedImageAndHardware() throws Exception {
+        assertNull(cache.get("key"));
+        cache.put("key", template, Duration.ONE_MINUTE);
+
+        TemplateCache.ResolvedTemplate resolved = cache.get("key");
+        assertEquals(resolved.getImageId(), "myimage");
+        assertEquals(resolved.getHardwareId(), "myhardware");
+        assertNull(cache.get("otherkey"));
+
+        assertEquals(cache.getMetrics().get("templateCacheHits"), (Long) 1L);
+        assertEquals(cache.getMetrics().get("templateCacheMisses"), (Long) 2L);
+    }
+
+    @Test
+    public void testEntriesExpire() throws Exception {
+        cache.put("key", template, Duration.millis(10));
+        Time.sleep(Duration.millis(50));
+
+        assertNull(cache.get("key"));
+        assertEquals(cache.size(), 0);
+        assertEquals(cache.getMetrics().get("templateCacheExpirations"), (Long) 1L);
+    }
+
+    @Test
+    public void testInvalidateForgetsEntry() throws Exception {
+        cache.put("key", template, Duration.ONE_MINUTE);
+        cache.invalidate("key");
+
+        assertNull(cache.get("key"));
+        assertEquals(cache.getMetrics().get("templateCacheInvalidations"), (Long) 1L);
+    }
+}
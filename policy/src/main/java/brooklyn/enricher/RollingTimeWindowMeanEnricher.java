@@ -18,9 +18,6 @@
  */
 package brooklyn.enricher;
 
-import java.util.Iterator;
-import java.util.LinkedList;
-
 import brooklyn.config.ConfigKey;
 import brooklyn.enricher.basic.AbstractTypeTransformingEnricher;
 import brooklyn.entity.Entity;
@@ -28,6 +25,7 @@ import brooklyn.entity.basic.ConfigKeys;
 import brooklyn.event.AttributeSensor;
 import brooklyn.event.Sensor;
 import brooklyn.event.SensorEvent;
+import brooklyn.util.collections.TimestampedDoubleRingBuffer;
 import brooklyn.util.flags.SetFromFlag;
 import brooklyn.util.javalang.JavaClassNames;
 import brooklyn.util.time.Duration;
@@ -80,8 +78,14 @@ public class RollingTimeWindowMeanEnricher<T extends Number> extends AbstractTyp
         
     }
     
-    private final LinkedList<T> values = new LinkedList<T>();
-    private final LinkedList<Long> timestamps = new LinkedList<Long>();
+    /** values (NaN if null) and their timestamps, oldest first */
+    private final TimestampedDoubleRingBuffer values = new TimestampedDoubleRingBuffer();
+    /**
+     * For each value, the product of it and the time since the previous value (the area of that segment of
+     * the time window), or NaN if the value is null or its timestamp is not after a previous positive timestamp.
+     * The sum of these (excluding the oldest) gives the weighted average without walking the window.
+     */
+    private final TimestampedDoubleRingBuffer segments = new TimestampedDoubleRingBuffer();
     volatile ConfidenceQualifiedNumber lastAverage = new ConfidenceQualifiedNumber(0d,0d);
     
     @SetFromFlag
@@ -111,9 +115,17 @@ public class RollingTimeWindowMeanEnricher<T extends Number> extends AbstractTyp
         onEvent(event, event.getTimestamp());
     }
     
-    public void onEvent(SensorEvent<T> event, long eventTime) {
-        values.addLast(event.getValue());
-        timestamps.addLast(eventTime);
+    public synchronized void onEvent(SensorEvent<T> event, long eventTime) {
+        double value = (event.getValue() == null) ? Double.NaN : event.getValue().doubleValue();
+        double segment = Double.NaN;
+        if (!values.isEmpty()) {
+            long previousTimestamp = values.getLastTimestamp();
+            if (previousTimestamp > 0 && eventTime >= previousTimestamp) {
+                segment = (eventTime - previousTimestamp) * value;
+            }
+        }
+        values.add(value, eventTime);
+        segments.add(segment, eventTime);
         if (eventTime>0) {
             ConfidenceQualifiedNumber average = getAverage(eventTime, 0);
 
@@ -138,23 +150,22 @@ public class RollingTimeWindowMeanEnricher<T extends Number> extends AbstractTyp
         return getAverage(fromTimeExact, 0);
     }
     
-    public ConfidenceQualifiedNumber getAverage(long fromTime, long graceAllowed) {
-        if (timestamps.isEmpty()) {
+    public synchronized ConfidenceQualifiedNumber getAverage(long fromTime, long graceAllowed) {
+        if (values.isEmpty()) {
             return lastAverage = new ConfidenceQualifiedNumber(lastAverage.value, 0.0d);
         }
         
         long firstTimestamp = -1;
-        Iterator<Long> ti = timestamps.iterator();
-        while (ti.hasNext()) {
-            firstTimestamp = ti.next();
+        for (int i = 0; i < values.size(); i++) {
+            firstTimestamp = values.getTimestamp(i);
             if (firstTimestamp>0) break;
         }
         if (firstTimestamp<=0) {
             // no values with reasonable timestamps
-            return lastAverage = new ConfidenceQualifiedNumber(values.get(values.size()-1).doubleValue(), 0.0d);
+            return lastAverage = new ConfidenceQualifiedNumber(values.getLastValue(), 0.0d);
         }
 
-        long lastTimestamp = timestamps.get(timestamps.size()-1);
+        long lastTimestamp = values.getLastTimestamp();
 
         long now = fromTime;
         if (lastTimestamp > fromTime - graceAllowed) {
@@ -169,38 +180,53 @@ public class RollingTimeWindowMeanEnricher<T extends Number> extends AbstractTyp
         Double confidence = ((double)(windowEnd - windowStart)) / timePeriod.toMilliseconds();
         if (confidence <= 0.0000001d) {
             // not enough timestamps in window 
-            double lastValue = values.get(values.size()-1).doubleValue();
+            double lastValue = values.getLastValue();
             return lastAverage = new ConfidenceQualifiedNumber(lastValue, 0.0d);
         }
         
-        long start = windowStart;
-        long end;
-        double weightedAverage = 0.0d;
-        
-        Iterator<T> valuesIter = values.iterator();
-        Iterator<Long> timestampsIter = timestamps.iterator();
-        while (valuesIter.hasNext()) {
-            // Ignores null and out-of-date values (and also values that are received out-of-order, but that shouldn't happen!)
-            Number val = valuesIter.next();
-            Long timestamp = timestampsIter.next();
-            if (val!=null && timestamp >= start) {
-                end = timestamp;
-                weightedAverage += ((end - start) / (confidence * timePeriod.toMilliseconds())) * val.doubleValue();
-                start = timestamp;
+        double weightedAverage;
+        if (values.getFirstTimestamp() > 0 && segmentsAfterFirstAreAllKnown()) {
+            // all values present, in order: the segments after the first cover the window, apart from
+            // any part of the first of them before the window's start
+            double area = segments.getSum() - firstSegment() - (windowStart - values.getFirstTimestamp()) * values.getValue(1);
+            weightedAverage = area / (confidence * timePeriod.toMilliseconds());
+        } else {
+            weightedAverage = 0.0d;
+            long start = windowStart;
+            long end;
+            for (int i = 0; i < values.size(); i++) {
+                // Ignores null and out-of-date values (and also values that are received out-of-order, but that shouldn't happen!)
+                double val = values.getValue(i);
+                long timestamp = values.getTimestamp(i);
+                if (!Double.isNaN(val) && timestamp >= start) {
+                    end = timestamp;
+                    weightedAverage += ((end - start) / (confidence * timePeriod.toMilliseconds())) * val;
+                    start = timestamp;
+                }
             }
         }
         
         return lastAverage = new ConfidenceQualifiedNumber(weightedAverage, confidence);
     }
     
+    private boolean segmentsAfterFirstAreAllKnown() {
+        int known = segments.getCount() - (Double.isNaN(segments.getValue(0)) ? 0 : 1);
+        return known == segments.size() - 1;
+    }
+    
+    private double firstSegment() {
+        double first = segments.getValue(0);
+        return Double.isNaN(first) ? 0 : first;
+    }
+    
     /**
      * Discards out-of-date values, but keeps at least one value.
      */
     private void pruneValues(long now) {
         // keep one value from before the period, so that we can tell the window's start time 
-        while(timestamps.size() > 1 && timestamps.get(1) < (now - timePeriod.toMilliseconds())) {
-            timestamps.removeFirst();
+        while(values.size() > 1 && values.getTimestamp(1) < (now - timePeriod.toMilliseconds())) {
             values.removeFirst();
+            segments.removeFirst();
         }
     }
 }
@@ -52,4 +52,52 @@ public interface BrooklynMetrics extends Entity {
     
     public static final AttributeSensor<Long> NUM_SUBSCRIPTIONS = new BasicAttributeSensor<Long>(
             Long.class, "brooklyn.metrics.numSubscriptions", "Current number of event subscriptions");
+    
+    public static final AttributeSensor<Long> TOTAL_EVENTS_COALESCED = new BasicAttributeSensor<Long>(
+            Long.class, "brooklyn.metrics.totalEventsCoalesced", "Total number of events replaced by a later event before delivery, for subscriptions which coalesce");
+    
+    public static final AttributeSensor<Long> NUM_EVENTS_QUEUED = new BasicAttributeSensor<Long>(
+            Long.class, "brooklyn.metrics.numEventsQueued", "Current number of events awaiting delivery, for subscriptions with batched delivery");
+    
+    public static final AttributeSensor<Long> TOTAL_TASKS_GARBAGE_COLLECTED = new BasicAttributeSensor<Long>(
+            Long.class, "brooklyn.metrics.gc.totalTasksDeleted", "Total number of tasks deleted by the task garbage collector");
+    
+    public static final AttributeSensor<Long> NUM_GC_PASSES = new BasicAttributeSensor<Long>(
+            Long.class, "brooklyn.metrics.gc.numPasses", "Number of passes made by the task garbage collector");
+    
+    public static final AttributeSensor<Long> LAST_GC_PASS_DURATION = new BasicAttributeSensor<Long>(
+            Long.class, "brooklyn.metrics.gc.lastPassDuration", "Time (in milliseconds) taken by the most recent pass of the task garbage collector");
+    
+    public static final AttributeSensor<Integer> LAST_GC_PASS_TASKS_DELETED = new BasicAttributeSensor<Integer>(
+            Integer.class, "brooklyn.metrics.gc.lastPassTasksDeleted", "Number of tasks deleted by the most recent pass of the task garbage collector");
+    
+    public static final AttributeSensor<Long> LAST_HA_PROMOTION_DURATION = new BasicAttributeSensor<Long>(
+            Long.class, "brooklyn.metrics.ha.lastPromotionDuration", "Time (in milliseconds) taken by the most recent promotion of this node to master, including rebinding");
+    
+    public static final AttributeSensor<Long> TOTAL_CONFIG_CACHE_HITS = new BasicAttributeSensor<Long>(
+            Long.class, "brooklyn.metrics.config.totalCacheHits", "Total number of entity config reads answered from the cache of resolved values (across all management contexts in this JVM)");
+    
+    public static final AttributeSensor<Long> TOTAL_CONFIG_CACHE_MISSES = new BasicAttributeSensor<Long>(
+            Long.class, "brooklyn.metrics.config.totalCacheMisses", "Total number of entity config reads which had to resolve the value (across all management contexts in this JVM)");
+    
+    public static final AttributeSensor<Integer> NUM_SSH_CONNECTIONS_OPEN = new BasicAttributeSensor<Integer>(
+            Integer.class, "brooklyn.metrics.ssh.numConnectionsOpen", "Current number of ssh connections open in the shared pool, leased or idle");
+    
+    public static final AttributeSensor<Integer> NUM_SSH_CONNECTIONS_LEASED = new BasicAttributeSensor<Integer>(
+            Integer.class, "brooklyn.metrics.ssh.numConnectionsLeased", "Current number of ssh connections in use");
+    
+    public static final AttributeSensor<Long> TOTAL_SSH_LEASES = new BasicAttributeSensor<Long>(
+            Long.class, "brooklyn.metrics.ssh.totalLeases", "Total number of times an ssh connection has been requested from the shared pool");
+    
+    public static final AttributeSensor<Long> TOTAL_SSH_CONNECTIONS_CREATED = new BasicAttributeSensor<Long>(
+            Long.class, "brooklyn.metrics.ssh.totalConnectionsCreated", "Total number of ssh connections opened by the shared pool (the remaining leases reused a connection)");
+    
+    public static final AttributeSensor<Integer> NUM_HTTP_REQUESTS_IN_FLIGHT = new BasicAttributeSensor<Integer>(
+            Integer.class, "brooklyn.metrics.http.numRequestsInFlight", "Current number of http requests being made by feeds, including those waiting for a connection");
+    
+    public static final AttributeSensor<Long> TOTAL_HTTP_REQUESTS = new BasicAttributeSensor<Long>(
+            Long.class, "brooklyn.metrics.http.totalRequests", "Total number of http requests made by feeds through the shared client");
+    
+    public static final AttributeSensor<Integer> NUM_HTTP_CONNECTIONS_LEASED = new BasicAttributeSensor<Integer>(
+            Integer.class, "brooklyn.metrics.http.numConnectionsLeased", "Current number of pooled http connections in use");
 }
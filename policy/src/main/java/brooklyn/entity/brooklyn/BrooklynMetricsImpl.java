@@ -24,9 +24,15 @@ import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 
 import brooklyn.entity.basic.AbstractEntity;
+import brooklyn.entity.basic.EntityConfigMap;
 import brooklyn.management.ManagementContext;
+import brooklyn.management.ha.HighAvailabilityManagerImpl;
+import brooklyn.management.internal.AbstractManagementContext;
+import brooklyn.management.internal.BrooklynGarbageCollector;
 import brooklyn.management.internal.LocalSubscriptionManager;
 import brooklyn.management.internal.ManagementContextInternal;
+import brooklyn.util.http.HttpClientManager;
+import brooklyn.util.internal.ssh.SshConnectionManager;
 import brooklyn.util.task.BasicExecutionManager;
 
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
@@ -68,9 +74,21 @@ public class BrooklynMetricsImpl extends AbstractEntity implements BrooklynMetri
         ManagementContext managementContext = getManagementContext();
         BasicExecutionManager execManager = (BasicExecutionManager) (managementContext != null ? managementContext.getExecutionManager() : null);
         LocalSubscriptionManager subsManager = (LocalSubscriptionManager) (managementContext != null ? managementContext.getSubscriptionManager() : null);
+        BrooklynGarbageCollector gc = (managementContext instanceof AbstractManagementContext) ? ((AbstractManagementContext)managementContext).getGarbageCollector() : null;
+        HighAvailabilityManagerImpl ha = (managementContext != null && managementContext.getHighAvailabilityManager() instanceof HighAvailabilityManagerImpl) 
+                ? (HighAvailabilityManagerImpl) managementContext.getHighAvailabilityManager() : null;
         
         if (managementContext != null) {
             setAttribute(TOTAL_EFFECTORS_INVOKED, ((ManagementContextInternal)managementContext).getTotalEffectorInvocations());
+            SshConnectionManager sshManager = ((ManagementContextInternal)managementContext).getSshConnectionManager();
+            setAttribute(NUM_SSH_CONNECTIONS_OPEN, sshManager.getNumOpenConnections());
+            setAttribute(NUM_SSH_CONNECTIONS_LEASED, sshManager.getNumLeasedConnections());
+            setAttribute(TOTAL_SSH_LEASES, sshManager.getTotalLeases());
+            setAttribute(TOTAL_SSH_CONNECTIONS_CREATED, sshManager.getTotalConnectionsCreated());
+            HttpClientManager httpManager = ((ManagementContextInternal)managementContext).getHttpClientManager();
+            setAttribute(NUM_HTTP_REQUESTS_IN_FLIGHT, httpManager.getNumRequestsInFlight());
+            setAttribute(TOTAL_HTTP_REQUESTS, httpManager.getTotalRequests());
+            setAttribute(NUM_HTTP_CONNECTIONS_LEASED, httpManager.getNumConnectionsLeased());
         }
         if (execManager != null) {
             setAttribute(TOTAL_TASKS_SUBMITTED, execManager.getTotalTasksSubmitted());
@@ -81,6 +99,19 @@ public class BrooklynMetricsImpl extends AbstractEntity implements BrooklynMetri
             setAttribute(TOTAL_EVENTS_PUBLISHED, subsManager.getTotalEventsPublished());
             setAttribute(TOTAL_EVENTS_DELIVERED, subsManager.getTotalEventsDelivered());
             setAttribute(NUM_SUBSCRIPTIONS, subsManager.getNumSubscriptions());
+            setAttribute(TOTAL_EVENTS_COALESCED, subsManager.getTotalEventsCoalesced());
+            setAttribute(NUM_EVENTS_QUEUED, subsManager.getNumEventsQueued());
         }
+        if (gc != null) {
+            setAttribute(TOTAL_TASKS_GARBAGE_COLLECTED, gc.getTotalTasksDeleted());
+            setAttribute(NUM_GC_PASSES, gc.getTotalPasses());
+            setAttribute(LAST_GC_PASS_DURATION, gc.getLastPassDurationMillis());
+            setAttribute(LAST_GC_PASS_TASKS_DELETED, gc.getLastPassTasksDeleted());
+        }
+        if (ha != null && ha.getLastPromotionDuration() != null) {
+            setAttribute(LAST_HA_PROMOTION_DURATION, ha.getLastPromotionDuration().toMilliseconds());
+        }
+        setAttribute(TOTAL_CONFIG_CACHE_HITS, EntityConfigMap.getTotalResolvedValueCacheHits());
+        setAttribute(TOTAL_CONFIG_CACHE_MISSES, EntityConfigMap.getTotalResolvedValueCacheMisses());
     }
 }
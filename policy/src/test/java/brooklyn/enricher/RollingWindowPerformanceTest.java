@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.enricher;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.Test;
+
+import brooklyn.entity.proxying.EntitySpec;
+import brooklyn.event.AttributeSensor;
+import brooklyn.event.SensorEvent;
+import brooklyn.event.basic.Sensors;
+import brooklyn.qa.performance.AbstractPerformanceTest;
+import brooklyn.test.entity.TestEntity;
+import brooklyn.util.collections.MutableMap;
+import brooklyn.util.collections.TimeWindowedList;
+import brooklyn.util.time.Duration;
+
+/**
+ * Measures the rate of, and memory allocated by, adding values to the rolling time windows, as the number
+ * of values in the window grows. With the ring buffers backing them, neither should change much with the window size.
+ */
+public class RollingWindowPerformanceTest extends AbstractPerformanceTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RollingWindowPerformanceTest.class);
+
+    private static final AttributeSensor<Double> SOURCE = Sensors.newDoubleSensor("test.rolling.source");
+    private static final AttributeSensor<Double> TARGET = Sensors.newDoubleSensor("test.rolling.target");
+
+    private static final int NUM_ITERATIONS = 100000;
+    private static final int[] VALUES_IN_WINDOW = new int[] {10, 100, 1000};
+
+    @Test(groups={"Integration", "Acceptance"})
+    public void testRollingTimeWindowMeanAsWindowGrows() {
+        for (int valuesInWindow : VALUES_IN_WINDOW) {
+            TestEntity entity = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+            final RollingTimeWindowMeanEnricher<Double> enricher = new RollingTimeWindowMeanEnricher<Double>(
+                    entity, SOURCE, TARGET, Duration.millis(valuesInWindow));
+            entity.addEnricher(enricher);
+            // one value per millisecond, so the window holds valuesInWindow values
+            final SensorEvent<Double> event = SOURCE.newEvent(entity, 1.5d);
+            final AtomicLong time = new AtomicLong(1);
+
+            measureAllocationAndAssert("rollingTimeWindowMean-"+valuesInWindow, new Runnable() {
+                @Override public void run() {
+                    enricher.onEvent(event, time.incrementAndGet());
+                }});
+        }
+    }
+
+    @Test(groups={"Integration", "Acceptance"})
+    public void testTimeWindowedListAsWindowGrows() {
+        for (int valuesInWindow : VALUES_IN_WINDOW) {
+            final TimeWindowedList<Integer> list = new TimeWindowedList<Integer>(MutableMap.of(
+                    "timePeriod", Duration.millis(valuesInWindow), "minExpiredVals", 1));
+            final AtomicLong time = new AtomicLong(1);
+            final Integer value = 42;
+
+            measureAllocationAndAssert("timeWindowedList-"+valuesInWindow, new Runnable() {
+                @Override public void run() {
+                    list.add(value, time.incrementAndGet());
+                }});
+        }
+    }
+
+    protected void measureAllocationAndAssert(String prefix, Runnable r) {
+        double minRatePerSec = 1000 * PERFORMANCE_EXPECTATION;
+        long allocatedBefore = allocatedBytes();
+        measureAndAssert(prefix, NUM_ITERATIONS, minRatePerSec, r);
+        long allocatedAfter = allocatedBytes();
+        if (allocatedBefore >= 0 && allocatedAfter >= 0) {
+            // includes the warm-up iterations
+            double bytesPerIteration = (double) (allocatedAfter - allocatedBefore) / (NUM_ITERATIONS + NUM_ITERATIONS/10);
+            String msg = prefix+": "+bytesPerIteration+" bytes allocated per iteration";
+            LOG.info(msg);
+            System.out.println("\n"+msg+"\n");
+        }
+    }
+
+    /** bytes allocated by this thread, if the JVM supports measuring it; otherwise -1 */
+    private static long allocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+}
@@ -41,6 +41,7 @@ import brooklyn.entity.Group;
 import brooklyn.entity.basic.AbstractEntity;
 import brooklyn.entity.basic.Attributes;
 import brooklyn.entity.basic.DynamicGroup;
+import brooklyn.entity.basic.IndexableEntityPredicate;
 import brooklyn.entity.basic.Lifecycle;
 import brooklyn.entity.basic.ServiceStateLogic;
 import brooklyn.entity.basic.ServiceStateLogic.ServiceNotUpLogic;
@@ -162,7 +163,9 @@ public abstract class AbstractGeoDnsServiceImpl extends AbstractEntity implement
             if (log.isDebugEnabled()) log.debug("GeoDns {} refreshing targets", this);
             if (targetEntityProvider == null)
                 return;
-            if (targetEntityProvider instanceof DynamicGroup)
+            // groups with an indexable filter keep their members up to date without rescanning
+            if (targetEntityProvider instanceof DynamicGroup
+                    && !(((DynamicGroup) targetEntityProvider).entityFilter() instanceof IndexableEntityPredicate))
                 ((DynamicGroup) targetEntityProvider).rescanEntities();
             Set<Entity> pool = MutableSet.copyOf(targetEntityProvider instanceof Group ? ((Group)targetEntityProvider).getMembers(): targetEntityProvider.getChildren());
             if (log.isDebugEnabled()) log.debug("GeoDns {} refreshing targets, pool now {}", this, pool);
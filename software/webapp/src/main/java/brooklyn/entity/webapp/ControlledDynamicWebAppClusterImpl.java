@@ -32,6 +32,7 @@ import brooklyn.entity.basic.ConfigurableEntityFactory;
 import brooklyn.entity.basic.DynamicGroupImpl;
 import brooklyn.entity.basic.Entities;
 import brooklyn.entity.basic.EntityPredicates;
+import brooklyn.entity.basic.IndexableEntityPredicate;
 import brooklyn.entity.basic.Lifecycle;
 import brooklyn.entity.basic.QuorumCheck.QuorumChecks;
 import brooklyn.entity.basic.ServiceStateLogic;
@@ -154,10 +155,12 @@ public class ControlledDynamicWebAppClusterImpl extends DynamicGroupImpl impleme
 
     protected void doBind() {
         DynamicWebAppCluster cluster = getAttribute(CLUSTER);
-        if (cluster != null) {
+        // an indexable filter, as isMemberOf is, keeps members up to date from the cluster's membership events;
+        // others (e.g. in persisted state from older versions) need a rescan when the cluster changes
+        if (cluster != null && !(getConfig(ENTITY_FILTER) instanceof IndexableEntityPredicate)) {
             subscribe(cluster, DynamicWebAppCluster.GROUP_MEMBERS, new SensorEventListener<Object>() {
                 @Override public void onEvent(SensorEvent<Object> event) {
-                    // TODO inefficient impl; also worth extracting this into a mixin of some sort.
+                    // TODO worth extracting this into a mixin of some sort.
                     rescanEntities();
                 }});
         }
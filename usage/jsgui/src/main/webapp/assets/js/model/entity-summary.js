@@ -45,6 +45,9 @@ define(["underscore", "backbone"], function (_, Backbone) {
         getSensorUpdateUrl:function () {
             return this.getLinkByName("self") + "/sensors/current-state"
         },
+        getSensorStreamUrl:function () {
+            return this.getLinkByName("self") + "/stream?descendants=false&tasks=false"
+        },
         getConfigUpdateUrl:function () {
             return this.getLinkByName("self") + "/config/current-state"
         }
@@ -223,7 +223,7 @@ define([
             ViewUtils.addAutoRefreshButton(this.table);
             ViewUtils.addRefreshButton(this.table);
             this.loadSensorMetadata();
-            this.updateSensorsPeriodically();
+            this.streamSensors();
             this.toggleFilterEmpty();
             return this;
         },
@@ -232,6 +232,9 @@ define([
             if (this.zeroClipboard) {
                 this.zeroClipboard.destroy();
             }
+            if (this.sensorStream) {
+                this.sensorStream.close();
+            }
         },
 
         /* getting the float menu to pop-up and go away with all the right highlighting
@@ -476,6 +479,27 @@ define([
             ViewUtils.getRepeatedlyWithDelay(that, that.model.getSensorUpdateUrl(), function(data) { that.updateWithData(data); },
                     { enablement: that.isRefreshActive });
         },
+        /**
+         * Updates the sensors table as the server pushes changes, if it supports that, otherwise polls.
+         */
+        streamSensors:function () {
+            var that = this,
+                entityId = that.model.get("id"),
+                values = {};
+            var update = function(data, replace) {
+                if (data[entityId]) {
+                    values = replace ? data[entityId] : _.extend(values, data[entityId]);
+                    if (that.isRefreshActive()) that.updateWithData(values);
+                }
+            };
+            that.sensorStream = ViewUtils.streamEvents(that, that.model.getSensorStreamUrl(), {
+                    snapshot: function(data) { update(data, true); },
+                    sensors: function(data) { update(data, false); }
+                }, function() {
+                    that.sensorStream = null;
+                    that.updateSensorsPeriodically();
+                });
+        },
         updateWithData: function (data) {
             var that = this;
             $table = that.$('#sensors-table');
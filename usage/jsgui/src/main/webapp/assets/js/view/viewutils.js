@@ -387,6 +387,35 @@ define([
             ViewUtils.get(view, url, success, options)
         },
 
+        /** subscribes to the server-sent events at the given url, invoking handlers[name] with the parsed data
+         * of each event of that name; returns the EventSource, which the view should close when it closes.
+         * if the browser or server does not support the stream, or the server refuses it (e.g. too many open),
+         * fallback is invoked instead, so the view can poll. (if the connection is merely dropped, as the server
+         * does periodically, the browser reconnects by itself.) */
+        streamEvents: function(view, url, handlers, fallback) {
+            if (typeof window.EventSource === 'undefined') {
+                fallback()
+                return null
+            }
+            var source = new EventSource(url)
+            _.each(handlers, function(handler, name) {
+                source.addEventListener(name, function(event) {
+                    if (view.viewIsClosed) {
+                        source.close()
+                        return
+                    }
+                    handler(JSON.parse(event.data))
+                })
+            })
+            source.onerror = function() {
+                if (source.readyState == EventSource.CLOSED && !view.viewIsClosed) {
+                    log("event stream not available; polling instead - "+url)
+                    fallback()
+                }
+            }
+            return source
+        },
+
         /** As fetchRepeatedlyWithDelay(view, model, options), but without updating a view. */
         fetchModelRepeatedlyWithDelay: function(model, options) {
             this.fetchRepeatedlyWithDelay(undefined, model, options);
@@ -63,6 +63,7 @@ import brooklyn.entity.rebind.RebindManager;
 import brooklyn.entity.rebind.RebindManagerImpl;
 import brooklyn.entity.rebind.persister.BrooklynMementoPersisterToObjectStore;
 import brooklyn.entity.rebind.persister.BrooklynPersistenceUtils;
+import brooklyn.entity.rebind.persister.MementoFormat;
 import brooklyn.entity.rebind.persister.PersistMode;
 import brooklyn.entity.rebind.persister.PersistenceObjectStore;
 import brooklyn.entity.rebind.transformer.CompoundTransformer;
@@ -500,7 +501,10 @@ public class BrooklynLauncher {
         
         try {
             BrooklynMementoRawData memento = managementContext.getRebindManager().retrieveMementoRawData();
-            if (transformer != null) memento = transformer.transform(memento);
+            if (transformer != null) {
+                // transformers are XSLT, so need XML; written in the configured format below
+                memento = transformer.transform(BrooklynPersistenceUtils.convertMementoFormat(memento, MementoFormat.XML));
+            }
             
             ManagementPlaneSyncRecord planeState = managementContext.getHighAvailabilityManager().loadManagementPlaneSyncRecord(true);
             
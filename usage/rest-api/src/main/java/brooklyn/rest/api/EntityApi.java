@@ -232,4 +232,31 @@ public interface EntityApi {
             @PathParam("application") String application,
             @ApiParam(value = "Entity ID or name", required = true)
             @PathParam("entity") String entity);
+
+    @GET
+    @Path("/{entity}/stream")
+    @ApiOperation(value = "Stream changes to the sensors and tasks of the entity (and by default its descendants), as server-sent events: " +
+            "'snapshot' with the values of all sensors, then 'sensors' with those changed, as maps of entity id to map of sensor name to value; " +
+            "'tasks' with the tasks started or finished; and 'removed' with the ids of entities removed. " +
+            "The stream is closed periodically, for the client to reconnect.")
+    @ApiErrors(value = {
+            @ApiError(code = 404, reason = "Application or entity missing"),
+            @ApiError(code = 503, reason = "Too many streams open; the client should poll instead")
+    })
+    @Produces("text/event-stream")
+    public Response stream(
+            @ApiParam(value = "Application ID or name", required = true)
+            @PathParam("application") String application,
+            @ApiParam(value = "Entity ID or name", required = true)
+            @PathParam("entity") String entity,
+            @ApiParam(value = "Whether to include the entity's descendants", required = false, defaultValue = "true")
+            @QueryParam("descendants") @DefaultValue("true") Boolean descendants,
+            @ApiParam(value = "Whether to include sensor changes", required = false, defaultValue = "true")
+            @QueryParam("sensors") @DefaultValue("true") Boolean sensors,
+            @ApiParam(value = "Whether to include task changes", required = false, defaultValue = "true")
+            @QueryParam("tasks") @DefaultValue("true") Boolean tasks,
+            @ApiParam(value = "Period over which changes are combined before being sent, e.g. '500ms'; at least 100ms", required = false, defaultValue = "500ms")
+            @QueryParam("period") @DefaultValue("500ms") String period,
+            @ApiParam(value = "Return raw sensor data instead of display values", required = false, defaultValue = "false")
+            @QueryParam("raw") @DefaultValue("false") Boolean raw);
 }
@@ -18,9 +18,12 @@
  */
 package brooklyn.rest.filter;
 
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MultivaluedMap;
 
+import brooklyn.rest.util.EntityVersionTags;
+
 import com.sun.jersey.spi.container.ContainerRequest;
 import com.sun.jersey.spi.container.ContainerResponse;
 import com.sun.jersey.spi.container.ContainerResponseFilter;
@@ -31,7 +34,14 @@ public class NoCacheFilter implements ContainerResponseFilter {
     public ContainerResponse filter(ContainerRequest request, ContainerResponse response) {
         //https://developer.mozilla.org/en-US/docs/Web/HTTP/Caching_FAQ
         MultivaluedMap<String, Object> headers = response.getHttpHeaders();
-        headers.putSingle(HttpHeaders.CACHE_CONTROL, "no-cache, no-store");
+        Object tag = request.getProperties().get(EntityVersionTags.ETAG_PROPERTY);
+        if (tag instanceof EntityTag && response.getStatus() < 400) {
+            // may be stored, but must be revalidated with the tag on each use
+            headers.putSingle(HttpHeaders.ETAG, tag);
+            headers.putSingle(HttpHeaders.CACHE_CONTROL, "no-cache");
+        } else {
+            headers.putSingle(HttpHeaders.CACHE_CONTROL, "no-cache, no-store");
+        }
         headers.putSingle("Pragma", "no-cache");
         headers.putSingle(HttpHeaders.EXPIRES, "0");
         return response;
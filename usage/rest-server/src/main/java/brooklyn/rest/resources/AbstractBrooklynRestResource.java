@@ -21,7 +21,10 @@ package brooklyn.rest.resources;
 import io.brooklyn.camp.CampPlatform;
 
 import javax.servlet.ServletContext;
+import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.Response.ResponseBuilder;
 
 import org.codehaus.jackson.map.ObjectMapper;
 
@@ -30,12 +33,14 @@ import brooklyn.config.BrooklynServiceAttributes;
 import brooklyn.management.ManagementContext;
 import brooklyn.management.ManagementContextInjectable;
 import brooklyn.rest.util.BrooklynRestResourceUtils;
+import brooklyn.rest.util.EntityVersionTags;
 import brooklyn.rest.util.WebResourceUtils;
 import brooklyn.rest.util.json.BrooklynJacksonJsonProvider;
 import brooklyn.util.task.Tasks;
 import brooklyn.util.time.Duration;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.sun.jersey.api.core.HttpContext;
 
 public abstract class AbstractBrooklynRestResource implements ManagementContextInjectable {
 
@@ -48,6 +53,8 @@ public abstract class AbstractBrooklynRestResource implements ManagementContextI
     // so we have set up a NullServletContextProvider in our tests) 
     @Context ServletContext servletContext;
     
+    @Context HttpContext httpContext;
+    
     private ManagementContext managementContext;
     private BrooklynRestResourceUtils brooklynRestResourceUtils;
     private ObjectMapper mapper;
@@ -91,6 +98,17 @@ public abstract class AbstractBrooklynRestResource implements ManagementContextI
         return Tasks.resolving(value).as(Object.class).defaultValue(null).timeout(Duration.ZERO).swallowExceptions().get();
     }
 
+    /** throws a <code>304 Not Modified</code> response if the client already has the representation with the given tag
+     * (from <code>If-None-Match</code>); otherwise records the tag to be returned with the response,
+     * by {@link brooklyn.rest.filter.NoCacheFilter} (see {@link EntityVersionTags}) */
+    protected void checkNotModified(EntityTag tag) {
+        // null if not invoked through jersey
+        if (httpContext==null) return;
+        httpContext.getProperties().put(EntityVersionTags.ETAG_PROPERTY, tag);
+        ResponseBuilder notModified = httpContext.getRequest().evaluatePreconditions(tag);
+        if (notModified!=null) throw new WebApplicationException(notModified.tag(tag).build());
+    }
+
     protected CampPlatform camp() {
         return BrooklynServerConfig.getCampPlatform(mgmt()).get();
     }
@@ -32,6 +32,7 @@ import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.Response;
@@ -74,6 +75,7 @@ import brooklyn.rest.transform.ApplicationTransformer;
 import brooklyn.rest.transform.EntityTransformer;
 import brooklyn.rest.transform.TaskTransformer;
 import brooklyn.rest.util.BrooklynRestResourceUtils;
+import brooklyn.rest.util.EntityVersionTags;
 import brooklyn.rest.util.WebResourceUtils;
 import brooklyn.util.ResourceUtils;
 import brooklyn.util.collections.MutableMap;
@@ -81,6 +83,7 @@ import brooklyn.util.exceptions.Exceptions;
 
 import com.google.common.base.Throwables;
 import com.google.common.collect.FluentIterable;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 
 @HaHotStateRequired
@@ -194,23 +197,31 @@ public class ApplicationResource extends AbstractBrooklynRestResource implements
 
     @Override
     public JsonNode fetch(String entityIds) {
-        Map<String, JsonNode> jsonEntitiesById = MutableMap.of();
+        Map<String, Entity> entitiesById = MutableMap.of();
         for (Application application : mgmt().getApplications())
-            jsonEntitiesById.put(application.getId(), fromEntity(application));
+            entitiesById.put(application.getId(), application);
         if (entityIds != null) {
             for (String entityId: entityIds.split(",")) {
                 Entity entity = mgmt().getEntityManager().getEntity(entityId.trim());
                 while (entity != null && entity.getParent() != null) {
                     if (Entitlements.isEntitled(mgmt().getEntitlementManager(), Entitlements.SEE_ENTITY, entity)) {
-                        jsonEntitiesById.put(entity.getId(), fromEntity(entity));
+                        entitiesById.put(entity.getId(), entity);
                     }
                     entity = entity.getParent();
                 }
             }
         }
+        checkNotModified(EntityVersionTags.tagForWithRelations(mgmt(), entitiesById.values()));
 
         ArrayNode result = mapper().createArrayNode();
-        for (JsonNode n: jsonEntitiesById.values()) result.add(n);
+        for (final Entity entity: entitiesById.values()) {
+            // shows the names of related entities, and only those the user is entitled to see
+            String relations = EntityVersionTags.tagForWithRelations(mgmt(), ImmutableList.of(entity)).getValue();
+            result.add(EntityVersionTags.cached(entity, "fetch", new Callable<JsonNode>() {
+                public JsonNode call() {
+                    return fromEntity(entity);
+                }}, relations));
+        }
         return result;
     }
 
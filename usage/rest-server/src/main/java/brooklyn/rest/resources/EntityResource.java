@@ -27,8 +27,10 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
 
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.ResponseBuilder;
@@ -58,6 +60,8 @@ import brooklyn.rest.transform.EntityTransformer;
 import brooklyn.rest.transform.LocationTransformer;
 import brooklyn.rest.transform.LocationTransformer.LocationDetailLevel;
 import brooklyn.rest.transform.TaskTransformer;
+import brooklyn.rest.util.EntityEventStream;
+import brooklyn.rest.util.EntityVersionTags;
 import brooklyn.rest.util.WebResourceUtils;
 import brooklyn.util.ResourceUtils;
 import brooklyn.util.collections.MutableList;
@@ -65,6 +69,7 @@ import brooklyn.util.time.Duration;
 
 import com.google.common.collect.Collections2;
 import com.google.common.collect.FluentIterable;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.io.Files;
@@ -88,9 +93,13 @@ public class EntityResource extends AbstractBrooklynRestResource implements Enti
 
     @Override
     public EntitySummary get(String application, String entityName) {
-        Entity entity = brooklyn().getEntity(application, entityName);
+        final Entity entity = brooklyn().getEntity(application, entityName);
         if (Entitlements.isEntitled(mgmt().getEntitlementManager(), Entitlements.SEE_ENTITY, entity)) {
-            return EntityTransformer.entitySummary(entity);
+            checkNotModified(EntityVersionTags.tagFor(mgmt(), ImmutableList.of(entity)));
+            return EntityVersionTags.cached(entity, "summary", new Callable<EntitySummary>() {
+                public EntitySummary call() {
+                    return EntityTransformer.entitySummary(entity);
+                }});
         }
         throw WebResourceUtils.unauthorized("User '%s' is not authorized to get entity '%s'",
                 Entitlements.getEntitlementContext().user(), entity);
@@ -222,4 +231,27 @@ public class EntityResource extends AbstractBrooklynRestResource implements Enti
             return null;
         return (String) getValueForDisplay(spec.getContents(), true, true);
     }
+
+    @Override
+    public Response stream(String applicationToken, String entityToken, Boolean descendants, Boolean sensors, Boolean tasks, String period, Boolean raw) {
+        Entity entity = brooklyn().getEntity(applicationToken, entityToken);
+        if (!Entitlements.isEntitled(mgmt().getEntitlementManager(), Entitlements.SEE_ENTITY, entity)) {
+            throw WebResourceUtils.unauthorized("User '%s' is not authorized to get entity '%s'",
+                    Entitlements.getEntitlementContext().user(), entity);
+        }
+        EntityEventStream stream = new EntityEventStream(mgmt(), mapper(), entity)
+                .descendants(!Boolean.FALSE.equals(descendants))
+                .sensors(!Boolean.FALSE.equals(sensors))
+                .tasks(!Boolean.FALSE.equals(tasks))
+                .raw(Boolean.TRUE.equals(raw))
+                .period(period==null ? Duration.millis(500) : Duration.of(period));
+        if (!stream.tryOpen()) {
+            throw WebResourceUtils.throwWebApplicationException(Status.SERVICE_UNAVAILABLE,
+                    "Too many event streams open; poll for changes instead");
+        }
+        // the gzip filter would hold events back until the stream ends, so ask it not to encode the response
+        return Response.ok(stream, EntityEventStream.MEDIA_TYPE)
+                .header(HttpHeaders.CONTENT_ENCODING, "identity")
+                .build();
+    }
 }
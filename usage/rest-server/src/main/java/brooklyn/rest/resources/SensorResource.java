@@ -21,8 +21,10 @@ package brooklyn.rest.resources;
 import static com.google.common.collect.Iterables.filter;
 import static com.google.common.collect.Iterables.transform;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -38,10 +40,12 @@ import brooklyn.rest.api.SensorApi;
 import brooklyn.rest.domain.SensorSummary;
 import brooklyn.rest.filter.HaHotStateRequired;
 import brooklyn.rest.transform.SensorTransformer;
+import brooklyn.rest.util.EntityVersionTags;
 import brooklyn.rest.util.WebResourceUtils;
 import brooklyn.util.text.Strings;
 
 import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 
@@ -67,6 +71,14 @@ public class SensorResource extends AbstractBrooklynRestResource implements Sens
     @Override
     public Map<String, Object> batchSensorRead(final String application, final String entityToken, final Boolean raw) {
         final EntityLocal entity = brooklyn().getEntity(application, entityToken);
+        checkNotModified(EntityVersionTags.tagFor(mgmt(), ImmutableList.of(entity)));
+        return EntityVersionTags.cached(entity, "sensors", new Callable<Map<String, Object>>() {
+            public Map<String, Object> call() {
+                return Collections.unmodifiableMap(readSensors(entity, raw));
+            }}, Boolean.FALSE.equals(raw));
+    }
+
+    private Map<String, Object> readSensors(EntityLocal entity, Boolean raw) {
         Map<String, Object> sensorMap = Maps.newHashMap();
         @SuppressWarnings("rawtypes")
         Iterable<AttributeSensor> sensors = filter(entity.getEntityType().getSensors(), AttributeSensor.class);
@@ -0,0 +1,496 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.rest.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.ws.rs.core.StreamingOutput;
+
+import org.codehaus.jackson.map.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import brooklyn.config.ConfigKey;
+import brooklyn.config.render.RendererHints;
+import brooklyn.entity.Entity;
+import brooklyn.entity.basic.AbstractEntity;
+import brooklyn.entity.basic.BrooklynTaskTags;
+import brooklyn.entity.basic.ConfigKeys;
+import brooklyn.entity.basic.Entities;
+import brooklyn.event.AttributeSensor;
+import brooklyn.event.Sensor;
+import brooklyn.event.SensorEvent;
+import brooklyn.event.SensorEventListener;
+import brooklyn.management.ManagementContext;
+import brooklyn.management.SubscriptionHandle;
+import brooklyn.management.Task;
+import brooklyn.management.entitlement.Entitlements;
+import brooklyn.rest.BrooklynWebConfig;
+import brooklyn.rest.domain.TaskSummary;
+import brooklyn.rest.transform.TaskTransformer;
+import brooklyn.util.collections.MutableList;
+import brooklyn.util.collections.MutableMap;
+import brooklyn.util.task.BasicExecutionManager;
+import brooklyn.util.task.TaskSubmissionListener;
+import brooklyn.util.task.Tasks;
+import brooklyn.util.time.Duration;
+import brooklyn.util.time.Time;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Charsets;
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Writes the changes to the sensors of an entity (and by default its descendants), and to their tasks,
+ * as <a href="http://www.w3.org/TR/eventsource/">server-sent events</a>, so that clients need not poll for them.
+ * <p>
+ * Sensor events are delivered by the {@link brooklyn.management.SubscriptionManager} and held here until the next write,
+ * which is done every {@link #period(Duration)}, keeping only the latest value of each sensor.
+ * At most {@link #MAX_BUFFERED_CHANGES} changes are held: if there are more, they are discarded
+ * and the current values of all sensors are sent instead. The events written are:
+ * <ul>
+ * <li><code>snapshot</code>: the values of all sensors, as a map of entity id to map of sensor name to value;
+ *     written first, and when changes have been discarded
+ * <li><code>sensors</code>: the sensors changed since the last write, in the same form
+ * <li><code>tasks</code>: a list of {@link TaskSummary} for the (non-transient) tasks submitted or finished since the last write
+ * <li><code>removed</code>: a list of the ids of entities which have been removed
+ * </ul>
+ * The stream holds a request thread, so is closed after {@link #MAX_DURATION}
+ * (browsers' <code>EventSource</code> then reconnects), and at most {@link #MAX_STREAMS} can be open at once.
+ */
+@Beta
+public class EntityEventStream implements StreamingOutput {
+
+    private static final Logger log = LoggerFactory.getLogger(EntityEventStream.class);
+
+    public static final String MEDIA_TYPE = "text/event-stream";
+
+    public static final ConfigKey<Integer> MAX_STREAMS = ConfigKeys.newIntegerConfigKey(
+            BrooklynWebConfig.BASE_NAME+".stream.maxConcurrent",
+            "Maximum number of event streams open at once; further requests are refused, so clients poll instead", 50);
+
+    public static final ConfigKey<Duration> MAX_DURATION = ConfigKeys.newDurationConfigKey(
+            BrooklynWebConfig.BASE_NAME+".stream.maxDuration",
+            "Time after which an event stream is closed, for the client to reconnect", Duration.minutes(5));
+
+    public static final ConfigKey<Duration> HEARTBEAT_PERIOD = ConfigKeys.newDurationConfigKey(
+            BrooklynWebConfig.BASE_NAME+".stream.heartbeatPeriod",
+            "Time without events after which a comment is written to an event stream, to detect closed connections", Duration.seconds(15));
+
+    public static final ConfigKey<Integer> MAX_BUFFERED_CHANGES = ConfigKeys.newIntegerConfigKey(
+            BrooklynWebConfig.BASE_NAME+".stream.maxBufferedChanges",
+            "Maximum number of sensor and task changes held for an event stream between writes; "
+            + "if there are more, the current values of all sensors are sent instead", 10000);
+
+    /** the shortest period accepted, so that clients cannot make a stream write continuously */
+    public static final Duration MIN_PERIOD = Duration.millis(100);
+
+    /** time after which a stream reserved by {@link #tryOpen()} but not yet written is no longer counted as open */
+    public static final Duration MAX_UNWRITTEN_DURATION = Duration.seconds(30);
+
+    private static final Object streamsLock = new Object[0];
+    // guarded by streamsLock
+    private static int numOpenStreams = 0;
+    private static final Set<EntityEventStream> unwrittenStreams = new LinkedHashSet<EntityEventStream>();
+
+    private final ManagementContext mgmt;
+    private final ObjectMapper mapper;
+    private final Entity root;
+    private final int maxBufferedChanges;
+
+    private boolean descendants = true;
+    private boolean includeSensors = true;
+    private boolean includeTasks = true;
+    private boolean raw = false;
+    private Duration period = Duration.millis(500);
+
+    private final ConcurrentMap<String, Entity> entities = new ConcurrentHashMap<String, Entity>();
+    private final ConcurrentMap<String, SubscriptionHandle> subscriptions = new ConcurrentHashMap<String, SubscriptionHandle>();
+    private final SensorEventListener<Object> sensorListener = new SensorEventListener<Object>() {
+        @Override
+        public void onEvent(SensorEvent<Object> event) {
+            onSensorEvent(event);
+        }
+    };
+    private final TaskSubmissionListener taskListener = new TaskSubmissionListener() {
+        @Override
+        public void onTaskSubmitted(Task<?> task) {
+            onTaskChanged(task);
+        }
+        @Override
+        public void onTaskDone(Task<?> task) {
+            onTaskChanged(task);
+        }
+    };
+    // guarded by streamsLock
+    private boolean opened = false;
+    private long reservedTime;
+    private volatile boolean closed = false;
+
+    // changes since the last write; guarded by this
+    private Map<String, Map<AttributeSensor<?>, Object>> changedSensors = new LinkedHashMap<String, Map<AttributeSensor<?>, Object>>();
+    private Map<String, Task<?>> changedTasks = new LinkedHashMap<String, Task<?>>();
+    private Set<String> removedEntities = new LinkedHashSet<String>();
+    private int numBuffered = 0;
+    private boolean overflowed = false;
+
+    public EntityEventStream(ManagementContext mgmt, ObjectMapper mapper, Entity root) {
+        this.mgmt = mgmt;
+        this.mapper = mapper;
+        this.root = root;
+        this.maxBufferedChanges = mgmt.getConfig().getConfig(MAX_BUFFERED_CHANGES);
+    }
+
+    /** whether to include the descendants of the entity; default true */
+    public EntityEventStream descendants(boolean val) {
+        this.descendants = val;
+        return this;
+    }
+
+    /** whether to write sensor changes; default true */
+    public EntityEventStream sensors(boolean val) {
+        this.includeSensors = val;
+        return this;
+    }
+
+    /** whether to write task changes; default true */
+    public EntityEventStream tasks(boolean val) {
+        this.includeTasks = val;
+        return this;
+    }
+
+    /** whether to write raw sensor values, rather than applying display hints; default false */
+    public EntityEventStream raw(boolean val) {
+        this.raw = val;
+        return this;
+    }
+
+    /** the period over which changes are combined before being written; default 500ms, and at least {@link #MIN_PERIOD} */
+    public EntityEventStream period(Duration val) {
+        this.period = Duration.max(val, MIN_PERIOD);
+        return this;
+    }
+
+    /** the number of streams currently open (across all management contexts) */
+    public static int getNumOpenStreams() {
+        synchronized (streamsLock) {
+            releaseUnwrittenStreams(false);
+            return numOpenStreams;
+        }
+    }
+
+    /**
+     * Reserves one of the {@link #MAX_STREAMS} streams, returning false if they are all in use.
+     * Must be called before {@link #write(OutputStream)}, which releases it when the stream is closed.
+     * If the stream is never written (e.g. the client goes away first) the reservation lapses after
+     * {@link #MAX_UNWRITTEN_DURATION}.
+     */
+    public boolean tryOpen() {
+        int max = mgmt.getConfig().getConfig(MAX_STREAMS);
+        synchronized (streamsLock) {
+            releaseUnwrittenStreams(false);
+            if (numOpenStreams >= max) return false;
+            numOpenStreams++;
+            opened = true;
+            reservedTime = System.currentTimeMillis();
+            unwrittenStreams.add(this);
+            return true;
+        }
+    }
+
+    /** releases the reservations of streams not written within {@link #MAX_UNWRITTEN_DURATION}, or all if forced */
+    @VisibleForTesting
+    static void releaseUnwrittenStreams(boolean force) {
+        synchronized (streamsLock) {
+            long cutoff = System.currentTimeMillis() - MAX_UNWRITTEN_DURATION.toMilliseconds();
+            for (Iterator<EntityEventStream> iter = unwrittenStreams.iterator(); iter.hasNext();) {
+                EntityEventStream stream = iter.next();
+                if (force || stream.reservedTime < cutoff) {
+                    if (log.isDebugEnabled()) log.debug("Event stream for "+stream.root+" not written; releasing its reservation");
+                    iter.remove();
+                    stream.opened = false;
+                    numOpenStreams--;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void write(OutputStream output) throws IOException {
+        synchronized (streamsLock) {
+            if (!opened) throw new IllegalStateException("Event stream for "+root+" written without being opened, or too long after");
+            unwrittenStreams.remove(this);
+        }
+        Duration maxDuration = mgmt.getConfig().getConfig(MAX_DURATION);
+        Duration heartbeatPeriod = mgmt.getConfig().getConfig(HEARTBEAT_PERIOD);
+        Writer writer = new OutputStreamWriter(output, Charsets.UTF_8);
+        try {
+            subscribe(root, false);
+            if (includeTasks && mgmt.getExecutionManager() instanceof BasicExecutionManager) {
+                ((BasicExecutionManager) mgmt.getExecutionManager()).addListener(taskListener);
+            }
+            if (includeSensors) {
+                writeEvent(writer, "snapshot", renderSensors(currentSensors()));
+            }
+            writer.flush();
+
+            Stopwatch sinceStart = Stopwatch.createStarted();
+            Stopwatch sinceWrite = Stopwatch.createStarted();
+            while (maxDuration.isLongerThan(sinceStart)) {
+                Time.sleep(period);
+                if (writeChanges(writer)) {
+                    sinceWrite.reset().start();
+                } else if (heartbeatPeriod.isShorterThan(sinceWrite)) {
+                    // a comment, ignored by clients; fails if the client has gone away
+                    writer.write(":\n\n");
+                    sinceWrite.reset().start();
+                }
+                writer.flush();
+            }
+        } catch (IOException e) {
+            // normal when the client goes away
+            if (log.isDebugEnabled()) log.debug("Event stream for "+root+" closed: "+e);
+        } finally {
+            close();
+        }
+    }
+
+    private void close() {
+        closed = true;
+        if (mgmt.getExecutionManager() instanceof BasicExecutionManager) {
+            ((BasicExecutionManager) mgmt.getExecutionManager()).removeListener(taskListener);
+        }
+        unsubscribeAll();
+        entities.clear();
+        synchronized (streamsLock) {
+            if (opened) {
+                opened = false;
+                numOpenStreams--;
+            }
+        }
+    }
+
+    private void unsubscribeAll() {
+        for (String id : subscriptions.keySet()) {
+            SubscriptionHandle handle = subscriptions.remove(id);
+            if (handle!=null) mgmt.getSubscriptionManager().unsubscribe(handle);
+        }
+    }
+
+    private void subscribe(Entity entity, boolean isNew) {
+        Iterable<Entity> toAdd = descendants ? Entities.descendants(entity) : ImmutableList.of(entity);
+        for (Entity e : toAdd) {
+            if (entities.putIfAbsent(e.getId(), e)!=null) continue;
+            // batched delivery, so events are delivered in order without a task per event
+            subscriptions.put(e.getId(), mgmt.getSubscriptionManager().subscribe(
+                    MutableMap.<String, Object>of("subscriber", this, "batchDelivery", true), e, (Sensor<Object>) null, sensorListener));
+            if (isNew && includeSensors) {
+                for (AttributeSensor<?> sensor : getAttributeSensors(e)) {
+                    bufferSensor(e.getId(), sensor, e.getAttribute(sensor));
+                }
+            }
+        }
+        // in case a child was added while closing
+        if (closed) unsubscribeAll();
+    }
+
+    private void unsubscribe(Entity entity) {
+        for (Entity e : Entities.descendants(entity)) {
+            if (entities.remove(e.getId())==null) continue;
+            SubscriptionHandle handle = subscriptions.remove(e.getId());
+            if (handle!=null) mgmt.getSubscriptionManager().unsubscribe(handle);
+            synchronized (this) {
+                changedSensors.remove(e.getId());
+                removedEntities.add(e.getId());
+            }
+        }
+    }
+
+    private void onSensorEvent(SensorEvent<Object> event) {
+        if (closed) return;
+        Sensor<?> sensor = event.getSensor();
+        if (descendants && AbstractEntity.CHILD_ADDED.getName().equals(sensor.getName())) {
+            subscribe((Entity) event.getValue(), true);
+        } else if (descendants && AbstractEntity.CHILD_REMOVED.getName().equals(sensor.getName())) {
+            unsubscribe((Entity) event.getValue());
+        } else if (includeSensors && sensor instanceof AttributeSensor) {
+            bufferSensor(event.getSource().getId(), (AttributeSensor<?>) sensor, event.getValue());
+        }
+    }
+
+    private void onTaskChanged(Task<?> task) {
+        if (closed || BrooklynTaskTags.isTransient(task)) return;
+        Entity entity = BrooklynTaskTags.getContextEntity(task);
+        if (entity==null || !entities.containsKey(entity.getId())) return;
+        synchronized (this) {
+            if (overflowed) return;
+            if (changedTasks.put(task.getId(), task)==null) onBuffered();
+        }
+    }
+
+    private synchronized void bufferSensor(String entityId, AttributeSensor<?> sensor, Object value) {
+        if (overflowed) return;
+        Map<AttributeSensor<?>, Object> values = changedSensors.get(entityId);
+        if (values==null) {
+            values = new LinkedHashMap<AttributeSensor<?>, Object>();
+            changedSensors.put(entityId, values);
+        }
+        boolean isNew = !values.containsKey(sensor);
+        values.put(sensor, value);
+        if (isNew) onBuffered();
+    }
+
+    private synchronized void onBuffered() {
+        numBuffered++;
+        if (numBuffered > maxBufferedChanges) {
+            if (log.isDebugEnabled()) log.debug("Event stream for "+root+" has more than "+maxBufferedChanges+" changes; will send snapshot");
+            overflowed = true;
+            changedSensors.clear();
+            changedTasks.clear();
+            numBuffered = 0;
+        }
+    }
+
+    /** buffers the tasks in progress, after changes have been discarded */
+    private void bufferIncompleteTasks() {
+        for (Entity entity : entities.values()) {
+            for (Task<?> task : BrooklynTaskTags.getTasksInEntityContext(mgmt.getExecutionManager(), entity)) {
+                if (!task.isDone()) onTaskChanged(task);
+            }
+        }
+    }
+
+    /** writes the changes since the last write, returning whether anything was written */
+    private boolean writeChanges(Writer writer) throws IOException {
+        Map<String, Map<AttributeSensor<?>, Object>> sensors;
+        Collection<Task<?>> tasks;
+        Set<String> removed;
+        boolean snapshot;
+        synchronized (this) {
+            sensors = changedSensors;
+            tasks = changedTasks.values();
+            removed = removedEntities;
+            snapshot = overflowed;
+            changedSensors = new LinkedHashMap<String, Map<AttributeSensor<?>, Object>>();
+            changedTasks = new LinkedHashMap<String, Task<?>>();
+            removedEntities = new LinkedHashSet<String>();
+            numBuffered = 0;
+            overflowed = false;
+        }
+
+        boolean result = false;
+        if (!removed.isEmpty()) {
+            writeEvent(writer, "removed", removed);
+            result = true;
+        }
+        if (snapshot) {
+            // task changes were discarded too, so send those in progress in the next write
+            if (includeTasks) bufferIncompleteTasks();
+            if (includeSensors) {
+                writeEvent(writer, "snapshot", renderSensors(currentSensors()));
+                result = true;
+            }
+        } else if (!sensors.isEmpty()) {
+            writeEvent(writer, "sensors", renderSensors(sensors));
+            result = true;
+        }
+        if (!tasks.isEmpty()) {
+            writeEvent(writer, "tasks", renderTasks(tasks));
+            result = true;
+        }
+        return result;
+    }
+
+    private void writeEvent(Writer writer, String name, Object data) throws IOException {
+        writer.write("event: "+name+"\n");
+        for (String line : mapper.writeValueAsString(data).split("\n")) {
+            writer.write("data: "+line+"\n");
+        }
+        writer.write("\n");
+    }
+
+    private Map<String, Map<AttributeSensor<?>, Object>> currentSensors() {
+        Map<String, Map<AttributeSensor<?>, Object>> result = new LinkedHashMap<String, Map<AttributeSensor<?>, Object>>();
+        for (Entity entity : entities.values()) {
+            Map<AttributeSensor<?>, Object> values = new LinkedHashMap<AttributeSensor<?>, Object>();
+            for (AttributeSensor<?> sensor : getAttributeSensors(entity)) {
+                values.put(sensor, entity.getAttribute(sensor));
+            }
+            result.put(entity.getId(), values);
+        }
+        return result;
+    }
+
+    private static List<AttributeSensor<?>> getAttributeSensors(Entity entity) {
+        List<AttributeSensor<?>> result = MutableList.of();
+        for (Sensor<?> sensor : entity.getEntityType().getSensors()) {
+            if (sensor instanceof AttributeSensor) result.add((AttributeSensor<?>) sensor);
+        }
+        return result;
+    }
+
+    /** renders values as {@link brooklyn.rest.resources.SensorResource#batchSensorRead(String, String, Boolean)} does */
+    private Map<String, Map<String, Object>> renderSensors(Map<String, Map<AttributeSensor<?>, Object>> values) {
+        Map<String, Map<String, Object>> result = new LinkedHashMap<String, Map<String, Object>>();
+        for (Map.Entry<String, Map<AttributeSensor<?>, Object>> entry : values.entrySet()) {
+            Entity entity = entities.get(entry.getKey());
+            if (entity==null || !Entitlements.isEntitled(mgmt.getEntitlementManager(), Entitlements.SEE_ENTITY, entity)) continue;
+            Map<String, Object> rendered = new LinkedHashMap<String, Object>();
+            for (Map.Entry<AttributeSensor<?>, Object> sensorValue : entry.getValue().entrySet()) {
+                Object value = sensorValue.getValue();
+                if (!raw) {
+                    value = RendererHints.applyDisplayValueHint(sensorValue.getKey(), value);
+                }
+                value = Tasks.resolving(value).as(Object.class).defaultValue(null).timeout(Duration.ZERO).swallowExceptions().get();
+                rendered.put(sensorValue.getKey().getName(), WebResourceUtils.getValueForDisplay(mapper, value, true, false));
+            }
+            result.put(entry.getKey(), rendered);
+        }
+        return result;
+    }
+
+    private List<TaskSummary> renderTasks(Collection<Task<?>> tasks) {
+        List<TaskSummary> result = MutableList.of();
+        for (Task<?> task : tasks) {
+            Entity entity = BrooklynTaskTags.getContextEntity(task);
+            if (entity==null || !Entitlements.isEntitled(mgmt.getEntitlementManager(), Entitlements.SEE_ENTITY, entity)) continue;
+            result.add(TaskTransformer.taskSummary(task));
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "EntityEventStream["+root+"]";
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.rest.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import javax.ws.rs.core.EntityTag;
+
+import brooklyn.entity.Entity;
+import brooklyn.entity.Group;
+import brooklyn.entity.basic.AbstractGroup;
+import brooklyn.entity.basic.EntityInternal;
+import brooklyn.management.ManagementContext;
+import brooklyn.management.entitlement.EntitlementContext;
+import brooklyn.management.entitlement.Entitlements;
+import brooklyn.util.exceptions.Exceptions;
+
+import com.google.common.annotations.Beta;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * Computes {@link EntityTag}s from the change versions of entities
+ * (see {@link brooklyn.management.internal.EntityManagementSupport#getChangeVersion()} and
+ * {@link brooklyn.management.internal.EntityManagementSupport#getChangeVersionEpoch()}),
+ * so that clients polling the REST API can be answered with <code>304 Not Modified</code>
+ * when nothing they display has changed, and caches what is rendered for a given version.
+ * <p>
+ * Versions are not persisted, so tags include the management node id; they change on restart or failover.
+ */
+@Beta
+public class EntityVersionTags {
+
+    /** request property under which the tag for the response is recorded, for {@link brooklyn.rest.filter.NoCacheFilter} */
+    public static final String ETAG_PROPERTY = "brooklyn.rest.etag";
+
+    public static final int MAX_CACHED_SUMMARIES = 1000;
+
+    private static final Cache<List<Object>, Object> SUMMARIES = CacheBuilder.newBuilder()
+            .maximumSize(MAX_CACHED_SUMMARIES)
+            .build();
+
+    private EntityVersionTags() {}
+
+    public static long version(Entity entity) {
+        return ((EntityInternal)entity).getManagementSupport().getChangeVersion();
+    }
+
+    /** distinguishes instances of entities, as {@link #version(Entity)} is counted per instance */
+    public static long epoch(Entity entity) {
+        return ((EntityInternal)entity).getManagementSupport().getChangeVersionEpoch();
+    }
+
+    /** tag for the given entities in their current state, as seen by the current user */
+    public static EntityTag tagFor(ManagementContext mgmt, Iterable<? extends Entity> entities) {
+        Hasher hasher = Hashing.md5().newHasher()
+                .putUnencodedChars(mgmt.getManagementNodeId())
+                .putUnencodedChars(String.valueOf(user()));
+        for (Entity entity: entities) {
+            hasher.putLong(epoch(entity)).putLong(version(entity));
+        }
+        return new EntityTag(hasher.hash().toString(), true);
+    }
+
+    /** the user on whose behalf the request runs, or null; what they are entitled to see differs */
+    public static String user() {
+        EntitlementContext context = Entitlements.getEntitlementContext();
+        return context==null ? null : context.user();
+    }
+
+    /** as {@link #tagFor(ManagementContext, Iterable)}, also including the entities' children, groups and members,
+     * whose names and ids are shown alongside each entity */
+    public static EntityTag tagForWithRelations(ManagementContext mgmt, Iterable<? extends Entity> entities) {
+        List<Entity> all = new ArrayList<Entity>();
+        for (Entity entity: entities) {
+            all.add(entity);
+            all.addAll(entity.getChildren());
+            all.addAll(entity.getGroups());
+            if (entity instanceof Group) {
+                Collection<Entity> members = entity.getAttribute(AbstractGroup.GROUP_MEMBERS);
+                if (members!=null) all.addAll(members);
+            }
+        }
+        return tagFor(mgmt, all);
+    }
+
+    /**
+     * Returns what the loader renders for the entity, reusing the value from an earlier call with the same
+     * entity, kind and discriminators if the entity has not changed since.
+     * <p>
+     * The version is read before loading, so a value cached under a version can only be newer than that version;
+     * a client given it then sees a new tag on its next request, and so is never left with stale data.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T cached(Entity entity, String kind, Callable<T> loader, Object ...discriminators) {
+        List<Object> key = Arrays.<Object>asList(entity.getId(), epoch(entity), version(entity), kind, Arrays.asList(discriminators));
+        try {
+            return (T) SUMMARIES.get(key, loader);
+        } catch (ExecutionException e) {
+            throw Exceptions.propagate(e.getCause());
+        } catch (UncheckedExecutionException e) {
+            throw Exceptions.propagate(e.getCause());
+        }
+    }
+
+}
@@ -23,6 +23,8 @@ import java.util.List;
 import java.util.Map;
 
 import javax.annotation.Nullable;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 
 import org.codehaus.jackson.map.ObjectMapper;
@@ -37,9 +39,11 @@ import brooklyn.entity.Entity;
 import brooklyn.entity.basic.BasicApplication;
 import brooklyn.entity.basic.Entities;
 import brooklyn.entity.basic.EntityInternal;
+import brooklyn.event.basic.Sensors;
 import brooklyn.rest.domain.ApplicationSpec;
 import brooklyn.rest.domain.EntitySpec;
 import brooklyn.rest.domain.TaskSummary;
+import brooklyn.rest.filter.NoCacheFilter;
 import brooklyn.rest.testing.BrooklynRestResourceTest;
 import brooklyn.rest.testing.mocks.RestMockSimpleEntity;
 import brooklyn.test.HttpTestUtils;
@@ -51,6 +55,7 @@ import com.google.common.base.Predicate;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.core.ResourceConfig;
 
 @Test(singleThreaded = true)
 public class EntityResourceTest extends BrooklynRestResourceTest {
@@ -85,6 +90,13 @@ public class EntityResourceTest extends BrooklynRestResourceTest {
         });
     }
 
+    @Override
+    protected void addBrooklynResources() {
+        // sets the ETag header, as in the web server
+        config.getProperties().put(ResourceConfig.PROPERTY_CONTAINER_RESPONSE_FILTERS, NoCacheFilter.class.getName());
+        super.addBrooklynResources();
+    }
+
     @Test
     public void testTagsSanity() throws Exception {
         entity.tags().addTag("foo");
@@ -187,4 +199,25 @@ public class EntityResourceTest extends BrooklynRestResourceTest {
         Assert.assertTrue(appTag instanceof BasicApplication, "Should have deserialized BasicApplication: "+appTag);
     }
     
+
+    @Test
+    public void testGetIsNotModifiedUntilEntityChanges() throws Exception {
+        ClientResponse response = client().resource(entityEndpoint).get(ClientResponse.class);
+        Assert.assertEquals(response.getStatus(), 200);
+        EntityTag tag = response.getEntityTag();
+        Assert.assertNotNull(tag);
+
+        ClientResponse unchanged = client().resource(entityEndpoint)
+                .header(HttpHeaders.IF_NONE_MATCH, tag.toString())
+                .get(ClientResponse.class);
+        Assert.assertEquals(unchanged.getStatus(), 304);
+
+        entity.setAttribute(Sensors.newStringSensor("test.etag"), "changed");
+        ClientResponse changed = client().resource(entityEndpoint)
+                .header(HttpHeaders.IF_NONE_MATCH, tag.toString())
+                .get(ClientResponse.class);
+        Assert.assertEquals(changed.getStatus(), 200);
+        Assert.assertNotEquals(changed.getEntityTag(), tag);
+    }
+
 }
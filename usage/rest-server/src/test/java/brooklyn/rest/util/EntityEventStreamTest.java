@@ -0,0 +1,221 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.rest.util;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import brooklyn.config.BrooklynProperties;
+import brooklyn.entity.basic.ApplicationBuilder;
+import brooklyn.entity.basic.Entities;
+import brooklyn.entity.basic.EntityInternal;
+import brooklyn.entity.proxying.EntitySpec;
+import brooklyn.management.Task;
+import brooklyn.management.internal.LocalManagementContext;
+import brooklyn.rest.util.json.BrooklynJacksonJsonProvider;
+import brooklyn.test.Asserts;
+import brooklyn.test.entity.LocalManagementContextForTests;
+import brooklyn.test.entity.TestApplication;
+import brooklyn.test.entity.TestEntity;
+import brooklyn.util.exceptions.Exceptions;
+import brooklyn.util.task.Tasks;
+import brooklyn.util.time.Duration;
+
+public class EntityEventStreamTest {
+
+    private LocalManagementContext mgmt;
+    private TestApplication app;
+    private TestEntity entity;
+    private ExecutorService executor;
+
+    @BeforeMethod(alwaysRun=true)
+    public void setUp() throws Exception {
+        BrooklynProperties props = BrooklynProperties.Factory.newEmpty();
+        props.put(EntityEventStream.MAX_DURATION, Duration.seconds(5));
+        mgmt = LocalManagementContextForTests.newInstance(props);
+        app = ApplicationBuilder.newManagedApp(TestApplication.class, mgmt);
+        entity = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @AfterMethod(alwaysRun=true)
+    public void tearDown() throws Exception {
+        if (executor != null) {
+            // interrupts the streams, which then close
+            executor.shutdownNow();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+        if (mgmt != null) Entities.destroyAll(mgmt);
+    }
+
+    @Test
+    public void testStreamsSnapshotThenChangedSensorsOfDescendants() throws Exception {
+        entity.setAttribute(TestEntity.NAME, "before");
+        final EntityEventStream stream = newStream();
+        assertTrue(stream.tryOpen());
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        Future<?> writing = write(stream, output);
+
+        Asserts.succeedsEventually(new Runnable() {
+            public void run() {
+                String written = output.toString();
+                assertTrue(written.startsWith("event: snapshot\n"), written);
+                assertTrue(written.contains("\"before\""), written);
+            }});
+
+        entity.setAttribute(TestEntity.NAME, "after");
+        Asserts.succeedsEventually(new Runnable() {
+            public void run() {
+                String written = output.toString();
+                assertTrue(written.contains("event: sensors\n"), written);
+                assertTrue(written.contains("\"test.name\":\"after\""), written);
+            }});
+
+        writing.cancel(true);
+    }
+
+    @Test
+    public void testStreamsSensorsOfAddedChild() throws Exception {
+        final EntityEventStream stream = newStream();
+        assertTrue(stream.tryOpen());
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        Future<?> writing = write(stream, output);
+
+        Asserts.succeedsEventually(new Runnable() {
+            public void run() {
+                assertTrue(output.toString().startsWith("event: snapshot\n"));
+            }});
+
+        final TestEntity child = entity.createAndManageChild(EntitySpec.create(TestEntity.class));
+        child.setAttribute(TestEntity.NAME, "child");
+        Asserts.succeedsEventually(new Runnable() {
+            public void run() {
+                String written = output.toString();
+                assertTrue(written.contains("\""+child.getId()+"\":{"), written);
+                assertTrue(written.contains("\"child\""), written);
+            }});
+
+        writing.cancel(true);
+    }
+
+    @Test
+    public void testRefusesStreamsOverLimitAndReleasesOnClose() throws Exception {
+        int initialOpen = EntityEventStream.getNumOpenStreams();
+        mgmt.getBrooklynProperties().put(EntityEventStream.MAX_STREAMS, initialOpen+1);
+
+        EntityEventStream stream = newStream();
+        assertTrue(stream.tryOpen());
+        assertFalse(newStream().tryOpen());
+
+        stream.write(new DisconnectedOutputStream());
+        assertEquals(EntityEventStream.getNumOpenStreams(), initialOpen);
+
+        EntityEventStream stream2 = newStream();
+        assertTrue(stream2.tryOpen());
+        stream2.write(new DisconnectedOutputStream());
+    }
+
+    @Test
+    public void testReleasesReservationOfStreamNeverWritten() throws Exception {
+        int initialOpen = EntityEventStream.getNumOpenStreams();
+        mgmt.getBrooklynProperties().put(EntityEventStream.MAX_STREAMS, initialOpen+1);
+
+        assertTrue(newStream().tryOpen());
+        assertFalse(newStream().tryOpen());
+
+        // as happens after MAX_UNWRITTEN_DURATION
+        EntityEventStream.releaseUnwrittenStreams(true);
+        assertEquals(EntityEventStream.getNumOpenStreams(), initialOpen);
+        EntityEventStream stream = newStream();
+        assertTrue(stream.tryOpen());
+        stream.write(new DisconnectedOutputStream());
+    }
+
+    @Test
+    public void testStreamsTasksWhenSubmitted() throws Exception {
+        final EntityEventStream stream = newStream().tasks(true);
+        assertTrue(stream.tryOpen());
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        Future<?> writing = write(stream, output);
+        Asserts.succeedsEventually(new Runnable() {
+            public void run() {
+                assertTrue(output.toString().startsWith("event: snapshot\n"));
+            }});
+
+        final CountDownLatch latch = new CountDownLatch(1);
+        final Task<Void> task = ((EntityInternal)entity).getExecutionContext().submit(Tasks.<Void>builder().name("myTask").dynamic(false)
+                .body(new Runnable() {
+                    public void run() {
+                        try {
+                            latch.await();
+                        } catch (InterruptedException e) {
+                            throw Exceptions.propagate(e);
+                        }
+                    }})
+                .build());
+        try {
+            Asserts.succeedsEventually(new Runnable() {
+                public void run() {
+                    String written = output.toString();
+                    assertTrue(written.contains("event: tasks\n"), written);
+                    assertTrue(written.contains(task.getId()), written);
+                }});
+        } finally {
+            latch.countDown();
+        }
+        writing.cancel(true);
+    }
+
+    private EntityEventStream newStream() {
+        return new EntityEventStream(mgmt, BrooklynJacksonJsonProvider.newPrivateObjectMapper(mgmt), app)
+                .tasks(false)
+                .period(Duration.millis(10));
+    }
+
+    private Future<?> write(final EntityEventStream stream, final ByteArrayOutputStream output) {
+        return executor.submit(new Callable<Void>() {
+            public Void call() throws Exception {
+                stream.write(output);
+                return null;
+            }});
+    }
+
+    /** fails when written to, as when the client has gone away */
+    private static class DisconnectedOutputStream extends OutputStream {
+        @Override
+        public void write(int b) throws IOException {
+            throw new IOException("simulated client disconnect");
+        }
+    }
+}
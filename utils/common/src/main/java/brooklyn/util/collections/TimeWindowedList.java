@@ -18,7 +18,7 @@
  */
 package brooklyn.util.collections;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -36,7 +36,8 @@ import com.google.common.collect.ImmutableList;
  * @author aled
  */
 public class TimeWindowedList<T> {
-    private final LinkedList<TimestampedValue<T>> values = new LinkedList<TimestampedValue<T>>();
+    // a ring rather than a linked list, so adding and pruning values does not allocate
+    private final TimestampedRingBuffer<T> values = new TimestampedRingBuffer<T>();
     private volatile Duration timePeriod;
     private final int minVals;
     private final int minExpiredVals;
@@ -75,7 +76,7 @@ public class TimeWindowedList<T> {
     }
     
     public synchronized T getLatestValue() {
-        return (values.isEmpty()) ? null : values.get(values.size()-1).getValue();
+        return (values.isEmpty()) ? null : values.getValue(values.size()-1);
     }
     
     public List<TimestampedValue<T>> getValues() {
@@ -84,28 +85,28 @@ public class TimeWindowedList<T> {
     
     public synchronized List<TimestampedValue<T>> getValues(long now) {
         pruneValues(now);
-        return ImmutableList.copyOf(values);
+        return ImmutableList.copyOf(values.toList(0));
     }
     
     public synchronized List<TimestampedValue<T>> getValuesInWindow(long now, Duration subTimePeriod) {
         long startTime = now - subTimePeriod.toMilliseconds();
-        List<TimestampedValue<T>> result = new LinkedList<TimestampedValue<T>>();
-        TimestampedValue<T> mostRecentExpired = null;
-        for (TimestampedValue<T> val : values) {
-            if (val.getTimestamp() < startTime) {
+        List<TimestampedValue<T>> result = new ArrayList<TimestampedValue<T>>();
+        int mostRecentExpired = -1;
+        for (int i = 0; i < values.size(); i++) {
+            if (values.getTimestamp(i) < startTime) {
                 // discard; but remember most recent too-old value so we include that as the "initial"
-                mostRecentExpired = val;
+                mostRecentExpired = i;
             } else {
-                result.add(val);
+                result.add(values.get(i));
             }
         }
-        if (minExpiredVals > 0 && mostRecentExpired != null) {
-            result.add(0, mostRecentExpired);
+        if (minExpiredVals > 0 && mostRecentExpired >= 0) {
+            result.add(0, values.get(mostRecentExpired));
         }
         
         if (result.size() < minVals) {
             int minIndex = Math.max(0, values.size()-minVals);
-            return ImmutableList.copyOf(values.subList(minIndex, values.size()));
+            return ImmutableList.copyOf(values.toList(minIndex));
         } else {
             return result;
         }
@@ -116,7 +117,7 @@ public class TimeWindowedList<T> {
     }
     
     public synchronized void add(T val, long timestamp) {
-        values.add(values.size(), new TimestampedValue<T>(val, timestamp));
+        values.add(val, timestamp);
         pruneValues(timestamp);
     }
     
@@ -126,12 +127,8 @@ public class TimeWindowedList<T> {
         if (timePeriod.equals(Duration.ZERO)) {
             expiredValsCount = values.size();
         } else {
-            for (TimestampedValue<T> val : values) {
-                if (val.getTimestamp() < startTime) {
-                    expiredValsCount++;
-                } else {
-                    break;
-                }
+            while (expiredValsCount < values.size() && values.getTimestamp(expiredValsCount) < startTime) {
+                expiredValsCount++;
             }
         }
         int numToPrune = Math.min(expiredValsCount - minExpiredVals, values.size()-minVals);
@@ -0,0 +1,277 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.util.collections;
+
+import java.util.NoSuchElementException;
+
+import com.google.common.annotations.Beta;
+
+/**
+ * A first-in first-out sequence of timestamped doubles, held in primitive arrays used as a ring,
+ * with a running sum, count, min and max of the values held. Adding and removing values is
+ * amortized constant time and does not allocate (other than when the arrays grow), which suits
+ * sliding time windows of metrics: add each new value, and remove the oldest as they expire.
+ * <p>
+ * {@link Double#NaN} may be added for a missing value; it is held, but excluded from the statistics.
+ * The sum is compensated for rounding errors, and recomputed from the values held after as many
+ * removals as there are values, so it does not drift however long the window is in use.
+ * <p>
+ * Not thread-safe.
+ */
+@Beta
+public class TimestampedDoubleRingBuffer {
+
+    private static final int DEFAULT_INITIAL_CAPACITY = 8;
+
+    private long[] timestamps;
+    private double[] values;
+    private int head;
+    private int size;
+    /** the sequence number of the oldest value, i.e. the number removed so far */
+    private long firstSequence;
+
+    private double sum;
+    private double sumCompensation;
+    private int count;
+    private int removalsSinceSumComputed;
+
+    /** sequence numbers of the values which may yet be the min (or max), oldest first, with increasing (or decreasing) values */
+    private final SequenceDeque minCandidates;
+    private final SequenceDeque maxCandidates;
+
+    public TimestampedDoubleRingBuffer() {
+        this(DEFAULT_INITIAL_CAPACITY);
+    }
+
+    public TimestampedDoubleRingBuffer(int initialCapacity) {
+        int capacity = Math.max(1, initialCapacity);
+        timestamps = new long[capacity];
+        values = new double[capacity];
+        minCandidates = new SequenceDeque(capacity);
+        maxCandidates = new SequenceDeque(capacity);
+    }
+
+    public void add(double value, long timestamp) {
+        if (size == timestamps.length) grow();
+        int i = (head + size) % timestamps.length;
+        timestamps[i] = timestamp;
+        values[i] = value;
+        long sequence = firstSequence + size;
+        size++;
+
+        if (!Double.isNaN(value)) {
+            addToSum(value);
+            count++;
+            while (!minCandidates.isEmpty() && valueOf(minCandidates.peekLast()) >= value) minCandidates.removeLast();
+            minCandidates.addLast(sequence);
+            while (!maxCandidates.isEmpty() && valueOf(maxCandidates.peekLast()) <= value) maxCandidates.removeLast();
+            maxCandidates.addLast(sequence);
+        }
+    }
+
+    /** removes the oldest value */
+    public void removeFirst() {
+        if (size == 0) throw new NoSuchElementException();
+        double value = values[head];
+        head = (head + 1) % timestamps.length;
+        size--;
+
+        if (!Double.isNaN(value)) {
+            count--;
+            if (minCandidates.peekFirst() == firstSequence) minCandidates.removeFirst();
+            if (maxCandidates.peekFirst() == firstSequence) maxCandidates.removeFirst();
+            if (++removalsSinceSumComputed > size) {
+                recomputeSum();
+            } else {
+                addToSum(-value);
+            }
+        }
+        firstSequence++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** the timestamp of the i-th oldest value */
+    public long getTimestamp(int i) {
+        return timestamps[index(i)];
+    }
+
+    /** the i-th oldest value */
+    public double getValue(int i) {
+        return values[index(i)];
+    }
+
+    public long getFirstTimestamp() {
+        return getTimestamp(0);
+    }
+
+    public long getLastTimestamp() {
+        return getTimestamp(size - 1);
+    }
+
+    public double getLastValue() {
+        return getValue(size - 1);
+    }
+
+    /** the number of values held which are not NaN */
+    public int getCount() {
+        return count;
+    }
+
+    /** the sum of the values held which are not NaN; 0 if none */
+    public double getSum() {
+        return (count == 0) ? 0 : sum + sumCompensation;
+    }
+
+    /** the mean of the values held which are not NaN; NaN if none */
+    public double getMean() {
+        return (count == 0) ? Double.NaN : getSum() / count;
+    }
+
+    /** the least of the values held which are not NaN; NaN if none */
+    public double getMin() {
+        return minCandidates.isEmpty() ? Double.NaN : valueOf(minCandidates.peekFirst());
+    }
+
+    /** the greatest of the values held which are not NaN; NaN if none */
+    public double getMax() {
+        return maxCandidates.isEmpty() ? Double.NaN : valueOf(maxCandidates.peekFirst());
+    }
+
+    public void clear() {
+        head = 0;
+        size = 0;
+        count = 0;
+        sum = 0;
+        sumCompensation = 0;
+        removalsSinceSumComputed = 0;
+        minCandidates.clear();
+        maxCandidates.clear();
+    }
+
+    private double valueOf(long sequence) {
+        return values[(head + (int) (sequence - firstSequence)) % timestamps.length];
+    }
+
+    private int index(int i) {
+        if (i < 0 || i >= size) throw new IndexOutOfBoundsException("index "+i+", size "+size);
+        return (head + i) % timestamps.length;
+    }
+
+    /** Neumaier's variant of Kahan summation */
+    private void addToSum(double value) {
+        double t = sum + value;
+        if (Math.abs(sum) >= Math.abs(value)) {
+            sumCompensation += (sum - t) + value;
+        } else {
+            sumCompensation += (value - t) + sum;
+        }
+        sum = t;
+    }
+
+    private void recomputeSum() {
+        sum = 0;
+        sumCompensation = 0;
+        for (int i = 0; i < size; i++) {
+            double value = values[(head + i) % timestamps.length];
+            if (!Double.isNaN(value)) addToSum(value);
+        }
+        removalsSinceSumComputed = 0;
+    }
+
+    private void grow() {
+        int capacity = timestamps.length * 2;
+        long[] newTimestamps = new long[capacity];
+        double[] newValues = new double[capacity];
+        for (int i = 0; i < size; i++) {
+            int j = (head + i) % timestamps.length;
+            newTimestamps[i] = timestamps[j];
+            newValues[i] = values[j];
+        }
+        timestamps = newTimestamps;
+        values = newValues;
+        head = 0;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) result.append(", ");
+            result.append("val=").append(getValue(i)).append("; timestamp=").append(getTimestamp(i));
+        }
+        return result.append("]").toString();
+    }
+
+    /** a double-ended queue of longs, in a ring */
+    private static class SequenceDeque {
+        private long[] elements;
+        private int head;
+        private int size;
+
+        SequenceDeque(int initialCapacity) {
+            elements = new long[initialCapacity];
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        long peekFirst() {
+            return elements[head];
+        }
+
+        long peekLast() {
+            return elements[(head + size - 1) % elements.length];
+        }
+
+        void addLast(long element) {
+            if (size == elements.length) {
+                long[] newElements = new long[elements.length * 2];
+                for (int i = 0; i < size; i++) {
+                    newElements[i] = elements[(head + i) % elements.length];
+                }
+                elements = newElements;
+                head = 0;
+            }
+            elements[(head + size) % elements.length] = element;
+            size++;
+        }
+
+        void removeFirst() {
+            head = (head + 1) % elements.length;
+            size--;
+        }
+
+        void removeLast() {
+            size--;
+        }
+
+        void clear() {
+            head = 0;
+            size = 0;
+        }
+    }
+}
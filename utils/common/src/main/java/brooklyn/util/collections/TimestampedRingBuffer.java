@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.util.collections;
+
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import com.google.common.annotations.Beta;
+import com.google.common.collect.Lists;
+
+/**
+ * A first-in first-out sequence of values and their timestamps, held in arrays used as a ring,
+ * so that adding and removing values does not allocate (other than when the arrays grow).
+ * Timestamps are held as primitive longs.
+ * <p>
+ * Not thread-safe; see {@link TimestampedDoubleRingBuffer} for primitive double values with running statistics.
+ */
+@Beta
+public class TimestampedRingBuffer<T> {
+
+    private static final int DEFAULT_INITIAL_CAPACITY = 8;
+
+    private long[] timestamps;
+    private Object[] values;
+    private int head;
+    private int size;
+
+    public TimestampedRingBuffer() {
+        this(DEFAULT_INITIAL_CAPACITY);
+    }
+
+    public TimestampedRingBuffer(int initialCapacity) {
+        int capacity = Math.max(1, initialCapacity);
+        timestamps = new long[capacity];
+        values = new Object[capacity];
+    }
+
+    public void add(T value, long timestamp) {
+        if (size == timestamps.length) grow();
+        int i = (head + size) % timestamps.length;
+        timestamps[i] = timestamp;
+        values[i] = value;
+        size++;
+    }
+
+    /** removes the oldest value */
+    public void removeFirst() {
+        if (size == 0) throw new NoSuchElementException();
+        values[head] = null;
+        head = (head + 1) % timestamps.length;
+        size--;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** the timestamp of the i-th oldest value */
+    public long getTimestamp(int i) {
+        return timestamps[index(i)];
+    }
+
+    /** the i-th oldest value */
+    @SuppressWarnings("unchecked")
+    public T getValue(int i) {
+        return (T) values[index(i)];
+    }
+
+    public TimestampedValue<T> get(int i) {
+        return new TimestampedValue<T>(getValue(i), getTimestamp(i));
+    }
+
+    /** a copy of the values from the i-th oldest onwards */
+    public List<TimestampedValue<T>> toList(int fromIndex) {
+        List<TimestampedValue<T>> result = Lists.newArrayListWithCapacity(Math.max(0, size - fromIndex));
+        for (int i = fromIndex; i < size; i++) {
+            result.add(get(i));
+        }
+        return result;
+    }
+
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            values[index(i)] = null;
+        }
+        head = 0;
+        size = 0;
+    }
+
+    private int index(int i) {
+        if (i < 0 || i >= size) throw new IndexOutOfBoundsException("index "+i+", size "+size);
+        return (head + i) % timestamps.length;
+    }
+
+    private void grow() {
+        int capacity = timestamps.length * 2;
+        long[] newTimestamps = new long[capacity];
+        Object[] newValues = new Object[capacity];
+        for (int i = 0; i < size; i++) {
+            int j = (head + i) % timestamps.length;
+            newTimestamps[i] = timestamps[j];
+            newValues[i] = values[j];
+        }
+        timestamps = newTimestamps;
+        values = newValues;
+        head = 0;
+    }
+
+    @Override
+    public String toString() {
+        return toList(0).toString();
+    }
+}
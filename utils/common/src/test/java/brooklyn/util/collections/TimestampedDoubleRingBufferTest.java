@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.util.collections;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.LinkedList;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+public class TimestampedDoubleRingBufferTest {
+
+    @Test
+    public void testAddsAndRemovesInOrderAcrossGrowth() {
+        TimestampedDoubleRingBuffer buffer = new TimestampedDoubleRingBuffer(2);
+        buffer.add(1, 10L);
+        buffer.add(2, 20L);
+        buffer.removeFirst();
+        buffer.add(3, 30L);
+        buffer.add(4, 40L);
+        buffer.add(5, 50L);
+
+        assertEquals(buffer.size(), 4);
+        assertEquals(buffer.getFirstTimestamp(), 20L);
+        assertEquals(buffer.getLastTimestamp(), 50L);
+        assertEquals(buffer.getValue(1), 3d);
+        assertEquals(buffer.getLastValue(), 5d);
+        assertEquals(buffer.getSum(), 14d);
+        assertEquals(buffer.getMin(), 2d);
+        assertEquals(buffer.getMax(), 5d);
+    }
+
+    @Test
+    public void testStatisticsExcludeNaN() {
+        TimestampedDoubleRingBuffer buffer = new TimestampedDoubleRingBuffer();
+        buffer.add(Double.NaN, 1L);
+        assertEquals(buffer.getCount(), 0);
+        assertEquals(buffer.getSum(), 0d);
+        assertTrue(Double.isNaN(buffer.getMin()));
+        assertTrue(Double.isNaN(buffer.getMean()));
+
+        buffer.add(4, 2L);
+        buffer.add(Double.NaN, 3L);
+        buffer.add(2, 4L);
+        assertEquals(buffer.size(), 4);
+        assertEquals(buffer.getCount(), 2);
+        assertEquals(buffer.getMean(), 3d);
+        assertEquals(buffer.getMin(), 2d);
+        assertEquals(buffer.getMax(), 4d);
+    }
+
+    @Test
+    public void testRunningStatisticsMatchRecomputedAsWindowSlides() {
+        Random random = new Random(1234);
+        TimestampedDoubleRingBuffer buffer = new TimestampedDoubleRingBuffer(4);
+        LinkedList<Double> expected = new LinkedList<Double>();
+        for (int i = 0; i < 10000; i++) {
+            double value = (random.nextInt(10) == 0) ? Double.NaN : random.nextGaussian() * 1e6;
+            buffer.add(value, i);
+            expected.add(value);
+            while (expected.size() > 1 + random.nextInt(50)) {
+                buffer.removeFirst();
+                expected.removeFirst();
+            }
+
+            double sum = 0;
+            double min = Double.NaN;
+            double max = Double.NaN;
+            for (double v : expected) {
+                if (Double.isNaN(v)) continue;
+                sum += v;
+                min = Double.isNaN(min) ? v : Math.min(min, v);
+                max = Double.isNaN(max) ? v : Math.max(max, v);
+            }
+            assertEquals(buffer.size(), expected.size());
+            assertEquals(buffer.getSum(), sum, 1e-3);
+            assertEquals(buffer.getMin(), min);
+            assertEquals(buffer.getMax(), max);
+        }
+    }
+
+    @Test
+    public void testSumDoesNotDriftWithLargeValuesComingAndGoing() {
+        TimestampedDoubleRingBuffer buffer = new TimestampedDoubleRingBuffer();
+        buffer.add(0.1, 0L);
+        for (int i = 1; i <= 1000; i++) {
+            buffer.add((i % 2 == 0) ? 1e17 : 0.1, i);
+            buffer.removeFirst();
+        }
+        assertEquals(buffer.getSum(), 1e17);
+        buffer.removeFirst();
+        assertEquals(buffer.getSum(), 0d);
+    }
+}